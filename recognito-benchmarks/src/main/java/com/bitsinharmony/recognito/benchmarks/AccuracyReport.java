@@ -0,0 +1,91 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.benchmarks;
+
+import java.util.List;
+
+import com.bitsinharmony.recognito.MatchResult;
+import com.bitsinharmony.recognito.Recognito;
+import com.bitsinharmony.recognito.features.LpcFeaturesExtractor;
+import com.bitsinharmony.recognito.features.MfccFeaturesExtractor;
+
+/**
+ * Measures identification accuracy on the synthetic corpus : enrolls a number of speakers, then runs queries 
+ * with known ground truth and reports the share of queries whose best match is the right speaker.
+ * <p>
+ * Usage : {@code java -cp target/benchmarks.jar com.bitsinharmony.recognito.benchmarks.AccuracyReport 
+ * [seed] [speakers] [queries] [sampleRate] [lpc|mfcc]}
+ * </p>
+ * <p>
+ * With a given seed, the report is reproducible and comparable across versions of Recognito.
+ * </p>
+ * 
+ * @author Amaury Crickx
+ */
+public final class AccuracyReport {
+
+    private static final double ENROLLMENT_SECONDS = 3.0d;
+    private static final double QUERY_SECONDS = 2.0d;
+    private static final int FEATURES = 20;
+
+    private AccuracyReport() {}
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 42L;
+        int speakers = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        float sampleRate = args.length > 3 ? Float.parseFloat(args[3]) : 16000.0f;
+        String extractor = args.length > 4 ? args[4] : "lpc";
+
+        SyntheticVoiceCorpus corpus = new SyntheticVoiceCorpus(seed, sampleRate);
+        Recognito<Integer> recognito = new Recognito<Integer>(sampleRate);
+        if ("mfcc".equals(extractor)) {
+            recognito.setFeaturesExtractorFactory(MfccFeaturesExtractor.newFactory(FEATURES));
+        } else {
+            recognito.setFeaturesExtractorFactory(LpcFeaturesExtractor.newFactory(FEATURES));
+        }
+
+        long start = System.nanoTime();
+        corpus.enroll(recognito, 0, speakers, ENROLLMENT_SECONDS);
+        long enrollment = System.nanoTime() - start;
+
+        int top1 = 0;
+        int top5 = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            SyntheticVoiceCorpus.Query query = corpus.query(speakers, i, QUERY_SECONDS);
+            List<MatchResult<Integer>> matches = recognito.identify(query.getVoiceSample());
+            for (int rank = 0; rank < Math.min(5, matches.size()); rank++) {
+                if (matches.get(rank).getKey() == query.getSpeaker()) {
+                    if (rank == 0) {
+                        top1++;
+                    }
+                    top5++;
+                    break;
+                }
+            }
+        }
+        long identification = System.nanoTime() - start;
+
+        System.out.printf("seed=%d speakers=%d queries=%d sampleRate=%.0f extractor=%s%n", 
+                seed, speakers, queries, sampleRate, extractor);
+        System.out.printf("enrollment     : %.1f ms per speaker%n", enrollment / 1E6d / speakers);
+        System.out.printf("identification : %.1f ms per query%n", identification / 1E6d / queries);
+        System.out.printf("top-1 accuracy : %.1f %%%n", 100.0d * top1 / queries);
+        System.out.printf("top-5 accuracy : %.1f %%%n", 100.0d * top5 / queries);
+    }
+}
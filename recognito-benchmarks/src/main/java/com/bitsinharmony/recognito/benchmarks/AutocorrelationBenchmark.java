@@ -0,0 +1,84 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bitsinharmony.recognito.algorithms.DiscreteAutocorrelationAtLagJ;
+import com.bitsinharmony.recognito.algorithms.FftAutocorrelation;
+
+/**
+ * Direct versus FFT autocorrelation of a single analysis window, used to calibrate the cost model of
+ * {@link com.bitsinharmony.recognito.algorithms.LinearPredictiveCoding#isFftAutocorrelationCheaper(int, int)}
+ * 
+ * @author Amaury Crickx
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutocorrelationBenchmark {
+
+    @Param({ "256", "512", "1024", "2048", "4096" })
+    public int windowSize;
+
+    @Param({ "20", "40", "80", "160" })
+    public int lags;
+
+    private double[] window;
+    private double[] autocorrelations;
+    private DiscreteAutocorrelationAtLagJ direct;
+    private FftAutocorrelation fft;
+
+    @Setup
+    public void setUp() {
+        double[] signal = Signals.voiceLike(48000.0f, 1.0d, 42L);
+        window = new double[windowSize];
+        System.arraycopy(signal, 0, window, 0, windowSize);
+        autocorrelations = new double[lags];
+        direct = new DiscreteAutocorrelationAtLagJ();
+        fft = new FftAutocorrelation(windowSize, lags);
+    }
+
+    @Benchmark
+    public double[] direct() {
+        for (int lag = 0; lag < lags; lag++) {
+            autocorrelations[lag] = direct.autocorrelate(window, lag);
+        }
+        return autocorrelations;
+    }
+
+    @Benchmark
+    public double[] fft() {
+        fft.autocorrelate(window, autocorrelations);
+        return autocorrelations;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bitsinharmony.recognito.distances.ChebyshevDistanceCalculator;
+import com.bitsinharmony.recognito.distances.DistanceCalculator;
+import com.bitsinharmony.recognito.distances.EuclideanDistanceCalculator;
+
+/**
+ * Distance between two feature vectors, for each available DistanceCalculator
+ * 
+ * @author Amaury Crickx
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceCalculatorBenchmark {
+
+    @Param({ "euclidean", "chebyshev" })
+    public String calculatorName;
+
+    @Param({ "20", "40" })
+    public int dimensions;
+
+    private DistanceCalculator calculator;
+    private double[] features1;
+    private double[] features2;
+
+    @Setup
+    public void setUp() {
+        calculator = "euclidean".equals(calculatorName) 
+                ? new EuclideanDistanceCalculator() : new ChebyshevDistanceCalculator();
+        Random random = new Random(42L);
+        features1 = new double[dimensions];
+        features2 = new double[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            features1[i] = random.nextGaussian();
+            features2[i] = random.nextGaussian();
+        }
+    }
+
+    @Benchmark
+    public double getDistance() {
+        return calculator.getDistance(features1, features2);
+    }
+}
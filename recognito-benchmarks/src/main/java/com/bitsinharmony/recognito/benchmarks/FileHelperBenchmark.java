@@ -0,0 +1,82 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bitsinharmony.recognito.utils.FileHelper;
+
+/**
+ * Decoding of in-memory WAV files, including the conversion to the format and sample rate expected by Recognito.
+ * Stereo files are downmixed to mono while being decoded
+ * 
+ * @author Amaury Crickx
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileHelperBenchmark {
+
+    @Param({ "8000", "16000", "44100" })
+    public float sampleRate;
+
+    @Param({ "1", "10" })
+    public double seconds;
+
+    @Param({ "1", "2" })
+    public int channels;
+
+    private byte[] waveFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        waveFile = Signals.toWaveFile(Signals.voiceLike(sampleRate, seconds, 42L), sampleRate, channels);
+    }
+
+    @Benchmark
+    public double[] readAudioInputStream() throws IOException, UnsupportedAudioFileException {
+        return FileHelper.readAudioInputStream(AudioSystem.getAudioInputStream(new ByteArrayInputStream(waveFile)));
+    }
+
+    /**
+     * Decoding to 8000 Hz, resampling while decoding unless the file already is at 8000 Hz
+     */
+    @Benchmark
+    public double[] readAudioInputStreamAt8000Hz() throws IOException, UnsupportedAudioFileException {
+        return FileHelper.readAudioInputStream(AudioSystem.getAudioInputStream(new ByteArrayInputStream(waveFile)), 8000);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bitsinharmony.recognito.MatchResult;
+import com.bitsinharmony.recognito.Recognito;
+
+/**
+ * End to end identification : silence removal, normalization, features extraction, 
+ * scoring against the whole gallery and sorting.
+ * The sample is copied on each invocation since Recognito processes it in place, the copy is part of the score.
+ * 
+ * @author Amaury Crickx
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdentifyBenchmark {
+
+    private static final long SEED = 42L;
+    private static final double ENROLLMENT_SECONDS = 0.1d;
+
+    @Param({ "16000" })
+    public float sampleRate;
+
+    @Param({ "1", "5" })
+    public double seconds;
+
+    @Param({ "100", "1000", "10000" })
+    public int gallerySize;
+
+    private Recognito<Integer> recognito;
+    private double[] voiceSample;
+
+    @Setup
+    public void setUp() {
+        SyntheticVoiceCorpus corpus = new SyntheticVoiceCorpus(SEED, sampleRate);
+        recognito = new Recognito<Integer>(sampleRate);
+        corpus.enroll(recognito, 0, gallerySize, ENROLLMENT_SECONDS);
+        voiceSample = corpus.query(gallerySize, 0, seconds).getVoiceSample();
+    }
+
+    @Benchmark
+    public List<MatchResult<Integer>> identify() {
+        return recognito.identify(voiceSample.clone());
+    }
+}
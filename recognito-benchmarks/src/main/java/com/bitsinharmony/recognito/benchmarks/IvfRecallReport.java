@@ -0,0 +1,109 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.bitsinharmony.recognito.IvfIndex;
+import com.bitsinharmony.recognito.MatchResult;
+import com.bitsinharmony.recognito.Recognito;
+import com.bitsinharmony.recognito.cache.FeaturesCache;
+import com.bitsinharmony.recognito.metrics.CumulativeMetricsCollector;
+import com.bitsinharmony.recognito.metrics.Stage;
+
+/**
+ * Measures the recall of the inverted file index on the synthetic corpus : enrolls a number of speakers, 
+ * computes the exact top matches of each query, then reports for increasing numbers of probed partitions 
+ * the share of the exact top matches found, the share of the gallery scored and the scoring time.
+ * <p>
+ * Usage : {@code java -cp target/benchmarks.jar com.bitsinharmony.recognito.benchmarks.IvfRecallReport 
+ * [seed] [speakers] [queries] [partitions] [topK]}
+ * </p>
+ * <p>
+ * Features are extracted once per query thanks to a features cache, the times reported are those of the scoring.
+ * </p>
+ * 
+ * @author Amaury Crickx
+ */
+public final class IvfRecallReport {
+
+    private static final double ENROLLMENT_SECONDS = 0.5d;
+    private static final double QUERY_SECONDS = 1.0d;
+    private static final float SAMPLE_RATE = 16000.0f;
+
+    private IvfRecallReport() {}
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 42L;
+        int speakers = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int partitions = args.length > 3 ? Integer.parseInt(args[3]) : (int) Math.sqrt(speakers);
+        int topK = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+
+        SyntheticVoiceCorpus corpus = new SyntheticVoiceCorpus(seed, SAMPLE_RATE);
+        Recognito<Integer> recognito = new Recognito<Integer>(SAMPLE_RATE);
+        recognito.setFeaturesCache(new FeaturesCache(queries));
+        corpus.enroll(recognito, 0, speakers, ENROLLMENT_SECONDS);
+
+        double[][] samples = new double[queries][];
+        List<Set<Integer>> exact = new ArrayList<Set<Integer>>(queries);
+        for (int i = 0; i < queries; i++) {
+            samples[i] = corpus.query(speakers, i, QUERY_SECONDS).getVoiceSample();
+            exact.add(keys(recognito.identify(samples[i].clone(), topK)));
+        }
+
+        long start = System.nanoTime();
+        IvfIndex<Integer> index = new IvfIndex<Integer>(partitions);
+        recognito.setIndex(index);
+        long training = System.nanoTime() - start;
+
+        System.out.printf("seed=%d speakers=%d queries=%d partitions=%d topK=%d%n", 
+                seed, speakers, queries, partitions, topK);
+        System.out.printf("training : %.1f ms%n", training / 1E6d);
+        System.out.printf("%8s %10s %10s %12s%n", "nprobe", "recall", "scanned", "us/query");
+        // 1, 2, 4... then all of them
+        for (int probes = 1; ; probes = Math.min(probes * 2, partitions)) {
+            index.setProbeCount(probes);
+            CumulativeMetricsCollector metrics = new CumulativeMetricsCollector();
+            recognito.setMetricsCollector(metrics);
+            int found = 0;
+            for (int i = 0; i < queries; i++) {
+                Set<Integer> matches = keys(recognito.identify(samples[i].clone(), topK));
+                matches.retainAll(exact.get(i));
+                found += matches.size();
+            }
+            System.out.printf("%8d %9.1f%% %9.1f%% %12.1f%n", probes, 
+                    100.0d * found / (queries * Math.min(topK, speakers)), 
+                    100.0d * metrics.getCandidatesScored() / ((long) queries * speakers), 
+                    metrics.getTotalNanos(Stage.SCORING) / 1E3d / queries);
+            if (probes == partitions) {
+                break;
+            }
+        }
+    }
+
+    private static Set<Integer> keys(List<MatchResult<Integer>> matches) {
+        Set<Integer> keys = new HashSet<Integer>();
+        for (MatchResult<Integer> match : matches) {
+            keys.add(match.getKey());
+        }
+        return keys;
+    }
+}
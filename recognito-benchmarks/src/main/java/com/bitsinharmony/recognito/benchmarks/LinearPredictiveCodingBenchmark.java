@@ -0,0 +1,69 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bitsinharmony.recognito.algorithms.LinearPredictiveCoding;
+
+/**
+ * LPC on a single analysis window. Window sizes match the ones chosen for 8, 16, 44.1 and 96 KHz sample rates
+ * 
+ * @author Amaury Crickx
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinearPredictiveCodingBenchmark {
+
+    @Param({ "256", "512", "1024", "2048" })
+    public int windowSize;
+
+    @Param({ "20", "40", "80", "160" })
+    public int poles;
+
+    private double[] window;
+    private LinearPredictiveCoding lpc;
+
+    @Setup
+    public void setUp() {
+        double[] signal = Signals.voiceLike(16000.0f, 1.0d, 42L);
+        window = new double[windowSize];
+        System.arraycopy(signal, 0, window, 0, windowSize);
+        lpc = new LinearPredictiveCoding(windowSize, poles);
+    }
+
+    @Benchmark
+    public double[][] applyLinearPredictiveCoding() {
+        return lpc.applyLinearPredictiveCoding(window);
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.benchmarks;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+
+import com.bitsinharmony.recognito.Recognito;
+
+/**
+ * Multi-threaded load generator driving a single Recognito instance with a mix of identify, createVoicePrint and
+ * mergeVoiceSample calls, reporting throughput and latency percentiles per operation.
+ * <p>
+ * Two load models are available :
+ * </p>
+ * <ul>
+ * <li>closed loop : each thread issues its next call as soon as the previous one returns. Throughput is what the 
+ * system sustains with that many concurrent callers</li>
+ * <li>open loop : calls are scheduled at a fixed rate, whatever the response times. Latency is measured from the 
+ * intended start time, so that queueing delays are accounted for instead of hidden (coordinated omission)</li>
+ * </ul>
+ * <p>
+ * Latencies are recorded in HdrHistograms, one per thread and per operation, merged once the run is over. 
+ * The gallery and the voice samples come from a {@link SyntheticVoiceCorpus} and are generated before the run, 
+ * so that generation doesn't add to the measured latencies.
+ * </p>
+ * <p>
+ * Usage : {@code java -cp target/benchmarks.jar com.bitsinharmony.recognito.benchmarks.LoadTest [--option=value]...}
+ * </p>
+ * <pre>
+ * --mode=closed|open   load model (closed)
+ * --threads=8          number of calling threads (8)
+ * --rate=200           open loop only : calls per second over all threads (200)
+ * --warmup=5           warmup duration in seconds, not recorded (5)
+ * --duration=30        measured duration in seconds (30)
+ * --mix=80,10,10       relative weights of identify, createVoicePrint and mergeVoiceSample (80,10,10)
+ * --speakers=1000      size of the gallery enrolled before the run (1000)
+ * --seconds=2          length of the voice samples in seconds (2)
+ * --sampleRate=16000   sample rate (16000)
+ * --seed=42            corpus seed (42)
+ * </pre>
+ * 
+ * @author Amaury Crickx
+ */
+public final class LoadTest {
+
+    private static final int SAMPLE_POOL_SIZE = 64;
+    private static final double ENROLLMENT_SECONDS = 1.0d;
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    enum Operation { IDENTIFY, CREATE, MERGE }
+
+    private final Map<String, String> options;
+    private final int threads;
+    private final int[] mix = new int[Operation.values().length];
+    private final int speakers;
+    private final Recognito<Integer> recognito;
+    private final double[][] samplePool = new double[SAMPLE_POOL_SIZE][];
+    private final AtomicInteger nextKey;
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+        this.threads = intOption("threads", 8);
+        this.speakers = intOption("speakers", 1000);
+        String[] weights = option("mix", "80,10,10").split(",");
+        if (weights.length != mix.length) {
+            throw new IllegalArgumentException("mix expects " + mix.length + " weights, received [" + option("mix", "") + "]");
+        }
+        for (int i = 0; i < mix.length; i++) {
+            mix[i] = Integer.parseInt(weights[i].trim()) + (i > 0 ? mix[i - 1] : 0);
+        }
+        if (speakers < 1 && mix[Operation.MERGE.ordinal()] > mix[Operation.CREATE.ordinal()]) {
+            throw new IllegalArgumentException("mergeVoiceSample requires at least one enrolled speaker");
+        }
+
+        float sampleRate = Float.parseFloat(option("sampleRate", "16000"));
+        double seconds = Double.parseDouble(option("seconds", "2"));
+        SyntheticVoiceCorpus corpus = new SyntheticVoiceCorpus(Long.parseLong(option("seed", "42")), sampleRate);
+        recognito = new Recognito<Integer>(sampleRate);
+        corpus.enroll(recognito, 0, speakers, ENROLLMENT_SECONDS);
+        for (int i = 0; i < samplePool.length; i++) {
+            samplePool[i] = corpus.query(Math.max(speakers, 1), i, seconds).getVoiceSample();
+        }
+        nextKey = new AtomicInteger(speakers);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<String, String>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Options are expected as --name=value, received [" + arg + "]");
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        new LoadTest(options).run();
+    }
+
+    private void run() throws InterruptedException {
+        boolean openLoop = "open".equals(option("mode", "closed"));
+        long intervalNanos = openLoop ? (long) (TimeUnit.SECONDS.toNanos(1) / Double.parseDouble(option("rate", "200"))) : 0L;
+        long warmupNanos = TimeUnit.SECONDS.toNanos(intOption("warmup", 5));
+        long durationNanos = TimeUnit.SECONDS.toNanos(intOption("duration", 30));
+
+        System.out.printf("mode=%s threads=%d speakers=%d mix=%s%s%n", openLoop ? "open" : "closed", threads, speakers, 
+                option("mix", "80,10,10"), openLoop ? " rate=" + option("rate", "200") + "/s" : "");
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Worker> workers = new ArrayList<Worker>();
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(i, start, measureFrom, end, intervalNanos, done);
+            workers.add(worker);
+            Thread thread = new Thread(worker, "load-test-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        Map<Operation, Histogram> histograms = new EnumMap<Operation, Histogram>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            Histogram merged = new Histogram(SIGNIFICANT_DIGITS);
+            for (Worker worker : workers) {
+                merged.add(worker.histograms.get(operation));
+            }
+            histograms.put(operation, merged);
+        }
+        report(histograms, durationNanos);
+    }
+
+    private void report(Map<Operation, Histogram> histograms, long durationNanos) {
+        double seconds = durationNanos / 1E9d;
+        long total = 0;
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %10s%n", "operation", "count", "ops/s", 
+                "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            total += histogram.getTotalCount();
+            System.out.printf("%-10s %10d %10.1f %10.2f %10.2f %10.2f %10.2f%n", operation.name().toLowerCase(), 
+                    histogram.getTotalCount(), histogram.getTotalCount() / seconds, 
+                    millis(histogram.getValueAtPercentile(50.0d)), millis(histogram.getValueAtPercentile(99.0d)), 
+                    millis(histogram.getValueAtPercentile(99.9d)), millis(histogram.getMaxValue()));
+        }
+        System.out.printf("total      %10d %10.1f      failures %d%n", total, total / seconds, failures.get());
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0d;
+    }
+
+    private String option(String name, String defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return Integer.parseInt(option(name, String.valueOf(defaultValue)));
+    }
+
+    /**
+     * Issues calls until the end of the run, recording latencies in microseconds once the warmup is over
+     */
+    private final class Worker
+            implements Runnable {
+
+        private final Map<Operation, Histogram> histograms = new EnumMap<Operation, Histogram>(Operation.class);
+        private final Random random;
+        private final long start;
+        private final long measureFrom;
+        private final long end;
+        private final long intervalNanos;
+        private final CountDownLatch done;
+
+        Worker(int index, long start, long measureFrom, long end, long intervalNanos, CountDownLatch done) {
+            for (Operation operation : Operation.values()) {
+                histograms.put(operation, new Histogram(SIGNIFICANT_DIGITS));
+            }
+            this.random = new Random(index);
+            this.start = start;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            this.intervalNanos = intervalNanos;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    long intended;
+                    if (intervalNanos > 0) {
+                        // open loop : claim the next slot of the schedule and wait for it
+                        intended = start + scheduled.getAndIncrement() * intervalNanos;
+                        if (intended >= end) {
+                            return;
+                        }
+                        long wait;
+                        while ((wait = intended - System.nanoTime()) > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    } else {
+                        intended = System.nanoTime();
+                        if (intended >= end) {
+                            return;
+                        }
+                    }
+                    Operation operation = nextOperation();
+                    try {
+                        execute(operation);
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                    if (intended >= measureFrom) {
+                        histograms.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended));
+                    }
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private Operation nextOperation() {
+            int draw = random.nextInt(mix[mix.length - 1]);
+            Operation[] operations = Operation.values();
+            int i = 0;
+            while (draw >= mix[i]) {
+                i++;
+            }
+            return operations[i];
+        }
+
+        private void execute(Operation operation) {
+            // Recognito processes voice samples in place, each call gets its own copy
+            double[] voiceSample = samplePool[random.nextInt(samplePool.length)].clone();
+            switch (operation) {
+                case IDENTIFY:
+                    recognito.identify(voiceSample);
+                    break;
+                case CREATE:
+                    recognito.createVoicePrint(nextKey.getAndIncrement(), voiceSample);
+                    break;
+                case MERGE:
+                    recognito.mergeVoiceSample(random.nextInt(speakers), voiceSample);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown operation " + operation);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bitsinharmony.recognito.features.MfccFeaturesExtractor;
+
+/**
+ * MFCC features extraction over a whole recording, to compare with {@link LpcFeaturesExtractorBenchmark}
+ * 
+ * @author Amaury Crickx
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MfccFeaturesExtractorBenchmark {
+
+    @Param({ "8000", "16000", "44100" })
+    public float sampleRate;
+
+    @Param({ "1", "10" })
+    public double seconds;
+
+    @Param({ "13", "20" })
+    public int coefficients;
+
+    private double[] voiceSample;
+    private MfccFeaturesExtractor extractor;
+
+    @Setup
+    public void setUp() {
+        voiceSample = Signals.voiceLike(sampleRate, seconds, 42L);
+        extractor = new MfccFeaturesExtractor(sampleRate, coefficients);
+    }
+
+    @Benchmark
+    public double[] extractFeatures() {
+        return extractor.extractFeatures(voiceSample);
+    }
+}
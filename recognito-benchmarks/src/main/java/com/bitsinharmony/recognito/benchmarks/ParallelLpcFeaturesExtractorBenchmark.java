@@ -0,0 +1,81 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.benchmarks;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bitsinharmony.recognito.features.LpcFeaturesExtractor;
+import com.bitsinharmony.recognito.utils.ExecutorHelper;
+
+/**
+ * LPC features extraction of a long recording split into segments processed in parallel. 
+ * A parallelism of 1 is the sequential path
+ * 
+ * @author Amaury Crickx
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelLpcFeaturesExtractorBenchmark {
+
+    @Param({ "16000" })
+    public float sampleRate;
+
+    @Param({ "60" })
+    public double seconds;
+
+    @Param({ "1", "2", "4", "8" })
+    public int parallelism;
+
+    private double[] voiceSample;
+    private ExecutorService executor;
+    private LpcFeaturesExtractor extractor;
+
+    @Setup
+    public void setUp() {
+        voiceSample = new SyntheticVoiceCorpus(42L, sampleRate).utterance(0, 0, seconds);
+        executor = ExecutorHelper.newBoundedExecutorService(parallelism, parallelism * 4);
+        extractor = new LpcFeaturesExtractor(sampleRate, 20, executor, parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public double[] extractFeatures() {
+        return extractor.extractFeatures(voiceSample);
+    }
+}
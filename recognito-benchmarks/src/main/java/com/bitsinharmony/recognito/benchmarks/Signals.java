@@ -0,0 +1,103 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+/**
+ * Deterministic test signals shared by the benchmarks
+ * 
+ * @author Amaury Crickx
+ */
+public final class Signals {
+
+    private static final double BURST_SECONDS = 0.3d;
+    private static final double GAP_SECONDS = 0.1d;
+    private static final int HARMONICS = 10;
+
+    private Signals() {}
+
+    /**
+     * Builds a voice like signal : bursts of harmonic sounds separated by short gaps of low level noise,
+     * so that voice activity detection has something to remove
+     * @param sampleRate the sample rate
+     * @param seconds the length of the signal in seconds
+     * @param seed the seed, the same seed always yields the same signal
+     * @return the signal, values between -1.0 and 1.0
+     */
+    public static double[] voiceLike(float sampleRate, double seconds, long seed) {
+        Random random = new Random(seed);
+        double[] signal = new double[(int) (sampleRate * seconds)];
+        int burst = (int) (sampleRate * BURST_SECONDS);
+        int period = burst + (int) (sampleRate * GAP_SECONDS);
+        double pitch = 80.0d + random.nextDouble() * 180.0d;
+        for (int i = 0; i < signal.length; i++) {
+            double value = 0.001d * (random.nextDouble() * 2 - 1);
+            if (i % period < burst) {
+                double t = i / (double) sampleRate;
+                for (int h = 1; h <= HARMONICS; h++) {
+                    value += Math.sin(2 * Math.PI * pitch * h * t) / (h * HARMONICS);
+                }
+            }
+            signal[i] = value * 0.8d;
+        }
+        return signal;
+    }
+
+    /**
+     * Encodes the given signal as an in-memory PCM 16 bit mono WAV file
+     * @param signal the signal, values between -1.0 and 1.0
+     * @param sampleRate the sample rate
+     * @return the WAV file content
+     * @throws IOException when encoding fails
+     */
+    public static byte[] toWaveFile(double[] signal, float sampleRate) throws IOException {
+        return toWaveFile(signal, sampleRate, 1);
+    }
+
+    /**
+     * Encodes the given signal as an in-memory PCM 16 bit WAV file, the same signal on every channel
+     * @param signal the signal, values between -1.0 and 1.0
+     * @param sampleRate the sample rate
+     * @param channels the number of channels
+     * @return the WAV file content
+     * @throws IOException when encoding fails
+     */
+    public static byte[] toWaveFile(double[] signal, float sampleRate, int channels) throws IOException {
+        byte[] pcm = new byte[signal.length * 2 * channels];
+        for (int i = 0; i < signal.length; i++) {
+            short value = (short) (signal[i] * Short.MAX_VALUE);
+            for (int c = 0, position = 2 * i * channels; c < channels; c++, position += 2) {
+                pcm[position] = (byte) value;
+                pcm[position + 1] = (byte) (value >> 8);
+            }
+        }
+        AudioFormat format = new AudioFormat(sampleRate, 16, channels, true, false);
+        AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(pcm), format, signal.length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(pcm.length + 64);
+        AudioSystem.write(stream, AudioFileFormat.Type.WAVE, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.benchmarks;
+
+import java.util.Random;
+
+import com.bitsinharmony.recognito.Recognito;
+
+/**
+ * Deterministic generator of synthetic speakers for load, scaling and accuracy tests
+ * <p>
+ * Each speaker follows a simple source-filter model of the voice :
+ * </p>
+ * <ul>
+ * <li>the source is a glottal pulse train with a speaker specific mean pitch, jitter and breathiness</li>
+ * <li>the filter is a cascade of resonators placed at speaker specific formant frequencies, derived from a 
+ * vocal tract length and per formant offsets</li>
+ * </ul>
+ * <p>
+ * Utterances are made of syllables separated by short pauses. Each syllable slightly moves the pitch and the 
+ * formants around the speaker's own values, so that two utterances of the same speaker are similar but not identical.
+ * </p>
+ * <p>
+ * Everything is derived from the seed, the speaker index and the utterance index only : the same parameters always 
+ * yield the same samples, whatever the generation order or the number of threads involved. 
+ * Results obtained with a given seed are thus comparable across versions of Recognito.
+ * </p>
+ * <p>
+ * Threading : this class is thread safe
+ * </p>
+ * @author Amaury Crickx
+ */
+public final class SyntheticVoiceCorpus {
+
+    private static final int FORMANTS = 4;
+    // neutral vocal tract formants (Hz) and bandwidths (Hz) for a 17.5 cm vocal tract
+    private static final double[] NEUTRAL_FORMANTS = { 500.0d, 1500.0d, 2500.0d, 3500.0d };
+    private static final double[] BANDWIDTHS = { 80.0d, 100.0d, 140.0d, 200.0d };
+    private static final double SYLLABLE_SECONDS = 0.25d;
+    private static final double PAUSE_SECONDS = 0.06d;
+    private static final double PEAK = 0.8d;
+
+    private final long seed;
+    private final float sampleRate;
+
+    /**
+     * Default constructor
+     * @param seed the seed from which all speakers and utterances are derived
+     * @param sampleRate the sample rate of the generated samples
+     */
+    public SyntheticVoiceCorpus(long seed, float sampleRate) {
+        this.seed = seed;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Get the sample rate of the generated samples
+     * @return the sample rate
+     */
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Generates an utterance of the given speaker
+     * @param speaker the speaker index
+     * @param utterance the utterance index, different indexes yield different utterances of the same speaker
+     * @param seconds the length of the utterance in seconds
+     * @return the voice sample, values between -1.0 and 1.0
+     */
+    public double[] utterance(int speaker, int utterance, double seconds) {
+        Speaker voice = new Speaker(random(speaker, -1));
+        Random random = random(speaker, utterance);
+        double[] sample = new double[(int) (seconds * sampleRate)];
+
+        int syllableLength = (int) (SYLLABLE_SECONDS * sampleRate);
+        int pauseLength = (int) (PAUSE_SECONDS * sampleRate);
+        double[] formants = new double[FORMANTS];
+        double[][] state = new double[FORMANTS][2];
+        double phase = 0.0d;
+
+        for (int start = 0; start < sample.length; start += syllableLength + pauseLength) {
+            // each syllable moves pitch and formants a little around the speaker's values
+            double pitch = voice.pitch * (1.0d + 0.05d * random.nextGaussian());
+            for (int f = 0; f < FORMANTS; f++) {
+                formants[f] = voice.formants[f] * (1.0d + 0.015d * random.nextGaussian());
+            }
+            int end = Math.min(sample.length, start + syllableLength);
+            for (int i = start; i < end; i++) {
+                // glottal source : pulse train with jitter plus breath noise, shaped by a syllable envelope
+                double period = sampleRate / (pitch * (1.0d + voice.jitter * random.nextGaussian()));
+                phase += 1.0d;
+                double excitation = 0.0d;
+                if (phase >= period) {
+                    phase -= period;
+                    excitation = 1.0d;
+                }
+                excitation += voice.breathiness * random.nextGaussian();
+                double envelope = Math.sin(Math.PI * (i - start) / (end - start));
+                double value = excitation * envelope;
+                for (int f = 0; f < FORMANTS; f++) {
+                    value = resonate(value, formants[f], BANDWIDTHS[f], state[f]);
+                }
+                sample[i] = value;
+            }
+            // pauses are near silence
+            for (int i = end; i < Math.min(sample.length, end + pauseLength); i++) {
+                sample[i] = 1E-5d * random.nextGaussian();
+            }
+        }
+        return normalize(sample);
+    }
+
+    /**
+     * Enrolls the given range of speakers into Recognito, using utterance 0 of each speaker
+     * @param recognito the Recognito instance, keys are the speaker indexes
+     * @param fromSpeaker the first speaker index, inclusive
+     * @param toSpeaker the last speaker index, exclusive
+     * @param seconds the length of each enrollment utterance in seconds
+     */
+    public void enroll(Recognito<Integer> recognito, int fromSpeaker, int toSpeaker, double seconds) {
+        for (int speaker = fromSpeaker; speaker < toSpeaker; speaker++) {
+            recognito.createVoicePrint(speaker, utterance(speaker, 0, seconds));
+        }
+    }
+
+    /**
+     * Generates a query : an utterance of a speaker drawn among the enrolled ones, different from the enrollment one
+     * @param speakers the number of enrolled speakers, speakers 0 to speakers - 1 are candidates
+     * @param index the query index, the same index always yields the same query
+     * @param seconds the length of the query utterance in seconds
+     * @return the query along with its ground truth
+     */
+    public Query query(int speakers, int index, double seconds) {
+        Random random = random(Integer.MIN_VALUE, index);
+        int speaker = random.nextInt(speakers);
+        return new Query(speaker, utterance(speaker, 1 + random.nextInt(Integer.MAX_VALUE - 1), seconds));
+    }
+
+    /**
+     * Derives an independent random generator from the seed, speaker and utterance indexes
+     */
+    private Random random(int speaker, int utterance) {
+        long h = seed;
+        h = mix(h ^ (speaker * 0x9E3779B97F4A7C15L));
+        h = mix(h ^ (utterance * 0xC2B2AE3D27D4EB4FL));
+        return new Random(h);
+    }
+
+    /**
+     * SplitMix64 finalizer
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Second order resonator (two pole filter) with unity gain at its center frequency
+     */
+    private double resonate(double input, double frequency, double bandwidth, double[] state) {
+        double r = Math.exp(-Math.PI * bandwidth / sampleRate);
+        double theta = 2 * Math.PI * Math.min(frequency, 0.45d * sampleRate) / sampleRate;
+        double a1 = 2 * r * Math.cos(theta);
+        double a2 = -r * r;
+        double output = (1 - r) * input + a1 * state[0] + a2 * state[1];
+        state[1] = state[0];
+        state[0] = output;
+        return output;
+    }
+
+    private static double[] normalize(double[] sample) {
+        double max = 0.0d;
+        for (double value : sample) {
+            max = Math.max(max, Math.abs(value));
+        }
+        if (max > 0.0d) {
+            for (int i = 0; i < sample.length; i++) {
+                sample[i] *= PEAK / max;
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * The voice characteristics of a speaker
+     */
+    private static final class Speaker {
+
+        private final double pitch;
+        private final double jitter;
+        private final double breathiness;
+        private final double[] formants = new double[FORMANTS];
+
+        Speaker(Random random) {
+            // vocal tract between 13 and 20 cm scales all formants, individual offsets make speakers distinct
+            double tractScale = 17.5d / (13.0d + 7.0d * random.nextDouble());
+            for (int f = 0; f < FORMANTS; f++) {
+                formants[f] = NEUTRAL_FORMANTS[f] * tractScale * (1.0d + 0.25d * (random.nextDouble() * 2 - 1));
+            }
+            pitch = 85.0d + 170.0d * random.nextDouble();
+            jitter = 0.005d + 0.015d * random.nextDouble();
+            breathiness = 0.01d + 0.09d * random.nextDouble();
+        }
+    }
+
+    /**
+     * A query sample along with the speaker who uttered it
+     */
+    public static final class Query {
+
+        private final int speaker;
+        private final double[] voiceSample;
+
+        Query(int speaker, double[] voiceSample) {
+            this.speaker = speaker;
+            this.voiceSample = voiceSample;
+        }
+
+        /**
+         * Get the ground truth : the index of the speaker who uttered the query
+         * @return the speaker index
+         */
+        public int getSpeaker() {
+            return speaker;
+        }
+
+        /**
+         * Get the voice sample of the query
+         * @return the voice sample, values between -1.0 and 1.0
+         */
+        public double[] getVoiceSample() {
+            return voiceSample;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bitsinharmony.recognito.vad.AutocorrellatedVoiceActivityDetector;
+
+/**
+ * Silence removal on a voice like signal with regular gaps.
+ * The sample is copied on each invocation since silence removal applies fades in place, the copy is part of the score.
+ * 
+ * @author Amaury Crickx
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoiceActivityDetectorBenchmark {
+
+    @Param({ "8000", "16000", "44100" })
+    public float sampleRate;
+
+    @Param({ "1", "10" })
+    public double seconds;
+
+    private double[] voiceSample;
+    private AutocorrellatedVoiceActivityDetector detector;
+
+    @Setup
+    public void setUp() {
+        voiceSample = Signals.voiceLike(sampleRate, seconds, 42L);
+        detector = new AutocorrellatedVoiceActivityDetector();
+    }
+
+    @Benchmark
+    public double[] removeSilence() {
+        return detector.removeSilence(voiceSample.clone(), sampleRate);
+    }
+}
@@ -0,0 +1,606 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.bitsinharmony.recognito.samples.SampleSource;
+
+/**
+ * Enrolls large corpora of voice sample files into a {@code Recognito} instance
+ * <p>
+ * Files go through a pipeline of stages connected by bounded queues :
+ * </p>
+ * <ul>
+ * <li>{@link Stage#DECODE} : several threads read and decode the files to 16 bit PCM</li>
+ * <li>{@link Stage#EXTRACT} : several threads remove silence, normalize and extract the features of the decoded samples</li>
+ * <li>{@link Stage#STORE} : a single thread stores the extracted features into {@code Recognito}</li>
+ * </ul>
+ * <p>
+ * Bounded queues apply backpressure : a fast stage blocks as soon as the next one lags behind,
+ * which keeps the number of decoded samples held in memory under control.
+ * Several files may share the same user key : the first one creates the voice print,
+ * the next ones are merged into it. Files that fail in any stage are reported to the {@link Listener}
+ * and don't stop the enrollment.
+ * </p>
+ * <p>
+ * Threading : a single enrollment may run at a time per {@code BulkEnroller} instance, configuration
+ * changes only apply to the next enrollment. {@code Recognito} may be used concurrently as usual.
+ * </p>
+ * @param <K> the type of the user keys
+ * @author Amaury Crickx
+ */
+public class BulkEnroller<K> {
+
+    /**
+     * The stages of the enrollment pipeline
+     */
+    public enum Stage { DECODE, EXTRACT, STORE }
+
+    /**
+     * Receives progress reports and failures of an enrollment.
+     * Implementations are called from the pipeline threads and should return quickly.
+     * @param <K> the type of the user keys
+     */
+    public interface Listener<K> {
+
+        /**
+         * Called every {@link BulkEnroller#setProgressInterval(int)} stored files and once the enrollment is done
+         * @param progress the current progress
+         */
+        void onProgress(Progress progress);
+
+        /**
+         * Called when a file could not be enrolled
+         * @param userKey the user key of the file
+         * @param voiceSampleFile the file
+         * @param cause the cause of the failure
+         */
+        void onFailure(K userKey, File voiceSampleFile, Exception cause);
+    }
+
+    /**
+     * Resolves the user key of a voice sample file, used when enrolling a directory
+     * @param <K> the type of the user keys
+     */
+    public interface KeyResolver<K> {
+
+        /**
+         * Gets the user key associated with the given file
+         * @param voiceSampleFile the file
+         * @return the user key, may not be null
+         */
+        K getKey(File voiceSampleFile);
+    }
+
+    private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+
+    private final Recognito<K> recognito;
+
+    private int decodeThreads = 2 * PROCESSORS;
+    private int extractThreads = PROCESSORS;
+    private int queueCapacity = 4 * PROCESSORS;
+    private int progressInterval = 1000;
+    private Listener<K> listener = new Listener<K>() {
+        @Override public void onProgress(Progress progress) {}
+        @Override public void onFailure(K userKey, File voiceSampleFile, Exception cause) {}
+    };
+
+    /**
+     * Default constructor
+     * @param recognito the Recognito instance to enroll voice samples into
+     */
+    public BulkEnroller(Recognito<K> recognito) {
+        if(recognito == null) {
+            throw new IllegalArgumentException("The recognito instance may not be null");
+        }
+        this.recognito = recognito;
+    }
+
+    /**
+     * Sets the number of threads reading and decoding files.
+     * Decoding is mostly I/O bound, default is twice the number of available processors
+     * @param decodeThreads the number of threads, at least 1
+     */
+    public void setDecodeThreads(int decodeThreads) {
+        this.decodeThreads = checkPositive(decodeThreads, "decodeThreads");
+    }
+
+    /**
+     * Sets the number of threads extracting features.
+     * Extraction is CPU bound, default is the number of available processors
+     * @param extractThreads the number of threads, at least 1
+     */
+    public void setExtractThreads(int extractThreads) {
+        this.extractThreads = checkPositive(extractThreads, "extractThreads");
+    }
+
+    /**
+     * Sets the capacity of the queues between stages.
+     * The decoded samples waiting for extraction are held in memory, keep this reasonably low for long recordings.
+     * Default is four times the number of available processors
+     * @param queueCapacity the capacity, at least 1
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = checkPositive(queueCapacity, "queueCapacity");
+    }
+
+    /**
+     * Sets the number of stored files between two progress reports, default is 1000
+     * @param progressInterval the interval, at least 1
+     */
+    public void setProgressInterval(int progressInterval) {
+        this.progressInterval = checkPositive(progressInterval, "progressInterval");
+    }
+
+    /**
+     * Sets the listener receiving progress reports and failures
+     * @param listener the listener, may not be null
+     */
+    public void setListener(Listener<K> listener) {
+        if(listener == null) {
+            throw new IllegalArgumentException("The listener may not be null");
+        }
+        this.listener = listener;
+    }
+
+    /**
+     * Enrolls all the files of the given directory, subdirectories excluded.
+     * @param directory the directory
+     * @param keyResolver resolves the user key of each file
+     * @return the final progress report
+     * @throws InterruptedException when interrupted while waiting for the pipeline to complete
+     * @see #enroll(Iterator)
+     */
+    public Progress enrollDirectory(File directory, final KeyResolver<K> keyResolver)
+            throws InterruptedException {
+
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile();
+            }
+        });
+        if(files == null) {
+            throw new IllegalArgumentException("Not a readable directory : [" + directory + "]");
+        }
+        Arrays.sort(files);
+        final Iterator<File> it = Arrays.asList(files).iterator();
+
+        return enroll(new Iterator<Entry<K, File>>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Entry<K, File> next() {
+                File file = it.next();
+                return new Task<K>(keyResolver.getKey(file), file, null, null);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        });
+    }
+
+    /**
+     * Enrolls the given files, blocking until all of them went through the pipeline.
+     * The iterator is consumed lazily, there is no need to hold all entries in memory.
+     * <p>
+     * Files failing to enroll are reported to the listener and counted. Anything else thrown within the pipeline, 
+     * by the listener itself or an {@code Error}, aborts the enrollment and is rethrown here
+     * @param voiceSampleFiles pairs of user key and file
+     * @return the final progress report
+     * @throws InterruptedException when interrupted while waiting for the pipeline to complete,
+     * the pipeline threads are interrupted as well
+     */
+    public Progress enroll(Iterator<? extends Entry<K, File>> voiceSampleFiles)
+            throws InterruptedException {
+        return new Run(voiceSampleFiles).execute();
+    }
+
+    private static int checkPositive(int value, String name) {
+        if(value < 1) {
+            throw new IllegalArgumentException(name + " should be at least 1, received [" + value + "]");
+        }
+        return value;
+    }
+
+    /**
+     * Snapshot of the progress of an enrollment
+     * <p>
+     * The throughput of a stage is the number of files it processed per second of wall clock time.
+     * The busy time of a stage is the cumulated time its threads spent processing files,
+     * time spent waiting on the queues excluded : comparing both tells which stage is the bottleneck.
+     * </p>
+     */
+    public static final class Progress {
+
+        private final long[] counts;
+        private final long[] busyNanos;
+        private final long failures;
+        private final long elapsedNanos;
+
+        Progress(long[] counts, long[] busyNanos, long failures, long elapsedNanos) {
+            this.counts = counts;
+            this.busyNanos = busyNanos;
+            this.failures = failures;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Get the number of files successfully processed by the given stage
+         * @param stage the stage
+         * @return the count
+         */
+        public long getCount(Stage stage) {
+            return counts[stage.ordinal()];
+        }
+
+        /**
+         * Get the cumulated time the threads of the given stage spent processing files
+         * @param stage the stage
+         * @return the busy time in milliseconds
+         */
+        public long getBusyTimeMillis(Stage stage) {
+            return busyNanos[stage.ordinal()] / 1000000L;
+        }
+
+        /**
+         * Get the number of files processed by the given stage per second of elapsed time
+         * @param stage the stage
+         * @return the throughput in files per second
+         */
+        public double getThroughput(Stage stage) {
+            return elapsedNanos == 0 ? 0.0d : counts[stage.ordinal()] * 1E9d / elapsedNanos;
+        }
+
+        /**
+         * Get the number of files that failed in any stage
+         * @return the count
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Get the time elapsed since the enrollment started
+         * @return the elapsed time in milliseconds
+         */
+        public long getElapsedMillis() {
+            return elapsedNanos / 1000000L;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for(Stage stage : Stage.values()) {
+                sb.append(stage).append(": ").append(getCount(stage))
+                  .append(" (").append(String.format("%.1f", getThroughput(stage))).append("/s, busy ")
+                  .append(getBusyTimeMillis(stage)).append(" ms) ");
+            }
+            return sb.append("failures: ").append(failures).append(", elapsed ")
+                    .append(getElapsedMillis()).append(" ms").toString();
+        }
+    }
+
+    /**
+     * A file travelling through the pipeline
+     */
+    private static final class Task<K>
+            implements Entry<K, File> {
+
+        private final K userKey;
+        private final File file;
+        private final SampleSource sample;
+        private final double[] features;
+
+        Task(K userKey, File file, SampleSource sample, double[] features) {
+            this.userKey = userKey;
+            this.file = file;
+            this.sample = sample;
+            this.features = features;
+        }
+
+        @Override
+        public K getKey() {
+            return userKey;
+        }
+
+        @Override
+        public File getValue() {
+            return file;
+        }
+
+        @Override
+        public File setValue(File value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * A single execution of the pipeline
+     */
+    private final class Run {
+
+        // marks the end of the stream in a queue
+        private final Task<K> endOfStream = new Task<K>(null, null, null, null);
+
+        private final Iterator<? extends Entry<K, File>> source;
+        private final BlockingQueue<Task<K>> decoded;
+        private final BlockingQueue<Task<K>> extracted;
+        private final AtomicLong[] counts = new AtomicLong[Stage.values().length];
+        private final AtomicLong[] busyNanos = new AtomicLong[Stage.values().length];
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicInteger runningDecoders = new AtomicInteger();
+        private final AtomicInteger runningExtractors = new AtomicInteger();
+        private final List<Thread> threads = new ArrayList<Thread>();
+        // first throwable escaping a stage, which aborts the run
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        private final int decodeThreads = BulkEnroller.this.decodeThreads;
+        private final int extractThreads = BulkEnroller.this.extractThreads;
+        private final int progressInterval = BulkEnroller.this.progressInterval;
+        private final Listener<K> listener = BulkEnroller.this.listener;
+        private final long start = System.nanoTime();
+
+        Run(Iterator<? extends Entry<K, File>> source) {
+            this.source = source;
+            this.decoded = new ArrayBlockingQueue<Task<K>>(queueCapacity);
+            this.extracted = new ArrayBlockingQueue<Task<K>>(queueCapacity);
+            for(int i = 0; i < counts.length; i++) {
+                counts[i] = new AtomicLong();
+                busyNanos[i] = new AtomicLong();
+            }
+        }
+
+        Progress execute() throws InterruptedException {
+            addStage(Stage.DECODE, decodeThreads, new Runnable() {
+                @Override public void run() { decode(); }
+            }, runningDecoders, decoded, extractThreads);
+            addStage(Stage.EXTRACT, extractThreads, new Runnable() {
+                @Override public void run() { extract(); }
+            }, runningExtractors, extracted, 1);
+            addStage(Stage.STORE, 1, new Runnable() {
+                @Override public void run() { store(); }
+            }, null, null, 0);
+            // all created before any is started, so that an abort reaches each of them
+            start(threads);
+            try {
+                join(threads);
+            } catch (InterruptedException e) {
+                interrupt(threads);
+                throw e;
+            }
+            Throwable cause = failure.get();
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+            Progress progress = snapshot();
+            listener.onProgress(progress);
+            return progress;
+        }
+
+        private void decode() {
+            Task<K> task;
+            try {
+                while(failure.get() == null && (task = nextTask()) != null) {
+                    long t0 = System.nanoTime();
+                    SampleSource sample;
+                    try {
+                        sample = recognito.convertFileToSampleSource(task.file);
+                    } catch (Exception e) {
+                        fail(task, e);
+                        continue;
+                    }
+                    record(Stage.DECODE, t0);
+                    decoded.put(new Task<K>(task.userKey, task.file, sample, null));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void extract() {
+            try {
+                Task<K> task;
+                while((task = decoded.take()) != endOfStream) {
+                    long t0 = System.nanoTime();
+                    double[] features;
+                    try {
+                        features = recognito.extractFeatures(task.sample, recognito.getSampleRate());
+                    } catch (RuntimeException e) {
+                        fail(task, e);
+                        continue;
+                    }
+                    record(Stage.EXTRACT, t0);
+                    extracted.put(new Task<K>(task.userKey, task.file, null, features));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void store() {
+            try {
+                Task<K> task;
+                while((task = extracted.take()) != endOfStream) {
+                    long t0 = System.nanoTime();
+                    try {
+                        recognito.createOrMergeVoicePrint(task.userKey, task.features);
+                    } catch (RuntimeException e) {
+                        fail(task, e);
+                        continue;
+                    }
+                    long stored = record(Stage.STORE, t0);
+                    // outside of the try : a failing listener isn't a failing file
+                    if(stored % progressInterval == 0) {
+                        listener.onProgress(snapshot());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Gets the next file to decode, shared by all decoding threads
+         * @return the next file or null when the source is exhausted
+         */
+        private Task<K> nextTask() {
+            synchronized (source) {
+                try {
+                    if(!source.hasNext()) {
+                        return null;
+                    }
+                    Entry<K, File> entry = source.next();
+                    return new Task<K>(entry.getKey(), entry.getValue(), null, null);
+                } catch (NoSuchElementException e) {
+                    return null;
+                }
+            }
+        }
+
+        private long record(Stage stage, long startNanos) {
+            busyNanos[stage.ordinal()].addAndGet(System.nanoTime() - startNanos);
+            return counts[stage.ordinal()].incrementAndGet();
+        }
+
+        /**
+         * Reports a file that failed. A listener throwing in turn aborts the run
+         * @param task the file
+         * @param cause the cause of the failure
+         */
+        private void fail(Task<K> task, Exception cause) {
+            failures.incrementAndGet();
+            listener.onFailure(task.userKey, task.file, cause);
+        }
+
+        private Progress snapshot() {
+            long[] c = new long[counts.length];
+            long[] b = new long[busyNanos.length];
+            for(int i = 0; i < c.length; i++) {
+                c[i] = counts[i].get();
+                b[i] = busyNanos[i].get();
+            }
+            return new Progress(c, b, failures.get(), System.nanoTime() - start);
+        }
+
+        /**
+         * Creates the threads of a stage, not started yet. The last one to end, whatever the reason, sends the end of the stream 
+         * to each consumer of the next stage. A throwable escaping a thread, e.g. from the listener, aborts the run
+         * @param stage the stage
+         * @param count the number of threads
+         * @param runnable the stage loop
+         * @param running the number of threads of the stage still running, null for the last stage
+         * @param downstream the queue feeding the next stage, null for the last stage
+         * @param consumers the number of threads of the next stage
+         */
+        private void addStage(Stage stage, int count, final Runnable runnable, final AtomicInteger running, 
+                final BlockingQueue<Task<K>> downstream, final int consumers) {
+            
+            if(running != null) {
+                running.set(count);
+            }
+            Runnable guarded = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        runnable.run();
+                    } catch (Throwable t) {
+                        abort(t);
+                    } finally {
+                        if(running != null && running.decrementAndGet() == 0) {
+                            endStream(downstream, consumers);
+                        }
+                    }
+                }
+            };
+            for(int i = 0; i < count; i++) {
+                Thread thread = new Thread(guarded, "recognito-enroll-" + stage.name().toLowerCase() + "-" + (i + 1));
+                thread.setDaemon(true);
+                threads.add(thread);
+            }
+        }
+
+        /**
+         * Records the first throwable escaping a stage and interrupts all the threads : 
+         * none of them remains blocked on a queue no one consumes anymore
+         * @param cause the throwable
+         */
+        private void abort(Throwable cause) {
+            if(failure.compareAndSet(null, cause)) {
+                interrupt(threads);
+            }
+        }
+
+        /**
+         * Sends the end of the stream to each consumer, unless the run is aborted : 
+         * the consumers are interrupted then
+         * @param queue the queue
+         * @param consumers the number of consumers
+         */
+        private void endStream(BlockingQueue<Task<K>> queue, int consumers) {
+            try {
+                for(int i = 0; i < consumers && failure.get() == null; i++) {
+                    queue.put(endOfStream);
+                }
+            } catch (InterruptedException e) {
+                // aborted, or enroll was interrupted : the consumers are interrupted as well
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void start(List<Thread> threads) {
+            for(Thread thread : threads) {
+                thread.start();
+            }
+        }
+
+        private void join(List<Thread> threads) throws InterruptedException {
+            for(Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        private void interrupt(List<Thread> threads) {
+            for(Thread thread : threads) {
+                thread.interrupt();
+            }
+        }
+    }
+}
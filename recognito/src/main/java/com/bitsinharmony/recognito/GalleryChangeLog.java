@@ -0,0 +1,103 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Records which voice prints changed at each gallery epoch
+ * <p>
+ * The epoch advances on every change of the stored voice prints or of the universal model. The user keys of the 
+ * latest changes are kept in a ring buffer, so that results computed at a past epoch may be brought up to date 
+ * by rescoring the changed voice prints only. Changes must be recorded once applied : a reader seeing epoch N 
+ * is then guaranteed to see the changes up to N.
+ * </p>
+ * <p>
+ * Threading : this class is thread safe
+ * </p>
+ * @param <K> the type of the user keys
+ * @author Amaury Crickx
+ */
+final class GalleryChangeLog<K> {
+
+    static final int DEFAULT_CAPACITY = 4096;
+
+    // explicit lock rather than monitors : a virtual thread blocking on it doesn't pin its carrier thread
+    private final Lock lock = new ReentrantLock();
+    private final Object[] keys;
+    // written under the lock once the key is recorded, read without it
+    private volatile long epoch;
+
+    GalleryChangeLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    GalleryChangeLog(int capacity) {
+        this.keys = new Object[capacity];
+    }
+
+    /**
+     * Get the current epoch
+     * @return the epoch, 0 until the first change
+     */
+    long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Records a change and advances the epoch
+     * @param userKey the key of the changed voice print, null when only the universal model changed
+     * @return the new epoch
+     */
+    long record(K userKey) {
+        lock.lock();
+        try {
+            keys[(int) (epoch % keys.length)] = userKey;
+            return ++epoch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the keys of the voice prints changed since the given epoch
+     * @param since the epoch
+     * @return the keys, or null if the changes are too old to be still recorded
+     */
+    @SuppressWarnings("unchecked")
+    Set<K> getChangesSince(long since) {
+        lock.lock();
+        try {
+            if(epoch - since > keys.length) {
+                return null;
+            }
+            Set<K> changes = new HashSet<K>();
+            for(long e = since; e < epoch; e++) {
+                K key = (K) keys[(int) (e % keys.length)];
+                if(key != null) {
+                    changes.add(key);
+                }
+            }
+            return changes;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded cache of identification results, keyed by the features of the voice sample and the number 
+ * of requested matches
+ * <p>
+ * Each entry is tagged with the gallery epoch it was computed at, which advances on every voice print creation 
+ * or merge and on every change of the universal model. An entry is never served as is once stale : 
+ * the voice prints changed in between are rescored and the likelihood ratios recomputed, which keeps the 
+ * cache useful under a steady trickle of enrollments. A full scan only happens when the changes are too many to 
+ * be tracked, or when a voice print of the cached top matches moved away further than the former last one.
+ * </p>
+ * <p>
+ * Identical voice samples yield identical features, see also {@link com.bitsinharmony.recognito.cache.FeaturesCache}
+ * to skip features extraction as well. Least recently used entries are evicted once the maximum is reached.
+ * A cache is bound to the first Recognito instance it is set on, see 
+ * {@link Recognito#setIdentificationCache(IdentificationCache)}.
+ * </p>
+ * <p>
+ * Threading : this class is thread safe
+ * </p>
+ * @param <K> the type of the user keys
+ * @author Amaury Crickx
+ */
+public class IdentificationCache<K> {
+
+    private final int maxEntries;
+    private final Map<Query, CachedMatches<K>> entries;
+    // explicit lock rather than monitors : a virtual thread blocking on it doesn't pin its carrier thread
+    private final Lock lock = new ReentrantLock();
+    private final AtomicReference<Recognito<K>> owner = new AtomicReference<Recognito<K>>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleEntries = new AtomicLong();
+    private final AtomicLong rescored = new AtomicLong();
+
+    /**
+     * Default constructor
+     * @param maxEntries the maximum number of entries, at least 1
+     */
+    public IdentificationCache(final int maxEntries) {
+        if(maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries should be at least 1, received [" + maxEntries + "]");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Query, CachedMatches<K>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Query, CachedMatches<K>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get the maximum number of entries
+     * @return the maximum
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Removes all the entries
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of entries
+     * @return the count
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of identifications answered without scanning the stored voice prints
+     * @return the count
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of identifications requiring a full scan, stale entries included
+     * @return the count
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Get the number of entries found but too stale to be brought up to date
+     * @return the count
+     */
+    public long getStaleCount() {
+        return staleEntries.get();
+    }
+
+    /**
+     * Get the number of voice prints rescored while bringing entries up to date
+     * @return the count
+     */
+    public long getRescoredCount() {
+        return rescored.get();
+    }
+
+    /**
+     * Binds this cache to the given Recognito instance
+     * @param recognito the instance
+     * @throws IllegalArgumentException if the cache is already bound to another instance
+     */
+    void bind(Recognito<K> recognito) {
+        if(!owner.compareAndSet(null, recognito) && owner.get() != recognito) {
+            throw new IllegalArgumentException("This IdentificationCache is already used by another Recognito instance");
+        }
+    }
+
+    CachedMatches<K> get(double[] features, int topK) {
+        Query query = new Query(features, topK);
+        lock.lock();
+        try {
+            return entries.get(query);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void put(double[] features, int topK, CachedMatches<K> matches) {
+        Query query = new Query(Arrays.copyOf(features, features.length), topK);
+        lock.lock();
+        try {
+            entries.put(query, matches);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void recordHit(int rescoredCount) {
+        hits.incrementAndGet();
+        rescored.addAndGet(rescoredCount);
+    }
+
+    void recordMiss(boolean stale) {
+        misses.incrementAndGet();
+        if(stale) {
+            staleEntries.incrementAndGet();
+        }
+    }
+
+    /**
+     * The features of a voice sample and the number of requested matches
+     */
+    private static final class Query {
+        private final double[] features;
+        private final int topK;
+        private final int hashCode;
+
+        Query(double[] features, int topK) {
+            this.features = features;
+            this.topK = topK;
+            this.hashCode = 31 * Arrays.hashCode(features) + topK;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof Query)) {
+                return false;
+            }
+            Query other = (Query) obj;
+            return topK == other.topK && Arrays.equals(features, other.features);
+        }
+    }
+
+    /**
+     * The matches computed at a given epoch
+     */
+    static final class CachedMatches<K> {
+        final long epoch;
+        final Object[] keys;
+        final double[] distances;
+        final boolean complete;
+
+        /**
+         * @param epoch the gallery epoch read before computing the matches
+         * @param matches the matches sorted by distance
+         * @param complete true if the matches hold all the stored voice prints
+         */
+        CachedMatches(long epoch, List<MatchResult<K>> matches, boolean complete) {
+            this.epoch = epoch;
+            this.keys = new Object[matches.size()];
+            this.distances = new double[matches.size()];
+            for(int i = 0; i < keys.length; i++) {
+                keys[i] = matches.get(i).getKey();
+                distances[i] = matches.get(i).getDistance();
+            }
+            this.complete = complete;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent identification requests into batches evaluated in a single pass over the stored voice prints
+ * <p>
+ * Under bursty load, many threads calling {@link Recognito#identify(double[])} at the same moment each scan
+ * the whole set of voice prints. This class collects the requests arriving within a short delay, or up to a maximum
+ * batch size, and compares each stored voice print to the whole batch at once.
+ * </p>
+ * <p>
+ * The trade-off between latency and throughput is tuned by the two parameters :
+ * </p>
+ * <ul>
+ * <li>the maximum delay is the longest time a request waits for others to join its batch, i.e. the latency added
+ * to a request under light load</li>
+ * <li>the maximum batch size caps the amount of work per pass, a full batch is evaluated without waiting</li>
+ * </ul>
+ * <p>
+ * Features extraction happens on the calling thread, only the comparison with the stored voice prints is batched.
+ * Batches are evaluated on a single dedicated daemon thread, call {@link #shutdown()} to release it.
+ * </p>
+ * <p>
+ * Threading : this class is thread safe
+ * </p>
+ * @param <K> the type of the user keys
+ * @author Amaury Crickx
+ */
+public class IdentificationCoalescer<K> {
+
+    private static final int DEFAULT_QUEUE_CAPACITY_PER_BATCH = 16;
+
+    private final Recognito<K> recognito;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<PendingIdentification<K>> queue;
+    private final Thread dispatcher;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile boolean shutdown;
+
+    /**
+     * Default constructor
+     * @param recognito the Recognito instance holding the voice prints
+     * @param maxBatchSize the maximum number of requests evaluated in a single pass, at least 1
+     * @param maxDelay the maximum time a request waits for others to join its batch
+     * @param unit the time unit of maxDelay
+     */
+    public IdentificationCoalescer(Recognito<K> recognito, int maxBatchSize, long maxDelay, TimeUnit unit) {
+        if(recognito == null) {
+            throw new IllegalArgumentException("The recognito instance may not be null");
+        }
+        if(maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize should be at least 1, received [" + maxBatchSize + "]");
+        }
+        if(maxDelay < 0) {
+            throw new IllegalArgumentException("maxDelay may not be negative, received [" + maxDelay + "]");
+        }
+        this.recognito = recognito;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.queue = new ArrayBlockingQueue<PendingIdentification<K>>(maxBatchSize * DEFAULT_QUEUE_CAPACITY_PER_BATCH);
+        this.dispatcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dispatch();
+            }
+        }, "recognito-identification-coalescer");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Extracts the features of the given voice sample and queues it for identification with concurrent requests
+     * @param voiceSample the voice sample, values between -1.0 and 1.0
+     * @return a Future holding a list MatchResults sorted by distance
+     * @throws RejectedExecutionException when too many requests are pending or after shutdown
+     * @see Recognito#identify(double[])
+     */
+    public Future<List<MatchResult<K>>> identify(double[] voiceSample) {
+        if(shutdown) {
+            throw new RejectedExecutionException("This IdentificationCoalescer was shut down");
+        }
+        VoicePrint voicePrint = new VoicePrint(recognito.extractFeatures(voiceSample, recognito.getSampleRate()));
+        PendingIdentification<K> pending = new PendingIdentification<K>(voicePrint);
+        if(!queue.offer(pending)) {
+            throw new RejectedExecutionException("Too many pending identification requests");
+        }
+        // shut down meanwhile : the dispatcher may be gone, unless it already took the request
+        if(shutdown && queue.remove(pending)) {
+            throw new RejectedExecutionException("This IdentificationCoalescer was shut down");
+        }
+        requests.incrementAndGet();
+        return pending;
+    }
+
+    /**
+     * Get the number of requests received so far
+     * @return the count
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Get the number of batches evaluated so far.
+     * The ratio of requests to batches gives the average batch size, a hint for tuning
+     * @return the count
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Stops accepting new requests. Pending requests are still evaluated before the dispatcher thread ends
+     */
+    public void shutdown() {
+        shutdown = true;
+        dispatcher.interrupt();
+    }
+
+    private void dispatch() {
+        List<PendingIdentification<K>> batch = new ArrayList<PendingIdentification<K>>(maxBatchSize);
+        while(!shutdown || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                // shutdown requested : evaluate what was collected, then drain the queue
+            }
+            if(!batch.isEmpty()) {
+                evaluate(batch);
+                batch.clear();
+            }
+        }
+        // requests queued past the last check are rejected by identify, this is a safety net
+        PendingIdentification<K> leftover;
+        while((leftover = queue.poll()) != null) {
+            leftover.setException(new RejectedExecutionException("This IdentificationCoalescer was shut down"));
+        }
+    }
+
+    /**
+     * Waits for a first request then collects the ones arriving within the delay, up to the maximum batch size
+     * @param batch the list receiving the requests
+     * @throws InterruptedException when shutdown is requested
+     */
+    private void collect(List<PendingIdentification<K>> batch) throws InterruptedException {
+        PendingIdentification<K> first = shutdown ? queue.poll() : queue.take();
+        if(first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while(batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if(batch.size() >= maxBatchSize || remaining <= 0 || shutdown) {
+                break;
+            }
+            PendingIdentification<K> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if(next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void evaluate(List<PendingIdentification<K>> batch) {
+        batches.incrementAndGet();
+        VoicePrint[] voicePrints = new VoicePrint[batch.size()];
+        for(int i = 0; i < voicePrints.length; i++) {
+            voicePrints[i] = batch.get(i).voicePrint;
+        }
+        try {
+            List<List<MatchResult<K>>> matches = recognito.identify(voicePrints);
+            for(int i = 0; i < voicePrints.length; i++) {
+                batch.get(i).set(matches.get(i));
+            }
+        } catch (Throwable t) {
+            // errors too, e.g. out of memory : the dispatcher must outlive a failed batch
+            for(PendingIdentification<K> pending : batch) {
+                pending.setException(t);
+            }
+        }
+    }
+
+    /**
+     * Future completed by the dispatcher thread once the batch is evaluated
+     */
+    private static final class PendingIdentification<K>
+            extends SettableFuture<List<MatchResult<K>>> {
+
+        private final VoicePrint voicePrint;
+
+        PendingIdentification(VoicePrint voicePrint) {
+            this.voicePrint = voicePrint;
+        }
+    }
+}
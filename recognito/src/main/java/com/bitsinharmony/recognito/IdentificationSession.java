@@ -0,0 +1,322 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.bitsinharmony.recognito.distances.DistanceCalculator;
+import com.bitsinharmony.recognito.distances.EuclideanDistanceCalculator;
+import com.bitsinharmony.recognito.features.FeaturesExtractor;
+import com.bitsinharmony.recognito.features.WindowedFeaturesExtractor;
+import com.bitsinharmony.recognito.samples.SampleSource;
+import com.bitsinharmony.recognito.vad.AutocorrellatedVoiceActivityDetector;
+
+/**
+ * Identifies a speaker from audio received a chunk at a time, e.g. from a microphone, deciding as soon as the 
+ * evidence is sufficient
+ * <p>
+ * Each chunk is stripped of its silent parts, then its windows are added to a running average of the features, 
+ * the samples of the last incomplete window being kept for the next chunk. Once enough windows were received 
+ * since the last scoring, see {@link #setRescoringInterval(int)}, the running average is compared to the stored 
+ * voice prints :
+ * </p>
+ * <ul>
+ * <li>the first scoring scans all the stored voice prints and keeps the closest ones as candidates, 
+ * see {@link #setMaxCandidates(int)}</li>
+ * <li>each subsequent scoring only compares the remaining candidates, then keeps the closer half of them 
+ * (at least 2), see {@link #setShrinkFactor(double)}</li>
+ * </ul>
+ * <p>
+ * The session is decided when the closest candidate is ahead of both the runner-up and the universal model 
+ * by a relative margin of at least the decision margin, see {@link #setDecisionMargin(double)}. E.g. with the 
+ * default 0.2, the runner-up and the universal model must both be at least 25% further away. Once decided, further 
+ * chunks are ignored.
+ * </p>
+ * <p>
+ * Unlike {@link Recognito#identify(double[])}, chunks aren't normalized : the features extracted by Recognito only 
+ * depend on the spectral envelope of the signal, not on its volume. Silence is detected chunk by chunk, so very short 
+ * chunks should be avoided : voiced parts shorter than 200 ms are only recognized as such when the whole chunk is. 
+ * Voice prints created or merged after the first scoring are not considered by the session.
+ * </p>
+ * <p>
+ * Threading : this class is not thread safe, a session is meant to be fed by a single thread. Sessions may be used 
+ * concurrently with any method of the Recognito instance
+ * </p>
+ * @param <K> the type of the user keys
+ * @author Amaury Crickx
+ */
+public class IdentificationSession<K> {
+
+    private static final int DEFAULT_RESCORING_INTERVAL = 32;
+    private static final double DEFAULT_DECISION_MARGIN = 0.2d;
+    private static final int DEFAULT_MAX_CANDIDATES = 32;
+    private static final double DEFAULT_SHRINK_FACTOR = 0.5d;
+    private static final int MIN_CANDIDATES = 2;
+
+    private final Recognito<K> recognito;
+    private final WindowedFeaturesExtractor<double[]> featuresExtractor;
+    private final AutocorrellatedVoiceActivityDetector voiceDetector = new AutocorrellatedVoiceActivityDetector();
+    private final DistanceCalculator calculator = new EuclideanDistanceCalculator();
+    private final int hop;
+
+    private int rescoringInterval = DEFAULT_RESCORING_INTERVAL;
+    private double decisionMargin = DEFAULT_DECISION_MARGIN;
+    private int maxCandidates = DEFAULT_MAX_CANDIDATES;
+    private double shrinkFactor = DEFAULT_SHRINK_FACTOR;
+
+    private double[] carry = new double[0];
+    private double[] featureSums;
+    private int windowCount;
+    private int windowsSinceScoring;
+    private List<K> candidates;
+    private List<MatchResult<K>> matches;
+    private boolean decided;
+
+    /**
+     * Default constructor
+     * @param recognito the Recognito instance holding the voice prints
+     * @throws IllegalArgumentException when the features extractor of the Recognito instance doesn't analyze 
+     * voice samples window by window
+     */
+    @SuppressWarnings("unchecked")
+    public IdentificationSession(Recognito<K> recognito) {
+        if(recognito == null) {
+            throw new IllegalArgumentException("The recognito instance may not be null");
+        }
+        FeaturesExtractor<double[]> extractor = 
+                recognito.getFeaturesExtractorFactory().newFeaturesExtractor(recognito.getSampleRate());
+        if(!(extractor instanceof WindowedFeaturesExtractor)) {
+            throw new IllegalArgumentException("Incremental identification requires a WindowedFeaturesExtractor, found [" 
+                    + extractor.getClass().getName() + "]");
+        }
+        this.recognito = recognito;
+        this.featuresExtractor = (WindowedFeaturesExtractor<double[]>) extractor;
+        this.hop = featuresExtractor.getWindowSize() / 2;
+    }
+
+    /**
+     * Sets the number of windows to receive between two scorings. The default is 32, i.e. about 400 ms of voice
+     * @param windows the number of windows, at least 1
+     */
+    public void setRescoringInterval(int windows) {
+        if(windows < 1) {
+            throw new IllegalArgumentException("The rescoring interval should be at least 1, received [" + windows + "]");
+        }
+        this.rescoringInterval = windows;
+    }
+
+    /**
+     * Sets the relative margin the closest candidate should have over the runner-up and the universal model 
+     * before the session is decided. The default is 0.2
+     * @param margin the margin, between 0.0 and 1.0
+     */
+    public void setDecisionMargin(double margin) {
+        if(margin < 0.0d || margin > 1.0d) {
+            throw new IllegalArgumentException("The decision margin should be between 0.0 and 1.0, received [" + margin + "]");
+        }
+        this.decisionMargin = margin;
+    }
+
+    /**
+     * Sets the number of candidates kept after the first scoring. The default is 32
+     * @param maxCandidates the number of candidates, at least 2
+     */
+    public void setMaxCandidates(int maxCandidates) {
+        if(maxCandidates < MIN_CANDIDATES) {
+            throw new IllegalArgumentException("maxCandidates should be at least " + MIN_CANDIDATES 
+                    + ", received [" + maxCandidates + "]");
+        }
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * Sets the share of the candidates kept after each subsequent scoring. The default is 0.5, 1.0 disables shrinking
+     * @param shrinkFactor the share, strictly positive and at most 1.0
+     */
+    public void setShrinkFactor(double shrinkFactor) {
+        if(shrinkFactor <= 0.0d || shrinkFactor > 1.0d) {
+            throw new IllegalArgumentException("The shrink factor should be in ]0.0, 1.0], received [" + shrinkFactor + "]");
+        }
+        this.shrinkFactor = shrinkFactor;
+    }
+
+    /**
+     * Adds a chunk of audio to the session, scoring the candidates if the rescoring interval was reached
+     * @param chunk the chunk, values between -1.0 and 1.0
+     * @return true if the session is decided
+     * @see #addAudio(SampleSource)
+     */
+    public boolean addAudio(double[] chunk) {
+        return addAudio(SampleSource.of(chunk));
+    }
+
+    /**
+     * Adds a chunk of audio to the session, scoring the candidates if the rescoring interval was reached
+     * @param chunk the chunk, values between -1.0 and 1.0
+     * @return true if the session is decided
+     * @throws IllegalStateException if there is no voice print enrolled in the system yet
+     */
+    public boolean addAudio(SampleSource chunk) {
+        if(decided) {
+            return true;
+        }
+        SampleSource voiced = voiceDetector.removeSilence(chunk, recognito.getSampleRate());
+        double[] pending = Arrays.copyOf(carry, carry.length + voiced.getLength());
+        voiced.read(0, pending, carry.length, voiced.getLength());
+
+        int windows = featuresExtractor.getWindowCount(pending.length);
+        if(windows > 0) {
+            double[] features = featuresExtractor.extractFeatures(SampleSource.of(pending));
+            if(featureSums == null) {
+                featureSums = new double[features.length];
+            }
+            for(int i = 0; i < features.length; i++) {
+                featureSums[i] += features[i] * windows;
+            }
+            windowCount += windows;
+            windowsSinceScoring += windows;
+            // the next window starts right after the last one processed
+            carry = Arrays.copyOfRange(pending, windows * hop, pending.length);
+        } else {
+            carry = pending;
+        }
+
+        if(windowsSinceScoring >= rescoringInterval) {
+            score();
+        }
+        return decided;
+    }
+
+    /**
+     * Tells whether the closest candidate is far enough ahead to stop feeding audio
+     * @return true if the session is decided
+     */
+    public boolean isDecided() {
+        return decided;
+    }
+
+    /**
+     * Get the candidates compared during the last scoring, closest first. Windows received since are scored first
+     * @return a list MatchResults sorted by distance
+     * @throws IllegalStateException if no complete window was received yet
+     */
+    public List<MatchResult<K>> getMatches() {
+        if(windowCount == 0) {
+            throw new IllegalStateException("Not enough voice was received yet");
+        }
+        if(windowsSinceScoring > 0 && !decided) {
+            score();
+        }
+        return Collections.unmodifiableList(matches);
+    }
+
+    /**
+     * Get the number of windows whose features are part of the running average
+     * @return the count
+     */
+    public int getWindowCount() {
+        return windowCount;
+    }
+
+    /**
+     * Get the number of candidates left, all the stored voice prints before the first scoring
+     * @return the count
+     */
+    public int getCandidateCount() {
+        if(candidates == null) {
+            return recognito.getVoicePrintCount();
+        }
+        return candidates.size();
+    }
+
+    /**
+     * Compares the running average to the candidates, then shrinks the candidate set and checks the decision margins
+     */
+    private void score() {
+        VoicePrint universalModel = recognito.getCurrentUniversalModel();
+        if(universalModel == null) {
+            throw new IllegalStateException("There is no voice print enrolled in the system yet");
+        }
+        double[] average = new double[featureSums.length];
+        for(int i = 0; i < average.length; i++) {
+            average[i] = featureSums[i] / windowCount;
+        }
+        VoicePrint voicePrint = new VoicePrint(average);
+        double distanceFromUniversalModel = voicePrint.getDistance(calculator, universalModel);
+
+        List<MatchResult<K>> scored;
+        int keep;
+        if(candidates == null) {
+            scored = new ArrayList<MatchResult<K>>();
+            for(Entry<K, VoicePrint> entry : recognito.getVoicePrintEntries()) {
+                scored.add(score(entry.getKey(), entry.getValue(), voicePrint, distanceFromUniversalModel));
+            }
+            keep = maxCandidates;
+        } else {
+            scored = new ArrayList<MatchResult<K>>(candidates.size());
+            for(K candidate : candidates) {
+                VoicePrint stored = recognito.getVoicePrint(candidate);
+                if(stored != null) {
+                    scored.add(score(candidate, stored, voicePrint, distanceFromUniversalModel));
+                }
+            }
+            keep = Math.max(MIN_CANDIDATES, (int) Math.ceil(scored.size() * shrinkFactor));
+        }
+        if(scored.isEmpty()) {
+            throw new IllegalStateException("There is no voice print enrolled in the system yet");
+        }
+        recognito.sortByDistance(scored);
+
+        matches = new ArrayList<MatchResult<K>>(scored.subList(0, Math.min(keep, scored.size())));
+        candidates = new ArrayList<K>(matches.size());
+        for(MatchResult<K> match : matches) {
+            candidates.add(match.getKey());
+        }
+        windowsSinceScoring = 0;
+        decided = isDecided(matches, distanceFromUniversalModel);
+    }
+
+    private MatchResult<K> score(K key, VoicePrint stored, VoicePrint voicePrint, double distanceFromUniversalModel) {
+        double distance = stored.getDistance(calculator, voicePrint);
+        return new MatchResult<K>(key, Recognito.getLikelihoodRatio(distance, distanceFromUniversalModel), distance);
+    }
+
+    /**
+     * Checks the relative margins of the closest candidate over the runner-up, if any, and over the universal model
+     * @param matches the matches sorted by distance
+     * @param distanceFromUniversalModel the distance between the running average and the universal model
+     * @return true if both margins reach the decision margin
+     */
+    private boolean isDecided(List<MatchResult<K>> matches, double distanceFromUniversalModel) {
+        double closest = matches.get(0).getDistance();
+        if(matches.size() > 1 && getRelativeMargin(closest, matches.get(1).getDistance()) < decisionMargin) {
+            return false;
+        }
+        return getRelativeMargin(closest, distanceFromUniversalModel) >= decisionMargin;
+    }
+
+    private static double getRelativeMargin(double closest, double other) {
+        if(other <= 0.0d) {
+            return 0.0d;
+        }
+        return (other - closest) / other;
+    }
+}
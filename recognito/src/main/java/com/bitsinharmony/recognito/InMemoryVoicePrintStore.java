@@ -0,0 +1,74 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The default {@link VoicePrintStore}, keeping every voice print on the heap
+ * <p>
+ * Threading : this class is thread safe
+ * </p>
+ * @param <K> the type of the user keys
+ * @author Amaury Crickx
+ */
+public class InMemoryVoicePrintStore<K> 
+        implements VoicePrintStore<K> {
+
+    private final ConcurrentHashMap<K, VoicePrint> store = new ConcurrentHashMap<K, VoicePrint>();
+
+    @Override
+    public VoicePrint get(K userKey) {
+        return store.get(userKey);
+    }
+
+    @Override
+    public VoicePrint peek(K userKey) {
+        return store.get(userKey);
+    }
+
+    @Override
+    public void put(K userKey, VoicePrint voicePrint) {
+        store.put(userKey, voicePrint);
+    }
+
+    @Override
+    public VoicePrint remove(K userKey) {
+        return store.remove(userKey);
+    }
+
+    @Override
+    public boolean containsKey(K userKey) {
+        return store.containsKey(userKey);
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return store.isEmpty();
+    }
+
+    @Override
+    public Iterable<Entry<K, VoicePrint>> entries() {
+        return store.entrySet();
+    }
+}
@@ -0,0 +1,612 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An inverted file index over the stored voice prints, restricting identification to the closest partitions 
+ * of the gallery
+ * <p>
+ * The voice prints are clustered by k-means into a fixed number of partitions, each one represented by its centroid 
+ * and holding the user keys of its members (its posting list). Identification only scores the members of the 
+ * partitions whose centroids are the closest to the voice sample, see {@link #setProbeCount(int)} : the results 
+ * are approximate, trading recall for speed. The recall for a given gallery may be measured with the 
+ * {@code IvfRecallReport} of the benchmarks module.
+ * </p>
+ * <p>
+ * Until the gallery holds as many voice prints as partitions, each new voice print seeds a partition. Then, each 
+ * new voice print is assigned to its closest partition, whose centroid is updated on the fly : an O(C) operation, 
+ * C being the number of partitions. Merged voice prints are moved to their new closest partition. 
+ * As the gallery grows, the centroids drift from the optimal ones : {@link Recognito#trainIndex()} runs k-means again, 
+ * starting from the current centroids. The first training is seeded by k-means++ instead. The assignment steps of 
+ * k-means run in parallel on the given executor.
+ * </p>
+ * <p>
+ * Threading : this class is thread safe. Identification may take place while the index is trained, only the final 
+ * installation of the new partitions is exclusive
+ * </p>
+ * @param <K> the type of the user keys
+ * @author Amaury Crickx
+ * @see Recognito#setIndex(IvfIndex)
+ */
+public class IvfIndex<K> {
+
+    private static final int DEFAULT_MAX_ITERATIONS = 20;
+    private static final int MIN_POINTS_PER_TASK = 256;
+    private static final long SEED = 42L;
+
+    private final int partitionCount;
+    private volatile int probeCount;
+    private volatile int maxIterations = DEFAULT_MAX_ITERATIONS;
+
+    private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
+    private final Lock r = rwl.readLock();
+    private final Lock w = rwl.writeLock();
+
+    // guarded by rwl
+    private final List<double[]> centroids = new ArrayList<double[]>();
+    private final List<Set<K>> postings = new ArrayList<Set<K>>();
+    private final Map<K, Integer> partitionByKey = new HashMap<K, Integer>();
+    private final Map<K, VoicePrint> members = new HashMap<K, VoicePrint>();
+    private boolean trained;
+    // user keys added or merged while training, null otherwise
+    private Set<K> changedWhileTraining;
+
+    private final Lock trainingLock = new ReentrantLock();
+    private final AtomicReference<Recognito<K>> owner = new AtomicReference<Recognito<K>>();
+
+    /**
+     * Default constructor, probing a single partition
+     * @param partitionCount the number of partitions, at least 1. The square root of the expected gallery size is a 
+     * reasonable start
+     */
+    public IvfIndex(int partitionCount) {
+        if(partitionCount < 1) {
+            throw new IllegalArgumentException("partitionCount should be at least 1, received [" + partitionCount + "]");
+        }
+        this.partitionCount = partitionCount;
+        this.probeCount = 1;
+    }
+
+    /**
+     * Get the number of partitions
+     * @return the count
+     */
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    /**
+     * Get the number of partitions whose members are scored during identification
+     * @return the count
+     */
+    public int getProbeCount() {
+        return probeCount;
+    }
+
+    /**
+     * Sets the number of partitions whose members are scored during identification. 
+     * The higher, the better the recall and the slower the identification. Probing all the partitions is an exact scan
+     * @param probeCount the count, between 1 and the number of partitions
+     */
+    public void setProbeCount(int probeCount) {
+        if(probeCount < 1 || probeCount > partitionCount) {
+            throw new IllegalArgumentException("probeCount should be between 1 and " + partitionCount 
+                    + ", received [" + probeCount + "]");
+        }
+        this.probeCount = probeCount;
+    }
+
+    /**
+     * Sets the maximum number of k-means iterations per training. The default is 20
+     * @param maxIterations the maximum, at least 1
+     */
+    public void setMaxIterations(int maxIterations) {
+        if(maxIterations < 1) {
+            throw new IllegalArgumentException("maxIterations should be at least 1, received [" + maxIterations + "]");
+        }
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Get the number of members of each partition, a hint of how balanced the partitions are
+     * @return the sizes
+     */
+    public int[] getPartitionSizes() {
+        r.lock();
+        try {
+            int[] sizes = new int[postings.size()];
+            for(int i = 0; i < sizes.length; i++) {
+                sizes[i] = postings.get(i).size();
+            }
+            return sizes;
+        } finally {
+            r.unlock();
+        }
+    }
+
+    /**
+     * Binds this index to the given Recognito instance
+     * @param recognito the instance
+     * @throws IllegalArgumentException if the index is already bound to another instance
+     */
+    void bind(Recognito<K> recognito) {
+        if(!owner.compareAndSet(null, recognito) && owner.get() != recognito) {
+            throw new IllegalArgumentException("This IvfIndex is already used by another Recognito instance");
+        }
+    }
+
+    /**
+     * Adds a voice print to its closest partition, or makes it a new partition while there are less than required, 
+     * and updates the centroid of the partition
+     * @param userKey the user key
+     * @param voicePrint the voice print
+     */
+    void add(K userKey, VoicePrint voicePrint) {
+        double[] features = voicePrint.getFeatures();
+        w.lock();
+        try {
+            members.put(userKey, voicePrint);
+            markChanged(userKey);
+            if(centroids.size() < partitionCount) {
+                centroids.add(features);
+                postings.add(new LinkedHashSet<K>());
+                place(userKey, centroids.size() - 1);
+            } else {
+                int partition = getClosestPartition(features);
+                place(userKey, partition);
+                // running mean of the members
+                double[] centroid = centroids.get(partition);
+                int size = postings.get(partition).size();
+                for(int i = 0; i < centroid.length; i++) {
+                    centroid[i] += (features[i] - centroid[i]) / size;
+                }
+            }
+        } finally {
+            w.unlock();
+        }
+    }
+
+    /**
+     * Moves a merged voice print to its new closest partition. Centroids are left unchanged
+     * @param userKey the user key
+     * @param voicePrint the voice print, which may be another instance than the one added, see {@link VoicePrintStore}
+     */
+    void update(K userKey, VoicePrint voicePrint) {
+        w.lock();
+        try {
+            if(members.containsKey(userKey)) {
+                members.put(userKey, voicePrint);
+                place(userKey, getClosestPartition(voicePrint.getFeatures()));
+                markChanged(userKey);
+            }
+        } finally {
+            w.unlock();
+        }
+    }
+
+    /**
+     * Removes a voice print from its partition and takes it out of the centroid of the partition
+     * @param userKey the user key
+     */
+    void remove(K userKey) {
+        w.lock();
+        try {
+            VoicePrint voicePrint = members.remove(userKey);
+            Integer partition = partitionByKey.remove(userKey);
+            if(partition != null) {
+                Set<K> posting = postings.get(partition);
+                posting.remove(userKey);
+                int size = posting.size();
+                if(size > 0) {
+                    // running mean of the remaining members
+                    double[] features = voicePrint.getFeatures();
+                    double[] centroid = centroids.get(partition);
+                    for(int i = 0; i < centroid.length; i++) {
+                        centroid[i] += (centroid[i] - features[i]) / size;
+                    }
+                }
+            }
+        } finally {
+            w.unlock();
+        }
+    }
+
+    /**
+     * Get the user keys of the members of the partitions closest to the given voice print
+     * @param voicePrint the voice print extracted from a voice sample
+     * @return the user keys
+     */
+    List<K> getCandidates(VoicePrint voicePrint) {
+        double[] features = voicePrint.getFeatures();
+        r.lock();
+        try {
+            int count = centroids.size();
+            double[] distances = new double[count];
+            Integer[] order = new Integer[count];
+            for(int i = 0; i < count; i++) {
+                distances[i] = getSquaredDistance(features, centroids.get(i));
+                order[i] = i;
+            }
+            int probes = Math.min(probeCount, count);
+            List<K> candidates = new ArrayList<K>();
+            // partial selection sort : probeCount is small compared to the number of partitions
+            for(int p = 0; p < probes; p++) {
+                int closest = p;
+                for(int i = p + 1; i < count; i++) {
+                    if(distances[order[i]] < distances[order[closest]]) {
+                        closest = i;
+                    }
+                }
+                Integer swap = order[p];
+                order[p] = order[closest];
+                order[closest] = swap;
+                candidates.addAll(postings.get(order[p]));
+            }
+            return candidates;
+        } finally {
+            r.unlock();
+        }
+    }
+
+    /**
+     * Runs k-means over the current members, starting from the centroids of the previous training if any, 
+     * then installs the new partitions
+     * <p>
+     * The members are snapshot first, the identification goes on with the former partitions meanwhile. 
+     * Voice prints added or merged during the training are placed in the new partitions when they're installed.
+     * </p>
+     * @param executor the executor running the assignment steps, or null to run them on the calling thread. 
+     * Rejected tasks are run on the calling thread
+     */
+    void train(Executor executor) {
+        trainingLock.lock();
+        try {
+            train(executor, snapshot());
+        } finally {
+            trainingLock.unlock();
+        }
+    }
+
+    private void train(Executor executor, Snapshot<K> snapshot) {
+        List<K> keys = snapshot.keys;
+        List<VoicePrint> voicePrints = snapshot.voicePrints;
+        try {
+            if(keys.size() < partitionCount) {
+                // each member is a partition of its own, nothing to train
+                return;
+            }
+            double[][] points = new double[keys.size()][];
+            for(int i = 0; i < points.length; i++) {
+                points[i] = voicePrints.get(i).getFeatures();
+            }
+            int[] assignments = new int[points.length];
+            double[][] newCentroids = kMeans(points, snapshot.seeds, assignments, executor);
+            install(keys, voicePrints, newCentroids, assignments);
+        } finally {
+            w.lock();
+            changedWhileTraining = null;
+            w.unlock();
+        }
+    }
+
+    /**
+     * Copies the members and the centroids, and starts recording the changes
+     * @return the snapshot
+     */
+    private Snapshot<K> snapshot() {
+        List<K> keys = new ArrayList<K>();
+        List<VoicePrint> voicePrints = new ArrayList<VoicePrint>();
+        double[][] seeds;
+        w.lock();
+        try {
+            changedWhileTraining = new HashSet<K>();
+            for(Entry<K, VoicePrint> entry : members.entrySet()) {
+                keys.add(entry.getKey());
+                voicePrints.add(entry.getValue());
+            }
+            // the partitions seeded by the first voice prints make poor starting points, unlike trained ones
+            seeds = new double[trained ? centroids.size() : 0][];
+            for(int i = 0; i < seeds.length; i++) {
+                seeds[i] = Arrays.copyOf(centroids.get(i), centroids.get(i).length);
+            }
+        } finally {
+            w.unlock();
+        }
+        return new Snapshot<K>(keys, voicePrints, seeds);
+    }
+
+    /**
+     * Replaces the partitions by the trained ones, then places the voice prints changed meanwhile
+     */
+    private void install(List<K> keys, List<VoicePrint> voicePrints, double[][] newCentroids, int[] assignments) {
+        w.lock();
+        try {
+            trained = true;
+            centroids.clear();
+            postings.clear();
+            for(double[] centroid : newCentroids) {
+                centroids.add(centroid);
+                postings.add(new LinkedHashSet<K>());
+            }
+            partitionByKey.clear();
+            for(int i = 0; i < keys.size(); i++) {
+                // unless removed meanwhile
+                if(members.get(keys.get(i)) == voicePrints.get(i)) {
+                    place(keys.get(i), assignments[i]);
+                }
+            }
+            for(K key : changedWhileTraining) {
+                VoicePrint voicePrint = members.get(key);
+                if(voicePrint != null) {
+                    place(key, getClosestPartition(voicePrint.getFeatures()));
+                }
+            }
+        } finally {
+            w.unlock();
+        }
+    }
+
+    /**
+     * Lloyd's algorithm, the seeds being completed by k-means++ when there are less than needed
+     * @param points the points
+     * @param seeds the initial centroids
+     * @param assignments the array receiving the partition of each point
+     * @param executor the executor running the assignment steps
+     * @return the centroids
+     */
+    private double[][] kMeans(double[][] points, double[][] seeds, int[] assignments, Executor executor) {
+        double[][] centroids = completeSeeds(points, seeds);
+        int dimensions = points[0].length;
+        Arrays.fill(assignments, -1);
+        for(int iteration = 0; iteration < maxIterations; iteration++) {
+            int changes = assign(points, centroids, assignments, executor);
+            if(changes == 0) {
+                break;
+            }
+            double[][] sums = new double[centroids.length][dimensions];
+            int[] counts = new int[centroids.length];
+            for(int i = 0; i < points.length; i++) {
+                counts[assignments[i]]++;
+                for(int d = 0; d < dimensions; d++) {
+                    sums[assignments[i]][d] += points[i][d];
+                }
+            }
+            for(int c = 0; c < centroids.length; c++) {
+                if(counts[c] == 0) {
+                    // empty partition : moved to the point furthest from its centroid
+                    int furthest = getFurthestPoint(points, centroids, assignments);
+                    centroids[c] = Arrays.copyOf(points[furthest], dimensions);
+                    assignments[furthest] = c;
+                } else {
+                    for(int d = 0; d < dimensions; d++) {
+                        centroids[c][d] = sums[c][d] / counts[c];
+                    }
+                }
+            }
+        }
+        assign(points, centroids, assignments, executor);
+        return centroids;
+    }
+
+    private double[][] completeSeeds(double[][] points, double[][] seeds) {
+        double[][] centroids = Arrays.copyOf(seeds, partitionCount);
+        Random random = new Random(SEED);
+        double[] minDistances = new double[points.length];
+        Arrays.fill(minDistances, Double.MAX_VALUE);
+        int seeded = seeds.length;
+        if(seeded == 0) {
+            centroids[0] = Arrays.copyOf(points[random.nextInt(points.length)], points[0].length);
+            seeded = 1;
+        }
+        for(int c = 0; c < seeded; c++) {
+            updateMinDistances(points, centroids[c], minDistances);
+        }
+        for(int c = seeded; c < partitionCount; c++) {
+            double total = 0.0d;
+            for(double distance : minDistances) {
+                total += distance;
+            }
+            double target = random.nextDouble() * total;
+            int chosen = points.length - 1;
+            for(int i = 0; i < points.length; i++) {
+                target -= minDistances[i];
+                if(target <= 0.0d) {
+                    chosen = i;
+                    break;
+                }
+            }
+            centroids[c] = Arrays.copyOf(points[chosen], points[chosen].length);
+            updateMinDistances(points, centroids[c], minDistances);
+        }
+        return centroids;
+    }
+
+    private void updateMinDistances(double[][] points, double[] centroid, double[] minDistances) {
+        for(int i = 0; i < points.length; i++) {
+            minDistances[i] = Math.min(minDistances[i], getSquaredDistance(points[i], centroid));
+        }
+    }
+
+    /**
+     * Assigns each point to its closest centroid, in parallel chunks when an executor is given
+     * @return the number of points whose assignment changed
+     */
+    private int assign(final double[][] points, final double[][] centroids, final int[] assignments, 
+            Executor executor) {
+        int tasks = executor == null ? 1 : Math.max(1, points.length / MIN_POINTS_PER_TASK);
+        int chunk = (points.length + tasks - 1) / tasks;
+        List<FutureTask<Integer>> futures = new ArrayList<FutureTask<Integer>>(tasks);
+        for(int start = chunk; start < points.length; start += chunk) {
+            final int from = start;
+            final int to = Math.min(points.length, start + chunk);
+            FutureTask<Integer> future = new FutureTask<Integer>(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return assign(points, centroids, assignments, from, to);
+                }
+            });
+            futures.add(future);
+            try {
+                executor.execute(future);
+            } catch (RejectedExecutionException e) {
+                future.run();
+            }
+        }
+        int changes = assign(points, centroids, assignments, 0, Math.min(chunk, points.length));
+        for(FutureTask<Integer> future : futures) {
+            changes += awaitAssignment(future);
+        }
+        return changes;
+    }
+
+    private int assign(double[][] points, double[][] centroids, int[] assignments, int from, int to) {
+        int changes = 0;
+        for(int i = from; i < to; i++) {
+            int closest = getClosest(points[i], centroids);
+            if(closest != assignments[i]) {
+                assignments[i] = closest;
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    private static int awaitAssignment(FutureTask<Integer> future) {
+        boolean interrupted = false;
+        try {
+            while(true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Assignment step failed", e.getCause());
+                }
+            }
+        } finally {
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private int getFurthestPoint(double[][] points, double[][] centroids, int[] assignments) {
+        int furthest = 0;
+        double max = -1.0d;
+        for(int i = 0; i < points.length; i++) {
+            double distance = getSquaredDistance(points[i], centroids[assignments[i]]);
+            if(distance > max) {
+                max = distance;
+                furthest = i;
+            }
+        }
+        return furthest;
+    }
+
+    /**
+     * Must be called while holding the lock
+     */
+    private int getClosestPartition(double[] features) {
+        int closest = 0;
+        double min = Double.MAX_VALUE;
+        for(int c = 0; c < centroids.size(); c++) {
+            double distance = getSquaredDistance(features, centroids.get(c));
+            if(distance < min) {
+                min = distance;
+                closest = c;
+            }
+        }
+        return closest;
+    }
+
+    private static int getClosest(double[] features, double[][] centroids) {
+        int closest = 0;
+        double min = Double.MAX_VALUE;
+        for(int c = 0; c < centroids.length; c++) {
+            double distance = getSquaredDistance(features, centroids[c]);
+            if(distance < min) {
+                min = distance;
+                closest = c;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Records a change happening while training. Must be called while holding the write lock
+     */
+    private void markChanged(K userKey) {
+        if(changedWhileTraining != null) {
+            changedWhileTraining.add(userKey);
+        }
+    }
+
+    /**
+     * Moves the user key to the given partition. Must be called while holding the write lock
+     */
+    private void place(K userKey, int partition) {
+        Integer previous = partitionByKey.put(userKey, partition);
+        if(previous != null && previous != partition) {
+            postings.get(previous).remove(userKey);
+        }
+        postings.get(partition).add(userKey);
+    }
+
+    /**
+     * Squared euclidean distance : same ordering as the distance used for identification, without the square root
+     */
+    private static double getSquaredDistance(double[] features1, double[] features2) {
+        double sum = 0.0d;
+        for(int i = 0; i < features1.length; i++) {
+            double diff = features1[i] - features2[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private static final class Snapshot<K> {
+        private final List<K> keys;
+        private final List<VoicePrint> voicePrints;
+        private final double[][] seeds;
+
+        Snapshot(List<K> keys, List<VoicePrint> voicePrints, double[][] seeds) {
+            this.keys = keys;
+            this.voicePrints = voicePrints;
+            this.seeds = seeds;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.bitsinharmony.recognito.distances.DistanceCalculator;
+import com.bitsinharmony.recognito.distances.EuclideanDistanceCalculator;
+
+/**
+ * A {@link Shard} holding its voice prints in memory, in the current JVM
+ * <p>
+ * Threading : this class is thread safe
+ * </p>
+ * @param <K> the type of the user keys
+ * @author Amaury Crickx
+ */
+public class LocalShard<K> 
+        implements Shard<K> {
+
+    private final ConcurrentHashMap<K, VoicePrint> store = new ConcurrentHashMap<K, VoicePrint>();
+
+    @Override
+    public void createVoicePrint(K userKey, double[] features) {
+        if(userKey == null) {
+            throw new NullPointerException("The userKey is null");
+        }
+        if(store.putIfAbsent(userKey, new VoicePrint(Arrays.copyOf(features, features.length))) != null) {
+            throw new IllegalArgumentException("The userKey already exists: [" + userKey + "]");
+        }
+    }
+
+    @Override
+    public void mergeFeatures(K userKey, double[] features) {
+        if(userKey == null) {
+            throw new NullPointerException("The userKey is null");
+        }
+        VoicePrint voicePrint = store.get(userKey);
+        if(voicePrint == null) {
+            throw new IllegalArgumentException("No voice print linked to this user key [" + userKey + "]");
+        }
+        voicePrint.merge(features);
+    }
+
+    @Override
+    public List<MatchResult<K>> identify(double[] features, double distanceFromUniversalModel, int topK) {
+        DistanceCalculator calculator = new EuclideanDistanceCalculator();
+        VoicePrint voicePrint = new VoicePrint(features);
+        List<MatchResult<K>> matches = new ArrayList<MatchResult<K>>(store.size());
+        for(Entry<K, VoicePrint> entry : store.entrySet()) {
+            double distance = entry.getValue().getDistance(calculator, voicePrint);
+            matches.add(new MatchResult<K>(entry.getKey(), 
+                    Recognito.getLikelihoodRatio(distance, distanceFromUniversalModel), distance));
+        }
+        Collections.sort(matches, ShardedRecognito.BY_DISTANCE);
+        if(matches.size() > topK) {
+            return new ArrayList<MatchResult<K>>(matches.subList(0, topK));
+        }
+        return matches;
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+}
@@ -22,6 +22,7 @@ package com.bitsinharmony.recognito;
  *
  * @param <K> The type of the key selected by the user
  * @see Recognito#identify(double[], float)
+ * @see Recognito#verify(Object, double[])
  * @author Amaury Crickx
  */
 public class MatchResult<K> {
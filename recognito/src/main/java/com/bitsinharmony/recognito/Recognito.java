@@ -18,28 +18,48 @@ package com.bitsinharmony.recognito;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
+import com.bitsinharmony.recognito.IdentificationCache.CachedMatches;
+import com.bitsinharmony.recognito.algorithms.PolyphaseResampler;
+import com.bitsinharmony.recognito.cache.FeaturesCache;
+import com.bitsinharmony.recognito.cache.SampleKey;
 import com.bitsinharmony.recognito.distances.DistanceCalculator;
 import com.bitsinharmony.recognito.distances.EuclideanDistanceCalculator;
 import com.bitsinharmony.recognito.enhancements.Normalizer;
 import com.bitsinharmony.recognito.features.FeaturesExtractor;
+import com.bitsinharmony.recognito.features.FeaturesExtractorFactory;
 import com.bitsinharmony.recognito.features.LpcFeaturesExtractor;
+import com.bitsinharmony.recognito.features.WindowedFeaturesExtractor;
+import com.bitsinharmony.recognito.metrics.MetricsCollector;
+import com.bitsinharmony.recognito.metrics.NoOpMetricsCollector;
+import com.bitsinharmony.recognito.metrics.Stage;
+import com.bitsinharmony.recognito.samples.SampleSource;
+import com.bitsinharmony.recognito.utils.ExecutorHelper;
 import com.bitsinharmony.recognito.utils.FileHelper;
 import com.bitsinharmony.recognito.vad.AutocorrellatedVoiceActivityDetector;
+import com.bitsinharmony.recognito.vad.VoicedSegments;
 
 /**
  * Front class for accessing Recognito's speaker recognition features
@@ -50,6 +70,7 @@ import com.bitsinharmony.recognito.vad.AutocorrellatedVoiceActivityDetector;
  * <ul>
  * <li>Create a voice print from an audio sample and store it with an associated user key</li>
  * <li>Merge a new voice sample into an existing voice print</li>
+ * <li>Replace or remove an existing voice print, e.g. to honour data deletion requests</li>
  * <li>Speaker recognition : analyse voice characteristics from an unknown sample and return a {@code List}
  * of {@code MatchResult}s sorted by distance. A likelihood ratio is provided within each {@code MatchResult}.</li>
  * </ul>
@@ -57,10 +78,20 @@ import com.bitsinharmony.recognito.vad.AutocorrellatedVoiceActivityDetector;
  * {@code Recognito} expects all voice samples to be comprised of a single channel (i.e. mono). Using a stereo sample 
  * whose channels are identical will merely double processing time. Using a real stereo sample will make 
  * the processing less accurate while doubling processing time.<br/>
+ * Files are not concerned : stereo and multichannel recordings are downmixed to mono while being decoded, 
+ * by averaging the channels of each frame.
+ * </p>
+ * <p>
+ * Large corpora of files may be enrolled at once using a {@link BulkEnroller}. Recordings submitted more than once,
+ * e.g. on retries, may skip features extraction altogether, see {@link #setFeaturesCache(FeaturesCache)}. 
+ * Repeated identifications may skip the scan of the voice prints as well, see 
+ * {@link #setIdentificationCache(IdentificationCache)}.
  * </p>
  * <p>
  * It is up to the user to manage persistence of the created voice print objects. Persisted voice prints
  * may be passed into an alternate {@code Recognito} constructor as a {@code Map} of user keys pointing to a voice print.
+ * Voice prints are kept on the heap by default. Large galleries whose voice prints are seldom used may keep most of 
+ * them in a memory mapped file instead, see {@link TieredVoicePrintStore}.
  * </p>
  * <p>
  * For methods taking a file handle :<br/>
@@ -74,15 +105,16 @@ import com.bitsinharmony.recognito.vad.AutocorrellatedVoiceActivityDetector;
  * <p>
  * Please note the sample rate is actually twice the highest audio frequency of the sample. E.g. a sample rate of 8KHz means
  * that the highest frequency available in the sample is 4KHz. So you can't resample at a higher frequency and expect 
- * the voice samples to be comparable, some frequencies will be missing. You may downsample, but if don't know how to do that 
- * correctly, you're better off using dedicated software. For the purpose of extracting voice prints, 
- * 16KHz appears to be the most interesting choice. 
+ * the voice samples to be comparable, some frequencies will be missing. Files sampled at a higher rate are downsampled 
+ * while being decoded, see {@link PolyphaseResampler}, which also saves the processing of the extra samples. 
+ * For the purpose of extracting voice prints, 16KHz appears to be the most interesting choice. 
  * </p>
  * <p>
  * The likelihood ratio available within the {@code MatchResult}s is calculated as the relative distance between the given voice sample, 
  * a known {@code VoicePrint} and a so called Universal Model. The universal model in {@code Recognito} is by default created as an average of all
  * {@code VoicePrint}s available in the system. The closer you are to the known {@code VoicePrint}, the higher the likelihood. 
  * Each time a new sample is sent to {@code Recognito}'s create or merge methods, the extracted features are added to the model. 
+ * They are taken out of the model when their voice print is replaced or removed. 
  * You may create your own model by merging a selected set of voice samples into a single {@code VoicePrint}. 
  * Once done, you may set this model once and for all in {@code Recognito}, it won't be updated afterwards.
  * A Universal Model is language dependent. At this very moment, it doesn't look realistic that {@code Recognito} would provide  
@@ -93,6 +125,21 @@ import com.bitsinharmony.recognito.vad.AutocorrellatedVoiceActivityDetector;
  * <p>
  * Threading : usage of {@code Recognito} is thread safe, see methods documentation for details
  * </p>
+ * <p>
+ * Asynchronous variants of the main methods run on an {@code ExecutorService} with a bounded submission queue, 
+ * leaving the calling thread free while voice activity detection and features extraction take place. 
+ * When the executor is saturated, the submission is rejected instead of piling up, see 
+ * {@link #setExecutorService(ExecutorService)}. 
+ * The asynchronous variants taking a file handle read and decode the file on a separate I/O executor 
+ * (using virtual threads when the JVM provides them) before handing the decoded sample to the former executor,
+ * so that disk and processors may both be kept busy, see {@link #setIoExecutorService(ExecutorService)}. 
+ * The number of files in flight is bounded as well, see {@link #setMaxPendingFiles(int)}
+ * </p>
+ * <p>
+ * The time spent in each stage of the processing pipeline may be monitored, see 
+ * {@link #setMetricsCollector(MetricsCollector)}. When running on Java 11+, JDK Flight Recorder events are emitted 
+ * for features extraction, identification, verification and universal model updates (category "Recognito").
+ * </p>
  * @param <K> {@code Recognito} is genericized in order to allow the user to specify its own type of user keys.
  * The constraints on user keys are the same as those for a {@code java.util.Map} key 
  * @author Amaury Crickx
@@ -101,23 +148,56 @@ import com.bitsinharmony.recognito.vad.AutocorrellatedVoiceActivityDetector;
 public class Recognito<K> {
 
     private static final float MIN_SAMPLE_RATE = 8000.0f;
+    private static final int DEFAULT_QUEUE_CAPACITY_PER_THREAD = 16;
+    private static final int DEFAULT_LPC_POLES = 20;
     
-    private final ConcurrentHashMap<K, VoicePrint> store = new ConcurrentHashMap<K, VoicePrint>();
+    private final VoicePrintStore<K> store;
     private final float sampleRate;
 
     private final AtomicBoolean universalModelWasSetByUser = new AtomicBoolean();
-    private VoicePrint universalModel;
+    private volatile VoicePrint universalModel;
 
+    // explicit lock rather than monitors : a virtual thread blocking on it doesn't pin its carrier thread
+    private final Lock lock = new ReentrantLock();
+    private volatile ExecutorService executorService;
+    private volatile ExecutorService ioExecutorService;
+    private volatile Semaphore pendingFiles = 
+            new Semaphore(Runtime.getRuntime().availableProcessors() * DEFAULT_QUEUE_CAPACITY_PER_THREAD);
+    private volatile MetricsCollector metricsCollector = NoOpMetricsCollector.INSTANCE;
+    private volatile FeaturesCache featuresCache;
+    private volatile IdentificationCache<K> identificationCache;
+    private volatile IvfIndex<K> index;
+    private final GalleryChangeLog<K> changeLog = new GalleryChangeLog<K>();
+    private volatile FeaturesExtractorFactory featuresExtractorFactory = LpcFeaturesExtractor.newFactory(DEFAULT_LPC_POLES);
+    // kind of the features enrolled by this instance, null until then : guarded by the lock
+    private String enrolledFeaturesKind;
     
     /**
      * Default constructor
      * @param sampleRate the sample rate, at least 8000.0 Hz (preferably higher)
      */
     public Recognito(float sampleRate) {
+        this(sampleRate, new InMemoryVoicePrintStore<K>());
+    }
+    
+    /**
+     * Constructor keeping the voice prints in the given store, e.g. a {@link TieredVoicePrintStore} keeping 
+     * only the recently used ones on the heap. The universal model is made of the voice prints already stored, if any
+     * @param sampleRate the sample rate, at least 8000.0 Hz (preferably higher)
+     * @param store the store, may not be null
+     */
+    public Recognito(float sampleRate, VoicePrintStore<K> store) {
         if(sampleRate < MIN_SAMPLE_RATE) {
             throw new IllegalArgumentException("Sample rate should be at least 8000 Hz");
         }
+        if(store == null) {
+            throw new IllegalArgumentException("The store may not be null");
+        }
         this.sampleRate = sampleRate;
+        this.store = store;
+        for(Entry<K, VoicePrint> entry : store.entries()) {
+            mergeIntoUniversalModel(entry.getValue());
+        }
     }
     
     /**
@@ -127,15 +207,18 @@ public class Recognito<K> {
      */
     public Recognito(float sampleRate, Map<K, VoicePrint> voicePrintsByUserKey) {
         this(sampleRate);
-        Iterator<VoicePrint> it = voicePrintsByUserKey.values().iterator();
-        if (it.hasNext()) {
-            VoicePrint print = it.next();
-            universalModel = new VoicePrint(print);            
-            while (it.hasNext()) {
-                universalModel.merge(it.next());
-            }
+        for(Entry<K, VoicePrint> entry : voicePrintsByUserKey.entrySet()) {
+            mergeIntoUniversalModel(entry.getValue());
+            store.put(entry.getKey(), entry.getValue());
         }
-        store.putAll(voicePrintsByUserKey);
+    }
+    
+    /**
+     * Get the sample rate expected for voice samples
+     * @return the sample rate
+     */
+    public float getSampleRate() {
+        return sampleRate;
     }
     
     /**
@@ -151,55 +234,501 @@ public class Recognito<K> {
      * Once set, further voice print create / merge operations won't modify this model
      * @param universalModel the universal model to set, may not be null
      */
-    public synchronized void setUniversalModel(VoicePrint universalModel) {
+    public void setUniversalModel(VoicePrint universalModel) {
         if(universalModel == null) {
             throw new IllegalArgumentException("The universal model may not be null");
         }
-        this.universalModelWasSetByUser.set(false);
-        this.universalModel = universalModel;
+        lock.lock();
+        try {
+            this.universalModelWasSetByUser.set(true);
+            this.universalModel = universalModel;
+            changeLog.record(null);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Sets the executor used by the asynchronous methods.
+     * <p>
+     * By default, {@code Recognito} lazily creates a daemon thread pool sized after the number of available processors,
+     * with a bounded submission queue rejecting tasks once full. Use 
+     * {@link ExecutorHelper#newBoundedExecutorService(int, int, java.util.concurrent.RejectedExecutionHandler)}
+     * to tune the pool size, queue capacity or rejection policy. The lifecycle of the given executor is the 
+     * responsibility of the caller. Note {@code shutdownNow} drops the files decoded by the asynchronous methods 
+     * taking a file handle and waiting to be processed : their Futures don't complete until cancelled, 
+     * which releases their pending slot, see {@link #setMaxPendingFiles(int)}.
+     * </p>
+     * @param executorService the executor to use, may not be null
+     */
+    public void setExecutorService(ExecutorService executorService) {
+        if(executorService == null) {
+            throw new IllegalArgumentException("The executorService may not be null");
+        }
+        this.executorService = executorService;
+    }
+    
+    /**
+     * Sets the factory of the features extractors used to turn voice samples into voice prints.
+     * <p>
+     * By default, {@code Recognito} sequentially extracts 20 LPC coefficients, see {@link LpcFeaturesExtractor}. 
+     * {@link LpcFeaturesExtractor#newFactory(int, java.util.concurrent.Executor, int)} extracts the same features 
+     * in parallel, which pays off when enrolling long recordings.
+     * {@link com.bitsinharmony.recognito.features.MfccFeaturesExtractor} is an alternative worth comparing on your 
+     * own recordings. Voice prints extracted with different kinds of features can't be compared : once voice prints 
+     * are enrolled, the factory may only be replaced by one of the same kind, see 
+     * {@link FeaturesExtractorFactory#getFeaturesKind()}. Voice prints passed into the constructor must have been 
+     * extracted with the kind of features of the factory set before enrolling others.
+     * </p>
+     * @param featuresExtractorFactory the factory to use, may not be null
+     * @throws IllegalStateException when voice prints of another kind of features are enrolled
+     */
+    public void setFeaturesExtractorFactory(FeaturesExtractorFactory featuresExtractorFactory) {
+        if(featuresExtractorFactory == null) {
+            throw new IllegalArgumentException("The featuresExtractorFactory may not be null");
+        }
+        lock.lock();
+        try {
+            if(store.isEmpty()) {
+                enrolledFeaturesKind = null;
+            } else if(enrolledFeaturesKind != null 
+                    && !enrolledFeaturesKind.equals(featuresExtractorFactory.getFeaturesKind())) {
+                throw new IllegalStateException("Voice prints of another kind of features are enrolled : [" + 
+                        enrolledFeaturesKind + "], received [" + featuresExtractorFactory.getFeaturesKind() + "]");
+            }
+            this.featuresExtractorFactory = featuresExtractorFactory;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Get the factory creating the features extractors
+     * @return the factory
+     */
+    FeaturesExtractorFactory getFeaturesExtractorFactory() {
+        return featuresExtractorFactory;
+    }
+    
+    /**
+     * Get the voice print stored for the given user key
+     * @param userKey the user key
+     * @return the voice print or null if none is stored
+     */
+    VoicePrint getVoicePrint(K userKey) {
+        return store.get(userKey);
+    }
+    
+    /**
+     * Get the universal model itself, not a copy
+     * @return the universal model or null if no voice print was created yet
+     */
+    VoicePrint getCurrentUniversalModel() {
+        return universalModel;
+    }
+    
+    /**
+     * Get the stored voice prints by user key, for a full scan
+     * @return the entries
+     * @see VoicePrintStore#entries()
+     */
+    Iterable<Entry<K, VoicePrint>> getVoicePrintEntries() {
+        return store.entries();
+    }
+    
+    /**
+     * Get the number of stored voice prints
+     * @return the count
+     */
+    int getVoicePrintCount() {
+        return store.size();
+    }
+    
+    /**
+     * Sets the collector receiving the measurements taken along the processing pipeline : time spent decoding files, 
+     * detecting voice activity, normalizing, extracting features, scoring and sorting, as well as the share of silence 
+     * removed, the number of windows processed and the number of candidates scored.
+     * <p>
+     * By default, measurements are discarded by a {@link NoOpMetricsCollector}
+     * </p>
+     * @param metricsCollector the collector to use, may not be null
+     */
+    public void setMetricsCollector(MetricsCollector metricsCollector) {
+        if(metricsCollector == null) {
+            throw new IllegalArgumentException("The metricsCollector may not be null");
+        }
+        this.metricsCollector = metricsCollector;
+    }
+    
+    /**
+     * Sets the cache of the features extracted from voice samples, or null to disable caching (the default)
+     * <p>
+     * Voice samples are identified by a hash of their values and sample rate : submitting the same recording again 
+     * skips silence removal, normalization and features extraction. Note the arrays of doubles passed to this class 
+     * are modified in place while their features are extracted, resubmitting the very same array won't hit the cache.
+     * The kind of features of the factory in use is part of the key, see {@link SampleKey} : features extracted 
+     * by another kind of features extractor are never served. Factories returning a null kind bypass the cache.
+     * </p>
+     * @param featuresCache the cache to use, may be null
+     */
+    public void setFeaturesCache(FeaturesCache featuresCache) {
+        this.featuresCache = featuresCache;
+    }
+    
+    /**
+     * Sets the cache of identification results, or null to disable caching (the default)
+     * <p>
+     * Results are looked up by the features of the voice sample and the number of requested matches. 
+     * Cached results are never served stale : the voice prints created or merged since are rescored, 
+     * the other ones are taken from the cache, see {@link IdentificationCache}.
+     * </p>
+     * @param identificationCache the cache to use, may be null
+     * @throws IllegalArgumentException if the cache is already used by another Recognito instance
+     */
+    public void setIdentificationCache(IdentificationCache<K> identificationCache) {
+        if(identificationCache != null) {
+            identificationCache.bind(this);
+        }
+        this.identificationCache = identificationCache;
+    }
+    
+    /**
+     * Sets the inverted file index restricting identification to the partitions of the gallery closest to the voice 
+     * sample, or null to scan all the voice prints (the default)
+     * <p>
+     * The stored voice prints are added to the index, which is then trained on the executor of the asynchronous 
+     * methods : for large galleries, this takes a while. Voice prints created or merged afterwards are kept up to date 
+     * in the index. Identification results become approximate, see {@link IvfIndex}. Verification and batched 
+     * identification are not affected.
+     * </p>
+     * @param index the index to use, may be null
+     * @throws IllegalArgumentException if the index is already used by another Recognito instance
+     */
+    public void setIndex(IvfIndex<K> index) {
+        if(index != null) {
+            index.bind(this);
+            lock.lock();
+            try {
+                for(Entry<K, VoicePrint> entry : store.entries()) {
+                    index.add(entry.getKey(), entry.getValue());
+                }
+                this.index = index;
+            } finally {
+                lock.unlock();
+            }
+            index.train(getExecutorService());
+        } else {
+            this.index = null;
+        }
+    }
+    
+    /**
+     * Get the inverted file index
+     * @return the index or null if identification scans all the voice prints
+     */
+    public IvfIndex<K> getIndex() {
+        return index;
+    }
+    
+    /**
+     * Trains the index again, starting from its current partitions. Worth calling once the gallery grew 
+     * significantly since the last training
+     * @throws IllegalStateException if no index is set
+     */
+    public void trainIndex() {
+        IvfIndex<K> ivf = index;
+        if(ivf == null) {
+            throw new IllegalStateException("No index is set");
+        }
+        ivf.train(getExecutorService());
+    }
+    
+    /**
+     * Get the cache of identification results
+     * @return the cache or null if caching is disabled
+     */
+    public IdentificationCache<K> getIdentificationCache() {
+        return identificationCache;
+    }
+    
+    /**
+     * Get the cache of the features extracted from voice samples
+     * @return the cache or null if caching is disabled
+     */
+    public FeaturesCache getFeaturesCache() {
+        return featuresCache;
+    }
+    
+    /**
+     * Gets the executor used by the asynchronous methods, creating the default one if none was set
+     * @return the executor
+     */
+    private ExecutorService getExecutorService() {
+        ExecutorService executor = executorService;
+        if(executor == null) {
+            lock.lock();
+            try {
+                executor = executorService;
+                if(executor == null) {
+                    int threads = Runtime.getRuntime().availableProcessors();
+                    executor = ExecutorHelper.newBoundedExecutorService(threads, 
+                            threads * DEFAULT_QUEUE_CAPACITY_PER_THREAD);
+                    executorService = executor;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return executor;
+    }
+    
+    /**
+     * Sets the executor used to read and decode files for the asynchronous methods taking a file handle.
+     * <p>
+     * Reading files is mostly blocking I/O : this executor should allow many more concurrent tasks than there 
+     * are processors. By default, {@code Recognito} uses a virtual thread per task executor when running on Java 21+
+     * and an unbounded pool of daemon threads otherwise, see {@link ExecutorHelper#newIoExecutorService()}. 
+     * Either way, no more than {@link #setMaxPendingFiles(int)} files are submitted to it at once.
+     * Voice activity detection and features extraction always take place on the executor set by
+     * {@link #setExecutorService(ExecutorService)} : the I/O task hands the decoded sample over without 
+     * waiting for it to be processed. The lifecycle of the given executor is the responsibility of the caller.
+     * </p>
+     * @param ioExecutorService the executor to use, may not be null
+     */
+    public void setIoExecutorService(ExecutorService ioExecutorService) {
+        if(ioExecutorService == null) {
+            throw new IllegalArgumentException("The ioExecutorService may not be null");
+        }
+        this.ioExecutorService = ioExecutorService;
+    }
+    
+    /**
+     * Sets the maximum number of files accepted by the asynchronous methods taking a file handle and not processed 
+     * yet, whether they are being decoded or waiting for the processing executor. Files submitted beyond that 
+     * number are rejected with a {@code RejectedExecutionException}, before being read.
+     * <p>
+     * Defaults to the queue capacity of the default processing executor : 16 times the number of available 
+     * processors. Files already submitted are not affected by a new maximum. A file no longer counts once its 
+     * Future is completed or cancelled.
+     * </p>
+     * @param maxPendingFiles the maximum number of pending files, at least 1
+     */
+    public void setMaxPendingFiles(int maxPendingFiles) {
+        if(maxPendingFiles < 1) {
+            throw new IllegalArgumentException("maxPendingFiles should be at least 1, received [" + maxPendingFiles + "]");
+        }
+        this.pendingFiles = new Semaphore(maxPendingFiles);
+    }
+    
+    /**
+     * Gets the executor used for reading files, creating the default one if none was set
+     * @return the executor
+     */
+    private ExecutorService getIoExecutorService() {
+        ExecutorService executor = ioExecutorService;
+        if(executor == null) {
+            lock.lock();
+            try {
+                executor = ioExecutorService;
+                if(executor == null) {
+                    executor = ExecutorHelper.newIoExecutorService();
+                    ioExecutorService = executor;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return executor;
     }
     
     /**
      * Creates a voice print and stores it along with the user key for later comparison with new samples
      * <p>
-     * Threading : this method is synchronized to prevent inadvertently erasing an existing user key
+     * Threading : storing the voice print is serialized to prevent inadvertently erasing an existing user key.
+     * Features extraction happens beforehand, so that several voice prints may be created concurrently
      * </p>
      * @param userKey the user key associated with this voice print
      * @param voiceSample the voice sample, values between -1.0 and 1.0
      * @return the voice print extracted from the given sample
      */
-    public synchronized VoicePrint createVoicePrint(K userKey, double[] voiceSample) {
+    public VoicePrint createVoicePrint(K userKey, double[] voiceSample) {
+        checkNewUserKey(userKey);
+        
+        return storeVoicePrint(userKey, extractFeatures(voiceSample, sampleRate));
+    }
+    
+    /**
+     * Creates a voice print from a voice sample in any of the formats supported by {@link SampleSource}, e.g. 16 bit 
+     * PCM, and stores it along with the user key for later comparison with new samples
+     * <p>
+     * The voice sample is converted a window at a time as it is analyzed, instead of being converted to an array 
+     * of doubles beforehand. The voice print is the same as for the equivalent array of doubles.
+     * </p>
+     * @param userKey the user key associated with this voice print
+     * @param voiceSample the voice sample
+     * @return the voice print extracted from the given sample
+     * @see #createVoicePrint(Object, double[])
+     */
+    public VoicePrint createVoicePrint(K userKey, SampleSource voiceSample) {
+        checkNewUserKey(userKey);
+        
+        return storeVoicePrint(userKey, extractFeatures(voiceSample, sampleRate));
+    }
+    
+    private void checkNewUserKey(K userKey) {
         if(userKey == null) {
             throw new NullPointerException("The userKey is null");
         }
         if(store.containsKey(userKey)) {
             throw new IllegalArgumentException("The userKey already exists: [" + userKey + "]");
         }
-        
-        double[] features = extractFeatures(voiceSample, sampleRate);
+    }
+    
+    /**
+     * Stores a new voice print, checking once again the user key doesn't exist while holding the lock
+     * @param userKey the user key associated with this voice print
+     * @param features the extracted features
+     * @return the voice print
+     */
+    private VoicePrint storeVoicePrint(K userKey, double[] features) {
         VoicePrint voicePrint = new VoicePrint(features);
          
-        synchronized (this) {
-            if (!universalModelWasSetByUser.get()) {
-                if (universalModel == null) {
-                    universalModel = new VoicePrint(voicePrint);
-                } else {
-                    universalModel.merge(features);
-                }
+        Object event = lockForUniversalModelUpdate();
+        try {
+            if(store.containsKey(userKey)) {
+                throw new IllegalArgumentException("The userKey already exists: [" + userKey + "]");
             }
+            mergeIntoUniversalModel(features);
+            store.put(userKey, voicePrint);
+            addToIndex(userKey, voicePrint);
+            changeLog.record(userKey);
+        } finally {
+            unlockAfterUniversalModelUpdate(event);
         }
-        store.put(userKey, voicePrint);
         
         return voicePrint;
     }
     
+    /**
+     * Stores already extracted features : creates the voice print for this user key or merges the features
+     * into the existing one
+     * @param userKey the user key associated with this voice print
+     * @param features the extracted features
+     * @return the created or updated voice print
+     * @see BulkEnroller
+     */
+    VoicePrint createOrMergeVoicePrint(K userKey, double[] features) {
+        Object event = lockForUniversalModelUpdate();
+        try {
+            VoicePrint voicePrint = store.get(userKey);
+            if(voicePrint == null) {
+                voicePrint = new VoicePrint(features);
+                mergeIntoUniversalModel(features);
+                store.put(userKey, voicePrint);
+                addToIndex(userKey, voicePrint);
+            } else {
+                voicePrint.merge(features);
+                mergeIntoUniversalModel(features);
+                // picked up by stores keeping copies
+                store.put(userKey, voicePrint);
+                updateIndex(userKey, voicePrint);
+            }
+            changeLog.record(userKey);
+            return voicePrint;
+        } finally {
+            unlockAfterUniversalModelUpdate(event);
+        }
+    }
+    
+    /**
+     * Acquires the lock guarding the universal model and the user keys, recording the time spent waiting for it
+     * @return the flight recorder event to pass to {@link #unlockAfterUniversalModelUpdate(Object)}
+     */
+    private Object lockForUniversalModelUpdate() {
+        Object event = RecognitoEvents.beginUniversalModelUpdate();
+        lock.lock();
+        RecognitoEvents.lockAcquired(event);
+        return event;
+    }
+    
+    /**
+     * Releases the lock acquired by {@link #lockForUniversalModelUpdate()}
+     * @param event the flight recorder event
+     */
+    private void unlockAfterUniversalModelUpdate(Object event) {
+        lock.unlock();
+        RecognitoEvents.endUniversalModelUpdate(event, sampleRate, store.size());
+    }
+    
+    private void addToIndex(K userKey, VoicePrint voicePrint) {
+        IvfIndex<K> ivf = index;
+        if(ivf != null) {
+            ivf.add(userKey, voicePrint);
+        }
+    }
+    
+    private void removeFromIndex(K userKey) {
+        IvfIndex<K> ivf = index;
+        if(ivf != null) {
+            ivf.remove(userKey);
+        }
+    }
+    
+    private void updateIndex(K userKey, VoicePrint voicePrint) {
+        IvfIndex<K> ivf = index;
+        if(ivf != null) {
+            ivf.update(userKey, voicePrint);
+        }
+    }
+    
+    /**
+     * Merges all the samples of a loaded voice print into the universal model, weighted by their number : 
+     * same model as if they were created and merged here
+     * @param voicePrint the voice print
+     */
+    private void mergeIntoUniversalModel(VoicePrint voicePrint) {
+        if (universalModel == null) {
+            universalModel = new VoicePrint(voicePrint);
+        } else {
+            universalModel.merge(voicePrint);
+        }
+    }
+    
+    /**
+     * Merges the given features into the universal model unless the latter was set by the user, 
+     * recording the kind of the enrolled features. Must be called while holding the lock
+     * @param features the features to merge
+     */
+    private void mergeIntoUniversalModel(double[] features) {
+        enrolledFeaturesKind = featuresExtractorFactory.getFeaturesKind();
+        if (!universalModelWasSetByUser.get()) {
+            if (universalModel == null) {
+                universalModel = new VoicePrint(Arrays.copyOf(features, features.length));
+            } else {
+                universalModel.merge(features);
+            }
+        }
+    }
+    
+    /**
+     * Takes the samples of the given voice print out of the universal model unless the latter was set by the user.
+     * Must be called while holding the lock
+     * @param voicePrint the voice print whose samples were merged into the universal model
+     */
+    private void removeFromUniversalModel(VoicePrint voicePrint) {
+        if (!universalModelWasSetByUser.get()) {
+            universalModel.unmerge(voicePrint);
+        }
+    }
+    
     /**
      * Convenience method to load voice samples from files.
      * <p>
      * See class description for details on files
      * </p>
      * @param userKey the user key associated with this voice print
-     * @param voiceSampleFile the file containing the voice sample, must have the same sample rate as defined in constructor
+     * @param voiceSampleFile the file containing the voice sample, sample rate at least the one defined in constructor,
+     * higher sample rates are converted while decoding
      * @return the voice print
      * @throws UnsupportedAudioFileException when the JVM does not support the file format
      * @throws IOException when an I/O exception occurs
@@ -208,7 +737,7 @@ public class Recognito<K> {
     public VoicePrint createVoicePrint(K userKey, File voiceSampleFile) 
             throws UnsupportedAudioFileException, IOException {
         
-        double[] audioSample = convertFileToDoubleArray(voiceSampleFile);
+        SampleSource audioSample = convertFileToSampleSource(voiceSampleFile);
 
         return createVoicePrint(userKey, audioSample);
     }
@@ -220,17 +749,43 @@ public class Recognito<K> {
      * @throws UnsupportedAudioFileException when the JVM does not support the file format
      * @throws IOException when an I/O exception occurs
      */
-    private double[] convertFileToDoubleArray(File voiceSampleFile) 
+    double[] convertFileToDoubleArray(File voiceSampleFile) 
+            throws UnsupportedAudioFileException, IOException {
+        
+        long start = System.nanoTime();
+        double[] audioSample = FileHelper.readAudioInputStream(openAudioInputStream(voiceSampleFile), sampleRate);
+        metricsCollector.recordTime(Stage.DECODE, System.nanoTime() - start);
+        return audioSample;
+    }
+
+    /**
+     * Converts the given audio file to 16 bit PCM, without widening the samples to doubles
+     * @param voiceSampleFile the file to convert
+     * @return the source reading the samples
+     * @throws UnsupportedAudioFileException when the JVM does not support the file format
+     * @throws IOException when an I/O exception occurs
+     */
+    SampleSource convertFileToSampleSource(File voiceSampleFile) 
+            throws UnsupportedAudioFileException, IOException {
+        
+        long start = System.nanoTime();
+        ByteBuffer pcm16 = FileHelper.readAudioInputStreamAsPcm16(openAudioInputStream(voiceSampleFile), sampleRate);
+        metricsCollector.recordTime(Stage.DECODE, System.nanoTime() - start);
+        return SampleSource.ofPcm16(pcm16);
+    }
+
+    private AudioInputStream openAudioInputStream(File voiceSampleFile) 
             throws UnsupportedAudioFileException, IOException {
         
         AudioInputStream sample = AudioSystem.getAudioInputStream(voiceSampleFile);
         AudioFormat format = sample.getFormat();
-        float diff = Math.abs(format.getSampleRate() - sampleRate);
-        if(diff > 5 * Math.ulp(0.0f)) {
-            throw new IllegalArgumentException("The sample rate for this file is different than Recognito's " +
+        // upsampling wouldn't bring back the missing frequencies
+        if(format.getSampleRate() < sampleRate && !FileHelper.isSameSampleRate(format.getSampleRate(), sampleRate)) {
+            sample.close();
+            throw new IllegalArgumentException("The sample rate for this file is lower than Recognito's " +
             		"defined sample rate : [" + format.getSampleRate() + "]");
         }
-        return FileHelper.readAudioInputStream(sample);
+        return sample;
     }
     
     /**
@@ -244,7 +799,27 @@ public class Recognito<K> {
      * @return the updated voice print
      */
     public VoicePrint mergeVoiceSample(K userKey, double[] voiceSample) {
+        getExistingVoicePrint(userKey);
+        
+        return mergeFeatures(userKey, extractFeatures(voiceSample, sampleRate));
+    }
+    
+    /**
+     * Extracts voice features from a voice sample in any of the formats supported by {@link SampleSource} and 
+     * merges them with previous voice print extracted for this user key
+     * @param userKey the user key associated with this voice print
+     * @param voiceSample the voice sample to analyze
+     * @return the updated voice print
+     * @see #mergeVoiceSample(Object, double[])
+     * @see #createVoicePrint(Object, SampleSource)
+     */
+    public VoicePrint mergeVoiceSample(K userKey, SampleSource voiceSample) {
+        getExistingVoicePrint(userKey);
         
+        return mergeFeatures(userKey, extractFeatures(voiceSample, sampleRate));
+    }
+    
+    private VoicePrint getExistingVoicePrint(K userKey) {
         if(userKey == null) {
             throw new NullPointerException("The userKey is null");
         }
@@ -253,25 +828,41 @@ public class Recognito<K> {
         if(original == null) {
             throw new IllegalArgumentException("No voice print linked to this user key [" + userKey + "]");
         }
-
-        double[] features = extractFeatures(voiceSample, sampleRate);
-        synchronized (this) {
-            if(!universalModelWasSetByUser.get()) {
-                universalModel.merge(features);
-            }
-        }
-        original.merge(features);
-        
         return original;
     }
     
+    /**
+     * Merges the features into the voice print of the user key and the universal model, both at once so that 
+     * a concurrent removal takes out exactly what was merged into the universal model
+     * @param userKey the user key associated with this voice print
+     * @param features the extracted features
+     * @return the updated voice print
+     * @throws IllegalArgumentException when the voice print was removed during features extraction
+     */
+    private VoicePrint mergeFeatures(K userKey, double[] features) {
+        Object event = lockForUniversalModelUpdate();
+        try {
+            VoicePrint original = getExistingVoicePrint(userKey);
+            mergeIntoUniversalModel(features);
+            original.merge(features);
+            // picked up by stores keeping copies
+            store.put(userKey, original);
+            updateIndex(userKey, original);
+            changeLog.record(userKey);
+            return original;
+        } finally {
+            unlockAfterUniversalModelUpdate(event);
+        }
+    }
+    
     /**
      * Convenience method to merge voice samples from files. 
      * <p>
      * See class description for details on files
      * </p>
      * @param userKey the user key associated with this voice print
-     * @param voiceSampleFile the file containing the voice sample, must have the same sample rate as defined in constructor
+     * @param voiceSampleFile the file containing the voice sample, sample rate at least the one defined in constructor,
+     * higher sample rates are converted while decoding
      * @return the updated voice print
      * @throws UnsupportedAudioFileException when the JVM does not support the file format
      * @throws IOException when an I/O exception occurs
@@ -280,52 +871,407 @@ public class Recognito<K> {
     public VoicePrint mergeVoiceSample(K userKey, File voiceSampleFile) 
             throws UnsupportedAudioFileException, IOException {
         
-        double[] audioSample = convertFileToDoubleArray(voiceSampleFile);
+        SampleSource audioSample = convertFileToSampleSource(voiceSampleFile);
 
         return mergeVoiceSample(userKey, audioSample);
     }
 
     /**
-     * Calculates the distance between this voice sample and the voice prints previously extracted 
-     * and returns the closest matches sorted by distance
+     * Extracts voice features from the given voice sample and replaces the voice print of this user key with them
      * <p>
-     * Usage of a closed set is assumed : the speaker's voice print was extracted before and is known to the system.
-     * This means you'll always get MatchResults even if the speaker is absolutely unknown to the system.
-     * The MatchResult class provides a likelihood ratio in order to help determining the usefulness of the result
+     * The samples of the former voice print are taken out of the universal model, unless the latter was set by 
+     * the user. The former voice print instance is left untouched.
+     * </p>
+     * <p>
+     * Threading : same as {@link #mergeVoiceSample(Object, double[])}
      * </p>
+     * @param userKey the user key associated with the voice print
      * @param voiceSample the voice sample, values between -1.0 and 1.0
-     * @return a list MatchResults sorted by distance
+     * @return the new voice print
+     * @throws IllegalArgumentException when no voice print is linked to the user key
      */
-    public List<MatchResult<K>> identify(double[] voiceSample) {
-        
-        if(store.isEmpty()) {
-            throw new IllegalStateException("There is no voice print enrolled in the system yet");
-        }
-
-        VoicePrint voicePrint = new VoicePrint(extractFeatures(voiceSample, sampleRate));
+    public VoicePrint replaceVoicePrint(K userKey, double[] voiceSample) {
+        getExistingVoicePrint(userKey);
         
-        DistanceCalculator calculator = new EuclideanDistanceCalculator();
-        List<MatchResult<K>> matches = new ArrayList<MatchResult<K>>(store.size());
-
-        double distanceFromUniversalModel = voicePrint.getDistance(calculator, universalModel);
-        for (Entry<K, VoicePrint> entry : store.entrySet()) {
-            double distance = entry.getValue().getDistance(calculator, voicePrint);
-            // likelihood : how close is the given voice sample to the current VoicePrint 
-            // compared to the total distance between the current VoicePrint and the universal model 
-            int likelihood = 100 - (int) (distance / (distance + distanceFromUniversalModel) * 100);
-            matches.add(new MatchResult<K>(entry.getKey(), likelihood, distance));
-        }
-
-        Collections.sort(matches, new Comparator<MatchResult<K>>() {
-            @Override
-            public int compare(MatchResult<K> m1, MatchResult<K> m2) {
-                return Double.compare(m1.getDistance(), m2.getDistance());
-            }
-        });
-        
-        return matches;
+        return replaceFeatures(userKey, extractFeatures(voiceSample, sampleRate));
     }
-  
+    
+    /**
+     * Extracts voice features from a voice sample in any of the formats supported by {@link SampleSource} and 
+     * replaces the voice print of this user key with them
+     * @param userKey the user key associated with the voice print
+     * @param voiceSample the voice sample
+     * @return the new voice print
+     * @throws IllegalArgumentException when no voice print is linked to the user key
+     * @see #replaceVoicePrint(Object, double[])
+     */
+    public VoicePrint replaceVoicePrint(K userKey, SampleSource voiceSample) {
+        getExistingVoicePrint(userKey);
+        
+        return replaceFeatures(userKey, extractFeatures(voiceSample, sampleRate));
+    }
+    
+    /**
+     * Convenience method to replace voice prints from files. 
+     * <p>
+     * See class description for details on files
+     * </p>
+     * @param userKey the user key associated with the voice print
+     * @param voiceSampleFile the file containing the voice sample, sample rate at least the one defined in constructor,
+     * higher sample rates are converted while decoding
+     * @return the new voice print
+     * @throws UnsupportedAudioFileException when the JVM does not support the file format
+     * @throws IOException when an I/O exception occurs
+     * @see #replaceVoicePrint(Object, double[])
+     */
+    public VoicePrint replaceVoicePrint(K userKey, File voiceSampleFile) 
+            throws UnsupportedAudioFileException, IOException {
+        
+        SampleSource audioSample = convertFileToSampleSource(voiceSampleFile);
+
+        return replaceVoicePrint(userKey, audioSample);
+    }
+    
+    /**
+     * Replaces the voice print of the user key with one made of the given features
+     * @param userKey the user key associated with the voice print
+     * @param features the extracted features
+     * @return the new voice print
+     * @throws IllegalArgumentException when the voice print was removed during features extraction
+     */
+    private VoicePrint replaceFeatures(K userKey, double[] features) {
+        VoicePrint voicePrint = new VoicePrint(features);
+        
+        Object event = lockForUniversalModelUpdate();
+        try {
+            VoicePrint original = getExistingVoicePrint(userKey);
+            removeFromUniversalModel(original);
+            mergeIntoUniversalModel(features);
+            store.put(userKey, voicePrint);
+            removeFromIndex(userKey);
+            addToIndex(userKey, voicePrint);
+            changeLog.record(userKey);
+        } finally {
+            unlockAfterUniversalModelUpdate(event);
+        }
+        
+        return voicePrint;
+    }
+    
+    /**
+     * Removes the voice print of this user key, e.g. to honour a data deletion request
+     * <p>
+     * The samples of the voice print are taken out of the universal model, unless the latter was set by the user. 
+     * This takes a constant time whatever the number of voice prints : nothing is rebuilt. 
+     * </p>
+     * <p>
+     * Threading : removals are serialized with the create, merge and replace operations. Identifications already 
+     * running may still return the removed voice print
+     * </p>
+     * @param userKey the user key associated with the voice print
+     * @return the removed voice print, or null if no voice print was linked to the user key
+     */
+    public VoicePrint removeVoicePrint(K userKey) {
+        if(userKey == null) {
+            throw new NullPointerException("The userKey is null");
+        }
+        
+        Object event = lockForUniversalModelUpdate();
+        try {
+            VoicePrint removed = store.remove(userKey);
+            if(removed != null) {
+                removeFromUniversalModel(removed);
+                removeFromIndex(userKey);
+                changeLog.record(userKey);
+            }
+            return removed;
+        } finally {
+            unlockAfterUniversalModelUpdate(event);
+        }
+    }
+
+    /**
+     * Calculates the distance between this voice sample and the voice prints previously extracted 
+     * and returns the closest matches sorted by distance
+     * <p>
+     * Usage of a closed set is assumed : the speaker's voice print was extracted before and is known to the system.
+     * This means you'll always get MatchResults even if the speaker is absolutely unknown to the system.
+     * The MatchResult class provides a likelihood ratio in order to help determining the usefulness of the result
+     * </p>
+     * @param voiceSample the voice sample, values between -1.0 and 1.0
+     * @return a list MatchResults sorted by distance
+     */
+    public List<MatchResult<K>> identify(double[] voiceSample) {
+        
+        return identify(voiceSample, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Identifies the given voice sample, returning the closest matches only
+     * <p>
+     * When an identification cache is set, the results are looked up by the features of the voice sample and 
+     * topK, see {@link #setIdentificationCache(IdentificationCache)}
+     * </p>
+     * @param voiceSample the voice sample, values between -1.0 and 1.0
+     * @param topK the maximum number of matches to return, at least 1
+     * @return a list of at most topK MatchResults sorted by distance
+     * @see #identify(double[])
+     */
+    public List<MatchResult<K>> identify(double[] voiceSample, int topK) {
+        
+        checkTopK(topK);
+        checkNotEmpty();
+        Object event = RecognitoEvents.beginIdentification();
+        
+        return identify(extractFeatures(voiceSample, sampleRate), topK, event, voiceSample.length);
+    }
+    
+    /**
+     * Identifies a voice sample in any of the formats supported by {@link SampleSource}
+     * @param voiceSample the voice sample
+     * @return a list MatchResults sorted by distance
+     * @see #identify(double[])
+     * @see #createVoicePrint(Object, SampleSource)
+     */
+    public List<MatchResult<K>> identify(SampleSource voiceSample) {
+        
+        return identify(voiceSample, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Identifies a voice sample in any of the formats supported by {@link SampleSource}, returning the closest 
+     * matches only
+     * @param voiceSample the voice sample
+     * @param topK the maximum number of matches to return, at least 1
+     * @return a list of at most topK MatchResults sorted by distance
+     * @see #identify(double[], int)
+     */
+    public List<MatchResult<K>> identify(SampleSource voiceSample, int topK) {
+        
+        checkTopK(topK);
+        checkNotEmpty();
+        Object event = RecognitoEvents.beginIdentification();
+        
+        return identify(extractFeatures(voiceSample, sampleRate), topK, event, voiceSample.getLength());
+    }
+    
+    private void checkNotEmpty() {
+        if(store.isEmpty()) {
+            throw new IllegalStateException("There is no voice print enrolled in the system yet");
+        }
+    }
+    
+    private static void checkTopK(int topK) {
+        if(topK < 1) {
+            throw new IllegalArgumentException("topK should be at least 1, received [" + topK + "]");
+        }
+    }
+    
+    /**
+     * Identifies the given features, using the identification cache when set
+     * @param features the features extracted from the voice sample
+     * @param topK the maximum number of matches to return
+     * @param event the flight recorder event
+     * @param sampleLength the length of the voice sample
+     * @return a list of at most topK MatchResults sorted by distance
+     */
+    private List<MatchResult<K>> identify(double[] features, int topK, Object event, int sampleLength) {
+        
+        VoicePrint voicePrint = new VoicePrint(features);
+        IdentificationCache<K> cache = identificationCache;
+        if(cache == null) {
+            return identify(voicePrint, topK, event, sampleLength);
+        }
+        
+        // read beforehand : changes applied during the scan are rescored on the next hit
+        long epoch = changeLog.getEpoch();
+        CachedMatches<K> cached = cache.get(features, topK);
+        List<MatchResult<K>> matches = null;
+        if(cached != null) {
+            matches = refresh(cached, voicePrint, topK, cache);
+        }
+        if(matches == null) {
+            cache.recordMiss(cached != null);
+            matches = identify(voicePrint, topK, event, sampleLength);
+        } else {
+            RecognitoEvents.endIdentification(event, sampleLength, sampleRate, store.size(), matches.size());
+        }
+        // approximate results from the index never hold all the stored voice prints
+        boolean complete = matches.size() < topK && index == null;
+        cache.put(features, topK, new CachedMatches<K>(epoch, matches, complete));
+        
+        return matches;
+    }
+    
+    /**
+     * Brings cached matches up to date by rescoring the voice prints changed since they were computed
+     * <p>
+     * The voice prints left out of cached top matches were all further than the last one. Unless they changed, 
+     * they still are : the refreshed matches are exact as long as the last of them is not further than it was.
+     * </p>
+     * @param cached the cached matches
+     * @param voicePrint the voice print extracted from the voice sample
+     * @param topK the maximum number of matches to return
+     * @param cache the identification cache
+     * @return the refreshed matches, or null when a full scan is required
+     */
+    @SuppressWarnings("unchecked")
+    private List<MatchResult<K>> refresh(CachedMatches<K> cached, VoicePrint voicePrint, int topK, 
+            IdentificationCache<K> cache) {
+        
+        Set<K> changes = changeLog.getChangesSince(cached.epoch);
+        if(changes == null) {
+            return null;
+        }
+        
+        DistanceCalculator calculator = new EuclideanDistanceCalculator();
+        MetricsCollector metrics = metricsCollector;
+        long start = System.nanoTime();
+        double distanceFromUniversalModel = voicePrint.getDistance(calculator, universalModel);
+        List<MatchResult<K>> matches = new ArrayList<MatchResult<K>>(cached.keys.length + changes.size());
+        for(int i = 0; i < cached.keys.length; i++) {
+            K key = (K) cached.keys[i];
+            if(!changes.contains(key)) {
+                matches.add(new MatchResult<K>(key, 
+                        getLikelihoodRatio(cached.distances[i], distanceFromUniversalModel), cached.distances[i]));
+            }
+        }
+        for(K key : changes) {
+            VoicePrint changed = store.peek(key);
+            if(changed != null) {
+                double distance = changed.getDistance(calculator, voicePrint);
+                matches.add(new MatchResult<K>(key, getLikelihoodRatio(distance, distanceFromUniversalModel), distance));
+            }
+        }
+        metrics.recordTime(Stage.SCORING, System.nanoTime() - start);
+        metrics.recordCandidatesScored(changes.size());
+        
+        sortByDistance(matches);
+        if(!cached.complete) {
+            int last = cached.keys.length - 1;
+            if(matches.size() < topK || matches.get(topK - 1).getDistance() > cached.distances[last]) {
+                return null;
+            }
+        }
+        cache.recordHit(changes.size());
+        
+        return truncate(matches, topK);
+    }
+    
+    private List<MatchResult<K>> truncate(List<MatchResult<K>> matches, int topK) {
+        if(matches.size() <= topK) {
+            return matches;
+        }
+        return new ArrayList<MatchResult<K>>(matches.subList(0, topK));
+    }
+    
+    /**
+     * Scores the given voice print against all the stored ones
+     * @param voicePrint the voice print extracted from the voice sample
+     * @param topK the maximum number of matches to return
+     * @param event the flight recorder event
+     * @param sampleLength the length of the voice sample
+     * @return a list of at most topK MatchResults sorted by distance
+     */
+    private List<MatchResult<K>> identify(VoicePrint voicePrint, int topK, Object event, int sampleLength) {
+        
+        DistanceCalculator calculator = new EuclideanDistanceCalculator();
+        List<MatchResult<K>> matches = new ArrayList<MatchResult<K>>(store.size());
+
+        MetricsCollector metrics = metricsCollector;
+        long start = System.nanoTime();
+        double distanceFromUniversalModel = voicePrint.getDistance(calculator, universalModel);
+        IvfIndex<K> ivf = index;
+        if(ivf == null) {
+            for (Entry<K, VoicePrint> entry : store.entries()) {
+                double distance = entry.getValue().getDistance(calculator, voicePrint);
+                matches.add(new MatchResult<K>(entry.getKey(), 
+                        getLikelihoodRatio(distance, distanceFromUniversalModel), distance));
+            }
+        } else {
+            for (K key : ivf.getCandidates(voicePrint)) {
+                VoicePrint candidate = store.peek(key);
+                if(candidate != null) {
+                    double distance = candidate.getDistance(calculator, voicePrint);
+                    matches.add(new MatchResult<K>(key, getLikelihoodRatio(distance, distanceFromUniversalModel), distance));
+                }
+            }
+        }
+        metrics.recordTime(Stage.SCORING, System.nanoTime() - start);
+        metrics.recordCandidatesScored(matches.size());
+
+        sortByDistance(matches);
+        matches = truncate(matches, topK);
+        RecognitoEvents.endIdentification(event, sampleLength, sampleRate, store.size(), matches.size());
+        
+        return matches;
+    }
+    
+    /**
+     * Identifies several voice prints in a single pass over the stored voice prints
+     * <p>
+     * Each stored voice print is compared to all the given ones before moving on to the next, 
+     * which amortizes the scan and the locking costs over the whole batch.
+     * </p>
+     * @param voicePrints the voice prints to identify, extracted from voice samples
+     * @return for each given voice print, a list MatchResults sorted by distance
+     * @see IdentificationCoalescer
+     */
+    List<List<MatchResult<K>>> identify(VoicePrint[] voicePrints) {
+        
+        if(store.isEmpty()) {
+            throw new IllegalStateException("There is no voice print enrolled in the system yet");
+        }
+        
+        Object event = RecognitoEvents.beginIdentification();
+        DistanceCalculator calculator = new EuclideanDistanceCalculator();
+        List<List<MatchResult<K>>> matches = new ArrayList<List<MatchResult<K>>>(voicePrints.length);
+        MetricsCollector metrics = metricsCollector;
+        long start = System.nanoTime();
+        double[] distancesFromUniversalModel = new double[voicePrints.length];
+        universalModel.getDistances(calculator, voicePrints, distancesFromUniversalModel);
+        for (int i = 0; i < voicePrints.length; i++) {
+            matches.add(new ArrayList<MatchResult<K>>(store.size()));
+        }
+        
+        double[] distances = new double[voicePrints.length];
+        int candidates = 0;
+        for (Entry<K, VoicePrint> entry : store.entries()) {
+            entry.getValue().getDistances(calculator, voicePrints, distances);
+            candidates += voicePrints.length;
+            for (int i = 0; i < voicePrints.length; i++) {
+                matches.get(i).add(new MatchResult<K>(entry.getKey(), 
+                        getLikelihoodRatio(distances[i], distancesFromUniversalModel[i]), distances[i]));
+            }
+        }
+        metrics.recordTime(Stage.SCORING, System.nanoTime() - start);
+        metrics.recordCandidatesScored(candidates);
+        
+        int results = 0;
+        for (List<MatchResult<K>> match : matches) {
+            sortByDistance(match);
+            results += match.size();
+        }
+        // features were extracted beforehand, the sample length is unknown here
+        RecognitoEvents.endIdentification(event, 0, sampleRate, store.size(), results);
+        return matches;
+    }
+    
+    /**
+     * Sorts the given MatchResults by increasing distance
+     * @param matches the MatchResults to sort
+     */
+    void sortByDistance(List<MatchResult<K>> matches) {
+        long start = System.nanoTime();
+        Collections.sort(matches, new Comparator<MatchResult<K>>() {
+            @Override
+            public int compare(MatchResult<K> m1, MatchResult<K> m2) {
+                return Double.compare(m1.getDistance(), m2.getDistance());
+            }
+        });
+        metricsCollector.recordTime(Stage.SORTING, System.nanoTime() - start);
+    }
+  
     /**
      * Convenience method to identify voice samples from files.
      * <p>
@@ -340,27 +1286,488 @@ public class Recognito<K> {
     public  List<MatchResult<K>> identify(File voiceSampleFile) 
             throws UnsupportedAudioFileException, IOException {
         
-        double[] audioSample = convertFileToDoubleArray(voiceSampleFile);
+        SampleSource audioSample = convertFileToSampleSource(voiceSampleFile);
 
         return identify(audioSample);
     }
   
+    /**
+     * Checks whether the given voice sample matches the voice print of the claimed user key
+     * <p>
+     * Unlike {@link #identify(double[])}, only the claimed voice print and the universal model are scored, 
+     * so the cost of this method doesn't depend on the number of voice prints known to the system.
+     * It's up to the caller to decide on an acceptable likelihood ratio threshold for its use case.
+     * </p>
+     * <p>
+     * Threading : it is safe to call this method while other threads may merge voice samples for the claimed user key
+     * </p>
+     * @param claimedKey the user key the speaker claims to be
+     * @param voiceSample the voice sample, values between -1.0 and 1.0
+     * @return the MatchResult for the claimed user key
+     */
+    public MatchResult<K> verify(K claimedKey, double[] voiceSample) {
+        
+        VoicePrint claimed = getClaimedVoicePrint(claimedKey);
+        Object event = RecognitoEvents.beginVerification();
+        VoicePrint voicePrint = new VoicePrint(extractFeatures(voiceSample, sampleRate));
+        
+        return verify(claimedKey, claimed, voicePrint, event, voiceSample.length);
+    }
+    
+    /**
+     * Verifies a voice sample in any of the formats supported by {@link SampleSource}
+     * @param claimedKey the user key the speaker claims to be
+     * @param voiceSample the voice sample
+     * @return the MatchResult for the claimed user key
+     * @see #verify(Object, double[])
+     * @see #createVoicePrint(Object, SampleSource)
+     */
+    public MatchResult<K> verify(K claimedKey, SampleSource voiceSample) {
+        
+        VoicePrint claimed = getClaimedVoicePrint(claimedKey);
+        Object event = RecognitoEvents.beginVerification();
+        VoicePrint voicePrint = new VoicePrint(extractFeatures(voiceSample, sampleRate));
+        
+        return verify(claimedKey, claimed, voicePrint, event, voiceSample.getLength());
+    }
+    
+    private VoicePrint getClaimedVoicePrint(K claimedKey) {
+        if(claimedKey == null) {
+            throw new NullPointerException("The claimedKey is null");
+        }
+        
+        VoicePrint claimed = store.get(claimedKey);
+        if(claimed == null) {
+            throw new IllegalArgumentException("No voice print linked to this user key [" + claimedKey + "]");
+        }
+        return claimed;
+    }
+    
+    private MatchResult<K> verify(K claimedKey, VoicePrint claimed, VoicePrint voicePrint, Object event, 
+            int sampleLength) {
+        
+        DistanceCalculator calculator = new EuclideanDistanceCalculator();
+        MetricsCollector metrics = metricsCollector;
+        long start = System.nanoTime();
+        double distanceFromUniversalModel = voicePrint.getDistance(calculator, universalModel);
+        double distance = claimed.getDistance(calculator, voicePrint);
+        metrics.recordTime(Stage.SCORING, System.nanoTime() - start);
+        metrics.recordCandidatesScored(1);
+        RecognitoEvents.endVerification(event, sampleLength, sampleRate, store.size(), 1);
+        
+        return new MatchResult<K>(claimedKey, getLikelihoodRatio(distance, distanceFromUniversalModel), distance);
+    }
+    
+    /**
+     * Convenience method to verify voice samples from files.
+     * <p>
+     * See class description for details on files
+     * </p>
+     * @param claimedKey the user key the speaker claims to be
+     * @param voiceSampleFile the file containing the voice sample, sample rate at least the one defined in constructor,
+     * higher sample rates are converted while decoding
+     * @return the MatchResult for the claimed user key
+     * @throws UnsupportedAudioFileException when the JVM does not support the audio file format
+     * @throws IOException when an I/O exception occurs
+     * @see Recognito#verify(Object, double[])
+     */
+    public MatchResult<K> verify(K claimedKey, File voiceSampleFile) 
+            throws UnsupportedAudioFileException, IOException {
+        
+        SampleSource audioSample = convertFileToSampleSource(voiceSampleFile);
+
+        return verify(claimedKey, audioSample);
+    }
+  
+    /**
+     * Asynchronous variant of {@link #createVoicePrint(Object, double[])}
+     * @param userKey the user key associated with this voice print
+     * @param voiceSample the voice sample, values between -1.0 and 1.0
+     * @return a Future holding the voice print extracted from the given sample
+     * @throws RejectedExecutionException when the executor is saturated
+     * @see #setExecutorService(ExecutorService)
+     */
+    public Future<VoicePrint> createVoicePrintAsync(final K userKey, final double[] voiceSample) {
+        return getExecutorService().submit(new Callable<VoicePrint>() {
+            @Override
+            public VoicePrint call() {
+                return createVoicePrint(userKey, voiceSample);
+            }
+        });
+    }
+    
+    /**
+     * Asynchronous variant of {@link #mergeVoiceSample(Object, double[])}
+     * @param userKey the user key associated with this voice print
+     * @param voiceSample the voice sample to analyze, values between -1.0 and 1.0
+     * @return a Future holding the updated voice print
+     * @throws RejectedExecutionException when the executor is saturated
+     * @see #setExecutorService(ExecutorService)
+     */
+    public Future<VoicePrint> mergeVoiceSampleAsync(final K userKey, final double[] voiceSample) {
+        return getExecutorService().submit(new Callable<VoicePrint>() {
+            @Override
+            public VoicePrint call() {
+                return mergeVoiceSample(userKey, voiceSample);
+            }
+        });
+    }
+    
+    /**
+     * Asynchronous variant of {@link #identify(double[])}
+     * @param voiceSample the voice sample, values between -1.0 and 1.0
+     * @return a Future holding a list MatchResults sorted by distance
+     * @throws RejectedExecutionException when the executor is saturated
+     * @see #setExecutorService(ExecutorService)
+     */
+    public Future<List<MatchResult<K>>> identifyAsync(final double[] voiceSample) {
+        return getExecutorService().submit(new Callable<List<MatchResult<K>>>() {
+            @Override
+            public List<MatchResult<K>> call() {
+                return identify(voiceSample);
+            }
+        });
+    }
+    
+    /**
+     * Asynchronous variant of {@link #verify(Object, double[])}
+     * @param claimedKey the user key the speaker claims to be
+     * @param voiceSample the voice sample, values between -1.0 and 1.0
+     * @return a Future holding the MatchResult for the claimed user key
+     * @throws RejectedExecutionException when the executor is saturated
+     * @see #setExecutorService(ExecutorService)
+     */
+    public Future<MatchResult<K>> verifyAsync(final K claimedKey, final double[] voiceSample) {
+        return getExecutorService().submit(new Callable<MatchResult<K>>() {
+            @Override
+            public MatchResult<K> call() {
+                return verify(claimedKey, voiceSample);
+            }
+        });
+    }
+    
+    /**
+     * Asynchronous variant of {@link #createVoicePrint(Object, File)}.
+     * The file is read on the I/O executor, features extraction happens on the processing executor
+     * @param userKey the user key associated with this voice print
+     * @param voiceSampleFile the file containing the voice sample, sample rate at least the one defined in constructor,
+     * higher sample rates are converted while decoding
+     * @return a Future holding the voice print extracted from the given file
+     * @throws RejectedExecutionException when too many files are pending or the I/O executor is saturated
+     * @see #setIoExecutorService(ExecutorService)
+     * @see #setMaxPendingFiles(int)
+     */
+    public Future<VoicePrint> createVoicePrintAsync(final K userKey, final File voiceSampleFile) {
+        return submitFile(voiceSampleFile, new SampleProcessor<VoicePrint>() {
+            @Override
+            public VoicePrint process(SampleSource voiceSample) {
+                return createVoicePrint(userKey, voiceSample);
+            }
+        });
+    }
+    
+    /**
+     * Asynchronous variant of {@link #mergeVoiceSample(Object, File)}.
+     * The file is read on the I/O executor, features extraction happens on the processing executor
+     * @param userKey the user key associated with this voice print
+     * @param voiceSampleFile the file containing the voice sample, sample rate at least the one defined in constructor,
+     * higher sample rates are converted while decoding
+     * @return a Future holding the updated voice print
+     * @throws RejectedExecutionException when too many files are pending or the I/O executor is saturated
+     * @see #setIoExecutorService(ExecutorService)
+     * @see #setMaxPendingFiles(int)
+     */
+    public Future<VoicePrint> mergeVoiceSampleAsync(final K userKey, final File voiceSampleFile) {
+        return submitFile(voiceSampleFile, new SampleProcessor<VoicePrint>() {
+            @Override
+            public VoicePrint process(SampleSource voiceSample) {
+                return mergeVoiceSample(userKey, voiceSample);
+            }
+        });
+    }
+    
+    /**
+     * Asynchronous variant of {@link #identify(File)}.
+     * The file is read on the I/O executor, features extraction happens on the processing executor
+     * @param voiceSampleFile the file containing the voice sample
+     * @return a Future holding a list MatchResults sorted by distance
+     * @throws RejectedExecutionException when too many files are pending or the I/O executor is saturated
+     * @see #setIoExecutorService(ExecutorService)
+     * @see #setMaxPendingFiles(int)
+     */
+    public Future<List<MatchResult<K>>> identifyAsync(final File voiceSampleFile) {
+        return submitFile(voiceSampleFile, new SampleProcessor<List<MatchResult<K>>>() {
+            @Override
+            public List<MatchResult<K>> process(SampleSource voiceSample) {
+                return identify(voiceSample);
+            }
+        });
+    }
+    
+    /**
+     * Asynchronous variant of {@link #verify(Object, File)}.
+     * The file is read on the I/O executor, features extraction happens on the processing executor
+     * @param claimedKey the user key the speaker claims to be
+     * @param voiceSampleFile the file containing the voice sample
+     * @return a Future holding the MatchResult for the claimed user key
+     * @throws RejectedExecutionException when too many files are pending or the I/O executor is saturated
+     * @see #setIoExecutorService(ExecutorService)
+     * @see #setMaxPendingFiles(int)
+     */
+    public Future<MatchResult<K>> verifyAsync(final K claimedKey, final File voiceSampleFile) {
+        return submitFile(voiceSampleFile, new SampleProcessor<MatchResult<K>>() {
+            @Override
+            public MatchResult<K> process(SampleSource voiceSample) {
+                return verify(claimedKey, voiceSample);
+            }
+        });
+    }
+  
+    /**
+     * Decodes the file to 16 bit PCM on the I/O executor, then hands the voice sample to the processing executor. 
+     * The returned Future is completed by the processing stage, or by the failure of either stage : 
+     * a saturated processing executor is reported as a {@code RejectedExecutionException} cause. 
+     * No thread waits for another stage to complete
+     * @param voiceSampleFile the file containing the voice sample
+     * @param processor the processing stage
+     * @return a Future holding the result of the processing stage
+     * @throws RejectedExecutionException when too many files are pending or the I/O executor is saturated
+     */
+    private <T> Future<T> submitFile(final File voiceSampleFile, final SampleProcessor<T> processor) {
+        final Semaphore permits = pendingFiles;
+        if(!permits.tryAcquire()) {
+            throw new RejectedExecutionException("Too many pending files, see setMaxPendingFiles");
+        }
+        final PendingFile<T> result = new PendingFile<T>(permits);
+        try {
+            getIoExecutorService().execute(new Runnable() {
+                @Override
+                public void run() {
+                    if(result.isCancelled()) {
+                        return;
+                    }
+                    try {
+                        final SampleSource voiceSample = convertFileToSampleSource(voiceSampleFile);
+                        getExecutorService().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                if(result.isCancelled()) {
+                                    return;
+                                }
+                                T value;
+                                try {
+                                    value = processor.process(voiceSample);
+                                } catch (Throwable t) {
+                                    result.release();
+                                    result.setException(t);
+                                    return;
+                                }
+                                // released first : the file no longer counts once the caller sees the result
+                                result.release();
+                                result.set(value);
+                            }
+                        });
+                    } catch (Throwable t) {
+                        // decoding failed, or the processing executor is saturated
+                        result.release();
+                        result.setException(t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.release();
+            throw e;
+        }
+        return result;
+    }
+    
+    /**
+     * Processing stage of the asynchronous methods taking a file handle
+     */
+    private interface SampleProcessor<T> {
+        
+        T process(SampleSource voiceSample);
+    }
+
+    /**
+     * Future completed by the processing stage of the asynchronous methods taking a file handle, 
+     * holding the pending file permit until then
+     */
+    private static final class PendingFile<T>
+            extends SettableFuture<T> {
+
+        private final Semaphore permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PendingFile(Semaphore permits) {
+            this.permits = permits;
+        }
+
+        /**
+         * Releases the permit of the file, only the first call has an effect
+         */
+        void release() {
+            if(released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+
+        /**
+         * Releases the permit as well : stages not started yet skip cancelled files, 
+         * and files dropped by a processing executor shut down with {@code shutdownNow} are no longer pending
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if(cancelled) {
+                release();
+            }
+            return cancelled;
+        }
+    }
+  
+    /**
+     * Computes the likelihood ratio : how close is the given voice sample to a VoicePrint 
+     * compared to the total distance between that VoicePrint and the universal model
+     * @param distance the distance between the voice sample and the VoicePrint
+     * @param distanceFromUniversalModel the distance between the voice sample and the universal model
+     * @return the likelihood ratio expressed as a percentage
+     */
+    static int getLikelihoodRatio(double distance, double distanceFromUniversalModel) {
+        return 100 - (int) (distance / (distance + distanceFromUniversalModel) * 100);
+    }
+  
     /**
      * Removes silence, applies normalization and extracts voice features from the given sample
+     * <p>
+     * Silence is skipped in place : the voiced parts are normalized and analyzed directly in the given sample,
+     * which is modified. When a features cache is set, the sample is looked up by its values beforehand.
+     * </p>
+     * @param voiceSample the voice sample
+     * @param sampleRate the sample rate
+     * @return the extracted features
+     */
+    double[] extractFeatures(double[] voiceSample, float sampleRate) {
+
+        // the same factory provides the kind of the cache key and the extractor
+        FeaturesExtractorFactory factory = featuresExtractorFactory;
+        String featuresKind = factory.getFeaturesKind();
+        FeaturesCache cache = featuresKind == null ? null : featuresCache;
+        SampleKey key = null;
+        if(cache != null) {
+            key = SampleKey.of(voiceSample, sampleRate, featuresKind);
+            double[] features = cache.get(key);
+            if(features != null) {
+                return features;
+            }
+        }
+        
+        AutocorrellatedVoiceActivityDetector voiceDetector = new AutocorrellatedVoiceActivityDetector();
+        Normalizer normalizer = new Normalizer();
+        FeaturesExtractor<double[]> featuresExtractor = factory.newFeaturesExtractor(sampleRate);
+        MetricsCollector metrics = metricsCollector;
+        Object event = RecognitoEvents.beginFeaturesExtraction();
+
+        long start = System.nanoTime();
+        VoicedSegments voiced = voiceDetector.detectVoicedSegments(voiceSample, sampleRate);
+        long end = System.nanoTime();
+        metrics.recordTime(Stage.VAD, end - start);
+        if(voiceSample.length > 0) {
+            metrics.recordSilenceRatio(1.0d - (double) voiced.getVoicedLength() / voiceSample.length);
+        }
+        
+        start = end;
+        normalizer.normalize(voiceSample, voiced, sampleRate);
+        end = System.nanoTime();
+        metrics.recordTime(Stage.NORMALIZE, end - start);
+        
+        double[] features = extractFeatures(featuresExtractor, voiced.getVoicedSamples(SampleSource.of(voiceSample)), 
+                metrics);
+        RecognitoEvents.endFeaturesExtraction(event, voiceSample.length, sampleRate, store.size(), features.length);
+        if(cache != null) {
+            cache.put(key, features);
+        }
+
+        return features;
+    }
+
+    /**
+     * Removes silence, applies normalization and extracts voice features from the given source, lazily
+     * <p>
+     * The source is left untouched : silence removal and normalization are applied as the features extractor 
+     * reads the samples, a window at a time. The features are the same as those extracted from an array of doubles 
+     * holding the values of the source.
+     * </p>
      * @param voiceSample the voice sample
      * @param sampleRate the sample rate
      * @return the extracted features
      */
-    private double[] extractFeatures(double[] voiceSample, float sampleRate) {
+    double[] extractFeatures(SampleSource voiceSample, float sampleRate) {
 
+        // the same factory provides the kind of the cache key and the extractor
+        FeaturesExtractorFactory factory = featuresExtractorFactory;
+        String featuresKind = factory.getFeaturesKind();
+        FeaturesCache cache = featuresKind == null ? null : featuresCache;
+        SampleKey key = null;
+        if(cache != null) {
+            key = SampleKey.of(voiceSample, sampleRate, featuresKind);
+            double[] features = cache.get(key);
+            if(features != null) {
+                return features;
+            }
+        }
+        
         AutocorrellatedVoiceActivityDetector voiceDetector = new AutocorrellatedVoiceActivityDetector();
         Normalizer normalizer = new Normalizer();
-        FeaturesExtractor<double[]> lpcExtractor = new LpcFeaturesExtractor(sampleRate, 20);
+        FeaturesExtractor<double[]> featuresExtractor = factory.newFeaturesExtractor(sampleRate);
+        MetricsCollector metrics = metricsCollector;
+        Object event = RecognitoEvents.beginFeaturesExtraction();
+        int sampleLength = voiceSample.getLength();
 
-        voiceDetector.removeSilence(voiceSample, sampleRate);
-        normalizer.normalize(voiceSample, sampleRate);
-        double[] lpcFeatures = lpcExtractor.extractFeatures(voiceSample);
+        long start = System.nanoTime();
+        VoicedSegments segments = voiceDetector.detectVoicedSegments(voiceSample, sampleRate);
+        SampleSource voiced = voiceDetector.getVoicedSamples(voiceSample, segments, sampleRate);
+        long end = System.nanoTime();
+        metrics.recordTime(Stage.VAD, end - start);
+        if(sampleLength > 0) {
+            metrics.recordSilenceRatio(1.0d - (double) segments.getVoicedLength() / sampleLength);
+        }
+        
+        start = end;
+        SampleSource normalized = normalizer.normalize(voiced, sampleRate);
+        end = System.nanoTime();
+        metrics.recordTime(Stage.NORMALIZE, end - start);
+        
+        double[] features = extractFeatures(featuresExtractor, normalized, metrics);
+        RecognitoEvents.endFeaturesExtraction(event, sampleLength, sampleRate, store.size(), features.length);
+        if(cache != null) {
+            cache.put(key, features);
+        }
+
+        return features;
+    }
 
-        return lpcFeatures;
+    /**
+     * Runs the features extractor on the voiced and normalized samples
+     * @param featuresExtractor the features extractor
+     * @param voiced the voiced and normalized samples
+     * @param metrics the metrics collector
+     * @return the extracted features
+     */
+    private double[] extractFeatures(FeaturesExtractor<double[]> featuresExtractor, SampleSource voiced, 
+            MetricsCollector metrics) {
+        
+        long start = System.nanoTime();
+        double[] features;
+        if(featuresExtractor instanceof WindowedFeaturesExtractor) {
+            WindowedFeaturesExtractor<double[]> windowedExtractor = (WindowedFeaturesExtractor<double[]>) featuresExtractor;
+            features = windowedExtractor.extractFeatures(voiced);
+            metrics.recordTime(Stage.FEATURES, System.nanoTime() - start);
+            metrics.recordWindows(windowedExtractor.getWindowCount(voiced.getLength()));
+        } else {
+            features = featuresExtractor.extractFeatures(voiced.toArray());
+            metrics.recordTime(Stage.FEATURES, System.nanoTime() - start);
+        }
+        return features;
     }
 }
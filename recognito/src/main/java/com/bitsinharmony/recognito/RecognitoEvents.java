@@ -0,0 +1,67 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+/**
+ * Hooks for JDK Flight Recorder events
+ * <p>
+ * This version does nothing and keeps the library compatible with Java 6. On Java 11+, it's replaced by the 
+ * version found under {@code src/main/java11}, packaged in {@code META-INF/versions/11} of the multi-release jar, 
+ * which emits events in the "Recognito" category.
+ * </p>
+ * <p>
+ * Each {@code begin} method returns an opaque event, {@code null} when nothing is recorded, 
+ * to be passed to the matching {@code end} method.
+ * </p>
+ * @author Amaury Crickx
+ */
+final class RecognitoEvents {
+
+    private RecognitoEvents() {
+    }
+
+    static Object beginFeaturesExtraction() {
+        return null;
+    }
+
+    static void endFeaturesExtraction(Object event, int sampleLength, float sampleRate, int gallerySize, int resultCount) {
+    }
+
+    static Object beginIdentification() {
+        return null;
+    }
+
+    static void endIdentification(Object event, int sampleLength, float sampleRate, int gallerySize, int resultCount) {
+    }
+
+    static Object beginVerification() {
+        return null;
+    }
+
+    static void endVerification(Object event, int sampleLength, float sampleRate, int gallerySize, int resultCount) {
+    }
+
+    static Object beginUniversalModelUpdate() {
+        return null;
+    }
+
+    static void lockAcquired(Object event) {
+    }
+
+    static void endUniversalModelUpdate(Object event, float sampleRate, int gallerySize) {
+    }
+}
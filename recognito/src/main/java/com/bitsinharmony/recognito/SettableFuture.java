@@ -0,0 +1,66 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A Future completed by the stage producing its value rather than by running a task
+ * <p>
+ * Relies on {@link FutureTask} for waiting and cancellation : {@link #run()} is disabled, the value or the failure 
+ * are handed over by {@link #set(Object)} and {@link #setException(Throwable)}, whichever comes first.
+ * </p>
+ * <p>
+ * Threading : this class is thread safe
+ * </p>
+ * @param <V> the type of the value
+ * @author Amaury Crickx
+ */
+class SettableFuture<V>
+        extends FutureTask<V> {
+
+    private static final Callable<Object> NOTHING = new Callable<Object>() {
+        @Override
+        public Object call() {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    SettableFuture() {
+        super((Callable<V>) (Callable<?>) NOTHING);
+    }
+
+    @Override
+    protected void set(V value) {
+        super.set(value);
+    }
+
+    @Override
+    protected void setException(Throwable t) {
+        super.setException(t);
+    }
+
+    /**
+     * Overridden to prevent completion outside of the producing stage
+     */
+    @Override
+    public void run() {
+        throw new UnsupportedOperationException();
+    }
+}
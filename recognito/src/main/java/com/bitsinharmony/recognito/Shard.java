@@ -0,0 +1,73 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A partition of the voice prints known to a {@link ShardedRecognito}
+ * <p>
+ * Shards work on already extracted features and hold no universal model : the likelihood ratios are computed 
+ * against the global universal model kept by {@link ShardedRecognito}, whose distance to the voice sample is 
+ * passed along each identification request. This keeps the likelihood ratios of all the shards comparable.
+ * </p>
+ * <p>
+ * Threading : implementations must be thread safe
+ * </p>
+ * @param <K> the type of the user keys
+ * @author Amaury Crickx
+ * @see LocalShard
+ * @see SocketShard
+ */
+public interface Shard<K> {
+
+    /**
+     * Creates a voice print from the given features
+     * @param userKey the user key associated with this voice print
+     * @param features the features extracted from a voice sample
+     * @throws IllegalArgumentException when the user key already exists
+     * @throws IOException when the shard could not be reached
+     */
+    void createVoicePrint(K userKey, double[] features) throws IOException;
+
+    /**
+     * Merges the given features into the voice print of the given user key
+     * @param userKey the user key associated with the voice print
+     * @param features the features extracted from a voice sample
+     * @throws IllegalArgumentException when no voice print is linked to the user key
+     * @throws IOException when the shard could not be reached
+     */
+    void mergeFeatures(K userKey, double[] features) throws IOException;
+
+    /**
+     * Scores the given features against the voice prints of this shard
+     * @param features the features extracted from a voice sample
+     * @param distanceFromUniversalModel the distance between the features and the global universal model
+     * @param topK the maximum number of matches to return
+     * @return a list of at most topK MatchResults sorted by distance
+     * @throws IOException when the shard could not be reached
+     */
+    List<MatchResult<K>> identify(double[] features, double distanceFromUniversalModel, int topK) throws IOException;
+
+    /**
+     * Get the number of voice prints held by this shard
+     * @return the count
+     * @throws IOException when the shard could not be reached
+     */
+    int size() throws IOException;
+}
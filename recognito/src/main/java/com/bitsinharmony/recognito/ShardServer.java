@@ -0,0 +1,232 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.bitsinharmony.recognito.SocketShard.KeyInputStream;
+
+/**
+ * Serves a {@link Shard} to {@link SocketShard} clients over TCP
+ * <p>
+ * Each connection is served by its own daemon thread. The server only listens on the loopback interface 
+ * unless another address is given : the protocol has neither authentication nor encryption, exposing it beyond 
+ * a trusted network is not advised. Requests only carry primitive values and user keys, the latter being 
+ * deserialized only when of an allowed class, see {@link SocketShard}. A malformed request closes the connection.
+ * </p>
+ * <p>
+ * Threading : this class is thread safe
+ * </p>
+ * @param <K> the type of the user keys
+ * @author Amaury Crickx
+ */
+public class ShardServer<K> 
+        implements Closeable {
+
+    private final Shard<K> shard;
+    private final Class<?>[] keyClasses;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = 
+            Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+    private volatile boolean closed;
+
+    /**
+     * Constructor listening on the loopback interface
+     * @param shard the shard to serve
+     * @param port the port to listen to, 0 for any free port
+     * @throws IOException when the server socket could not be bound
+     */
+    public ShardServer(Shard<K> shard, int port) throws IOException {
+        this(shard, port, InetAddress.getByName(null));
+    }
+
+    /**
+     * Full constructor
+     * @param shard the shard to serve
+     * @param port the port to listen to, 0 for any free port
+     * @param bindAddress the address to listen on
+     * @param keyClasses the classes allowed in user keys besides {@code String} and the boxed primitives
+     * @throws IOException when the server socket could not be bound
+     */
+    public ShardServer(Shard<K> shard, int port, InetAddress bindAddress, Class<?>... keyClasses) throws IOException {
+        if(shard == null) {
+            throw new IllegalArgumentException("The shard may not be null");
+        }
+        this.shard = shard;
+        this.keyClasses = keyClasses.clone();
+        this.serverSocket = new ServerSocket(port, 50, bindAddress);
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "recognito-shard-server-" + serverSocket.getLocalPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Get the port this server listens to
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops listening and closes the open connections
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for(Socket socket : connections) {
+            socket.close();
+        }
+    }
+
+    private void accept() {
+        while(!closed) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                // closed, or unable to accept : either way, stop
+                return;
+            }
+            connections.add(socket);
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        serve(socket);
+                    } catch (IOException e) {
+                        // connection lost, the client sees it as well
+                    } finally {
+                        connections.remove(socket);
+                        try {
+                            socket.close();
+                        } catch (IOException e) {
+                            // nothing left to do
+                        }
+                    }
+                }
+            }, "recognito-shard-connection-" + socket.getPort());
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Serves the requests of a connection until it is closed. All the arguments of a request are read before 
+     * the shard is called : a failure of the shard is answered, any other failure ends the connection
+     * @param socket the connection
+     * @throws IOException when the connection is lost or the request is malformed
+     */
+    @SuppressWarnings("unchecked")
+    private void serve(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.flush();
+        ObjectInputStream in = new KeyInputStream(new BufferedInputStream(socket.getInputStream()), keyClasses);
+        while(true) {
+            int request;
+            try {
+                request = in.readInt();
+            } catch (EOFException e) {
+                return;
+            }
+            switch(request) {
+                case SocketShard.CREATE: {
+                    K userKey = (K) SocketShard.readKey(in);
+                    double[] features = SocketShard.readFeatures(in);
+                    try {
+                        shard.createVoicePrint(userKey, features);
+                        out.writeByte(SocketShard.SUCCESS);
+                    } catch (RuntimeException e) {
+                        SocketShard.writeFailure(out, e);
+                    }
+                    break;
+                }
+                case SocketShard.MERGE: {
+                    K userKey = (K) SocketShard.readKey(in);
+                    double[] features = SocketShard.readFeatures(in);
+                    try {
+                        shard.mergeFeatures(userKey, features);
+                        out.writeByte(SocketShard.SUCCESS);
+                    } catch (RuntimeException e) {
+                        SocketShard.writeFailure(out, e);
+                    }
+                    break;
+                }
+                case SocketShard.IDENTIFY: {
+                    double[] features = SocketShard.readFeatures(in);
+                    double distanceFromUniversalModel = in.readDouble();
+                    int topK = in.readInt();
+                    List<MatchResult<K>> matches;
+                    try {
+                        matches = shard.identify(features, distanceFromUniversalModel, topK);
+                    } catch (RuntimeException e) {
+                        SocketShard.writeFailure(out, e);
+                        break;
+                    }
+                    writeMatches(out, matches);
+                    break;
+                }
+                case SocketShard.SIZE: {
+                    int size;
+                    try {
+                        size = shard.size();
+                    } catch (RuntimeException e) {
+                        SocketShard.writeFailure(out, e);
+                        break;
+                    }
+                    out.writeByte(SocketShard.SUCCESS);
+                    out.writeInt(size);
+                    break;
+                }
+                default:
+                    throw new StreamCorruptedException("Unknown request [" + request + "]");
+            }
+            out.reset();
+            out.flush();
+        }
+    }
+
+    private void writeMatches(ObjectOutputStream out, List<MatchResult<K>> matches) throws IOException {
+        out.writeByte(SocketShard.SUCCESS);
+        out.writeInt(matches.size());
+        for(MatchResult<K> match : matches) {
+            out.writeObject(match.getKey());
+            out.writeDouble(match.getDistance());
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.bitsinharmony.recognito.distances.EuclideanDistanceCalculator;
+import com.bitsinharmony.recognito.features.FeaturesExtractorFactory;
+import com.bitsinharmony.recognito.samples.SampleSource;
+
+/**
+ * Front class spreading the voice prints over several {@link Shard}s, e.g. one per region or tenant, or one per JVM
+ * <p>
+ * User keys are hash partitioned : each key lives in a single shard, chosen after its hash code. 
+ * Voice samples go through the same processing as with {@link Recognito}, only the extracted features are 
+ * sent to the shards. Identification fans out to every shard, on the given executor if any, then the top matches 
+ * of each shard are merged.
+ * </p>
+ * <p>
+ * The universal model is kept here, updated with the features of every created or merged voice print just like 
+ * {@link Recognito} does. Its distance to the voice sample is sent along each identification request, so that all 
+ * shards compute the likelihood ratios the same way : the results are those of a single Recognito instance holding 
+ * all the voice prints.
+ * </p>
+ * <p>
+ * Threading : this class is thread safe, as long as the shards are
+ * </p>
+ * @param <K> the type of the user keys, {@code Serializable} when using {@link SocketShard}s
+ * @author Amaury Crickx
+ */
+public class ShardedRecognito<K> {
+
+    static final Comparator<MatchResult<?>> BY_DISTANCE = new Comparator<MatchResult<?>>() {
+        @Override
+        public int compare(MatchResult<?> m1, MatchResult<?> m2) {
+            return Double.compare(m1.getDistance(), m2.getDistance());
+        }
+    };
+
+    private final List<Shard<K>> shards;
+    private final ExecutorService executorService;
+    // features extraction only : voice samples are processed exactly as a single instance would
+    private final Recognito<K> frontEnd;
+
+    private final Lock lock = new ReentrantLock();
+    private volatile VoicePrint universalModel;
+    private volatile boolean universalModelWasSetByUser;
+
+    /**
+     * Constructor querying the shards one after the other
+     * @param sampleRate the sample rate, at least 8000.0 Hz (preferably higher)
+     * @param shards the shards, at least one
+     */
+    public ShardedRecognito(float sampleRate, List<? extends Shard<K>> shards) {
+        this(sampleRate, shards, null);
+    }
+
+    /**
+     * Constructor querying the shards in parallel
+     * @param sampleRate the sample rate, at least 8000.0 Hz (preferably higher)
+     * @param shards the shards, at least one
+     * @param executorService the executor querying the shards, or null to query them one after the other. 
+     * Requests rejected by the executor are run on the calling thread
+     */
+    public ShardedRecognito(float sampleRate, List<? extends Shard<K>> shards, ExecutorService executorService) {
+        if(shards == null || shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.frontEnd = new Recognito<K>(sampleRate);
+        this.shards = new ArrayList<Shard<K>>(shards);
+        this.executorService = executorService;
+    }
+
+    /**
+     * Get the sample rate expected for voice samples
+     * @return the sample rate
+     */
+    public float getSampleRate() {
+        return frontEnd.getSampleRate();
+    }
+
+    /**
+     * Sets the factory of the features extractors, see {@link Recognito#setFeaturesExtractorFactory(FeaturesExtractorFactory)}.
+     * Once voice prints are created or the universal model is set, the factory may only be replaced by one of 
+     * the same kind, see {@link FeaturesExtractorFactory#getFeaturesKind()}
+     * @param featuresExtractorFactory the factory to use, may not be null
+     * @throws IllegalStateException when voice prints of another kind of features are stored in the shards
+     */
+    public void setFeaturesExtractorFactory(FeaturesExtractorFactory featuresExtractorFactory) {
+        if(featuresExtractorFactory == null) {
+            throw new IllegalArgumentException("The featuresExtractorFactory may not be null");
+        }
+        lock.lock();
+        try {
+            String kind = frontEnd.getFeaturesExtractorFactory().getFeaturesKind();
+            String newKind = featuresExtractorFactory.getFeaturesKind();
+            // the front end store is always empty, its own guard never applies
+            if(universalModel != null && (kind == null ? newKind != null : !kind.equals(newKind))) {
+                throw new IllegalStateException("Voice prints of another kind of features are stored : [" + 
+                        kind + "], received [" + newKind + "]");
+            }
+            frontEnd.setFeaturesExtractorFactory(featuresExtractorFactory);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the universal model
+     * @return the universal model
+     */
+    public VoicePrint getUniversalModel() {
+        return new VoicePrint(universalModel);
+    }
+
+    /**
+     * Sets the universal model to be used to calculate likelihood ratios.
+     * Once set, further voice print create / merge operations won't modify this model
+     * @param universalModel the universal model to set, may not be null
+     */
+    public void setUniversalModel(VoicePrint universalModel) {
+        if(universalModel == null) {
+            throw new IllegalArgumentException("The universal model may not be null");
+        }
+        lock.lock();
+        try {
+            this.universalModelWasSetByUser = true;
+            this.universalModel = universalModel;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the shard holding the voice print of the given user key
+     * @param userKey the user key
+     * @return the shard
+     */
+    public Shard<K> getShard(K userKey) {
+        if(userKey == null) {
+            throw new NullPointerException("The userKey is null");
+        }
+        int hash = userKey.hashCode();
+        hash ^= hash >>> 16;
+        return shards.get((hash & Integer.MAX_VALUE) % shards.size());
+    }
+
+    /**
+     * Extracts voice features from the given voice sample and creates a voice print in the shard of the user key
+     * @param userKey the user key associated with this voice print
+     * @param voiceSample the voice sample, values between -1.0 and 1.0
+     * @throws IllegalArgumentException when the user key already exists
+     * @throws IOException when the shard could not be reached
+     * @see Recognito#createVoicePrint(Object, double[])
+     */
+    public void createVoicePrint(K userKey, double[] voiceSample) throws IOException {
+        storeFeatures(userKey, frontEnd.extractFeatures(voiceSample, getSampleRate()), true);
+    }
+
+    /**
+     * Creates a voice print from a voice sample in any of the formats supported by {@link SampleSource}
+     * @param userKey the user key associated with this voice print
+     * @param voiceSample the voice sample
+     * @throws IllegalArgumentException when the user key already exists
+     * @throws IOException when the shard could not be reached
+     * @see #createVoicePrint(Object, double[])
+     */
+    public void createVoicePrint(K userKey, SampleSource voiceSample) throws IOException {
+        storeFeatures(userKey, frontEnd.extractFeatures(voiceSample, getSampleRate()), true);
+    }
+
+    /**
+     * Extracts voice features from the given voice sample and merges them into the voice print of the user key
+     * @param userKey the user key associated with the voice print
+     * @param voiceSample the voice sample, values between -1.0 and 1.0
+     * @throws IllegalArgumentException when no voice print is linked to the user key
+     * @throws IOException when the shard could not be reached
+     * @see Recognito#mergeVoiceSample(Object, double[])
+     */
+    public void mergeVoiceSample(K userKey, double[] voiceSample) throws IOException {
+        storeFeatures(userKey, frontEnd.extractFeatures(voiceSample, getSampleRate()), false);
+    }
+
+    /**
+     * Merges a voice sample in any of the formats supported by {@link SampleSource}
+     * @param userKey the user key associated with the voice print
+     * @param voiceSample the voice sample
+     * @throws IllegalArgumentException when no voice print is linked to the user key
+     * @throws IOException when the shard could not be reached
+     * @see #mergeVoiceSample(Object, double[])
+     */
+    public void mergeVoiceSample(K userKey, SampleSource voiceSample) throws IOException {
+        storeFeatures(userKey, frontEnd.extractFeatures(voiceSample, getSampleRate()), false);
+    }
+
+    /**
+     * Identifies the given voice sample against the voice prints of all the shards
+     * @param voiceSample the voice sample, values between -1.0 and 1.0
+     * @return a list MatchResults sorted by distance
+     * @throws IOException when a shard could not be reached
+     * @see Recognito#identify(double[])
+     */
+    public List<MatchResult<K>> identify(double[] voiceSample) throws IOException {
+        return identify(voiceSample, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Identifies the given voice sample against the voice prints of all the shards, returning the closest matches only
+     * @param voiceSample the voice sample, values between -1.0 and 1.0
+     * @param topK the maximum number of matches to return, at least 1
+     * @return a list of at most topK MatchResults sorted by distance
+     * @throws IOException when a shard could not be reached
+     * @see Recognito#identify(double[], int)
+     */
+    public List<MatchResult<K>> identify(double[] voiceSample, int topK) throws IOException {
+        checkTopK(topK);
+        checkNotEmpty();
+        return identifyFeatures(frontEnd.extractFeatures(voiceSample, getSampleRate()), topK);
+    }
+
+    /**
+     * Identifies a voice sample in any of the formats supported by {@link SampleSource}, returning the closest 
+     * matches only
+     * @param voiceSample the voice sample
+     * @param topK the maximum number of matches to return, at least 1
+     * @return a list of at most topK MatchResults sorted by distance
+     * @throws IOException when a shard could not be reached
+     * @see #identify(double[], int)
+     */
+    public List<MatchResult<K>> identify(SampleSource voiceSample, int topK) throws IOException {
+        checkTopK(topK);
+        checkNotEmpty();
+        return identifyFeatures(frontEnd.extractFeatures(voiceSample, getSampleRate()), topK);
+    }
+
+    private void storeFeatures(K userKey, double[] features, boolean create) throws IOException {
+        Shard<K> shard = getShard(userKey);
+        if(create) {
+            shard.createVoicePrint(userKey, features);
+        } else {
+            shard.mergeFeatures(userKey, features);
+        }
+        // only once the shard accepted the features
+        lock.lock();
+        try {
+            if(!universalModelWasSetByUser) {
+                if(universalModel == null) {
+                    universalModel = new VoicePrint(Arrays.copyOf(features, features.length));
+                } else {
+                    universalModel.merge(features);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkNotEmpty() {
+        if(universalModel == null) {
+            throw new IllegalStateException("There is no voice print enrolled in the system yet");
+        }
+    }
+
+    private static void checkTopK(int topK) {
+        if(topK < 1) {
+            throw new IllegalArgumentException("topK should be at least 1, received [" + topK + "]");
+        }
+    }
+
+    /**
+     * Scatters the features to all the shards and gathers their top matches
+     * @param features the features extracted from the voice sample
+     * @param topK the maximum number of matches to return
+     * @return a list of at most topK MatchResults sorted by distance
+     * @throws IOException when a shard could not be reached
+     */
+    private List<MatchResult<K>> identifyFeatures(final double[] features, final int topK) throws IOException {
+        final double distanceFromUniversalModel = 
+                new VoicePrint(features).getDistance(new EuclideanDistanceCalculator(), universalModel);
+
+        List<Future<List<MatchResult<K>>>> futures = new ArrayList<Future<List<MatchResult<K>>>>(shards.size());
+        if(executorService != null) {
+            // the first shard is queried by the calling thread
+            for(int i = 1; i < shards.size(); i++) {
+                final Shard<K> shard = shards.get(i);
+                try {
+                    futures.add(executorService.submit(new Callable<List<MatchResult<K>>>() {
+                        @Override
+                        public List<MatchResult<K>> call() throws IOException {
+                            return shard.identify(features, distanceFromUniversalModel, topK);
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    futures.add(null);
+                }
+            }
+        }
+
+        List<MatchResult<K>> matches = new ArrayList<MatchResult<K>>();
+        matches.addAll(shards.get(0).identify(features, distanceFromUniversalModel, topK));
+        for(int i = 1; i < shards.size(); i++) {
+            Future<List<MatchResult<K>>> future = futures.isEmpty() ? null : futures.get(i - 1);
+            if(future == null) {
+                matches.addAll(shards.get(i).identify(features, distanceFromUniversalModel, topK));
+            } else {
+                matches.addAll(await(future));
+            }
+        }
+
+        Collections.sort(matches, BY_DISTANCE);
+        if(matches.size() > topK) {
+            return new ArrayList<MatchResult<K>>(matches.subList(0, topK));
+        }
+        return matches;
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a shard");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("A shard failed: " + cause);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Shard} served by a {@link ShardServer}, possibly in another JVM, reached through a TCP connection
+ * <p>
+ * Features, distances and counts are exchanged as primitive values, only user keys are serialized. Both ends 
+ * only deserialize the classes they allow : {@code String} and the boxed primitives by default, other key classes 
+ * must be listed on both ends, along with the classes of their serializable fields. 
+ * Exceptions thrown by the remote shard, e.g. for an existing user key, are thrown again locally with the same 
+ * message, as an {@code IllegalStateException} unless they are one of the usual {@code java.lang} runtime exceptions. 
+ * Any other failure is reported as an IOException, after which the connection is closed : create a new 
+ * {@code SocketShard} to reconnect.
+ * </p>
+ * <p>
+ * Threading : this class is thread safe, requests going through the single connection one at a time. 
+ * Use several instances to have several requests in flight.
+ * </p>
+ * @param <K> the type of the user keys
+ * @author Amaury Crickx
+ */
+public class SocketShard<K> 
+        implements Shard<K>, Closeable {
+
+    static final int CREATE = 1;
+    static final int MERGE = 2;
+    static final int IDENTIFY = 3;
+    static final int SIZE = 4;
+
+    static final byte SUCCESS = 0;
+    static final byte FAILURE = 1;
+
+    // far beyond any features extractor, yet small enough to not allocate on behalf of a malformed request
+    static final int MAX_FEATURES_LENGTH = 1 << 16;
+
+    private static final Set<String> DEFAULT_KEY_CLASSES = Collections.unmodifiableSet(new HashSet<String>(
+            Arrays.asList(String.class.getName(), Number.class.getName(), Integer.class.getName(), 
+                    Long.class.getName(), Short.class.getName(), Byte.class.getName(), Character.class.getName(), 
+                    Boolean.class.getName(), Float.class.getName(), Double.class.getName())));
+
+    private static final List<Class<? extends RuntimeException>> KNOWN_FAILURES = 
+            Arrays.<Class<? extends RuntimeException>>asList(IllegalArgumentException.class, 
+                    IllegalStateException.class, NullPointerException.class, UnsupportedOperationException.class);
+
+    // explicit lock rather than monitors : a virtual thread blocking on it doesn't pin its carrier thread
+    private final Lock lock = new ReentrantLock();
+    private final Socket socket;
+    private final ObjectOutputStream out;
+    private final ObjectInputStream in;
+
+    /**
+     * Default constructor, connecting to the given shard server
+     * @param host the host of the shard server
+     * @param port the port of the shard server
+     * @param keyClasses the classes allowed in user keys besides {@code String} and the boxed primitives
+     * @throws IOException when the connection could not be established
+     */
+    public SocketShard(String host, int port, Class<?>... keyClasses) throws IOException {
+        this.socket = new Socket(host, port);
+        try {
+            socket.setTcpNoDelay(true);
+            this.out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.flush();
+            this.in = new KeyInputStream(new BufferedInputStream(socket.getInputStream()), keyClasses);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void createVoicePrint(K userKey, double[] features) throws IOException {
+        lock.lock();
+        try {
+            out.writeInt(CREATE);
+            out.writeObject(userKey);
+            writeFeatures(out, features);
+            flush();
+            receiveStatus();
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void mergeFeatures(K userKey, double[] features) throws IOException {
+        lock.lock();
+        try {
+            out.writeInt(MERGE);
+            out.writeObject(userKey);
+            writeFeatures(out, features);
+            flush();
+            receiveStatus();
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<MatchResult<K>> identify(double[] features, double distanceFromUniversalModel, int topK) 
+            throws IOException {
+        lock.lock();
+        try {
+            out.writeInt(IDENTIFY);
+            writeFeatures(out, features);
+            out.writeDouble(distanceFromUniversalModel);
+            out.writeInt(topK);
+            flush();
+            receiveStatus();
+            int count = in.readInt();
+            List<MatchResult<K>> matches = new ArrayList<MatchResult<K>>(Math.max(0, Math.min(count, 1024)));
+            for(int i = 0; i < count; i++) {
+                K key = (K) readKey(in);
+                double distance = in.readDouble();
+                matches.add(new MatchResult<K>(key, 
+                        Recognito.getLikelihoodRatio(distance, distanceFromUniversalModel), distance));
+            }
+            return matches;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() throws IOException {
+        lock.lock();
+        try {
+            out.writeInt(SIZE);
+            flush();
+            receiveStatus();
+            return in.readInt();
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the connection to the shard server. Doesn't wait for the request in progress if any, which fails
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private void flush() throws IOException {
+        // forget the keys sent so far : the handles would pile up on both ends otherwise
+        out.reset();
+        out.flush();
+    }
+
+    /**
+     * Reads the status of the response, throwing again the exception raised by the remote shard if any
+     * @throws IOException when the response could not be read
+     */
+    private void receiveStatus() throws IOException {
+        byte status = in.readByte();
+        if(status == FAILURE) {
+            throw toRuntimeException(in.readUTF(), in.readUTF());
+        }
+        if(status != SUCCESS) {
+            throw new IOException("Unexpected response from the shard server [" + status + "]");
+        }
+    }
+
+    /**
+     * Writes the failure of a request, as the class name and message of the exception
+     * @param out the stream
+     * @param failure the exception raised by the shard
+     * @throws IOException when an I/O exception occurs
+     */
+    static void writeFailure(ObjectOutputStream out, RuntimeException failure) throws IOException {
+        String message = String.valueOf(failure.getMessage());
+        out.writeByte(FAILURE);
+        out.writeUTF(failure.getClass().getName());
+        // writeUTF is limited to 64 KB
+        out.writeUTF(message.length() > 1024 ? message.substring(0, 1024) : message);
+    }
+
+    private static RuntimeException toRuntimeException(String className, String message) {
+        for(Class<? extends RuntimeException> known : KNOWN_FAILURES) {
+            if(known.getName().equals(className)) {
+                try {
+                    return known.getConstructor(String.class).newInstance(message);
+                } catch (Exception e) {
+                    // all of them have a message constructor
+                }
+            }
+        }
+        return new IllegalStateException("The shard server failed: " + className + ": " + message);
+    }
+
+    static void writeFeatures(ObjectOutputStream out, double[] features) throws IOException {
+        out.writeInt(features.length);
+        for(double feature : features) {
+            out.writeDouble(feature);
+        }
+    }
+
+    /**
+     * Reads features written by {@link #writeFeatures(ObjectOutputStream, double[])}
+     * @param in the stream
+     * @return the features
+     * @throws IOException when the length is out of bounds or an I/O exception occurs
+     */
+    static double[] readFeatures(ObjectInputStream in) throws IOException {
+        int length = in.readInt();
+        if(length < 0 || length > MAX_FEATURES_LENGTH) {
+            throw new IOException("Unexpected features length [" + length + "]");
+        }
+        double[] features = new double[length];
+        for(int i = 0; i < length; i++) {
+            features[i] = in.readDouble();
+        }
+        return features;
+    }
+
+    /**
+     * Reads a user key
+     * @param in a stream created as a {@link KeyInputStream}
+     * @return the key
+     * @throws IOException when the key is of a class not allowed, or an I/O exception occurs
+     */
+    static Object readKey(ObjectInputStream in) throws IOException {
+        try {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unexpected user key class: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Object stream refusing to resolve any class but the allowed key classes, before instantiating anything
+     */
+    static final class KeyInputStream 
+            extends ObjectInputStream {
+
+        private final Set<String> allowedClasses = new HashSet<String>(DEFAULT_KEY_CLASSES);
+
+        KeyInputStream(InputStream in, Class<?>... keyClasses) throws IOException {
+            super(in);
+            for(Class<?> keyClass : keyClasses) {
+                allowedClasses.add(keyClass.getName());
+            }
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if(!allowedClasses.contains(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "Not allowed in user keys");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+            throw new InvalidClassException("Proxies are not allowed in user keys");
+        }
+    }
+}
@@ -0,0 +1,461 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link VoicePrintStore} keeping the recently used voice prints on the heap and the others in a memory mapped file
+ * <p>
+ * Up to {@code maxHotCount} voice prints stay on the heap, the least recently used ones are written to the cold file 
+ * once this count is exceeded. Getting a cold voice print, e.g. to merge or verify it, reads it back from the file 
+ * and makes it hot again. Full scans read the hot voice prints, then the cold ones in file order, and peeks read 
+ * the cold ones from the file, both without making them hot : an identification, indexed or not, doesn't evict 
+ * the voice prints in use.
+ * </p>
+ * <p>
+ * The cold file is made of fixed size slots, one per cold voice print, holding its number of samples and its 
+ * features. A voice print made hot again keeps its slot, which is rewritten in place when it is evicted again : 
+ * scans in progress still find it there. Slots freed when a voice print is removed are reused by the next evicted 
+ * voice prints, so that the file doesn't grow beyond the number of voice prints. The file is a mere 
+ * extension of the heap : it is truncated when the store is created, persistence remains up to the user.
+ * </p>
+ * <p>
+ * The instances handed out by {@link #get(Object)} are detached from the store once evicted. {@link Recognito} 
+ * puts merged voice prints back, but voice prints held elsewhere, e.g. by an {@link IvfIndex}, stay on the heap.
+ * </p>
+ * <p>
+ * Threading : this class is thread safe
+ * </p>
+ * @param <K> the type of the user keys
+ * @author Amaury Crickx
+ */
+public class TieredVoicePrintStore<K> 
+        implements VoicePrintStore<K>, Closeable {
+
+    private static final int REGION_SIZE = 8 * 1024 * 1024;
+    // cold slots read per lock acquisition during scans
+    private static final int SCAN_BATCH_SIZE = 64;
+
+    private final int maxHotCount;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+
+    // explicit lock rather than monitors : a virtual thread blocking on it doesn't pin its carrier thread
+    private final Lock lock = new ReentrantLock();
+    private final LinkedHashMap<K, VoicePrint> hot = new LinkedHashMap<K, VoicePrint>(16, 0.75f, true);
+    // every key owning a slot, cold ones as well as hot ones read back from the file
+    private final Map<K, Integer> slotsByKey = new HashMap<K, Integer>();
+    private final List<K> keysBySlot = new ArrayList<K>();
+    private final List<Integer> freeSlots = new ArrayList<Integer>();
+    // allocation order of each slot, scans skip the slots allocated after they started
+    private long[] slotStamps = new long[16];
+    private long slotAllocations;
+    private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+    // number of hot keys owning a slot
+    private int hotSlotCount;
+    private int featuresLength = -1;
+    private int slotSize;
+    private int slotsPerRegion;
+
+    private final AtomicLong faultCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Default constructor
+     * @param maxHotCount the maximum number of voice prints kept on the heap, at least 1
+     * @param coldFile the file holding the other voice prints, created or truncated
+     * @throws IOException when the file could not be opened
+     */
+    public TieredVoicePrintStore(int maxHotCount, File coldFile) throws IOException {
+        if(maxHotCount < 1) {
+            throw new IllegalArgumentException("maxHotCount should be at least 1, received [" + maxHotCount + "]");
+        }
+        if(coldFile == null) {
+            throw new IllegalArgumentException("The cold file may not be null");
+        }
+        this.maxHotCount = maxHotCount;
+        this.file = new RandomAccessFile(coldFile, "rw");
+        file.setLength(0);
+        this.channel = file.getChannel();
+    }
+
+    @Override
+    public VoicePrint get(K userKey) {
+        lock.lock();
+        try {
+            VoicePrint voicePrint = hot.get(userKey);
+            if(voicePrint == null) {
+                Integer slot = slotsByKey.get(userKey);
+                if(slot != null) {
+                    voicePrint = readSlot(slot);
+                    hotSlotCount++;
+                    faultCount.incrementAndGet();
+                    hot.put(userKey, voicePrint);
+                    evictLeastRecentlyUsed();
+                }
+            }
+            return voicePrint;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A cold voice print is read from the file and left cold, a hot one counts as recently used.
+     * </p>
+     */
+    @Override
+    public VoicePrint peek(K userKey) {
+        lock.lock();
+        try {
+            VoicePrint voicePrint = hot.get(userKey);
+            if(voicePrint == null) {
+                Integer slot = slotsByKey.get(userKey);
+                if(slot != null) {
+                    voicePrint = readSlot(slot);
+                }
+            }
+            return voicePrint;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(K userKey, VoicePrint voicePrint) {
+        lock.lock();
+        try {
+            checkFeaturesLength(voicePrint);
+            if(hot.put(userKey, voicePrint) == null && slotsByKey.containsKey(userKey)) {
+                hotSlotCount++;
+            }
+            evictLeastRecentlyUsed();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public VoicePrint remove(K userKey) {
+        lock.lock();
+        try {
+            VoicePrint voicePrint = hot.remove(userKey);
+            Integer slot = slotsByKey.remove(userKey);
+            if(slot != null) {
+                if(voicePrint == null) {
+                    voicePrint = readSlot(slot);
+                } else {
+                    hotSlotCount--;
+                }
+                freeSlot(slot);
+            }
+            return voicePrint;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(K userKey) {
+        lock.lock();
+        try {
+            return hot.containsKey(userKey) || slotsByKey.containsKey(userKey);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return hot.size() + slotsByKey.size() - hotSlotCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The hot voice prints are copied when the iteration starts, the cold ones are read from the file 
+     * {@value #SCAN_BATCH_SIZE} at a time as the iteration goes, skipping the slots of the voice prints already returned : 
+     * those owned by the hot ones when the iteration starts and those allocated since. Each voice print stored during 
+     * the whole iteration is returned exactly once, even when it moves from one tier to the other meanwhile : 
+     * a cold voice print made hot again is read from its slot, as it was before being handed out.
+     * </p>
+     */
+    @Override
+    public Iterable<Entry<K, VoicePrint>> entries() {
+        return new Iterable<Entry<K, VoicePrint>>() {
+            @Override
+            public Iterator<Entry<K, VoicePrint>> iterator() {
+                return new ScanIterator();
+            }
+        };
+    }
+
+    /**
+     * Get the number of voice prints kept on the heap
+     * @return the count
+     */
+    public int getHotCount() {
+        lock.lock();
+        try {
+            return hot.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of voice prints kept in the cold file
+     * @return the count
+     */
+    public int getColdCount() {
+        lock.lock();
+        try {
+            return slotsByKey.size() - hotSlotCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of voice prints read back from the cold file and made hot again
+     * @return the count
+     */
+    public long getFaultCount() {
+        return faultCount.get();
+    }
+
+    /**
+     * Get the number of voice prints written to the cold file
+     * @return the count
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Closes the cold file. The store may not be used afterwards
+     * @throws IOException when an I/O exception occurs
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            regions.clear();
+            file.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * All the voice prints share the same number of features, the one of the first voice print. 
+     * Must be called while holding the lock
+     * @param voicePrint the voice print to store
+     */
+    private void checkFeaturesLength(VoicePrint voicePrint) {
+        int length = voicePrint.getFeaturesLength();
+        if(featuresLength == -1) {
+            featuresLength = length;
+            slotSize = VoicePrint.getSerializedSize(length);
+            slotsPerRegion = Math.max(1, REGION_SIZE / slotSize);
+        } else if(length != featuresLength) {
+            throw new IllegalArgumentException("Features of new VoicePrint is of different size : [" + 
+                    length + "] expected [" + featuresLength + "]");
+        }
+    }
+
+    /**
+     * Writes the least recently used voice prints to the cold file until the hot ones fit, in their own slot when 
+     * they were read back from the file. Must be called while holding the lock
+     */
+    private void evictLeastRecentlyUsed() {
+        Iterator<Entry<K, VoicePrint>> it = hot.entrySet().iterator();
+        while(hot.size() > maxHotCount) {
+            Entry<K, VoicePrint> eldest = it.next();
+            Integer slot = slotsByKey.get(eldest.getKey());
+            if(slot == null) {
+                slot = allocateSlot(eldest.getKey());
+                slotsByKey.put(eldest.getKey(), slot);
+            } else {
+                hotSlotCount--;
+            }
+            eldest.getValue().write(regions.get(slot / slotsPerRegion), (slot % slotsPerRegion) * slotSize);
+            it.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Reuses a free slot, or appends one to the file, mapping a new region if needed.
+     * Must be called while holding the lock
+     * @param userKey the user key of the voice print to write in the slot
+     * @return the slot
+     */
+    private int allocateSlot(K userKey) {
+        if(!freeSlots.isEmpty()) {
+            int slot = freeSlots.remove(freeSlots.size() - 1);
+            keysBySlot.set(slot, userKey);
+            slotStamps[slot] = ++slotAllocations;
+            return slot;
+        }
+        int slot = keysBySlot.size();
+        if(slot == regions.size() * slotsPerRegion) {
+            long regionBytes = (long) slotsPerRegion * slotSize;
+            try {
+                regions.add(channel.map(FileChannel.MapMode.READ_WRITE, regions.size() * regionBytes, regionBytes));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not extend the cold file", e);
+            }
+        }
+        if(slot == slotStamps.length) {
+            slotStamps = Arrays.copyOf(slotStamps, slot * 2);
+        }
+        keysBySlot.add(userKey);
+        slotStamps[slot] = ++slotAllocations;
+        return slot;
+    }
+
+    /**
+     * Must be called while holding the lock
+     * @param slot the slot
+     */
+    private void freeSlot(int slot) {
+        keysBySlot.set(slot, null);
+        freeSlots.add(slot);
+    }
+
+    /**
+     * Must be called while holding the lock
+     * @param slot the slot
+     * @return the voice print written in the slot
+     */
+    private VoicePrint readSlot(int slot) {
+        return VoicePrint.read(regions.get(slot / slotsPerRegion), (slot % slotsPerRegion) * slotSize, featuresLength);
+    }
+
+    /**
+     * Iterates over a copy of the hot voice prints, then over the cold slots in file order
+     */
+    private final class ScanIterator 
+            implements Iterator<Entry<K, VoicePrint>> {
+
+        private final List<Entry<K, VoicePrint>> batch = new ArrayList<Entry<K, VoicePrint>>();
+        // slots of the keys returned from the hot copy, rewritten in place when these are evicted
+        private final BitSet hotSlots = new BitSet();
+        // slots allocated later hold keys returned from the hot copy, keys stored since, or keys already scanned 
+        // then removed and stored again
+        private final long lastStamp;
+        private int position;
+        private int nextSlot;
+
+        ScanIterator() {
+            lock.lock();
+            try {
+                for(Entry<K, VoicePrint> entry : hot.entrySet()) {
+                    batch.add(new SimpleImmutableEntry<K, VoicePrint>(entry.getKey(), entry.getValue()));
+                    Integer slot = slotsByKey.get(entry.getKey());
+                    if(slot != null) {
+                        hotSlots.set(slot);
+                    }
+                }
+                lastStamp = slotAllocations;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while(position == batch.size()) {
+                if(!readColdBatch()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Entry<K, VoicePrint> next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.get(position++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Reads the next cold slots in use
+         * @return false once past the last slot
+         */
+        private boolean readColdBatch() {
+            batch.clear();
+            position = 0;
+            lock.lock();
+            try {
+                if(nextSlot >= keysBySlot.size()) {
+                    return false;
+                }
+                int end = Math.min(nextSlot + SCAN_BATCH_SIZE, keysBySlot.size());
+                for(; nextSlot < end; nextSlot++) {
+                    K key = keysBySlot.get(nextSlot);
+                    if(key != null && !hotSlots.get(nextSlot) && slotStamps[nextSlot] <= lastStamp) {
+                        batch.add(new SimpleImmutableEntry<K, VoicePrint>(key, readSlot(nextSlot)));
+                    }
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
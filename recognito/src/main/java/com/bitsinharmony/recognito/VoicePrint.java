@@ -17,6 +17,7 @@
 package com.bitsinharmony.recognito;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -57,11 +58,17 @@ public final class VoicePrint
     }
 
     /**
-     * Copy constructor
+     * Copy constructor, keeping the number of samples the features are the mean of. 
+     * Voice prints loaded without that number count as a single sample
      * @param print the VoicePrint to copy
      */
     VoicePrint(VoicePrint print) {
-        this(Arrays.copyOf(print.features, print.features.length));
+        print.r.lock();
+        try { 
+            this.features = Arrays.copyOf(print.features, print.features.length);
+            this.meanCount = Math.max(print.meanCount, 1);
+        } 
+        finally { print.r.unlock(); }
     }
 
     /**
@@ -81,6 +88,87 @@ public final class VoicePrint
         finally { r.unlock(); }
     }
 
+    /**
+     * Returns the distances between this voice print and each of the given ones using the calculator.
+     * The read lock is acquired once for the whole batch, and the features of this voice print stay 
+     * hot in cache while being compared to every given voice print.
+     * Threading : same guarantees as {@link #getDistance(DistanceCalculator, VoicePrint)}
+     * @param calculator the distance calculator
+     * @param voicePrints the voice prints
+     * @param distances the array receiving the distances, at least as long as voicePrints
+     */
+    void getDistances(DistanceCalculator calculator, VoicePrint[] voicePrints, double[] distances) {
+        r.lock();
+        try { 
+            for (int i = 0; i < voicePrints.length; i++) {
+                distances[i] = calculator.getDistance(this.features, voicePrints[i].features);
+            }
+        } 
+        finally { r.unlock(); }
+    }
+
+    /**
+     * Returns a copy of the features of this voice print, never half merged
+     * @return the features
+     */
+    double[] getFeatures() {
+        r.lock();
+        try { 
+            return Arrays.copyOf(features, features.length);
+        } 
+        finally { r.unlock(); }
+    }
+
+    /**
+     * Get the number of bytes taken by {@link #write(ByteBuffer, int)}
+     * @param featuresLength the number of features
+     * @return the size in bytes
+     */
+    static int getSerializedSize(int featuresLength) {
+        return 4 + 8 * featuresLength;
+    }
+
+    /**
+     * Writes the number of samples then the features at the given position of the buffer, never half merged
+     * @param buffer the buffer
+     * @param position the position of the first byte to write
+     */
+    void write(ByteBuffer buffer, int position) {
+        r.lock();
+        try { 
+            buffer.putInt(position, meanCount);
+            for (int i = 0; i < features.length; i++) {
+                buffer.putDouble(position + 4 + 8 * i, features[i]);
+            }
+        } 
+        finally { r.unlock(); }
+    }
+
+    /**
+     * Reads a voice print written by {@link #write(ByteBuffer, int)}
+     * @param buffer the buffer
+     * @param position the position of the first byte to read
+     * @param featuresLength the number of features
+     * @return the voice print
+     */
+    static VoicePrint read(ByteBuffer buffer, int position, int featuresLength) {
+        double[] features = new double[featuresLength];
+        for (int i = 0; i < features.length; i++) {
+            features[i] = buffer.getDouble(position + 4 + 8 * i);
+        }
+        VoicePrint voicePrint = new VoicePrint(features);
+        voicePrint.meanCount = buffer.getInt(position);
+        return voicePrint;
+    }
+
+    /**
+     * Get the number of features
+     * @return the length
+     */
+    int getFeaturesLength() {
+        return features.length;
+    }
+
     /**
      * Merges this voice print features with the given one.
      * Threading : it is safe to call this method while other threads may request the distance of this voice 
@@ -101,12 +189,50 @@ public final class VoicePrint
     }
 
     /**
-     * Convenience method to merge voice prints
+     * Merges all the samples of the given voice print into this one, as if they had been merged one by one
      * @param print the voice print to merge
      * @see VoicePrint#merge(double[])
      */
     void merge(VoicePrint print) {
-        this.merge(print.features); 
+        combine(print, 1);
+    }
+
+    /**
+     * Takes the samples of the given voice print, previously merged into this one, out of the mean values. 
+     * Once every sample is taken out, the next merged features become the mean values.
+     * Threading : same guarantees as {@link #merge(double[])}
+     * @param print the voice print to take out
+     */
+    void unmerge(VoicePrint print) {
+        combine(print, -1);
+    }
+
+    /**
+     * Adds or subtracts the samples of the given voice print in O(features), whatever their number
+     * @param print the voice print
+     * @param sign 1 to add the samples, -1 to subtract them
+     */
+    private void combine(VoicePrint print, int sign) {
+        // copied first : both locks are never held at once
+        VoicePrint outer = new VoicePrint(print);
+        if(this.features.length != outer.features.length) {
+            throw new IllegalArgumentException("Features of new VoicePrint is of different size : [" + 
+                    outer.features.length + "] expected [" + this.features.length + "]");
+        }
+        w.lock();
+        try { 
+            int count = meanCount + sign * outer.meanCount;
+            if(count <= 0) {
+                Arrays.fill(features, 0.0d);
+                meanCount = 0;
+                return;
+            }
+            for (int i = 0; i < features.length; i++) {
+                features[i] = (features[i] * meanCount + sign * outer.features[i] * outer.meanCount) / count;
+            }
+            meanCount = count;
+        } 
+        finally { w.unlock(); }
     }
 
     /**
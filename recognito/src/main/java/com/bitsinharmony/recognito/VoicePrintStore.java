@@ -0,0 +1,93 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import java.util.Map.Entry;
+
+/**
+ * Holds the voice prints known to a {@link Recognito} instance by user key
+ * <p>
+ * Modifications are serialized by {@code Recognito}, whereas lookups and scans take place concurrently with them.
+ * A voice print may be merged once handed out by {@link #get(Object)} : {@code Recognito} puts it back afterwards, 
+ * so that implementations keeping copies of the voice prints, e.g. on disk, may pick up the changes.
+ * </p>
+ * <p>
+ * Threading : implementations must be thread safe
+ * </p>
+ * @param <K> the type of the user keys
+ * @author Amaury Crickx
+ * @see InMemoryVoicePrintStore
+ * @see TieredVoicePrintStore
+ */
+public interface VoicePrintStore<K> {
+
+    /**
+     * Get the voice print of the given user key
+     * @param userKey the user key
+     * @return the voice print, or null if none is stored
+     */
+    VoicePrint get(K userKey);
+
+    /**
+     * Get the voice print of the given user key for scoring only, e.g. the candidates of an indexed identification. 
+     * Unlike {@link #get(Object)}, implementations keeping copies of the voice prints don't move it closer to 
+     * the heap : the returned voice print may be a transient copy, it is never merged nor put back
+     * @param userKey the user key
+     * @return the voice print, or null if none is stored
+     */
+    VoicePrint peek(K userKey);
+
+    /**
+     * Stores the voice print of the given user key, replacing the former one if any
+     * @param userKey the user key
+     * @param voicePrint the voice print
+     */
+    void put(K userKey, VoicePrint voicePrint);
+
+    /**
+     * Removes the voice print of the given user key
+     * @param userKey the user key
+     * @return the removed voice print, or null if none was stored
+     */
+    VoicePrint remove(K userKey);
+
+    /**
+     * Checks whether a voice print is stored for the given user key
+     * @param userKey the user key
+     * @return true if it is
+     */
+    boolean containsKey(K userKey);
+
+    /**
+     * Get the number of voice prints
+     * @return the count
+     */
+    int size();
+
+    /**
+     * Checks whether no voice print is stored
+     * @return true if none is
+     */
+    boolean isEmpty();
+
+    /**
+     * Get the stored voice prints for a full scan, e.g. an identification. The iteration reflects the state of 
+     * the store at some point at or since its creation, but may not reflect later modifications
+     * @return the entries
+     */
+    Iterable<Entry<K, VoicePrint>> entries();
+}
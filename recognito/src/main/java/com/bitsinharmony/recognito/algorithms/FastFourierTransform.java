@@ -0,0 +1,156 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.algorithms;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Iterative radix-2 Fast Fourier Transform
+ * <p>
+ * An instance is a plan for a given power of two size : bit reversal permutation and twiddle factors 
+ * are computed once and cached, so that plans are shared by all the users of a given size. 
+ * Transforms happen in place on the arrays passed in, no memory is allocated per call.
+ * </p>
+ * <p>
+ * Threading : this class is thread safe, instances are immutable
+ * </p>
+ * @see <a href="http://en.wikipedia.org/wiki/Cooley%E2%80%93Tukey_FFT_algorithm">Cooley-Tukey FFT algorithm</a>
+ * @author Amaury Crickx
+ */
+public final class FastFourierTransform {
+
+    private static final ConcurrentMap<Integer, FastFourierTransform> PLANS = 
+            new ConcurrentHashMap<Integer, FastFourierTransform>();
+
+    private final int size;
+    private final int[] bitReversal;
+    private final double[] cos;
+    private final double[] sin;
+
+    private FastFourierTransform(int size) {
+        this.size = size;
+        this.bitReversal = new int[size];
+        int bits = Integer.numberOfTrailingZeros(size);
+        for(int i = 0; i < size; i++) {
+            bitReversal[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (Integer.SIZE - bits);
+        }
+        // twiddle factors of the stage combining blocks of length half are stored contiguously from index half
+        this.cos = new double[Math.max(size, 1)];
+        this.sin = new double[Math.max(size, 1)];
+        for(int half = 1; half < size; half <<= 1) {
+            for(int k = 0; k < half; k++) {
+                cos[half + k] = Math.cos(Math.PI * k / half);
+                sin[half + k] = Math.sin(Math.PI * k / half);
+            }
+        }
+    }
+
+    /**
+     * Gets the shared plan for the given size, creating it on first use
+     * @param size the size of the transform, a power of 2
+     * @return the plan
+     */
+    public static FastFourierTransform getInstance(int size) {
+        if(size < 1 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size should be a power of 2, received [" + size + "]");
+        }
+        FastFourierTransform plan = PLANS.get(size);
+        if(plan == null) {
+            plan = new FastFourierTransform(size);
+            FastFourierTransform existing = PLANS.putIfAbsent(size, plan);
+            if(existing != null) {
+                plan = existing;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Returns the smallest power of 2 greater than or equal to the given value
+     * @param value the value, at least 1
+     * @return the power of 2
+     */
+    public static int nextPowerOfTwo(int value) {
+        return Integer.bitCount(value) == 1 ? value : Integer.highestOneBit(value) << 1;
+    }
+
+    /**
+     * Get the size of this transform
+     * @return the size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Computes the forward transform in place
+     * @param real the real parts, of the size of this plan
+     * @param imaginary the imaginary parts, of the size of this plan
+     */
+    public void forward(double[] real, double[] imaginary) {
+        transform(real, imaginary, -1.0d);
+    }
+
+    /**
+     * Computes the inverse transform in place, scaled by 1 / size so that inverse(forward(x)) == x
+     * @param real the real parts, of the size of this plan
+     * @param imaginary the imaginary parts, of the size of this plan
+     */
+    public void inverse(double[] real, double[] imaginary) {
+        transform(real, imaginary, 1.0d);
+        double scale = 1.0d / size;
+        for(int i = 0; i < size; i++) {
+            real[i] *= scale;
+            imaginary[i] *= scale;
+        }
+    }
+
+    private void transform(double[] real, double[] imaginary, double sign) {
+        if(real.length != size || imaginary.length != size) {
+            throw new IllegalArgumentException("Given arrays length was not equal to the FFT size : [" 
+                    + real.length + ", " + imaginary.length + "] != [" + size + "]");
+        }
+        for(int i = 0; i < size; i++) {
+            int j = bitReversal[i];
+            if(j > i) {
+                double tmp = real[i];
+                real[i] = real[j];
+                real[j] = tmp;
+                tmp = imaginary[i];
+                imaginary[i] = imaginary[j];
+                imaginary[j] = tmp;
+            }
+        }
+        for(int half = 1; half < size; half <<= 1) {
+            for(int start = 0; start < size; start += half * 2) {
+                for(int k = 0; k < half; k++) {
+                    double wr = cos[half + k];
+                    double wi = sign * sin[half + k];
+                    int a = start + k;
+                    int b = a + half;
+                    double tr = wr * real[b] - wi * imaginary[b];
+                    double ti = wr * imaginary[b] + wi * real[b];
+                    real[b] = real[a] - tr;
+                    imaginary[b] = imaginary[a] - ti;
+                    real[a] += tr;
+                    imaginary[a] += ti;
+                }
+            }
+        }
+    }
+}
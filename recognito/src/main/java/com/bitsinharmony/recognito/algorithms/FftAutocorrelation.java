@@ -0,0 +1,134 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.algorithms;
+
+/**
+ * Autocorrelation at lags 0 to n - 1 computed through the Fast Fourier Transform
+ * <p>
+ * The autocorrelation is the inverse transform of the power spectrum. The signal is zero padded to a power of 2
+ * at least as long as the signal plus the highest lag, so that the circular correlation computed by the FFT 
+ * equals the linear one. The cost is O(m log m) for a padded size m, whatever the number of lags, whereas 
+ * {@link DiscreteAutocorrelationAtLagJ} costs O(n) per lag.
+ * </p>
+ * <p>
+ * Since both the signal and the autocorrelation are real, each transform of size m is computed as a complex 
+ * transform of size m / 2 : even samples go to the real parts and odd samples to the imaginary parts, 
+ * the spectrum is then untangled using its symmetries. This halves the cost compared to a plain complex transform.
+ * </p>
+ * <p>
+ * Buffers are allocated once in the constructor and reused by each call.
+ * </p>
+ * <p>
+ * Threading : this class is _NOT_ thread safe
+ * </p>
+ * @author Amaury Crickx
+ */
+public class FftAutocorrelation {
+
+    private final int bufferSize;
+    private final int lags;
+    private final int half;
+    private final FastFourierTransform fft;
+    private final double[] real;
+    private final double[] imaginary;
+    private final double[] power;
+    private final double[] cos;
+    private final double[] sin;
+
+    /**
+     * Constructor for FftAutocorrelation
+     * @param bufferSize the length of the signals to autocorrelate
+     * @param lags the number of lags computed, from 0 to lags - 1
+     */
+    public FftAutocorrelation(int bufferSize, int lags) {
+        if(lags < 1 || lags > bufferSize) {
+            throw new IllegalArgumentException("Lags should be in the range 0 < lags <= buffer size. Received [" 
+                    + lags + "] for buffer size of [" + bufferSize + "]");
+        }
+        this.bufferSize = bufferSize;
+        this.lags = lags;
+        int paddedSize = getPaddedSize(bufferSize, lags);
+        this.half = paddedSize / 2;
+        this.fft = FastFourierTransform.getInstance(half);
+        this.real = new double[half];
+        this.imaginary = new double[half];
+        this.power = new double[half + 1];
+        this.cos = new double[half + 1];
+        this.sin = new double[half + 1];
+        for(int k = 0; k <= half; k++) {
+            cos[k] = Math.cos(2 * Math.PI * k / paddedSize);
+            sin[k] = Math.sin(2 * Math.PI * k / paddedSize);
+        }
+    }
+
+    /**
+     * Get the size of the real transform used for the given signal length and number of lags
+     * @param bufferSize the length of the signals
+     * @param lags the number of lags
+     * @return the padded size, a power of 2, at least 2
+     */
+    public static int getPaddedSize(int bufferSize, int lags) {
+        return Math.max(2, FastFourierTransform.nextPowerOfTwo(bufferSize + lags - 1));
+    }
+
+    /**
+     * Computes the autocorrelation of the given signal at lags 0 to lags - 1
+     * @param buffer the signal, of the size given in constructor
+     * @param autocorrelations receives the result, at least as long as the number of lags given in constructor
+     */
+    public void autocorrelate(double[] buffer, double[] autocorrelations) {
+        if(buffer.length != bufferSize) {
+            throw new IllegalArgumentException("Given buffer length was not equal to the one provided in constructor : [" 
+                    + buffer.length +"] != [" + bufferSize + "]");
+        }
+        
+        // pack even samples as real parts and odd samples as imaginary parts, zero padded
+        for(int n = 0; n < half; n++) {
+            int even = 2 * n;
+            real[n] = even < bufferSize ? buffer[even] : 0.0d;
+            imaginary[n] = even + 1 < bufferSize ? buffer[even + 1] : 0.0d;
+        }
+        fft.forward(real, imaginary);
+        
+        // untangle the spectrum of the real signal and keep its power, from 0 to the Nyquist frequency
+        for(int k = 0; k <= half; k++) {
+            int i = k == half ? 0 : k;
+            int j = k == 0 ? 0 : half - k;
+            double sumReal = (real[i] + real[j]) / 2;
+            double sumImaginary = (imaginary[i] - imaginary[j]) / 2;
+            double oddReal = (imaginary[i] + imaginary[j]) / 2;
+            double oddImaginary = (real[j] - real[i]) / 2;
+            double re = sumReal + cos[k] * oddReal + sin[k] * oddImaginary;
+            double im = sumImaginary + cos[k] * oddImaginary - sin[k] * oddReal;
+            power[k] = re * re + im * im;
+        }
+        
+        // the power spectrum is real and even : pack it back so that the inverse transform yields 
+        // even lags as real parts and odd lags as imaginary parts
+        for(int k = 0; k < half; k++) {
+            double sum = power[k] + power[half - k];
+            double difference = power[k] - power[half - k];
+            real[k] = sum - difference * sin[k];
+            imaginary[k] = difference * cos[k];
+        }
+        fft.inverse(real, imaginary);
+        
+        for(int lag = 0; lag < lags; lag++) {
+            autocorrelations[lag] = ((lag & 1) == 0 ? real[lag >> 1] : imaginary[lag >> 1]) / 2;
+        }
+    }
+}
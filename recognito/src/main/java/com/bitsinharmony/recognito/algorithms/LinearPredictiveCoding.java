@@ -34,26 +34,78 @@ import java.util.Arrays;
  */
 public class LinearPredictiveCoding {
 
+    // relative cost of one FFT butterfly against one multiply-add of the direct autocorrelation, measured on HotSpot
+    private static final double FFT_BUTTERFLY_COST = 7.0d;
+
     private final int windowSize;
     private final int poles;
     private final double[] output;
     private final double[] error;
     private final double[] k;
     private final double[][] matrix;
-
+    private final double[] autocorrelations;
+    private final DiscreteAutocorrelationAtLagJ directAutocorrelation;
+    private final FftAutocorrelation fftAutocorrelation;
 
     /**
      * Constructor for LinearPredictiveCoding
+     * <p>
+     * Autocorrelations are computed either directly or through the FFT, whichever is cheaper for the given 
+     * window size and number of poles according to {@link #isFftAutocorrelationCheaper(int, int)}
+     * </p>
      * @param windowSize the window size
      * @param poles
      */
     public LinearPredictiveCoding(int windowSize, int poles) {
+        this(windowSize, poles, isFftAutocorrelationCheaper(windowSize, poles));
+    }
+
+    /**
+     * Constructor forcing the autocorrelation method
+     * @param windowSize the window size
+     * @param poles
+     * @param useFft true to compute autocorrelations through the FFT, false to compute them directly
+     */
+    LinearPredictiveCoding(int windowSize, int poles, boolean useFft) {
         this.windowSize = windowSize;
         this.poles = poles;
         this.output = new double[poles];
         this.error = new double[poles];
         this.k = new double[poles];
         this.matrix = new double[poles][poles];
+        this.autocorrelations = new double[poles];
+        this.directAutocorrelation = useFft ? null : new DiscreteAutocorrelationAtLagJ();
+        this.fftAutocorrelation = useFft ? new FftAutocorrelation(windowSize, poles) : null;
+    }
+
+    /**
+     * Cost model choosing between the two ways of computing the autocorrelations of a window : 
+     * the direct one costs windowSize multiply-adds per pole, the FFT one costs two complex transforms of 
+     * size m / 2, i.e. (m / 2) log2(m / 2) butterflies, m being the window size zero padded to a power of 2.
+     * <p>
+     * A butterfly costing about 7 multiply-adds, the FFT pays off beyond 50 to 80 poles depending on the window size, 
+     * i.e. when raising the number of poles well above Recognito's default of 20
+     * </p>
+     * @param windowSize the window size
+     * @param poles the number of poles
+     * @return true when the FFT is expected to be cheaper
+     */
+    public static boolean isFftAutocorrelationCheaper(int windowSize, int poles) {
+        if(poles < 1 || poles > windowSize) {
+            return false;
+        }
+        int half = FftAutocorrelation.getPaddedSize(windowSize, poles) / 2;
+        double fftCost = FFT_BUTTERFLY_COST * half * Integer.numberOfTrailingZeros(half);
+        double directCost = (double) windowSize * poles;
+        return fftCost < directCost;
+    }
+
+    /**
+     * Tells whether this instance computes autocorrelations through the FFT
+     * @return true when the FFT is used
+     */
+    public boolean usesFftAutocorrelation() {
+        return fftAutocorrelation != null;
     }
 
     /**
@@ -76,10 +128,12 @@ public class LinearPredictiveCoding {
             Arrays.fill(d, 0.0d);
         }
 
-        DiscreteAutocorrelationAtLagJ dalj = new DiscreteAutocorrelationAtLagJ();
-        double[] autocorrelations = new double[poles];
-        for(int i = 0; i < poles; i++) {
-            autocorrelations[i] = dalj.autocorrelate(window, i);
+        if(fftAutocorrelation != null) {
+            fftAutocorrelation.autocorrelate(window, autocorrelations);
+        } else {
+            for(int i = 0; i < poles; i++) {
+                autocorrelations[i] = directAutocorrelation.autocorrelate(window, i);
+            }
         }
 
         error[0] = autocorrelations[0];
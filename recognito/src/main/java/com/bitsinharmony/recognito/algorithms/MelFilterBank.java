@@ -0,0 +1,142 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.algorithms;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bank of triangular filters evenly spaced on the mel scale, applied to the power spectrum of an FFT frame
+ * <p>
+ * Filters span from 0 Hz to the Nyquist frequency. Each filter only stores the weights of the spectrum bins 
+ * it covers, so that applying the bank costs about twice the number of bins. Banks are computed once 
+ * per sample rate, FFT size and number of filters, then shared.
+ * </p>
+ * <p>
+ * Threading : this class is thread safe, instances are immutable
+ * </p>
+ * @see <a href="http://en.wikipedia.org/wiki/Mel_scale">Mel scale</a>
+ * @author Amaury Crickx
+ */
+public final class MelFilterBank {
+
+    private static final ConcurrentMap<String, MelFilterBank> BANKS = new ConcurrentHashMap<String, MelFilterBank>();
+
+    private final int fftSize;
+    private final int[] firstBins;
+    private final double[][] weights;
+
+    private MelFilterBank(float sampleRate, int fftSize, int filters) {
+        this.fftSize = fftSize;
+        this.firstBins = new int[filters];
+        this.weights = new double[filters][];
+
+        double maxMel = toMel(sampleRate / 2);
+        double[] edges = new double[filters + 2];
+        for(int i = 0; i < edges.length; i++) {
+            edges[i] = toHertz(maxMel * i / (filters + 1));
+        }
+        double binWidth = (double) sampleRate / fftSize;
+        int bins = fftSize / 2 + 1;
+        for(int f = 0; f < filters; f++) {
+            double left = edges[f];
+            double center = edges[f + 1];
+            double right = edges[f + 2];
+            int first = (int) Math.ceil(left / binWidth);
+            int last = Math.min(bins - 1, (int) Math.floor(right / binWidth));
+            firstBins[f] = first;
+            weights[f] = new double[Math.max(0, last - first + 1)];
+            for(int bin = first; bin <= last; bin++) {
+                double frequency = bin * binWidth;
+                double weight = frequency <= center 
+                        ? (frequency - left) / (center - left) 
+                        : (right - frequency) / (right - center);
+                weights[f][bin - first] = Math.max(0.0d, weight);
+            }
+        }
+    }
+
+    /**
+     * Gets the shared filter bank for the given parameters, creating it on first use
+     * @param sampleRate the sample rate
+     * @param fftSize the size of the FFT frames
+     * @param filters the number of filters
+     * @return the filter bank
+     */
+    public static MelFilterBank getInstance(float sampleRate, int fftSize, int filters) {
+        if(filters < 1) {
+            throw new IllegalArgumentException("At least one filter is required, received [" + filters + "]");
+        }
+        String key = sampleRate + "/" + fftSize + "/" + filters;
+        MelFilterBank bank = BANKS.get(key);
+        if(bank == null) {
+            bank = new MelFilterBank(sampleRate, fftSize, filters);
+            MelFilterBank existing = BANKS.putIfAbsent(key, bank);
+            if(existing != null) {
+                bank = existing;
+            }
+        }
+        return bank;
+    }
+
+    /**
+     * Get the number of filters of this bank
+     * @return the number of filters
+     */
+    public int getFilterCount() {
+        return weights.length;
+    }
+
+    /**
+     * Applies the filters to the given power spectrum
+     * @param powerSpectrum the power of the bins from 0 to fftSize / 2 inclusive
+     * @param energies receives the energy of each filter, at least as long as the number of filters
+     */
+    public void apply(double[] powerSpectrum, double[] energies) {
+        if(powerSpectrum.length < fftSize / 2 + 1) {
+            throw new IllegalArgumentException("The power spectrum should hold at least fftSize / 2 + 1 bins, received [" 
+                    + powerSpectrum.length + "]");
+        }
+        for(int f = 0; f < weights.length; f++) {
+            double[] filter = weights[f];
+            int first = firstBins[f];
+            double energy = 0.0d;
+            for(int i = 0; i < filter.length; i++) {
+                energy += filter[i] * powerSpectrum[first + i];
+            }
+            energies[f] = energy;
+        }
+    }
+
+    /**
+     * Converts a frequency to the mel scale
+     * @param hertz the frequency in Hz
+     * @return the frequency in mels
+     */
+    public static double toMel(double hertz) {
+        return 2595.0d * Math.log10(1.0d + hertz / 700.0d);
+    }
+
+    /**
+     * Converts a frequency from the mel scale
+     * @param mel the frequency in mels
+     * @return the frequency in Hz
+     */
+    public static double toHertz(double mel) {
+        return 700.0d * (Math.pow(10.0d, mel / 2595.0d) - 1.0d);
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.algorithms;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Streaming sample rate converter, by a rational factor L / M
+ * <p>
+ * Conceptually, the signal is upsampled by L (inserting zeros), low pass filtered and decimated by M. The polyphase 
+ * form only computes the output samples actually kept : the low pass filter is split into L phases of a few taps, 
+ * and each output sample is the dot product of one phase with the latest input samples. The cutoff frequency lies 
+ * slightly below the lowest of both Nyquist frequencies, which both removes the images of the upsampling and 
+ * prevents aliasing when decimating. The filter is a Kaiser windowed sinc, attenuating the stop band by 60 dB.
+ * </p>
+ * <p>
+ * Filter tables are computed once per rate pair, then shared. Samples may be given in chunks of any size, e.g. 
+ * as a file is being decoded, the output is the same as for the whole sample at once.
+ * </p>
+ * <p>
+ * Threading : instances keep the state of the stream and are not thread safe, the filter tables are
+ * </p>
+ * @see <a href="http://en.wikipedia.org/wiki/Sample_rate_conversion">Sample rate conversion</a>
+ * @see <a href="http://en.wikipedia.org/wiki/Kaiser_window">Kaiser window</a>
+ * @author Amaury Crickx
+ */
+public final class PolyphaseResampler {
+
+    private static final int MAX_INTERPOLATION_FACTOR = 4096;
+    // share of the lowest Nyquist frequency kept untouched, the transition band spans the rest
+    private static final double PASS_BAND = 0.85d;
+    private static final double STOP_BAND_ATTENUATION = 60.0d;
+
+    private static final ConcurrentMap<String, double[][]> PHASES_BY_RATIO = new ConcurrentHashMap<String, double[][]>();
+
+    private final int interpolation;
+    private final int decimation;
+    // phases[p][k] weighs the input sample k samples before the current one
+    private final double[][] phases;
+    private final int taps;
+
+    // latest input samples, the oldest first, followed by the current chunk
+    private double[] buffer;
+    // absolute index of the input sample the next output sample is aligned on, and its phase
+    private long nextInput;
+    private int nextPhase;
+    private long consumed;
+
+    /**
+     * Default constructor
+     * @param inputRate the sample rate of the input, rounded to the closest Hz
+     * @param outputRate the sample rate of the output, rounded to the closest Hz
+     * @throws IllegalArgumentException when a rate isn't positive or their ratio can't be reduced to L / M 
+     * with L at most 4096
+     */
+    public PolyphaseResampler(float inputRate, float outputRate) {
+        int in = Math.round(inputRate);
+        int out = Math.round(outputRate);
+        if(in <= 0 || out <= 0) {
+            throw new IllegalArgumentException("Sample rates should be positive, received [" + inputRate + "] and [" 
+                    + outputRate + "]");
+        }
+        int gcd = gcd(in, out);
+        this.interpolation = out / gcd;
+        this.decimation = in / gcd;
+        if(interpolation > MAX_INTERPOLATION_FACTOR) {
+            throw new IllegalArgumentException("Unsupported ratio between sample rates [" + inputRate + "] and [" 
+                    + outputRate + "]");
+        }
+        this.phases = getPhases(interpolation, decimation);
+        this.taps = phases[0].length;
+        this.buffer = new double[taps - 1];
+    }
+
+    /**
+     * Resamples a whole voice sample
+     * @param voiceSample the voice sample
+     * @param inputRate the sample rate of the voice sample
+     * @param outputRate the sample rate to convert to
+     * @return the resampled voice sample
+     */
+    public static double[] resample(double[] voiceSample, float inputRate, float outputRate) {
+        PolyphaseResampler resampler = new PolyphaseResampler(inputRate, outputRate);
+        double[] output = new double[resampler.getMaxOutputLength(voiceSample.length)];
+        int length = resampler.process(voiceSample, 0, voiceSample.length, output, 0);
+        return length == output.length ? output : Arrays.copyOf(output, length);
+    }
+
+    /**
+     * Get the largest number of samples the next call to {@link #process(double[], int, int, double[], int)} 
+     * may output
+     * @param inputLength the number of input samples of that call
+     * @return the number of output samples
+     */
+    public int getMaxOutputLength(int inputLength) {
+        long end = consumed + inputLength;
+        if(nextInput >= end) {
+            return 0;
+        }
+        // outputs aligned on input samples nextInput (phase nextPhase) and after, up to end - 1
+        long remaining = (end - nextInput) * interpolation - nextPhase;
+        return (int) ((remaining + decimation - 1) / decimation);
+    }
+
+    /**
+     * Resamples the next chunk of the stream
+     * @param input the input samples
+     * @param offset the index of the first input sample
+     * @param length the number of input samples
+     * @param output the array receiving the output samples, 
+     * with room for at least {@link #getMaxOutputLength(int)} samples
+     * @param outputOffset the index of the first output sample
+     * @return the number of output samples
+     */
+    public int process(double[] input, int offset, int length, double[] output, int outputOffset) {
+        int history = taps - 1;
+        if(buffer.length < history + length) {
+            buffer = Arrays.copyOf(buffer, history + length);
+        }
+        System.arraycopy(input, offset, buffer, history, length);
+        
+        // buffer[history] holds the input sample of absolute index consumed
+        long end = consumed + length;
+        int count = 0;
+        while(nextInput < end) {
+            double[] phase = phases[nextPhase];
+            int current = (int) (nextInput - consumed) + history;
+            double sum = 0.0d;
+            for(int k = 0; k < taps; k++) {
+                sum += phase[k] * buffer[current - k];
+            }
+            output[outputOffset + count++] = sum;
+            
+            nextPhase += decimation;
+            nextInput += nextPhase / interpolation;
+            nextPhase %= interpolation;
+        }
+        
+        // keeps the latest samples for the next chunk
+        System.arraycopy(buffer, length, buffer, 0, history);
+        consumed = end;
+        return count;
+    }
+
+    /**
+     * Gets the shared filter phases for the given ratio, computing them on first use
+     * @param interpolation the upsampling factor L
+     * @param decimation the downsampling factor M
+     * @return the phases
+     */
+    private static double[][] getPhases(int interpolation, int decimation) {
+        String key = interpolation + "/" + decimation;
+        double[][] phases = PHASES_BY_RATIO.get(key);
+        if(phases == null) {
+            phases = computePhases(interpolation, decimation);
+            double[][] existing = PHASES_BY_RATIO.putIfAbsent(key, phases);
+            if(existing != null) {
+                phases = existing;
+            }
+        }
+        return phases;
+    }
+
+    /**
+     * Designs the low pass filter at the upsampled rate and splits it into phases
+     * @param interpolation the upsampling factor L
+     * @param decimation the downsampling factor M
+     * @return the phases
+     */
+    private static double[][] computePhases(int interpolation, int decimation) {
+        // frequencies relative to the input sample rate
+        double nyquist = 0.5d * Math.min(1.0d, (double) interpolation / decimation);
+        double transition = (1.0d - PASS_BAND) * nyquist;
+        double cutoff = nyquist - transition / 2;
+        // Kaiser's estimates for the filter length and window shape
+        int taps = (int) Math.ceil((STOP_BAND_ATTENUATION - 7.95d) / (14.36d * transition)) + 1;
+        double beta = 0.1102d * (STOP_BAND_ATTENUATION - 8.7d);
+        
+        int length = taps * interpolation;
+        double center = (length - 1) / 2.0d;
+        double normalization = besselI0(beta);
+        double[][] phases = new double[interpolation][taps];
+        for(int n = 0; n < length; n++) {
+            // time in input samples
+            double t = (n - center) / interpolation;
+            double x = 2.0d * cutoff * t;
+            double sinc = x == 0.0d ? 1.0d : Math.sin(Math.PI * x) / (Math.PI * x);
+            double ratio = (n - center) / center;
+            double window = besselI0(beta * Math.sqrt(Math.max(0.0d, 1.0d - ratio * ratio))) / normalization;
+            // gain of L makes up for the inserted zeros
+            phases[n % interpolation][n / interpolation] = 2.0d * cutoff * sinc * window;
+        }
+        return phases;
+    }
+
+    /**
+     * Modified Bessel function of the first kind, order 0, by its power series
+     * @param x the argument
+     * @return I0(x)
+     */
+    private static double besselI0(double x) {
+        double sum = 1.0d;
+        double term = 1.0d;
+        double halfX = x / 2.0d;
+        for(int k = 1; term > sum * 1E-12d; k++) {
+            term *= (halfX / k) * (halfX / k);
+            sum += term;
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while(b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -16,8 +16,8 @@
  */
 package com.bitsinharmony.recognito.algorithms.windowing;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Hamming Window Function
@@ -31,7 +31,8 @@ import java.util.Map;
 public class HammingWindowFunction 
         extends WindowFunction {
 
-    private static final Map<Integer, double[]> factorsByWindowSize = new HashMap<Integer, double[]>();
+    // factors are never modified once published : lookups don't need any lock
+    private static final ConcurrentMap<Integer, double[]> factorsByWindowSize = new ConcurrentHashMap<Integer, double[]>();
 
     /**
      * Constructor imposed by WindowFunction
@@ -45,20 +46,19 @@ public class HammingWindowFunction
     @Override
     protected double[] getPrecomputedFactors(int windowSize) {
         // precompute factors for given window, avoid re-calculating for several instances
-        synchronized (HammingWindowFunction.class) {
-            double[] factors;
-            if(factorsByWindowSize.containsKey(windowSize)) {
-                factors = factorsByWindowSize.get(windowSize);
-            } else {
-                factors = new double[windowSize];
-                int sizeMinusOne = windowSize - 1;
-                for(int i = 0; i < windowSize; i++) {
-                    factors[i] = 0.54d - (0.46d * Math.cos((TWO_PI * i) / sizeMinusOne));
-                }
-                factorsByWindowSize.put(windowSize, factors);
+        double[] factors = factorsByWindowSize.get(windowSize);
+        if(factors == null) {
+            factors = new double[windowSize];
+            int sizeMinusOne = windowSize - 1;
+            for(int i = 0; i < windowSize; i++) {
+                factors[i] = 0.54d - (0.46d * Math.cos((TWO_PI * i) / sizeMinusOne));
+            }
+            double[] existing = factorsByWindowSize.putIfAbsent(windowSize, factors);
+            if(existing != null) {
+                factors = existing;
             }
-            return factors;
         }
+        return factors;
     }
 
 }
@@ -59,6 +59,26 @@ public abstract class WindowFunction {
         }
     }
 
+    /**
+     * Copies a window out of the source array while applying the window function, in a single pass
+     * @param source the array to read from, e.g. a whole voice sample
+     * @param sourceOffset the index of the first element of the window in the source array
+     * @param window receives the windowed copy, must be of the window size of this instance
+     */
+    public void applyFunction(double[] source, int sourceOffset, double[] window) {
+        if (window.length != this.windowSize) {
+            throw new IllegalArgumentException("Incompatible window size for this WindowFunction instance : " +
+                    "expected " + windowSize + ", received " + window.length);
+        }
+        if (sourceOffset < 0 || sourceOffset + windowSize > source.length) {
+            throw new IllegalArgumentException("The window doesn't fit in the source array : offset " + sourceOffset 
+                    + ", window size " + windowSize + ", source length " + source.length);
+        }
+        for (int i = 0; i < windowSize; i++) {
+            window[i] = source[sourceOffset + i] * factors[i];
+        }
+    }
+
     /**
      * Precomputes factors to be applied for this function, called from constructor<br/>
      * Implementing classes are strongly advised to cache the results for subsequent instances
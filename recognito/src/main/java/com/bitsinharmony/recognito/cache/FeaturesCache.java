@@ -0,0 +1,293 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.cache;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded cache of the features extracted from voice samples, keyed by a hash of the samples
+ * <p>
+ * Resubmitting the same recording, e.g. on retries or duplicate uploads, then costs a hash of the samples instead of 
+ * silence removal, normalization and features extraction. See {@code Recognito#setFeaturesCache(FeaturesCache)}.
+ * </p>
+ * <p>
+ * The in-memory entries are evicted in least recently used order once the maximum number of entries is reached, 
+ * and expire after the given time to live following their creation. An optional {@link FeaturesStore} provides a 
+ * persistent tier : it is looked up on memory misses, and receives every newly extracted set of features. 
+ * The time to live doesn't apply to that tier, the features of a given sample never change.
+ * </p>
+ * <p>
+ * The features depend on the features extractor in use, whose kind is part of the {@link SampleKey} : a cache, 
+ * persistent tier included, may be shared by Recognito instances using different kinds of features extractors.
+ * </p>
+ * <p>
+ * Threading : this class is thread safe
+ * </p>
+ * @author Amaury Crickx
+ */
+public class FeaturesCache {
+
+    private final int maxEntries;
+    private final long timeToLiveNanos;
+    private final FeaturesStore store;
+    private final Map<SampleKey, CachedFeatures> entries;
+    // explicit lock rather than monitors : a virtual thread blocking on it doesn't pin its carrier thread
+    private final Lock lock = new ReentrantLock();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong storeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong storeFailures = new AtomicLong();
+
+    /**
+     * Constructor for a cache whose entries never expire, without persistent tier
+     * @param maxEntries the maximum number of entries kept in memory, at least 1
+     */
+    public FeaturesCache(int maxEntries) {
+        this(maxEntries, Long.MAX_VALUE, TimeUnit.NANOSECONDS, null);
+    }
+
+    /**
+     * Constructor for a cache without persistent tier
+     * @param maxEntries the maximum number of entries kept in memory, at least 1
+     * @param timeToLive the time an entry is kept in memory after its creation, strictly positive
+     * @param unit the time unit of timeToLive
+     */
+    public FeaturesCache(int maxEntries, long timeToLive, TimeUnit unit) {
+        this(maxEntries, timeToLive, unit, null);
+    }
+
+    /**
+     * Full constructor
+     * @param maxEntries the maximum number of entries kept in memory, at least 1
+     * @param timeToLive the time an entry is kept in memory after its creation, strictly positive
+     * @param unit the time unit of timeToLive
+     * @param store the persistent tier, may be null
+     */
+    public FeaturesCache(int maxEntries, long timeToLive, TimeUnit unit, FeaturesStore store) {
+        if(maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries should be at least 1, received [" + maxEntries + "]");
+        }
+        if(timeToLive <= 0) {
+            throw new IllegalArgumentException("timeToLive should be strictly positive, received [" + timeToLive + "]");
+        }
+        this.maxEntries = maxEntries;
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        this.store = store;
+        this.entries = new LinkedHashMap<SampleKey, CachedFeatures>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SampleKey, CachedFeatures> eldest) {
+                if(size() > FeaturesCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the features cached for the given key, looking up the persistent tier on memory misses
+     * @param key the key
+     * @return a copy of the features or null if none are cached
+     */
+    public double[] get(SampleKey key) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            CachedFeatures cached = entries.get(key);
+            if(cached != null) {
+                if(now - cached.created < timeToLiveNanos) {
+                    hits.incrementAndGet();
+                    return Arrays.copyOf(cached.features, cached.features.length);
+                }
+                entries.remove(key);
+                expirations.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+        double[] features = load(key);
+        if(features == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        storeHits.incrementAndGet();
+        putInMemory(key, features, now);
+        return Arrays.copyOf(features, features.length);
+    }
+
+    /**
+     * Caches the features extracted for the given key, in memory and in the persistent tier if any
+     * @param key the key
+     * @param features the features, copied
+     */
+    public void put(SampleKey key, double[] features) {
+        double[] copy = Arrays.copyOf(features, features.length);
+        putInMemory(key, copy, System.nanoTime());
+        if(store != null) {
+            try {
+                store.save(key, copy);
+            } catch (IOException e) {
+                storeFailures.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes all the entries kept in memory, the persistent tier is left untouched
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the expired entries kept in memory. Expired entries are otherwise removed when looked up or evicted
+     */
+    public void removeExpired() {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            for(Iterator<CachedFeatures> it = entries.values().iterator(); it.hasNext();) {
+                if(now - it.next().created >= timeToLiveNanos) {
+                    it.remove();
+                    expirations.incrementAndGet();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of entries kept in memory, expired ones included until removed
+     * @return the count
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of lookups answered from memory
+     * @return the count
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of lookups answered by the persistent tier
+     * @return the count
+     */
+    public long getStoreHitCount() {
+        return storeHits.get();
+    }
+
+    /**
+     * Get the number of lookups answered by neither tier, i.e. the number of features extractions
+     * @return the count
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Get the share of lookups answered by either tier
+     * @return the ratio between 0.0 and 1.0, or 0.0 if no lookup happened yet
+     */
+    public double getHitRatio() {
+        long found = hits.get() + storeHits.get();
+        long total = found + misses.get();
+        return total == 0 ? 0.0d : (double) found / total;
+    }
+
+    /**
+     * Get the number of entries evicted from memory because the maximum number of entries was reached
+     * @return the count
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Get the number of entries removed from memory because their time to live elapsed
+     * @return the count
+     */
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    /**
+     * Get the number of failed reads or writes of the persistent tier
+     * @return the count
+     */
+    public long getStoreFailureCount() {
+        return storeFailures.get();
+    }
+
+    private double[] load(SampleKey key) {
+        if(store == null) {
+            return null;
+        }
+        try {
+            return store.load(key);
+        } catch (IOException e) {
+            storeFailures.incrementAndGet();
+            return null;
+        }
+    }
+
+    private void putInMemory(SampleKey key, double[] features, long created) {
+        lock.lock();
+        try {
+            entries.put(key, new CachedFeatures(features, created));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class CachedFeatures {
+        private final double[] features;
+        private final long created;
+
+        CachedFeatures(double[] features, long created) {
+            this.features = features;
+            this.created = created;
+        }
+    }
+}
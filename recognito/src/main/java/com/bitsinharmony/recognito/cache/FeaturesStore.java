@@ -0,0 +1,50 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.cache;
+
+import java.io.IOException;
+
+/**
+ * A persistent tier behind a {@link FeaturesCache}, allowing cached features to survive restarts
+ * <p>
+ * Failures are reported by means of an IOException : the cache then behaves as if the features were not stored, 
+ * they are extracted again.
+ * </p>
+ * <p>
+ * Threading : implementations must be thread safe
+ * </p>
+ * @author Amaury Crickx
+ * @see FileFeaturesStore
+ */
+public interface FeaturesStore {
+
+    /**
+     * Loads the features stored for the given key
+     * @param key the key
+     * @return the features or null if none are stored
+     * @throws IOException when the store could not be read
+     */
+    double[] load(SampleKey key) throws IOException;
+
+    /**
+     * Stores the features for the given key, replacing the previous ones if any
+     * @param key the key
+     * @param features the features
+     * @throws IOException when the store could not be written
+     */
+    void save(SampleKey key, double[] features) throws IOException;
+}
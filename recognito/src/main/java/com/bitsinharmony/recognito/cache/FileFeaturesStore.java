@@ -0,0 +1,111 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A {@link FeaturesStore} keeping one small binary file per voice sample in a directory
+ * <p>
+ * Files are written to a temporary file first, then renamed : readers never see a partially written file.
+ * Files are named after the {@link SampleKey}, kind of features included : features extracted by several kinds 
+ * of features extractors may share a directory. Files are kept until deleted.
+ * </p>
+ * <p>
+ * Threading : this class is thread safe
+ * </p>
+ * @author Amaury Crickx
+ */
+public class FileFeaturesStore 
+        implements FeaturesStore {
+
+    private static final int MAGIC = 0x52434746; // RCGF
+    private static final String SUFFIX = ".features";
+
+    private final File directory;
+
+    /**
+     * Default constructor
+     * @param directory the directory holding the files, created if needed
+     * @throws IOException when the directory could not be created
+     */
+    public FileFeaturesStore(File directory) throws IOException {
+        if(directory == null) {
+            throw new IllegalArgumentException("The directory may not be null");
+        }
+        if(!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory [" + directory + "]");
+        }
+        this.directory = directory;
+    }
+
+    @Override
+    public double[] load(SampleKey key) throws IOException {
+        File file = getFile(key);
+        if(!file.isFile()) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if(in.readInt() != MAGIC) {
+                throw new IOException("Not a features file [" + file + "]");
+            }
+            double[] features = new double[in.readInt()];
+            for(int i = 0; i < features.length; i++) {
+                features[i] = in.readDouble();
+            }
+            return features;
+        } finally {
+            in.close();
+        }
+    }
+
+    @Override
+    public void save(SampleKey key, double[] features) throws IOException {
+        File file = getFile(key);
+        File tmp = File.createTempFile(key.toString(), ".tmp", directory);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(features.length);
+                for(double feature : features) {
+                    out.writeDouble(feature);
+                }
+            } finally {
+                out.close();
+            }
+            // same content for a given key, kind of features included : replacing a concurrent write is harmless
+            if(!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+                throw new IOException("Could not rename [" + tmp + "] to [" + file + "]");
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private File getFile(SampleKey key) {
+        return new File(directory, key.toString() + SUFFIX);
+    }
+}
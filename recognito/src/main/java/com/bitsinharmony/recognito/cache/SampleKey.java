@@ -0,0 +1,237 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.cache;
+
+import com.bitsinharmony.recognito.samples.SampleSource;
+
+/**
+ * Identifies the features of a voice sample by a 128 bits hash of its values, its length, its sample rate 
+ * and the kind of features extracted from it
+ * <p>
+ * The hash is meant to be fast, not cryptographic : each value is mixed into two independent 64 bits states, 
+ * which makes accidental collisions between distinct recordings vanishingly unlikely. A voice sample passed as 
+ * an array of doubles and a {@link SampleSource} holding the same values have the same key. The same voice sample 
+ * analyzed by features extractors of different kinds has distinct keys, 
+ * see {@link com.bitsinharmony.recognito.features.FeaturesExtractorFactory#getFeaturesKind()}.
+ * </p>
+ * <p>
+ * Threading : this class is immutable, hence thread safe
+ * </p>
+ * @author Amaury Crickx
+ */
+public final class SampleKey {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final long SEED_1 = 0xcbf29ce484222325L;
+    private static final long SEED_2 = 0x9e3779b97f4a7c15L;
+    private static final long PRIME_1 = 0x100000001b3L;
+    private static final long PRIME_2 = 0x87c37b91114253d5L;
+    private static final long PRIME_3 = 0x4cf5ad432745937fL;
+
+    private final long hash1;
+    private final long hash2;
+    private final int length;
+    private final float sampleRate;
+    private final String featuresKind;
+
+    /**
+     * Constructor for keys read back from a persistent store
+     * @param hash1 the first half of the hash
+     * @param hash2 the second half of the hash
+     * @param length the length of the voice sample
+     * @param sampleRate the sample rate of the voice sample
+     * @param featuresKind the kind of features extracted from the voice sample
+     * @throws IllegalArgumentException if featuresKind is null
+     */
+    public SampleKey(long hash1, long hash2, int length, float sampleRate, String featuresKind) {
+        if(featuresKind == null) {
+            throw new IllegalArgumentException("The features kind may not be null");
+        }
+        this.hash1 = hash1;
+        this.hash2 = hash2;
+        this.length = length;
+        this.sampleRate = sampleRate;
+        this.featuresKind = featuresKind;
+    }
+
+    /**
+     * Computes the key of the given voice sample
+     * @param voiceSample the voice sample
+     * @param sampleRate the sample rate
+     * @param featuresKind the kind of features extracted from the voice sample
+     * @return the key
+     * @throws IllegalArgumentException if featuresKind is null
+     */
+    public static SampleKey of(double[] voiceSample, float sampleRate, String featuresKind) {
+        Hasher hasher = new Hasher();
+        hasher.update(voiceSample, voiceSample.length);
+        return hasher.toKey(voiceSample.length, sampleRate, featuresKind);
+    }
+
+    /**
+     * Computes the key of the given voice sample, reading it a buffer at a time
+     * @param voiceSample the voice sample
+     * @param sampleRate the sample rate
+     * @param featuresKind the kind of features extracted from the voice sample
+     * @return the key
+     * @throws IllegalArgumentException if featuresKind is null
+     */
+    public static SampleKey of(SampleSource voiceSample, float sampleRate, String featuresKind) {
+        Hasher hasher = new Hasher();
+        int length = voiceSample.getLength();
+        double[] buffer = new double[Math.min(BUFFER_SIZE, length)];
+        for(int offset = 0; offset < length; offset += buffer.length) {
+            int count = Math.min(buffer.length, length - offset);
+            voiceSample.read(offset, buffer, 0, count);
+            hasher.update(buffer, count);
+        }
+        return hasher.toKey(length, sampleRate, featuresKind);
+    }
+
+    /**
+     * Get the first half of the hash
+     * @return the value
+     */
+    public long getHash1() {
+        return hash1;
+    }
+
+    /**
+     * Get the second half of the hash
+     * @return the value
+     */
+    public long getHash2() {
+        return hash2;
+    }
+
+    /**
+     * Get the length of the voice sample
+     * @return the length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Get the sample rate of the voice sample
+     * @return the sample rate
+     */
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Get the kind of features extracted from the voice sample
+     * @return the kind of features
+     */
+    public String getFeaturesKind() {
+        return featuresKind;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash1 ^ (hash1 >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj) {
+            return true;
+        }
+        if(!(obj instanceof SampleKey)) {
+            return false;
+        }
+        SampleKey other = (SampleKey) obj;
+        return hash1 == other.hash1 && hash2 == other.hash2 && length == other.length 
+                && Float.floatToIntBits(sampleRate) == Float.floatToIntBits(other.sampleRate) 
+                && featuresKind.equals(other.featuresKind);
+    }
+
+    /**
+     * Returns a representation of this key fit for a file name : hexadecimal digits followed by the kind of features, 
+     * where characters other than ASCII letters, digits, '-' and '.' are escaped as '_' and 4 hexadecimal digits
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(toHex(hash1)).append(toHex(hash2)).append('-').append(Integer.toHexString(length))
+                .append('-').append(Integer.toHexString(Float.floatToIntBits(sampleRate))).append('-');
+        for(int i = 0; i < featuresKind.length(); i++) {
+            char c = featuresKind.charAt(i);
+            if((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '.') {
+                sb.append(c);
+            } else {
+                String hex = Integer.toHexString(c);
+                sb.append('_');
+                for(int j = hex.length(); j < 4; j++) {
+                    sb.append('0');
+                }
+                sb.append(hex);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String toHex(long value) {
+        String hex = Long.toHexString(value);
+        StringBuilder sb = new StringBuilder(16);
+        for(int i = hex.length(); i < 16; i++) {
+            sb.append('0');
+        }
+        return sb.append(hex).toString();
+    }
+
+    /**
+     * Mixes the bits of each value into two states, FNV-1a on 64 bits words for the first one and 
+     * a multiply-rotate scheme for the second one
+     */
+    private static final class Hasher {
+
+        private long h1 = SEED_1;
+        private long h2 = SEED_2;
+
+        void update(double[] values, int count) {
+            for(int i = 0; i < count; i++) {
+                long bits = Double.doubleToLongBits(values[i]);
+                h1 = (h1 ^ bits) * PRIME_1;
+                h2 = Long.rotateLeft(h2 ^ (bits * PRIME_2), 31) * PRIME_3;
+            }
+        }
+
+        SampleKey toKey(int length, float sampleRate, String featuresKind) {
+            if(featuresKind == null) {
+                throw new IllegalArgumentException("The features kind may not be null");
+            }
+            long kind = featuresKind.hashCode();
+            return new SampleKey(mix(h1 ^ length), mix(h2 ^ Float.floatToIntBits(sampleRate) ^ (kind << 32)), 
+                    length, sampleRate, featuresKind);
+        }
+
+        /**
+         * Final avalanche step, so that every bit of the state affects every bit of the hash
+         */
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -16,6 +16,9 @@
  */
 package com.bitsinharmony.recognito.enhancements;
 
+import com.bitsinharmony.recognito.samples.SampleSource;
+import com.bitsinharmony.recognito.vad.VoicedSegments;
+
 /**
  * Nomalizes gain of the given voice sample.
  * I.e. : looks for the highest value (positive or negative) and applies uniform gain on all samples
@@ -29,6 +32,8 @@ package com.bitsinharmony.recognito.enhancements;
  */
 public class Normalizer {
 
+    private static final int BUFFER_SIZE = 4096;
+
     /**
      * Normalize gain of the given sample. The given audio buffer is directly modified.
      * @param audioSample the voice sample
@@ -36,13 +41,31 @@ public class Normalizer {
      * @return the applied factor (i.e. 1.0 / Math.abs(maxValue))
      */
     public double normalize(double[] audioSample, float sampleRate) {
+        return normalize(audioSample, VoicedSegments.whole(audioSample.length), sampleRate);
+    }
+
+    /**
+     * Normalize gain of the voiced parts of the given sample. Only the voiced parts are read and modified, 
+     * giving the same values as normalizing a copy of the sample with silence removed.
+     * @param audioSample the voice sample
+     * @param segments the voiced parts of the sample
+     * @param sampleRate the sample rate
+     * @return the applied factor (i.e. 1.0 / Math.abs(maxValue))
+     */
+    public double normalize(double[] audioSample, VoicedSegments segments, float sampleRate) {
 
+        if(segments.getSourceLength() != audioSample.length) {
+            throw new IllegalArgumentException("The voiced segments don't relate to a sample of this length");
+        }
         double max = Double.MIN_VALUE;
 
-        for (int i = 0; i < audioSample.length; i++) {
-            double abs = Math.abs(audioSample[i]);
-            if (abs > max) {
-                max = abs;
+        for (int s = 0; s < segments.getSegmentCount(); s++) {
+            int end = segments.getEnd(s);
+            for (int i = segments.getStart(s); i < end; i++) {
+                double abs = Math.abs(audioSample[i]);
+                if (abs > max) {
+                    max = abs;
+                }
             }
         }
         if(max > 1.0d) {
@@ -51,10 +74,72 @@ public class Normalizer {
         if (max < 5 * Math.ulp(0.0d)) { // ulp of 0.0 is extremely small ! i.e. as small as it can get
             return 1.0d;
         }
-        for (int i = 0; i < audioSample.length; i++) {
-            audioSample[i] /= max;
+        for (int s = 0; s < segments.getSegmentCount(); s++) {
+            int end = segments.getEnd(s);
+            for (int i = segments.getStart(s); i < end; i++) {
+                audioSample[i] /= max;
+            }
         }
         return 1.0d / max;
     }
 
+    /**
+     * Normalize gain of the given sample, lazily. The source is read once in order to find the highest value, 
+     * the gain is applied as the returned view is read
+     * @param audioSample the voice sample
+     * @param sampleRate the sample rate
+     * @return a normalized view of the voice sample, or the given voice sample if it only contains zeroes
+     */
+    public SampleSource normalize(SampleSource audioSample, float sampleRate) {
+
+        double max = Double.MIN_VALUE;
+
+        double[] buffer = new double[Math.min(BUFFER_SIZE, audioSample.getLength())];
+        for (int offset = 0; offset < audioSample.getLength(); offset += buffer.length) {
+            int length = Math.min(buffer.length, audioSample.getLength() - offset);
+            audioSample.read(offset, buffer, 0, length);
+            for (int i = 0; i < length; i++) {
+                double abs = Math.abs(buffer[i]);
+                if (abs > max) {
+                    max = abs;
+                }
+            }
+        }
+        if(max > 1.0d) {
+            throw new IllegalArgumentException("Expected value for audio are in the range -1.0 <= v <= 1.0 ");
+        }
+        if (max < 5 * Math.ulp(0.0d)) { // ulp of 0.0 is extremely small ! i.e. as small as it can get
+            return audioSample;
+        }
+        return new NormalizedSampleSource(audioSample, max);
+    }
+
+    /**
+     * Divides the samples of the underlying source by the highest value as they are read
+     */
+    private static final class NormalizedSampleSource 
+            extends SampleSource {
+
+        private final SampleSource source;
+        private final double max;
+
+        NormalizedSampleSource(SampleSource source, double max) {
+            this.source = source;
+            this.max = max;
+        }
+
+        @Override
+        public int getLength() {
+            return source.getLength();
+        }
+
+        @Override
+        public void read(int offset, double[] dest, int destOffset, int length) {
+            source.read(offset, dest, destOffset, length);
+            for (int i = 0; i < length; i++) {
+                dest[destOffset + i] /= max;
+            }
+        }
+    }
+
 }
@@ -0,0 +1,44 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.features;
+
+/**
+ * Creates the features extractors used by {@link com.bitsinharmony.recognito.Recognito}
+ * <p>
+ * Features extractors reuse internal buffers and are generally not thread safe : 
+ * a new instance is requested for each voice sample.
+ * </p>
+ * @author Amaury Crickx
+ * @see com.bitsinharmony.recognito.Recognito#setFeaturesExtractorFactory(FeaturesExtractorFactory)
+ */
+public interface FeaturesExtractorFactory {
+
+    /**
+     * Creates a features extractor for voice samples of the given sample rate
+     * @param sampleRate the sample rate
+     * @return the features extractor
+     */
+    public FeaturesExtractor<double[]> newFeaturesExtractor(float sampleRate);
+
+    /**
+     * Identifies the features extracted, e.g. "lpc-20" : factories of the same kind extract features of the same 
+     * length that may be compared to each other, whatever the way they compute them
+     * @return the kind of features
+     */
+    public String getFeaturesKind();
+
+}
@@ -16,51 +16,207 @@
  */
 package com.bitsinharmony.recognito.features;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
 import com.bitsinharmony.recognito.algorithms.LinearPredictiveCoding;
 import com.bitsinharmony.recognito.algorithms.windowing.HammingWindowFunction;
 import com.bitsinharmony.recognito.algorithms.windowing.WindowFunction;
+import com.bitsinharmony.recognito.samples.SampleSource;
 
 public class LpcFeaturesExtractor 
         extends WindowedFeaturesExtractor<double[]> {
 
+    /**
+     * Minimum number of windows handled by a segment in parallel mode, shorter samples are processed sequentially
+     */
+    public static final int MIN_WINDOWS_PER_SEGMENT = 256;
+
     private final int poles;
     private final WindowFunction windowFunction;
     private final LinearPredictiveCoding lpc;
+    private final Executor executor;
+    private final int parallelism;
 
     public LpcFeaturesExtractor(float sampleRate, int poles) {
+        this(sampleRate, poles, null, 1);
+    }
+
+    /**
+     * Constructor for the parallel mode, suited for long recordings
+     * <p>
+     * The voice sample is split into window aligned segments of at least {@link #MIN_WINDOWS_PER_SEGMENT} windows, 
+     * each one processed by a task of the given executor with its own {@code LinearPredictiveCoding} and 
+     * window buffer. Each task computes the partial sums of the LPC coefficients of its windows, partial sums 
+     * are then added in segment order. The calling thread takes part in the work : segments not yet picked up 
+     * by the executor, or rejected by it, are processed by the calling thread. It's thus safe to use the same 
+     * executor for the callers and the segments.
+     * </p>
+     * <p>
+     * Results are deterministic. They differ from the sequential ones only by the order in which the coefficients 
+     * are summed : the relative difference of each feature stays within n * 2^-52 of the sum of the absolute values 
+     * of its coefficients, n being the number of windows, i.e. well below 1E-9 for recordings of a few hours.
+     * </p>
+     * @param sampleRate the sample rate of the voice samples, minimum 8000.0
+     * @param poles the number of poles, i.e. the number of features extracted
+     * @param executor the executor running the segments, null for sequential processing
+     * @param parallelism the maximum number of segments, typically the number of available processors
+     */
+    public LpcFeaturesExtractor(float sampleRate, int poles, Executor executor, int parallelism) {
         super(sampleRate);
+        if(parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism should be at least 1, received [" + parallelism + "]");
+        }
         this.poles = poles;
         this.windowFunction = new HammingWindowFunction(windowSize);
         this.lpc = new LinearPredictiveCoding(windowSize, poles);
+        this.executor = executor;
+        this.parallelism = parallelism;
     }
 
     @Override
     public double[] extractFeatures(double[] voiceSample) {
+        return extractFeatures(SampleSource.of(voiceSample));
+    }
+
+    /**
+     * Extracts the features reading the source a window at a time
+     * @see WindowedFeaturesExtractor#extractFeatures(SampleSource)
+     */
+    @Override
+    public double[] extractFeatures(SampleSource voiceSample) {
 
         double[] voiceFeatures = new double[poles];
-        double[] audioWindow = new double[windowSize];
+        int windows = getWindowCount(voiceSample.getLength());
+        int segments = executor == null ? 1 : Math.min(parallelism, windows / MIN_WINDOWS_PER_SEGMENT);
+
+        int counter;
+        if(segments > 1) {
+            counter = sumSegments(voiceSample, windows, segments, voiceFeatures);
+        } else {
+            counter = sumWindows(voiceSample, 0, windows, lpc, new double[windowSize], voiceFeatures);
+        }
+
+        if (counter > 1) {
+            for (int i = 0; i < poles; i++) {
+                voiceFeatures[i] /= counter;
+            }
+        }
+        return voiceFeatures;
+    }
+
+    /**
+     * Adds the LPC coefficients of a range of windows to the given sums
+     * @param voiceSample the voice sample
+     * @param firstWindow the index of the first window, inclusive
+     * @param lastWindow the index of the last window, exclusive
+     * @param lpc the LinearPredictiveCoding instance, owned by the calling thread
+     * @param audioWindow the window buffer, owned by the calling thread
+     * @param sums receives the sums of the coefficients
+     * @return the number of windows processed
+     */
+    private int sumWindows(SampleSource voiceSample, int firstWindow, int lastWindow, 
+            LinearPredictiveCoding lpc, double[] audioWindow, double[] sums) {
 
         int counter = 0;
         int halfWindowLength = windowSize / 2;
 
-        for (int i = 0; (i + windowSize) <= voiceSample.length; i += halfWindowLength) {
+        for (int i = firstWindow * halfWindowLength; counter < lastWindow - firstWindow; i += halfWindowLength) {
 
-            System.arraycopy(voiceSample, i, audioWindow, 0, windowSize);
-
-            windowFunction.applyFunction(audioWindow);
+            voiceSample.readWindow(i, windowFunction, audioWindow);
             double[] lpcCoeffs = lpc.applyLinearPredictiveCoding(audioWindow)[0];
 
             for (int j = 0; j < poles; j++) {
-                voiceFeatures[j] += lpcCoeffs[j];
+                sums[j] += lpcCoeffs[j];
             }
             counter++;
         }
+        return counter;
+    }
 
-        if (counter > 1) {
-            for (int i = 0; i < poles; i++) {
-                voiceFeatures[i] /= counter;
+    /**
+     * Splits the windows into segments processed concurrently, then reduces their partial sums in segment order
+     * @return the number of windows processed
+     */
+    private int sumSegments(final SampleSource voiceSample, int windows, int segments, double[] sums) {
+        List<FutureTask<Integer>> tasks = new ArrayList<FutureTask<Integer>>(segments);
+        final double[][] partialSums = new double[segments][poles];
+        for (int s = 0; s < segments; s++) {
+            final int segment = s;
+            final int firstWindow = (int) ((long) windows * s / segments);
+            final int lastWindow = (int) ((long) windows * (s + 1) / segments);
+            FutureTask<Integer> task = new FutureTask<Integer>(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    LinearPredictiveCoding segmentLpc = new LinearPredictiveCoding(windowSize, poles);
+                    return sumWindows(voiceSample, firstWindow, lastWindow, segmentLpc, new double[windowSize], 
+                            partialSums[segment]);
+                }
+            });
+            tasks.add(task);
+            if (s > 0) {
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    // the calling thread runs it below
+                }
             }
         }
-        return voiceFeatures;
+
+        int counter = 0;
+        for (int s = 0; s < segments; s++) {
+            FutureTask<Integer> task = tasks.get(s);
+            // runs the segment on this thread unless a worker already started it
+            task.run();
+            try {
+                counter += task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for features extraction", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Features extraction failed", e.getCause());
+            }
+            for (int j = 0; j < poles; j++) {
+                sums[j] += partialSums[s][j];
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Creates factories of LpcFeaturesExtractor
+     * @param poles the number of poles, i.e. the number of features extracted
+     * @return the factory
+     */
+    public static FeaturesExtractorFactory newFactory(final int poles) {
+        return newFactory(poles, null, 1);
+    }
+
+    /**
+     * Creates factories of LpcFeaturesExtractor working in parallel mode on long recordings
+     * @param poles the number of poles, i.e. the number of features extracted
+     * @param executor the executor running the segments
+     * @param parallelism the maximum number of segments per voice sample
+     * @return the factory
+     * @see #LpcFeaturesExtractor(float, int, Executor, int)
+     */
+    public static FeaturesExtractorFactory newFactory(final int poles, final Executor executor, final int parallelism) {
+        return new FeaturesExtractorFactory() {
+            @Override
+            public FeaturesExtractor<double[]> newFeaturesExtractor(float sampleRate) {
+                return new LpcFeaturesExtractor(sampleRate, poles, executor, parallelism);
+            }
+
+            @Override
+            public String getFeaturesKind() {
+                // the parallel mode extracts the same features
+                return "lpc-" + poles;
+            }
+        };
     }
 }
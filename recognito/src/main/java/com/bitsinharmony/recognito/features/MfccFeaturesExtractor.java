@@ -0,0 +1,171 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.features;
+
+import java.util.Arrays;
+
+import com.bitsinharmony.recognito.algorithms.FastFourierTransform;
+import com.bitsinharmony.recognito.algorithms.MelFilterBank;
+import com.bitsinharmony.recognito.algorithms.windowing.HammingWindowFunction;
+import com.bitsinharmony.recognito.algorithms.windowing.WindowFunction;
+import com.bitsinharmony.recognito.samples.SampleSource;
+
+/**
+ * Mel Frequency Cepstral Coefficients features extractor
+ * <p>
+ * Each window goes through a Hamming window, an FFT, a bank of triangular filters on the mel scale, a log 
+ * and a discrete cosine transform. The first cepstral coefficient, which only reflects the loudness of the window, 
+ * is dropped. As with {@link LpcFeaturesExtractor}, windows overlap by half their size and the features are 
+ * the average of the coefficients over all windows.
+ * </p>
+ * <p>
+ * The FFT plan and the filter bank are shared between instances using the same sample rate and window size.
+ * Buffers are allocated in the constructor, so that no memory is allocated per window.
+ * </p>
+ * <p>
+ * Threading : this class is _NOT_ thread safe
+ * </p>
+ * @see <a href="http://en.wikipedia.org/wiki/Mel-frequency_cepstrum">Mel-frequency cepstrum</a>
+ * @author Amaury Crickx
+ */
+public class MfccFeaturesExtractor 
+        extends WindowedFeaturesExtractor<double[]> {
+
+    /**
+     * Default number of mel filters
+     */
+    public static final int DEFAULT_FILTERS = 26;
+    
+    // floor of the filter energies, avoids log(0) for filters without energy
+    private static final double MIN_ENERGY = 1E-12d;
+
+    private final int coefficients;
+    private final WindowFunction windowFunction;
+    private final FastFourierTransform fft;
+    private final MelFilterBank filterBank;
+    private final double[][] dct;
+    private final double[] real;
+    private final double[] imaginary;
+    private final double[] powerSpectrum;
+    private final double[] energies;
+
+    /**
+     * Constructor using the default number of mel filters
+     * @param sampleRate the sample rate of the voice samples, minimum 8000.0
+     * @param coefficients the number of cepstral coefficients extracted, i.e. the number of features
+     */
+    public MfccFeaturesExtractor(float sampleRate, int coefficients) {
+        this(sampleRate, coefficients, DEFAULT_FILTERS);
+    }
+
+    /**
+     * Constructor
+     * @param sampleRate the sample rate of the voice samples, minimum 8000.0
+     * @param coefficients the number of cepstral coefficients extracted, i.e. the number of features
+     * @param filters the number of mel filters, greater than the number of coefficients
+     */
+    public MfccFeaturesExtractor(float sampleRate, int coefficients, int filters) {
+        super(sampleRate);
+        if(coefficients < 1 || coefficients >= filters) {
+            throw new IllegalArgumentException("Coefficients should be in the range 0 < coefficients < filters. " 
+                    + "Received [" + coefficients + "] for [" + filters + "] filters");
+        }
+        this.coefficients = coefficients;
+        this.windowFunction = new HammingWindowFunction(windowSize);
+        this.fft = FastFourierTransform.getInstance(windowSize);
+        this.filterBank = MelFilterBank.getInstance(sampleRate, windowSize, filters);
+        this.dct = new double[coefficients][filters];
+        for(int i = 0; i < coefficients; i++) {
+            for(int m = 0; m < filters; m++) {
+                // DCT-II, skipping coefficient 0
+                dct[i][m] = Math.cos(Math.PI * (i + 1) * (m + 0.5d) / filters);
+            }
+        }
+        this.real = new double[windowSize];
+        this.imaginary = new double[windowSize];
+        this.powerSpectrum = new double[windowSize / 2 + 1];
+        this.energies = new double[filters];
+    }
+
+    /**
+     * Creates factories of MfccFeaturesExtractor using the default number of mel filters
+     * @param coefficients the number of cepstral coefficients extracted, i.e. the number of features
+     * @return the factory
+     */
+    public static FeaturesExtractorFactory newFactory(final int coefficients) {
+        return new FeaturesExtractorFactory() {
+            @Override
+            public FeaturesExtractor<double[]> newFeaturesExtractor(float sampleRate) {
+                return new MfccFeaturesExtractor(sampleRate, coefficients);
+            }
+
+            @Override
+            public String getFeaturesKind() {
+                return "mfcc-" + coefficients;
+            }
+        };
+    }
+
+    @Override
+    public double[] extractFeatures(double[] voiceSample) {
+        return extractFeatures(SampleSource.of(voiceSample));
+    }
+
+    /**
+     * Extracts the features reading the source a window at a time
+     * @see WindowedFeaturesExtractor#extractFeatures(SampleSource)
+     */
+    @Override
+    public double[] extractFeatures(SampleSource voiceSample) {
+
+        double[] voiceFeatures = new double[coefficients];
+
+        int counter = 0;
+        int halfWindowLength = windowSize / 2;
+
+        for(int i = 0; (i + windowSize) <= voiceSample.getLength(); i += halfWindowLength) {
+
+            voiceSample.readWindow(i, windowFunction, real);
+            Arrays.fill(imaginary, 0.0d);
+            fft.forward(real, imaginary);
+            for(int bin = 0; bin < powerSpectrum.length; bin++) {
+                powerSpectrum[bin] = real[bin] * real[bin] + imaginary[bin] * imaginary[bin];
+            }
+
+            filterBank.apply(powerSpectrum, energies);
+            for(int m = 0; m < energies.length; m++) {
+                energies[m] = Math.log(Math.max(energies[m], MIN_ENERGY));
+            }
+            for(int j = 0; j < coefficients; j++) {
+                double[] basis = dct[j];
+                double coefficient = 0.0d;
+                for(int m = 0; m < energies.length; m++) {
+                    coefficient += basis[m] * energies[m];
+                }
+                voiceFeatures[j] += coefficient;
+            }
+            counter++;
+        }
+
+        if(counter > 1) {
+            for(int j = 0; j < coefficients; j++) {
+                voiceFeatures[j] /= counter;
+            }
+        }
+        return voiceFeatures;
+    }
+}
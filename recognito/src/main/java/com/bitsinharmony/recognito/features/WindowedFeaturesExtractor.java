@@ -16,6 +16,10 @@
  */
 package com.bitsinharmony.recognito.features;
 
+import com.bitsinharmony.recognito.algorithms.windowing.WindowFunction;
+import com.bitsinharmony.recognito.samples.SampleSource;
+import com.bitsinharmony.recognito.vad.VoicedSegments;
+
 /**
  * Base class for windowed features extractor
  * <p>
@@ -51,6 +55,31 @@ public abstract class WindowedFeaturesExtractor<T>
      */
     public abstract T extractFeatures(double[] voiceSample);
 
+    /**
+     * Extracts features from the voiced parts of the given voice sample, giving the same result as 
+     * {@link #extractFeatures(double[])} applied to a copy of the sample with silence removed
+     * @param voiceSample the voice sample to analyze
+     * @param segments the voiced parts of the voice sample
+     * @return An objet of type T representing the features
+     */
+    public T extractFeatures(double[] voiceSample, VoicedSegments segments) {
+        return extractFeatures(segments.getVoicedSamples(SampleSource.of(voiceSample)));
+    }
+
+    /**
+     * Extracts features from the given source, giving the same result as {@link #extractFeatures(double[])} 
+     * applied to the values of the source
+     * <p>
+     * This implementation does exactly that, implementing classes are advised to override it and read the source 
+     * a window at a time, e.g. by means of {@link SampleSource#readWindow(int, WindowFunction, double[])}
+     * </p>
+     * @param voiceSample the voice sample to analyze
+     * @return An objet of type T representing the features
+     */
+    public T extractFeatures(SampleSource voiceSample) {
+        return extractFeatures(voiceSample.toArray());
+    }
+
     /**
      * Called by the constructor of this class.
      * This implementation delegates to {@link #getClosestPowerOfTwoWindowSize(float, int)}
@@ -96,5 +125,26 @@ public abstract class WindowedFeaturesExtractor<T>
         return pow;
     }
     
+    /**
+     * Get the size of the windows the voice samples are analyzed with
+     * @return the window size
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+    
+    /**
+     * Get the number of windows processed when extracting the features of a voice sample of the given length,
+     * assuming windows overlap by half their size as done by the extractors of this package
+     * @param sampleLength the length of the voice sample
+     * @return the number of windows
+     */
+    public int getWindowCount(int sampleLength) {
+        if(sampleLength < windowSize) {
+            return 0;
+        }
+        return (sampleLength - windowSize) / (windowSize / 2) + 1;
+    }
+    
 }
 
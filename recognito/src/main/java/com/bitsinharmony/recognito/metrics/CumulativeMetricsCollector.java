@@ -0,0 +1,108 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link MetricsCollector} keeping running totals in memory
+ * <p>
+ * Suited for monitoring systems that poll their sources : read the totals periodically and export the 
+ * differences between two readings. Recording only involves a few atomic additions.
+ * </p>
+ * <p>
+ * Threading : this class is thread safe
+ * </p>
+ * @author Amaury Crickx
+ */
+public class CumulativeMetricsCollector 
+        implements MetricsCollector {
+
+    private final AtomicLongArray counts = new AtomicLongArray(Stage.values().length);
+    private final AtomicLongArray nanos = new AtomicLongArray(Stage.values().length);
+    private final AtomicLong silenceRatioSamples = new AtomicLong();
+    // sum of the ratios in millionths, a double can't be added atomically on Java 6
+    private final AtomicLong silenceRatioMicros = new AtomicLong();
+    private final AtomicLong windows = new AtomicLong();
+    private final AtomicLong candidatesScored = new AtomicLong();
+
+    @Override
+    public void recordTime(Stage stage, long nanos) {
+        counts.incrementAndGet(stage.ordinal());
+        this.nanos.addAndGet(stage.ordinal(), nanos);
+    }
+
+    @Override
+    public void recordSilenceRatio(double ratio) {
+        silenceRatioSamples.incrementAndGet();
+        silenceRatioMicros.addAndGet(Math.round(ratio * 1E6d));
+    }
+
+    @Override
+    public void recordWindows(int windows) {
+        this.windows.addAndGet(windows);
+    }
+
+    @Override
+    public void recordCandidatesScored(int candidates) {
+        candidatesScored.addAndGet(candidates);
+    }
+
+    /**
+     * Get the number of times the given stage was executed
+     * @param stage the stage
+     * @return the count
+     */
+    public long getCount(Stage stage) {
+        return counts.get(stage.ordinal());
+    }
+
+    /**
+     * Get the total time spent in the given stage
+     * @param stage the stage
+     * @return the time in nanoseconds
+     */
+    public long getTotalNanos(Stage stage) {
+        return nanos.get(stage.ordinal());
+    }
+
+    /**
+     * Get the average share of the voice samples removed as silence
+     * @return the average ratio, 0.0 if no sample was processed yet
+     */
+    public double getAverageSilenceRatio() {
+        long samples = silenceRatioSamples.get();
+        return samples == 0 ? 0.0d : silenceRatioMicros.get() / 1E6d / samples;
+    }
+
+    /**
+     * Get the total number of windows processed by features extraction
+     * @return the count
+     */
+    public long getWindows() {
+        return windows.get();
+    }
+
+    /**
+     * Get the total number of candidate voice prints scored
+     * @return the count
+     */
+    public long getCandidatesScored() {
+        return candidatesScored.get();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.metrics;
+
+/**
+ * Receives the measurements taken along Recognito's processing pipeline
+ * <p>
+ * Implementations typically forward the measurements to a monitoring system. Methods are called synchronously 
+ * from the processing threads and should thus return quickly : aggregate in memory and export asynchronously 
+ * rather than doing I/O from within these methods. Extending {@link MetricsCollectorAdapter} allows to only 
+ * override the measurements of interest.
+ * </p>
+ * <p>
+ * Threading : implementations must be thread safe, they're called concurrently by all threads using Recognito
+ * </p>
+ * @author Amaury Crickx
+ * @see com.bitsinharmony.recognito.Recognito#setMetricsCollector(MetricsCollector)
+ */
+public interface MetricsCollector {
+
+    /**
+     * Records the time spent in a stage of the pipeline, for a single voice sample or batch
+     * @param stage the stage
+     * @param nanos the elapsed time in nanoseconds
+     */
+    void recordTime(Stage stage, long nanos);
+
+    /**
+     * Records the share of a voice sample that was removed as silence by voice activity detection
+     * @param ratio the removed length divided by the original length, between 0.0 and 1.0
+     */
+    void recordSilenceRatio(double ratio);
+
+    /**
+     * Records the number of windows processed while extracting the features of a voice sample
+     * @param windows the number of windows
+     */
+    void recordWindows(int windows);
+
+    /**
+     * Records the number of candidate voice prints scored against a voice sample or batch
+     * @param candidates the number of distance calculations
+     */
+    void recordCandidatesScored(int candidates);
+}
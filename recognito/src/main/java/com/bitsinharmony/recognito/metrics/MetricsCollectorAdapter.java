@@ -0,0 +1,42 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.metrics;
+
+/**
+ * Empty implementation of {@link MetricsCollector}, meant to be extended by adapters to monitoring systems
+ * which only need part of the measurements
+ * @author Amaury Crickx
+ */
+public abstract class MetricsCollectorAdapter 
+        implements MetricsCollector {
+
+    @Override
+    public void recordTime(Stage stage, long nanos) {
+    }
+
+    @Override
+    public void recordSilenceRatio(double ratio) {
+    }
+
+    @Override
+    public void recordWindows(int windows) {
+    }
+
+    @Override
+    public void recordCandidatesScored(int candidates) {
+    }
+}
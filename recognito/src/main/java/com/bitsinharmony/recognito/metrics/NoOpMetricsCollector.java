@@ -0,0 +1,37 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.metrics;
+
+/**
+ * The default {@link MetricsCollector}, discarding all measurements
+ * <p>
+ * Its methods being empty, the JIT compiler inlines them away : the remaining cost of the instrumentation 
+ * is a couple of {@code System.nanoTime()} calls per stage, negligible compared to the stages themselves.
+ * </p>
+ * @author Amaury Crickx
+ */
+public final class NoOpMetricsCollector 
+        extends MetricsCollectorAdapter {
+
+    /**
+     * The shared instance
+     */
+    public static final NoOpMetricsCollector INSTANCE = new NoOpMetricsCollector();
+
+    private NoOpMetricsCollector() {
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.metrics;
+
+/**
+ * The stages of Recognito's processing pipeline whose duration is reported to a {@link MetricsCollector}
+ * @author Amaury Crickx
+ */
+public enum Stage {
+    /** Reading and decoding an audio file into a voice sample */
+    DECODE,
+    /** Voice activity detection, i.e. silence removal */
+    VAD,
+    /** Normalization of the voice sample */
+    NORMALIZE,
+    /** Extraction of the features : LPC by default, or whatever the selected features extractor computes */
+    FEATURES,
+    /** 
+     * Extraction of the features, whatever the selected features extractor
+     * @deprecated no longer reported, see {@link #FEATURES} 
+     */
+    @Deprecated
+    LPC,
+    /** Distance calculation between a voice print and the candidate voice prints */
+    SCORING,
+    /** Sorting of the match results by distance */
+    SORTING
+}
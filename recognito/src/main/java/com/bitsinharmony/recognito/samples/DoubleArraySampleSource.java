@@ -0,0 +1,52 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.samples;
+
+import com.bitsinharmony.recognito.algorithms.windowing.WindowFunction;
+
+/**
+ * Source reading an array of doubles, windows are copied and weighted in a single pass
+ * @author Amaury Crickx
+ */
+final class DoubleArraySampleSource 
+        extends SampleSource {
+
+    private final double[] voiceSample;
+
+    DoubleArraySampleSource(double[] voiceSample) {
+        if(voiceSample == null) {
+            throw new IllegalArgumentException("The voice sample may not be null");
+        }
+        this.voiceSample = voiceSample;
+    }
+
+    @Override
+    public int getLength() {
+        return voiceSample.length;
+    }
+
+    @Override
+    public void read(int offset, double[] dest, int destOffset, int length) {
+        checkRange(offset, length);
+        System.arraycopy(voiceSample, offset, dest, destOffset, length);
+    }
+
+    @Override
+    public void readWindow(int offset, WindowFunction windowFunction, double[] window) {
+        windowFunction.applyFunction(voiceSample, offset, window);
+    }
+}
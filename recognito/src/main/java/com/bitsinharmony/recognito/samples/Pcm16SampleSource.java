@@ -0,0 +1,60 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.samples;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Source reading 16 bit signed PCM samples out of a ByteBuffer, using absolute reads only
+ * @author Amaury Crickx
+ */
+final class Pcm16SampleSource 
+        extends SampleSource {
+
+    private final ByteBuffer buffer;
+    private final int base;
+    private final int length;
+
+    Pcm16SampleSource(ByteBuffer pcm16) {
+        if(pcm16 == null) {
+            throw new IllegalArgumentException("The buffer may not be null");
+        }
+        if(pcm16.remaining() % 2 != 0) {
+            throw new IllegalArgumentException("16 bit PCM requires an even number of bytes, received " 
+                    + pcm16.remaining());
+        }
+        // duplicate() resets the byte order, it has to be restored
+        this.buffer = pcm16.duplicate().order(pcm16.order());
+        this.base = pcm16.position();
+        this.length = pcm16.remaining() / 2;
+    }
+
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public void read(int offset, double[] dest, int destOffset, int length) {
+        checkRange(offset, length);
+        int index = base + 2 * offset;
+        for(int i = 0; i < length; i++) {
+            dest[destOffset + i] = (double) buffer.getShort(index) / 32768;
+            index += 2;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.samples;
+
+import java.nio.ByteBuffer;
+
+import com.bitsinharmony.recognito.algorithms.windowing.WindowFunction;
+
+/**
+ * A read-only voice sample whose values are converted to doubles between -1.0 and 1.0 as they are read
+ * <p>
+ * Voice samples are commonly available as 16 bit PCM or as floats. Converting them to an array of doubles beforehand 
+ * takes 4 times (resp. twice) the memory of the original samples. A {@code SampleSource} rather converts the 
+ * samples a window at a time, right when the analysis reads them. Processing stages may in turn expose their output 
+ * as a {@code SampleSource}, applying their transformation lazily, e.g. removing silence or normalizing.
+ * </p>
+ * <p>
+ * Threading : implementations must support concurrent reads, the instances returned by the factory methods of this 
+ * class do as long as the underlying data isn't modified
+ * </p>
+ * @author Amaury Crickx
+ */
+public abstract class SampleSource {
+
+    /**
+     * Get the number of samples
+     * @return the length
+     */
+    public abstract int getLength();
+
+    /**
+     * Reads samples, converted to doubles between -1.0 and 1.0
+     * @param offset the index of the first sample to read
+     * @param dest the destination array
+     * @param destOffset the index of the first element written in the destination array
+     * @param length the number of samples to read
+     */
+    public abstract void read(int offset, double[] dest, int destOffset, int length);
+
+    /**
+     * Reads a window of samples and applies the given window function on it. 
+     * Implementations may override this method in order to apply the function while reading
+     * @param offset the index of the first sample of the window
+     * @param windowFunction the window function
+     * @param window receives the windowed samples, must be of the window size of the window function
+     */
+    public void readWindow(int offset, WindowFunction windowFunction, double[] window) {
+        read(offset, window, 0, window.length);
+        windowFunction.applyFunction(window);
+    }
+
+    /**
+     * Reads all the samples into a new array
+     * @return the samples
+     */
+    public double[] toArray() {
+        double[] samples = new double[getLength()];
+        read(0, samples, 0, samples.length);
+        return samples;
+    }
+
+    /**
+     * Checks the requested range lies within this source
+     * @param offset the index of the first sample
+     * @param length the number of samples
+     */
+    protected final void checkRange(int offset, int length) {
+        if(offset < 0 || length < 0 || offset + length > getLength()) {
+            throw new IllegalArgumentException("Range [" + offset + ", " + (offset + length) 
+                    + "[ exceeds the sample length " + getLength());
+        }
+    }
+
+    /**
+     * Creates a source reading the given array, without copy
+     * @param voiceSample the voice sample, values between -1.0 and 1.0
+     * @return the source
+     */
+    public static SampleSource of(double[] voiceSample) {
+        return new DoubleArraySampleSource(voiceSample);
+    }
+
+    /**
+     * Creates a source reading the given 16 bit PCM array, without copy. Values are divided by 32768
+     * @param voiceSample the voice sample
+     * @return the source
+     */
+    public static SampleSource of(short[] voiceSample) {
+        return new ShortArraySampleSource(voiceSample);
+    }
+
+    /**
+     * Creates a source reading the given array, without copy
+     * @param voiceSample the voice sample, values between -1.0 and 1.0
+     * @return the source
+     */
+    public static SampleSource of(float[] voiceSample) {
+        return new FloatArraySampleSource(voiceSample);
+    }
+
+    /**
+     * Creates a source reading 16 bit signed PCM samples from the remaining bytes of the given buffer, without copy. 
+     * The byte order of the buffer is used, e.g. WAV files are little endian. Values are divided by 32768.
+     * The position and limit of the given buffer aren't modified
+     * @param pcm16 the buffer holding the voice sample
+     * @return the source
+     */
+    public static SampleSource ofPcm16(ByteBuffer pcm16) {
+        return new Pcm16SampleSource(pcm16);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Utility methods for creating the executors used by Recognito's asynchronous methods
+ * <p>
+ * The executors created here use a bounded submission queue : once all threads are busy and the queue is full,
+ * new tasks are handed to the rejection policy instead of piling up in memory.
+ * </p>
+ * @author Amaury Crickx
+ */
+public class ExecutorHelper {
+
+    /**
+     * Creates a fixed size executor with a bounded submission queue and daemon threads.
+     * Tasks submitted while the queue is full are rejected with a {@code RejectedExecutionException}
+     * @param threads the number of worker threads
+     * @param queueCapacity the maximum number of tasks waiting for a worker thread
+     * @return the executor
+     */
+    public static ExecutorService newBoundedExecutorService(int threads, int queueCapacity) {
+        return newBoundedExecutorService(threads, queueCapacity, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Creates a fixed size executor with a bounded submission queue and daemon threads.
+     * @param threads the number of worker threads
+     * @param queueCapacity the maximum number of tasks waiting for a worker thread
+     * @param rejectionPolicy the policy applied to tasks submitted while the queue is full
+     * @return the executor
+     */
+    public static ExecutorService newBoundedExecutorService(int threads, int queueCapacity,
+            RejectedExecutionHandler rejectionPolicy) {
+
+        if(threads < 1) {
+            throw new IllegalArgumentException("At least one thread is required, received [" + threads + "]");
+        }
+        if(queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity should be at least 1, received [" + queueCapacity + "]");
+        }
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new DaemonThreadFactory("recognito-worker"),
+                rejectionPolicy);
+    }
+
+    /**
+     * Creates an executor suited for blocking I/O tasks such as reading and decoding files.
+     * <p>
+     * On Java 21+, this is a virtual thread per task executor : blocked tasks don't hold on to a platform thread.
+     * On older JVMs, it falls back to a cached pool of daemon threads.
+     * The method is looked up reflectively in order to keep compatibility with older JVMs.
+     * </p>
+     * @return the executor
+     */
+    public static ExecutorService newIoExecutorService() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            // JVM older than Java 21
+        } catch (IllegalAccessException e) {
+            // not accessible, fall back
+        } catch (InvocationTargetException e) {
+            // virtual threads are a preview feature that wasn't enabled (Java 19 and 20)
+        }
+        return Executors.newCachedThreadPool(new DaemonThreadFactory("recognito-io"));
+    }
+
+    /**
+     * Creates named daemon threads so that pending work doesn't prevent the JVM from exiting
+     */
+    static final class DaemonThreadFactory
+            implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+        private final String prefix;
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -17,14 +17,25 @@
 package com.bitsinharmony.recognito.utils;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
+import com.bitsinharmony.recognito.algorithms.PolyphaseResampler;
+import com.bitsinharmony.recognito.samples.SampleSource;
+
 /**
  * Utility methods for loding voice samples from files
+ * <p>
+ * Files are converted to 16 bit PCM by the conversion capabilities of the javax.sound.sampled package, keeping 
+ * their number of channels. Recordings of several channels are then downmixed to mono as the bytes are decoded, 
+ * by averaging the channels of each frame : no intermediate mono stream nor buffer is involved.
+ * </p>
  * 
  * @author Amaury Crickx
  */
@@ -33,9 +44,260 @@ public class FileHelper {
     public static double[] readAudioInputStream(AudioInputStream is) 
             throws IOException, UnsupportedAudioFileException {
         
-        AudioFormat originalFormat = is.getFormat(); 
-        AudioFormat format = new AudioFormat(originalFormat.getSampleRate(), 16, 1, true, true);
+        AudioFormat format = getPcm16Format(is.getFormat());
+        AudioInputStream localIs = toPcm16(is, format);
+
+        double[] audioSample = new double[(int) Math.max(0, localIs.getFrameLength())];
+        byte[] buffer = newBuffer(format);
+        int bytesRead = 0;
+        int offset = 0;
+        
+        while((bytesRead = localIs.read(buffer)) > -1) {
+            int frameCount = bytesRead / format.getFrameSize();
+            if(offset + frameCount > audioSample.length) {
+                // more frames than announced, or unknown length
+                audioSample = Arrays.copyOf(audioSample, Math.max(2 * audioSample.length, offset + frameCount));
+            }
+            offset += decode(buffer, bytesRead, format, audioSample, offset);
+        }
+        return offset == audioSample.length ? audioSample : Arrays.copyOf(audioSample, offset);
+    }
+    
+    /**
+     * Reads the given stream as 16 bit signed big endian PCM, mono, without converting the samples to doubles.
+     * Takes a quarter of the memory of {@link #readAudioInputStream(AudioInputStream)}
+     * @param is the stream
+     * @return a big endian buffer holding the voice sample, see {@link SampleSource#ofPcm16(ByteBuffer)}
+     * @throws IOException when an I/O exception occurs
+     * @throws UnsupportedAudioFileException when the JVM does not support the audio format
+     */
+    public static ByteBuffer readAudioInputStreamAsPcm16(AudioInputStream is) 
+            throws IOException, UnsupportedAudioFileException {
+        
+        AudioFormat format = getPcm16Format(is.getFormat());
+        AudioInputStream localIs = toPcm16(is, format);
+
+        byte[] pcm16 = new byte[(int) Math.max(0, localIs.getFrameLength()) * 2];
+        byte[] buffer = newBuffer(format);
+        int bytesRead = 0;
+        int offset = 0;
+        
+        while((bytesRead = localIs.read(buffer)) > -1) {
+            int byteCount = bytesRead / format.getFrameSize() * 2;
+            if(offset + byteCount > pcm16.length) {
+                // more frames than announced, or unknown length
+                pcm16 = Arrays.copyOf(pcm16, Math.max(2 * pcm16.length, offset + byteCount));
+            }
+            if(format.getChannels() == 1) {
+                System.arraycopy(buffer, 0, pcm16, offset, byteCount);
+                offset += byteCount;
+            } else {
+                offset += downmix(buffer, bytesRead, format, pcm16, offset);
+            }
+        }
+        return ByteBuffer.wrap(pcm16, 0, offset).order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Reads the given stream as an array of doubles with values between -1.0 and 1.0, converting it to the 
+     * given sample rate while it's being decoded
+     * @param is the stream
+     * @param sampleRate the sample rate of the returned voice sample
+     * @return the voice sample
+     * @throws IOException when an I/O exception occurs
+     * @throws UnsupportedAudioFileException when the JVM does not support the audio format
+     * @see PolyphaseResampler
+     */
+    public static double[] readAudioInputStream(AudioInputStream is, float sampleRate) 
+            throws IOException, UnsupportedAudioFileException {
+        
+        if(isSameSampleRate(is.getFormat().getSampleRate(), sampleRate)) {
+            return readAudioInputStream(is);
+        }
+        AudioFormat format = getPcm16Format(is.getFormat());
+        AudioInputStream localIs = toPcm16(is, format);
+        PolyphaseResampler resampler = new PolyphaseResampler(format.getSampleRate(), sampleRate);
+
+        double[] audioSample = new double[getMaxOutputLength(resampler, localIs)];
+        byte[] buffer = newBuffer(format);
+        double[] decoded = new double[buffer.length / format.getFrameSize()];
+        int bytesRead = 0;
+        int offset = 0;
+        
+        while((bytesRead = localIs.read(buffer)) > -1) {
+            int frameCount = decode(buffer, bytesRead, format, decoded, 0);
+            int maxCount = resampler.getMaxOutputLength(frameCount);
+            if(offset + maxCount > audioSample.length) {
+                // more frames than announced
+                audioSample = Arrays.copyOf(audioSample, Math.max(2 * audioSample.length, offset + maxCount));
+            }
+            int count = resampler.process(decoded, 0, frameCount, audioSample, offset);
+            // same samples as the 16 bit PCM variant
+            for(int i = offset; i < offset + count; i++) {
+                audioSample[i] = (double) toPcm16Sample(audioSample[i]) / 32768;
+            }
+            offset += count;
+        }
+        return offset == audioSample.length ? audioSample : Arrays.copyOf(audioSample, offset);
+    }
+    
+    /**
+     * Reads the given stream as 16 bit signed big endian PCM, mono, converting it to the given sample rate 
+     * while it's being decoded
+     * @param is the stream
+     * @param sampleRate the sample rate of the returned voice sample
+     * @return a big endian buffer holding the voice sample, see {@link SampleSource#ofPcm16(ByteBuffer)}
+     * @throws IOException when an I/O exception occurs
+     * @throws UnsupportedAudioFileException when the JVM does not support the audio format
+     * @see PolyphaseResampler
+     */
+    public static ByteBuffer readAudioInputStreamAsPcm16(AudioInputStream is, float sampleRate) 
+            throws IOException, UnsupportedAudioFileException {
+        
+        if(isSameSampleRate(is.getFormat().getSampleRate(), sampleRate)) {
+            return readAudioInputStreamAsPcm16(is);
+        }
+        AudioFormat format = getPcm16Format(is.getFormat());
+        AudioInputStream localIs = toPcm16(is, format);
+        PolyphaseResampler resampler = new PolyphaseResampler(format.getSampleRate(), sampleRate);
+
+        ByteBuffer pcm16 = ByteBuffer.allocate(getMaxOutputLength(resampler, localIs) * 2);
+        byte[] buffer = newBuffer(format);
+        double[] decoded = new double[buffer.length / format.getFrameSize()];
+        double[] resampled = new double[resampler.getMaxOutputLength(decoded.length) + 1];
+        int bytesRead = 0;
+        
+        while((bytesRead = localIs.read(buffer)) > -1) {
+            int frameCount = decode(buffer, bytesRead, format, decoded, 0);
+            int count = resampler.process(decoded, 0, frameCount, resampled, 0);
+            if(pcm16.remaining() < count * 2) {
+                // more frames than announced
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * pcm16.capacity(), pcm16.position() + count * 2));
+                pcm16.flip();
+                pcm16 = grown.put(pcm16);
+            }
+            for(int i = 0; i < count; i++) {
+                pcm16.putShort(toPcm16Sample(resampled[i]));
+            }
+        }
+        pcm16.flip();
+        return pcm16.order(ByteOrder.BIG_ENDIAN);
+    }
+    
+    /**
+     * Get the number of resampled samples expected from the stream
+     * @param resampler the resampler
+     * @param is the stream
+     * @return the number of samples, 0 when the length of the stream is unknown
+     */
+    private static int getMaxOutputLength(PolyphaseResampler resampler, AudioInputStream is) {
+        return resampler.getMaxOutputLength((int) Math.max(0, is.getFrameLength()));
+    }
+
+    /**
+     * Rounds the given sample to 16 bit PCM, clipping it
+     * @param sample the sample, between -1.0 and 1.0
+     * @return the 16 bit sample
+     */
+    private static short toPcm16Sample(double sample) {
+        long value = Math.round(sample * 32768);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+    }
+
+    /**
+     * Checks whether both sample rates are the same, within float precision
+     * @param sampleRate1 a sample rate
+     * @param sampleRate2 another sample rate
+     * @return true if they are
+     */
+    public static boolean isSameSampleRate(float sampleRate1, float sampleRate2) {
+        return Math.abs(sampleRate1 - sampleRate2) <= 5 * Math.ulp(0.0f);
+    }
 
+    /**
+     * Converts 16 bit PCM to doubles, averaging the channels of each frame. 
+     * Yields the same samples as {@link #downmix(byte[], int, AudioFormat, byte[], int)}
+     * @param buffer the bytes read, whole frames
+     * @param bytesRead the number of bytes read
+     * @param format the 16 bit PCM format
+     * @param decoded the array receiving the samples
+     * @param offset the index of the first sample
+     * @return the number of samples
+     */
+    private static int decode(byte[] buffer, int bytesRead, AudioFormat format, double[] decoded, int offset) {
+        int channels = format.getChannels();
+        boolean bigEndian = format.isBigEndian();
+        int frameCount = bytesRead / format.getFrameSize();
+        for (int i = 0; i < frameCount; i++) {
+            decoded[offset + i] = (double) downmixFrame(buffer, 2 * i * channels, channels, bigEndian) / 32768;
+        }
+        return frameCount;
+    }
+
+    /**
+     * Averages the channels of each frame of 16 bit PCM into big endian 16 bit PCM mono
+     * @param buffer the bytes read, whole frames
+     * @param bytesRead the number of bytes read
+     * @param format the 16 bit PCM format
+     * @param pcm16 the array receiving the mono samples
+     * @param offset the index of the first byte to write
+     * @return the number of bytes written
+     */
+    private static int downmix(byte[] buffer, int bytesRead, AudioFormat format, byte[] pcm16, int offset) {
+        int channels = format.getChannels();
+        boolean bigEndian = format.isBigEndian();
+        int frameCount = Math.min(bytesRead / format.getFrameSize(), (pcm16.length - offset) / 2);
+        for (int i = 0; i < frameCount; i++) {
+            int mono = downmixFrame(buffer, 2 * i * channels, channels, bigEndian);
+            pcm16[offset + 2 * i] = (byte) (mono >> 8);
+            pcm16[offset + 2 * i + 1] = (byte) mono;
+        }
+        return 2 * frameCount;
+    }
+
+    /**
+     * Averages the channels of a frame of 16 bit PCM, rounding half away from zero
+     * @param buffer the bytes read
+     * @param position the position of the frame
+     * @param channels the number of channels
+     * @param bigEndian the byte order
+     * @return the 16 bit mono sample
+     */
+    private static int downmixFrame(byte[] buffer, int position, int channels, boolean bigEndian) {
+        int sum = 0;
+        for (int c = 0; c < channels; c++, position += 2) {
+            sum += byteArrayToShort(buffer, position, bigEndian);
+        }
+        if(channels == 1) {
+            return sum;
+        }
+        int half = channels / 2;
+        return sum >= 0 ? (sum + half) / channels : -((half - sum) / channels);
+    }
+
+    /**
+     * Get a buffer holding a whole number of frames
+     * @param format the 16 bit PCM format
+     * @return the buffer
+     */
+    private static byte[] newBuffer(AudioFormat format) {
+        return new byte[4096 * format.getFrameSize()];
+    }
+
+    /**
+     * Get the 16 bit signed big endian PCM format of the same sample rate and number of channels as the given one
+     * @param originalFormat the format of the file
+     * @return the format to convert the file to
+     */
+    private static AudioFormat getPcm16Format(AudioFormat originalFormat) {
+        int channels = Math.max(1, originalFormat.getChannels());
+        return new AudioFormat(originalFormat.getSampleRate(), 16, channels, true, true);
+    }
+
+    private static AudioInputStream toPcm16(AudioInputStream is, AudioFormat format) 
+            throws UnsupportedAudioFileException {
+        
+        AudioFormat originalFormat = is.getFormat(); 
         AudioInputStream localIs = null;
 
         if(!originalFormat.matches(format)) {
@@ -49,22 +311,7 @@ public class FileHelper {
         } else {
             localIs = is;
         }
-        
-        
-        double[] audioSample = new double[(int)localIs.getFrameLength()];
-        byte[] buffer = new byte[8192];
-        int bytesRead = 0;
-        int offset = 0;
-        
-        while((bytesRead = localIs.read(buffer)) > -1) {
-            int wordCount = (bytesRead / 2) + (bytesRead % 2);
-            for (int i = 0; i < wordCount; i++) {
-                double d = (double) byteArrayToShort(buffer, 2 * i, format.isBigEndian()) / 32768;
-                audioSample[offset + i] = d;
-            }
-            offset += wordCount;
-        }
-        return audioSample;
+        return localIs;
     }
     
     private static short byteArrayToShort(byte[] bytes, int offset, boolean bigEndian) {
@@ -18,6 +18,8 @@ package com.bitsinharmony.recognito.vad;
 
 import java.util.Arrays;
 
+import com.bitsinharmony.recognito.samples.SampleSource;
+
 /**
  * A voice activity detector attempts to detect presence or abscence of voice in the signal.
  * <p>
@@ -64,65 +66,137 @@ public class AutocorrellatedVoiceActivityDetector {
      * Removes silence out of the given voice sample
      * @param voiceSample the voice sample
      * @param sampleRate the sample rate
-     * @return a new voice sample with silence removed
+     * @return a new voice sample with silence removed, or the given voice sample if no silence was found
+     * @see #detectVoicedSegments(double[], float)
      */
-        
     public double[] removeSilence(double[] voiceSample, float sampleRate) {
+        VoicedSegments segments = detectVoicedSegments(voiceSample, sampleRate);
+        if(segments.isWhole()) {
+            return voiceSample;
+        }
+        return segments.copyVoiced(voiceSample);
+    }
+
+    /**
+     * Detects the voiced parts of the given voice sample
+     * <p>
+     * The voice sample is analyzed by windows of 1 ms. Silent areas shorter than 4 ms are considered voiced, 
+     * then voiced areas shorter than 200 ms are considered silent. When silence is found, a short linear fade in and 
+     * fade out is applied in place at the edges of each voiced segment, removing unwanted cracks once the segments 
+     * are laid end to end. The voice sample is left untouched otherwise.
+     * </p>
+     * <p>
+     * Unlike {@link #removeSilence(double[], float)}, the voiced parts aren't copied : the returned segments allow 
+     * processing them directly in the voice sample.
+     * </p>
+     * @param voiceSample the voice sample
+     * @param sampleRate the sample rate
+     * @return the voiced segments
+     */
+    public VoicedSegments detectVoicedSegments(double[] voiceSample, float sampleRate) {
+        VoicedSegments segments = detectVoicedSegments(SampleSource.of(voiceSample), sampleRate);
+        if(!segments.isWhole()) {
+            int fadeLength = getFadeLength(sampleRate);
+            initFadeFactors(fadeLength);
+            for(int i = 0; i < segments.getSegmentCount(); i++) {
+                applyFadeInFadeOut(voiceSample, fadeLength, segments.getStart(i), segments.getEnd(i));
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Removes silence out of the given voice sample, lazily
+     * @param voiceSample the voice sample
+     * @param sampleRate the sample rate
+     * @return a view of the voice sample with silence removed, or the given voice sample if no silence was found
+     * @see #getVoicedSamples(SampleSource, VoicedSegments, float)
+     */
+    public SampleSource removeSilence(SampleSource voiceSample, float sampleRate) {
+        return getVoicedSamples(voiceSample, detectVoicedSegments(voiceSample, sampleRate), sampleRate);
+    }
+
+    /**
+     * Get a view of the voiced parts of the given voice sample. When silence was found, the same fades as 
+     * {@link #detectVoicedSegments(double[], float)} are applied, as the samples are read
+     * @param voiceSample the voice sample
+     * @param segments the voiced segments, as detected by {@link #detectVoicedSegments(SampleSource, float)}
+     * @param sampleRate the sample rate
+     * @return the view, or the given voice sample if no silence was found
+     */
+    public SampleSource getVoicedSamples(SampleSource voiceSample, VoicedSegments segments, float sampleRate) {
+        if(segments.isWhole()) {
+            return segments.getVoicedSamples(voiceSample);
+        }
+        initFadeFactors(getFadeLength(sampleRate));
+        return segments.getVoicedSamples(voiceSample, fadeInFactors, fadeOutFactors);
+    }
+
+    /**
+     * Detects the voiced parts of the given voice sample, reading it 1 ms at a time
+     * <p>
+     * Same as {@link #detectVoicedSegments(double[], float)}, except that no fades are applied : the source is 
+     * read-only. Use {@link #getVoicedSamples(SampleSource, VoicedSegments, float)} to get the voiced samples with 
+     * the fades.
+     * </p>
+     * @param voiceSample the voice sample
+     * @param sampleRate the sample rate
+     * @return the voiced segments
+     */
+    public VoicedSegments detectVoicedSegments(SampleSource voiceSample, float sampleRate) {
         int oneMilliInSamples = (int)sampleRate / 1000;
 
-        int length = voiceSample.length;
+        int length = voiceSample.getLength();
         int minSilenceLength = MIN_SILENCE_MILLIS * oneMilliInSamples;
         int minActivityLength = getMinimumVoiceActivityLength(sampleRate);
-        boolean[] result = new boolean[length];
         
         if(length < minActivityLength) {
-            return voiceSample;
+            return VoicedSegments.whole(length);
         }
 
         int windowSize = WINDOW_MILLIS * oneMilliInSamples;
         double[] correllation = new double[windowSize];
         double[] window = new double[windowSize];
-        
-        
+
+        // voiced ranges, silent areas shorter than the minimum are merged on the fly
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int count = 0;
         for(int position = 0; position + windowSize < length; position += windowSize) {
-            System.arraycopy(voiceSample, position, window, 0, windowSize);
+            voiceSample.read(position, window, 0, windowSize);
             double mean = bruteForceAutocorrelation(window, correllation);
-            Arrays.fill(result, position, position + windowSize, mean > threshold);
-        }
-        
-
-        mergeSmallSilentAreas(result, minSilenceLength);
-        
-        int silenceCounter = mergeSmallActiveAreas(result, minActivityLength);
-
-//        System.out.println((int)((double)silenceCounter / result.length * 100.0d) + "% removed");
-   
-        if (silenceCounter > 0) {
-            
-            int fadeLength = FADE_MILLIS * oneMilliInSamples;
-            initFadeFactors(fadeLength);
-            double[] shortenedVoiceSample = new double[voiceSample.length - silenceCounter];
-            int copyCounter = 0;
-            for (int i = 0; i < result.length; i++) {
-                if (result[i]) {
-                    // detect lenght of active frame
-                    int startIndex = i;
-                    int counter = 0;
-                    while (i < result.length && result[i++]) {
-                        counter++;
+            if(mean > threshold) {
+                int silenceStart = count == 0 ? 0 : ends[count - 1];
+                if(position - silenceStart < minSilenceLength) {
+                    if(count == 0) {
+                        // short leading silence, or none
+                        starts[0] = 0;
+                        count = 1;
                     }
-                    int endIndex = startIndex + counter;
-
-                    applyFadeInFadeOut(voiceSample, fadeLength, startIndex, endIndex);
-                    System.arraycopy(voiceSample, startIndex, shortenedVoiceSample, copyCounter, counter);
-                    copyCounter += counter;
+                    ends[count - 1] = position + windowSize;
+                } else {
+                    if(count == starts.length) {
+                        starts = Arrays.copyOf(starts, count * 2);
+                        ends = Arrays.copyOf(ends, count * 2);
+                    }
+                    starts[count] = position;
+                    ends[count] = position + windowSize;
+                    count++;
                 }
             }
-            return shortenedVoiceSample;
-            
-        } else {
-            return voiceSample;
         }
+        if(count == 0) {
+            if(length < minSilenceLength) {
+                return VoicedSegments.whole(length);
+            }
+        } else if(length - ends[count - 1] < minSilenceLength) {
+            // short trailing silence
+            ends[count - 1] = length;
+        }
+
+        count = removeSmallActiveAreas(starts, ends, count, minActivityLength);
+
+        return new VoicedSegments(length, starts, ends, count);
     }
 
     /**
@@ -134,6 +208,15 @@ public class AutocorrellatedVoiceActivityDetector {
         return MIN_VOICE_MILLIS * (int) sampleRate / 1000;
     }
 
+    /**
+     * Gets the length of the fades applied at the edges of the voiced segments
+     * @param sampleRate the sample rate
+     * @return the length
+     */
+    private int getFadeLength(float sampleRate) {
+        return FADE_MILLIS * ((int)sampleRate / 1000);
+    }
+
     /**
      * Applies a linear fade in / out to the given portion of audio (removes unwanted cracks)
      * @param voiceSample the voice sample
@@ -150,52 +233,23 @@ public class AutocorrellatedVoiceActivityDetector {
     }
 
     /**
-     * Merges small active areas
-     * @param result the voice activity result
+     * Removes the voiced ranges shorter than the minimum activity length, compacting the remaining ones
+     * @param starts the start of each range
+     * @param ends the end of each range
+     * @param count the number of ranges
      * @param minActivityLength the minimum length to apply
-     * @return a count of silent elements
-     */
-    private int mergeSmallActiveAreas(boolean[] result, int minActivityLength) {
-        boolean active;
-        int increment = 0;
-        int silenceCounter = 0;
-        for(int i = 0; i < result.length; i += increment) {
-            active = result[i];
-            increment = 1;
-            while((i + increment < result.length) && result[i + increment] == active) {
-                increment++;
-            }
-            if(active && increment < minActivityLength) {
-                // convert short activity to opposite
-                Arrays.fill(result, i, i + increment, !active);
-                silenceCounter += increment;
-            } 
-            if(!active) {
-                silenceCounter += increment;
-            }
-        }
-        return silenceCounter;
-    }
-
-    /**
-     * Merges small silent areas
-     * @param result the voice activity result
-     * @param minSilenceLength the minimum silence length to apply
+     * @return the number of remaining ranges
      */
-    private void mergeSmallSilentAreas(boolean[] result, int minSilenceLength) {
-        boolean active;
-        int increment = 0;
-        for(int i = 0; i < result.length; i += increment) {
-            active = result[i];
-            increment = 1;
-            while((i + increment < result.length) && result[i + increment] == active) {
-                increment++;
+    private int removeSmallActiveAreas(int[] starts, int[] ends, int count, int minActivityLength) {
+        int kept = 0;
+        for(int i = 0; i < count; i++) {
+            if(ends[i] - starts[i] >= minActivityLength) {
+                starts[kept] = starts[i];
+                ends[kept] = ends[i];
+                kept++;
             }
-            if(!active && increment < minSilenceLength) {
-                // convert short silence to opposite
-                Arrays.fill(result, i, i + increment, !active);
-            } 
         }
+        return kept;
     }
 
     /**
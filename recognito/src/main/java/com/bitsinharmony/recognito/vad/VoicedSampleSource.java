@@ -0,0 +1,115 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.vad;
+
+import com.bitsinharmony.recognito.algorithms.windowing.WindowFunction;
+import com.bitsinharmony.recognito.samples.SampleSource;
+
+/**
+ * View of the voiced parts of a source, laid end to end, with optional fades at the edges of each segment
+ * <p>
+ * Fades are applied as the samples are read, with the same factors and in the same order as 
+ * {@link AutocorrellatedVoiceActivityDetector#detectVoicedSegments(double[], float)} does in place, 
+ * so that both give identical values.
+ * </p>
+ * @author Amaury Crickx
+ */
+final class VoicedSampleSource 
+        extends SampleSource {
+
+    private final SampleSource source;
+    private final VoicedSegments segments;
+    private final double[] fadeInFactors;
+    private final double[] fadeOutFactors;
+    private final int fadeLength;
+
+    VoicedSampleSource(SampleSource source, VoicedSegments segments, double[] fadeInFactors, double[] fadeOutFactors) {
+        this.source = source;
+        this.segments = segments;
+        this.fadeInFactors = fadeInFactors;
+        this.fadeOutFactors = fadeOutFactors;
+        this.fadeLength = fadeInFactors == null ? 0 : fadeInFactors.length;
+    }
+
+    @Override
+    public int getLength() {
+        return segments.getVoicedLength();
+    }
+
+    @Override
+    public void read(int offset, double[] dest, int destOffset, int length) {
+        checkRange(offset, length);
+        if(length == 0) {
+            return;
+        }
+        int segment = segments.findSegment(offset);
+        int from = segments.getSourceIndex(offset);
+        while(length > 0) {
+            int start = segments.getStart(segment);
+            int end = segments.getEnd(segment);
+            int chunk = Math.min(length, end - from);
+            source.read(from, dest, destOffset, chunk);
+            if(fadeLength > 0) {
+                applyFades(dest, destOffset, from, chunk, start, end);
+            }
+            destOffset += chunk;
+            length -= chunk;
+            segment++;
+            if(segment < segments.getSegmentCount()) {
+                from = segments.getStart(segment);
+            }
+        }
+    }
+
+    /**
+     * Reads the window in place when it lies within a single segment, away from the fades
+     */
+    @Override
+    public void readWindow(int offset, WindowFunction windowFunction, double[] window) {
+        int segment = segments.findSegment(offset);
+        int from = segments.getSourceIndex(offset);
+        if(from - segments.getStart(segment) >= fadeLength 
+                && from + window.length <= segments.getEnd(segment) - fadeLength) {
+            source.readWindow(from, windowFunction, window);
+        } else {
+            super.readWindow(offset, windowFunction, window);
+        }
+    }
+
+    /**
+     * Applies the fades on a chunk read from a single segment
+     * @param dest the chunk
+     * @param destOffset the index of the first element of the chunk
+     * @param from the source index of the first element of the chunk
+     * @param length the length of the chunk
+     * @param start the start of the segment
+     * @param end the end of the segment
+     */
+    private void applyFades(double[] dest, int destOffset, int from, int length, int start, int end) {
+        int fadeOutStart = end - fadeLength;
+        for(int i = 0; i < length; i++) {
+            int index = from + i;
+            // fade out first : the detector applies it first when both overlap
+            if(index >= fadeOutStart) {
+                dest[destOffset + i] *= fadeOutFactors[index - fadeOutStart];
+            }
+            if(index < start + fadeLength) {
+                dest[destOffset + i] *= fadeInFactors[index - start];
+            }
+        }
+    }
+}
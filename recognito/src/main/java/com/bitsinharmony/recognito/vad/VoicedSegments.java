@@ -0,0 +1,274 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.vad;
+
+import java.util.Arrays;
+
+import com.bitsinharmony.recognito.samples.SampleSource;
+
+/**
+ * The voiced parts of a voice sample, expressed as ranges of indices in the original sample
+ * <p>
+ * The voiced parts are seen as a single virtual sample made of the ranges laid end to end : a voiced index
+ * designates a position in that virtual sample. This allows processing only the voiced parts of a voice sample
+ * without copying them into a shortened array.
+ * </p>
+ * <p>
+ * Threading : this class is immutable and thus thread safe
+ * </p>
+ * @see AutocorrellatedVoiceActivityDetector#detectVoicedSegments(double[], float)
+ * @author Amaury Crickx
+ */
+public final class VoicedSegments {
+
+    private final int sourceLength;
+    private final int count;
+    private final int[] starts;
+    private final int[] ends;
+    // voiced index of the start of each segment
+    private final int[] offsets;
+    private final int voicedLength;
+
+    /**
+     * Constructor, e.g. for voiced parts detected by other means than {@link AutocorrellatedVoiceActivityDetector}
+     * @param sourceLength the length of the voice sample
+     * @param starts the start index of each range, inclusive, in increasing order
+     * @param ends the end index of each range, exclusive, ranges may not overlap
+     */
+    public VoicedSegments(int sourceLength, int[] starts, int[] ends) {
+        this(sourceLength, starts, ends, starts.length);
+        if(ends.length != starts.length) {
+            throw new IllegalArgumentException("Expected as many starts as ends, received " + starts.length 
+                    + " starts and " + ends.length + " ends");
+        }
+    }
+
+    /**
+     * Constructor using the first elements of the given arrays
+     * @param sourceLength the length of the voice sample
+     * @param starts the start index of each range, inclusive, in increasing order
+     * @param ends the end index of each range, exclusive
+     * @param count the number of ranges
+     */
+    VoicedSegments(int sourceLength, int[] starts, int[] ends, int count) {
+        this.sourceLength = sourceLength;
+        this.count = count;
+        this.starts = Arrays.copyOf(starts, count);
+        this.ends = Arrays.copyOf(ends, count);
+        this.offsets = new int[count];
+        int length = 0;
+        for(int i = 0; i < count; i++) {
+            if(starts[i] < (i == 0 ? 0 : ends[i - 1]) || ends[i] <= starts[i] || ends[i] > sourceLength) {
+                throw new IllegalArgumentException("Invalid range [" + starts[i] + ", " + ends[i] + "[");
+            }
+            offsets[i] = length;
+            length += ends[i] - starts[i];
+        }
+        this.voicedLength = length;
+    }
+
+    /**
+     * Creates an instance considering the whole voice sample as voiced
+     * @param sourceLength the length of the voice sample
+     * @return the segments
+     */
+    public static VoicedSegments whole(int sourceLength) {
+        if(sourceLength == 0) {
+            return new VoicedSegments(0, new int[0], new int[0], 0);
+        }
+        return new VoicedSegments(sourceLength, new int[] { 0 }, new int[] { sourceLength }, 1);
+    }
+
+    /**
+     * Get the length of the voice sample these segments relate to
+     * @return the length
+     */
+    public int getSourceLength() {
+        return sourceLength;
+    }
+
+    /**
+     * Get the total length of the voiced parts, i.e. the length of the voice sample with silence removed
+     * @return the length
+     */
+    public int getVoicedLength() {
+        return voicedLength;
+    }
+
+    /**
+     * Tells whether the whole voice sample is voiced
+     * @return true if no silence was found
+     */
+    public boolean isWhole() {
+        return voicedLength == sourceLength;
+    }
+
+    /**
+     * Get the number of voiced segments
+     * @return the count
+     */
+    public int getSegmentCount() {
+        return count;
+    }
+
+    /**
+     * Get the start of the given segment
+     * @param segment the index of the segment
+     * @return the index of the first sample of the segment in the voice sample
+     */
+    public int getStart(int segment) {
+        checkSegment(segment);
+        return starts[segment];
+    }
+
+    /**
+     * Get the end of the given segment
+     * @param segment the index of the segment
+     * @return the index following the last sample of the segment in the voice sample
+     */
+    public int getEnd(int segment) {
+        checkSegment(segment);
+        return ends[segment];
+    }
+
+    /**
+     * Get the index in the voice sample of the given voiced index
+     * @param voicedIndex the index in the voiced parts, 0 <= voicedIndex < voicedLength
+     * @return the index in the voice sample
+     */
+    public int getSourceIndex(int voicedIndex) {
+        int segment = findSegment(voicedIndex);
+        return starts[segment] + voicedIndex - offsets[segment];
+    }
+
+    /**
+     * Get the number of voiced samples that follow the given voiced index without interruption in the voice sample,
+     * the sample at the given index included. Windows shorter than this length can be read in place.
+     * @param voicedIndex the index in the voiced parts, 0 <= voicedIndex < voicedLength
+     * @return the length
+     */
+    public int getContiguousLength(int voicedIndex) {
+        int segment = findSegment(voicedIndex);
+        return ends[segment] - starts[segment] - (voicedIndex - offsets[segment]);
+    }
+
+    /**
+     * Copies part of the voiced samples, skipping silence
+     * @param voiceSample the voice sample
+     * @param voicedIndex the index of the first voiced sample to copy
+     * @param dest the destination array
+     * @param destOffset the index of the first element written in the destination array
+     * @param length the number of samples to copy
+     */
+    public void copyVoiced(double[] voiceSample, int voicedIndex, double[] dest, int destOffset, int length) {
+        if(voiceSample.length != sourceLength) {
+            throw new IllegalArgumentException("Expected a voice sample of length " + sourceLength 
+                    + ", received " + voiceSample.length);
+        }
+        if(length < 0 || voicedIndex + length > voicedLength) {
+            throw new IllegalArgumentException("Range [" + voicedIndex + ", " + (voicedIndex + length) 
+                    + "[ exceeds the voiced length " + voicedLength);
+        }
+        if(length == 0) {
+            return;
+        }
+        int segment = findSegment(voicedIndex);
+        int from = starts[segment] + voicedIndex - offsets[segment];
+        while(length > 0) {
+            int chunk = Math.min(length, ends[segment] - from);
+            System.arraycopy(voiceSample, from, dest, destOffset, chunk);
+            destOffset += chunk;
+            length -= chunk;
+            segment++;
+            if(segment < count) {
+                from = starts[segment];
+            }
+        }
+    }
+
+    /**
+     * Get a view of the voiced parts of the given source, skipping silence as the samples are read
+     * @param source the voice sample
+     * @return the voiced samples, of length {@link #getVoicedLength()}
+     */
+    public SampleSource getVoicedSamples(SampleSource source) {
+        return getVoicedSamples(source, null, null);
+    }
+
+    /**
+     * Get a view of the voiced parts of the given source, applying a fade in and fade out at the edges of
+     * each segment as the samples are read
+     * @param source the voice sample
+     * @param fadeInFactors the factors applied to the first samples of each segment, null for none
+     * @param fadeOutFactors the factors applied to the last samples of each segment, of the same length
+     * @return the voiced samples
+     */
+    SampleSource getVoicedSamples(SampleSource source, double[] fadeInFactors, double[] fadeOutFactors) {
+        if(source.getLength() != sourceLength) {
+            throw new IllegalArgumentException("Expected a voice sample of length " + sourceLength 
+                    + ", received " + source.getLength());
+        }
+        if(isWhole() && fadeInFactors == null) {
+            return source;
+        }
+        return new VoicedSampleSource(source, this, fadeInFactors, fadeOutFactors);
+    }
+
+    /**
+     * Copies the voiced samples into a new array
+     * @param voiceSample the voice sample
+     * @return a new voice sample with silence removed
+     */
+    public double[] copyVoiced(double[] voiceSample) {
+        double[] voiced = new double[voicedLength];
+        copyVoiced(voiceSample, 0, voiced, 0, voicedLength);
+        return voiced;
+    }
+
+    /**
+     * Finds the segment containing the given voiced index
+     * @param voicedIndex the index in the voiced parts
+     * @return the index of the segment
+     */
+    int findSegment(int voicedIndex) {
+        if(voicedIndex < 0 || voicedIndex >= voicedLength) {
+            throw new IllegalArgumentException("Voiced index " + voicedIndex + " out of range [0, " 
+                    + voicedLength + "[");
+        }
+        int segment = Arrays.binarySearch(offsets, voicedIndex);
+        // not found : insertion point minus one is the segment containing the index
+        return segment >= 0 ? segment : -segment - 2;
+    }
+
+    private void checkSegment(int segment) {
+        if(segment < 0 || segment >= count) {
+            throw new IllegalArgumentException("Segment " + segment + " out of range [0, " + count + "[");
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("VoicedSegments[");
+        for(int i = 0; i < count; i++) {
+            if(i > 0) {
+                sb.append(", ");
+            }
+            sb.append('[').append(starts[i]).append(", ").append(ends[i]).append('[');
+        }
+        return sb.append("] of ").append(sourceLength).toString();
+    }
+}
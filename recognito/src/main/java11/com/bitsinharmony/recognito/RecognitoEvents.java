@@ -0,0 +1,181 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Frequency;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Hooks for JDK Flight Recorder events, Java 11+ version packaged in {@code META-INF/versions/11}
+ * <p>
+ * When an event type is disabled in the recording settings, its {@code begin} method returns {@code null} 
+ * and the matching {@code end} method returns right away.
+ * </p>
+ * @author Amaury Crickx
+ */
+final class RecognitoEvents {
+
+    private RecognitoEvents() {
+    }
+
+    static Object beginFeaturesExtraction() {
+        return begin(new FeaturesExtractionEvent());
+    }
+
+    static void endFeaturesExtraction(Object event, int sampleLength, float sampleRate, int gallerySize, int resultCount) {
+        end(event, sampleLength, sampleRate, gallerySize, resultCount);
+    }
+
+    static Object beginIdentification() {
+        return begin(new IdentificationEvent());
+    }
+
+    static void endIdentification(Object event, int sampleLength, float sampleRate, int gallerySize, int resultCount) {
+        end(event, sampleLength, sampleRate, gallerySize, resultCount);
+    }
+
+    static Object beginVerification() {
+        return begin(new VerificationEvent());
+    }
+
+    static void endVerification(Object event, int sampleLength, float sampleRate, int gallerySize, int resultCount) {
+        end(event, sampleLength, sampleRate, gallerySize, resultCount);
+    }
+
+    static Object beginUniversalModelUpdate() {
+        UniversalModelUpdateEvent event = new UniversalModelUpdateEvent();
+        if(!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        event.lockRequested = System.nanoTime();
+        return event;
+    }
+
+    static void lockAcquired(Object event) {
+        if(event != null) {
+            UniversalModelUpdateEvent update = (UniversalModelUpdateEvent) event;
+            update.lockWait = System.nanoTime() - update.lockRequested;
+        }
+    }
+
+    static void endUniversalModelUpdate(Object event, float sampleRate, int gallerySize) {
+        if(event == null) {
+            return;
+        }
+        UniversalModelUpdateEvent update = (UniversalModelUpdateEvent) event;
+        update.end();
+        if(update.shouldCommit()) {
+            update.sampleRate = sampleRate;
+            update.gallerySize = gallerySize;
+            update.commit();
+        }
+    }
+
+    private static Object begin(RecognitoEvent event) {
+        if(!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    private static void end(Object event, int sampleLength, float sampleRate, int gallerySize, int resultCount) {
+        if(event == null) {
+            return;
+        }
+        RecognitoEvent recognitoEvent = (RecognitoEvent) event;
+        recognitoEvent.end();
+        if(recognitoEvent.shouldCommit()) {
+            recognitoEvent.sampleLength = sampleLength;
+            recognitoEvent.sampleRate = sampleRate;
+            recognitoEvent.gallerySize = gallerySize;
+            recognitoEvent.resultCount = resultCount;
+            recognitoEvent.commit();
+        }
+    }
+
+    @Category("Recognito")
+    abstract static class RecognitoEvent 
+            extends Event {
+
+        @Label("Sample Length")
+        @Description("Number of samples in the voice sample, 0 when features were extracted beforehand")
+        int sampleLength;
+
+        @Label("Sample Rate")
+        @Frequency
+        float sampleRate;
+
+        @Label("Gallery Size")
+        @Description("Number of voice prints known to Recognito")
+        int gallerySize;
+
+        @Label("Result Count")
+        @Description("Number of features extracted or match results returned")
+        int resultCount;
+    }
+
+    @Name("com.bitsinharmony.recognito.FeaturesExtraction")
+    @Label("Features Extraction")
+    @Description("Silence removal, normalization and LPC features extraction of a voice sample")
+    static final class FeaturesExtractionEvent 
+            extends RecognitoEvent {
+    }
+
+    @Name("com.bitsinharmony.recognito.Identification")
+    @Label("Identification")
+    @Description("Identification of a voice sample, or a batch of voice prints, against all known voice prints")
+    static final class IdentificationEvent 
+            extends RecognitoEvent {
+    }
+
+    @Name("com.bitsinharmony.recognito.Verification")
+    @Label("Verification")
+    @Description("Verification of a voice sample against a claimed voice print")
+    static final class VerificationEvent 
+            extends RecognitoEvent {
+    }
+
+    @Name("com.bitsinharmony.recognito.UniversalModelUpdate")
+    @Label("Universal Model Update")
+    @Description("Merge of new features into the universal model, including the wait for the lock guarding it")
+    @Category("Recognito")
+    static final class UniversalModelUpdateEvent 
+            extends Event {
+
+        @Label("Sample Rate")
+        @Frequency
+        float sampleRate;
+
+        @Label("Gallery Size")
+        @Description("Number of voice prints known to Recognito after the update")
+        int gallerySize;
+
+        @Label("Lock Wait")
+        @Description("Time spent waiting for the lock guarding the universal model")
+        @Timespan
+        long lockWait;
+
+        transient long lockRequested;
+    }
+}
@@ -5,27 +5,58 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import com.bitsinharmony.recognito.algorithms.DiscreteAutocorrelationAtLagJTest;
+import com.bitsinharmony.recognito.algorithms.FastFourierTransformTest;
+import com.bitsinharmony.recognito.algorithms.FftAutocorrelationTest;
 import com.bitsinharmony.recognito.algorithms.LinearPredictiveCodingTest;
+import com.bitsinharmony.recognito.algorithms.MelFilterBankTest;
+import com.bitsinharmony.recognito.algorithms.PolyphaseResamplerTest;
 import com.bitsinharmony.recognito.algorithms.windowing.HammingWindowFunctionTest;
 import com.bitsinharmony.recognito.algorithms.windowing.HannWindowFunctionTest;
 import com.bitsinharmony.recognito.distances.ChebyshevDistanceCalculatorTest;
 import com.bitsinharmony.recognito.distances.EuclideanDistanceCalculatorTest;
 import com.bitsinharmony.recognito.enhancements.NormalizerTest;
+import com.bitsinharmony.recognito.cache.FeaturesCacheTest;
+import com.bitsinharmony.recognito.cache.FileFeaturesStoreTest;
+import com.bitsinharmony.recognito.cache.SampleKeyTest;
 import com.bitsinharmony.recognito.features.LpcFeaturesExtractorTest;
+import com.bitsinharmony.recognito.features.MfccFeaturesExtractorTest;
+import com.bitsinharmony.recognito.metrics.CumulativeMetricsCollectorTest;
+import com.bitsinharmony.recognito.samples.SampleSourceTest;
+import com.bitsinharmony.recognito.utils.FileHelperTest;
 import com.bitsinharmony.recognito.vad.AutocorrellatedVoiceActivityDetectorTest;
+import com.bitsinharmony.recognito.vad.VoicedSegmentsTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({ 
     HammingWindowFunctionTest.class,
     HannWindowFunctionTest.class,
     DiscreteAutocorrelationAtLagJTest.class,
+    FastFourierTransformTest.class,
+    FftAutocorrelationTest.class,
+    MelFilterBankTest.class,
+    PolyphaseResamplerTest.class,
     LinearPredictiveCodingTest.class,
     ChebyshevDistanceCalculatorTest.class,
     EuclideanDistanceCalculatorTest.class,
     NormalizerTest.class,
     LpcFeaturesExtractorTest.class,
+    MfccFeaturesExtractorTest.class,
     AutocorrellatedVoiceActivityDetectorTest.class,
+    VoicedSegmentsTest.class,
+    CumulativeMetricsCollectorTest.class,
+    SampleSourceTest.class,
+    FileHelperTest.class,
+    SampleKeyTest.class,
+    FeaturesCacheTest.class,
+    FileFeaturesStoreTest.class,
     RecognitoTest.class, 
+    BulkEnrollerTest.class,
+    IdentificationCoalescerTest.class,
+    IdentificationSessionTest.class,
+    IdentificationCacheTest.class,
+    ShardedRecognitoTest.class,
+    IvfIndexTest.class,
+    TieredVoicePrintStoreTest.class,
     VoicePrintConcurrencyTest.class, 
     VoicePrintTest.class
 })
@@ -0,0 +1,213 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.bitsinharmony.recognito.BulkEnroller.Progress;
+import com.bitsinharmony.recognito.BulkEnroller.Stage;
+
+/**
+ * Tests for the BulkEnroller class
+ * @author Amaury Crickx
+ */
+public class BulkEnrollerTest {
+
+    private static final float DEFAULT_SAMPLE_RATE = 16000f;
+    private static final int SPEAKERS = 5;
+    private static final int FILES_PER_SPEAKER = 3;
+
+    private final Random random = new Random();
+
+    private Recognito<String> recognito;
+    private BulkEnroller<String> enroller;
+    private File directory;
+    private List<String> failedKeys;
+    private List<Progress> reports;
+
+    @Before
+    public void setUp() throws IOException {
+        recognito = new Recognito<String>(DEFAULT_SAMPLE_RATE);
+        enroller = new BulkEnroller<String>(recognito);
+        enroller.setDecodeThreads(2);
+        enroller.setExtractThreads(2);
+        enroller.setQueueCapacity(1);
+        enroller.setProgressInterval(4);
+        failedKeys = new ArrayList<String>();
+        reports = new ArrayList<Progress>();
+        enroller.setListener(new BulkEnroller.Listener<String>() {
+            @Override
+            public synchronized void onProgress(Progress progress) {
+                reports.add(progress);
+            }
+            @Override
+            public synchronized void onFailure(String userKey, File voiceSampleFile, Exception cause) {
+                failedKeys.add(userKey);
+            }
+        });
+
+        directory = File.createTempFile("recognito", "");
+        directory.delete();
+        directory.mkdir();
+        for(int i = 0; i < SPEAKERS; i++) {
+            for(int j = 0; j < FILES_PER_SPEAKER; j++) {
+                writeWaveFile(new File(directory, "speaker" + i + "_" + j + ".wav"));
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for(File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void enrollDirectoryCreatesOneVoicePrintPerKeyAndMergesTheOtherFiles() throws InterruptedException {
+        Progress progress = enroller.enrollDirectory(directory, new SpeakerKeyResolver());
+
+        Set<String> keys = new HashSet<String>();
+        for(MatchResult<String> match : recognito.identify(noise(4096))) {
+            keys.add(match.getKey());
+        }
+        assertThat(keys.size(), is(equalTo(SPEAKERS)));
+        for(Stage stage : Stage.values()) {
+            assertThat(progress.getCount(stage), is(equalTo((long) SPEAKERS * FILES_PER_SPEAKER)));
+        }
+        assertThat(progress.getFailures(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void progressIsReportedEveryIntervalAndOnCompletion() throws InterruptedException {
+        enroller.enrollDirectory(directory, new SpeakerKeyResolver());
+
+        // 15 files, interval of 4 : 3 intermediate reports plus the final one
+        assertThat(reports.size(), is(equalTo(4)));
+        assertThat(reports.get(3).getCount(Stage.STORE), is(equalTo((long) SPEAKERS * FILES_PER_SPEAKER)));
+    }
+
+    @Test
+    public void failingFilesAreReportedWithoutStoppingTheEnrollment() throws IOException, InterruptedException {
+        FileWriter writer = new FileWriter(new File(directory, "broken_0.wav"));
+        writer.write("not a wave file");
+        writer.close();
+
+        Progress progress = enroller.enrollDirectory(directory, new SpeakerKeyResolver());
+
+        assertThat(failedKeys.size(), is(equalTo(1)));
+        assertThat(failedKeys.get(0), is(equalTo("broken")));
+        assertThat(progress.getFailures(), is(equalTo(1L)));
+        assertThat(progress.getCount(Stage.STORE), is(equalTo((long) SPEAKERS * FILES_PER_SPEAKER)));
+    }
+
+    @Test(timeout = 10000)
+    public void listenerExceptionsAbortTheEnrollmentWithoutCountingAsFailures() throws InterruptedException {
+        final IllegalStateException bug = new IllegalStateException("listener bug");
+        enroller.setListener(new BulkEnroller.Listener<String>() {
+            @Override
+            public void onProgress(Progress progress) {
+                throw bug;
+            }
+            @Override
+            public synchronized void onFailure(String userKey, File voiceSampleFile, Exception cause) {
+                failedKeys.add(userKey);
+            }
+        });
+
+        try {
+            enroller.enrollDirectory(directory, new SpeakerKeyResolver());
+            fail("The listener exception should have been rethrown");
+        } catch (IllegalStateException e) {
+            assertThat(e, is(sameInstance(bug)));
+        }
+        assertThat(failedKeys.size(), is(equalTo(0)));
+    }
+
+    @Test(timeout = 10000)
+    public void errorsInAStageAbortTheEnrollmentInsteadOfBlockingIt() throws InterruptedException {
+        final AssertionError error = new AssertionError("stage error");
+        try {
+            enroller.enrollDirectory(directory, new BulkEnroller.KeyResolver<String>() {
+                @Override
+                public String getKey(File voiceSampleFile) {
+                    if(voiceSampleFile.getName().startsWith("speaker3")) {
+                        throw error;
+                    }
+                    return new SpeakerKeyResolver().getKey(voiceSampleFile);
+                }
+            });
+            fail("The error should have been rethrown");
+        } catch (AssertionError e) {
+            assertThat(e, is(sameInstance(error)));
+        }
+    }
+
+    private static final class SpeakerKeyResolver
+            implements BulkEnroller.KeyResolver<String> {
+        @Override
+        public String getKey(File voiceSampleFile) {
+            String name = voiceSampleFile.getName();
+            return name.substring(0, name.indexOf('_'));
+        }
+    }
+
+    private void writeWaveFile(File file) throws IOException {
+        double[] voiceSample = noise(4096);
+        byte[] bytes = new byte[voiceSample.length * 2];
+        for(int i = 0; i < voiceSample.length; i++) {
+            short value = (short) (voiceSample[i] * Short.MAX_VALUE);
+            bytes[2 * i] = (byte) value;
+            bytes[2 * i + 1] = (byte) (value >> 8);
+        }
+        AudioFormat format = new AudioFormat(DEFAULT_SAMPLE_RATE, 16, 1, true, false);
+        AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(bytes), format, voiceSample.length);
+        AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file);
+    }
+
+    private double[] noise(int length) {
+        double[] voiceSample = new double[length];
+        for(int i = 0; i < voiceSample.length; i++) {
+            voiceSample[i] = random.nextDouble() * 2 - 1;
+        }
+        return voiceSample;
+    }
+}
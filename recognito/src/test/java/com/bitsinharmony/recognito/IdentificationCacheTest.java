@@ -0,0 +1,176 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the IdentificationCache class
+ * @author Amaury Crickx
+ */
+public class IdentificationCacheTest {
+
+    private static final float DEFAULT_SAMPLE_RATE = 22050f;
+
+    private final Random random = new Random(42L);
+
+    private Recognito<String> recognito;
+    private IdentificationCache<String> cache;
+    private double[] query;
+
+    @Before
+    public void setUp() {
+        recognito = new Recognito<String>(DEFAULT_SAMPLE_RATE);
+        for(int i = 0; i < 6; i++) {
+            recognito.createVoicePrint("" + i, noise());
+        }
+        cache = new IdentificationCache<String>(16);
+        recognito.setIdentificationCache(cache);
+        query = noise();
+    }
+
+    @Test
+    public void repeatedQueriesAreAnsweredByTheCache() {
+        List<MatchResult<String>> first = recognito.identify(query.clone());
+        List<MatchResult<String>> second = recognito.identify(query.clone());
+
+        assertThat(cache.getMissCount(), is(equalTo(1L)));
+        assertThat(cache.getHitCount(), is(equalTo(1L)));
+        assertSameMatches(second, first);
+        assertSameMatches(second, uncachedIdentify(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void mergesOnlyRescoreTheChangedVoicePrints() {
+        recognito.identify(query.clone());
+        recognito.mergeVoiceSample("3", noise());
+        recognito.createVoicePrint("new", query.clone());
+
+        List<MatchResult<String>> matches = recognito.identify(query.clone());
+
+        assertThat(cache.getHitCount(), is(equalTo(1L)));
+        assertThat(cache.getRescoredCount(), is(equalTo(2L)));
+        assertThat(matches.get(0).getKey(), is(equalTo("new")));
+        assertSameMatches(matches, uncachedIdentify(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void removalsDropTheRemovedVoicePrintsFromTheCachedMatches() {
+        recognito.createVoicePrint("new", query.clone());
+        recognito.identify(query.clone());
+        recognito.removeVoicePrint("new");
+
+        List<MatchResult<String>> matches = recognito.identify(query.clone());
+
+        assertThat(cache.getHitCount(), is(equalTo(1L)));
+        assertThat(matches.size(), is(equalTo(6)));
+        assertSameMatches(matches, uncachedIdentify(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void universalModelChangesUpdateTheLikelihoodRatios() {
+        recognito.identify(query.clone());
+        double[] far = new double[20];
+        Arrays.fill(far, 10.0d);
+        recognito.setUniversalModel(new VoicePrint(far));
+
+        List<MatchResult<String>> matches = recognito.identify(query.clone());
+
+        assertThat(cache.getHitCount(), is(equalTo(1L)));
+        assertSameMatches(matches, uncachedIdentify(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void topMatchesAreCachedSeparately() {
+        List<MatchResult<String>> top2 = recognito.identify(query.clone(), 2);
+        recognito.identify(query.clone());
+        
+        assertThat(top2.size(), is(equalTo(2)));
+        assertThat(cache.getMissCount(), is(equalTo(2L)));
+        assertThat(cache.size(), is(equalTo(2)));
+        assertSameMatches(recognito.identify(query.clone(), 2), top2);
+    }
+
+    @Test
+    public void topMatchesMovingAwayRequireAFullScan() {
+        List<MatchResult<String>> top2 = recognito.identify(query.clone(), 2);
+        double[] far = new double[20];
+        Arrays.fill(far, 1000.0d);
+        recognito.createOrMergeVoicePrint(top2.get(0).getKey(), far);
+
+        List<MatchResult<String>> matches = recognito.identify(query.clone(), 2);
+
+        assertThat(cache.getStaleCount(), is(equalTo(1L)));
+        assertThat(cache.getHitCount(), is(equalTo(0L)));
+        assertThat(matches.get(0).getKey(), is(equalTo(top2.get(1).getKey())));
+        assertSameMatches(matches, uncachedIdentify(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cacheMayNotBeSharedBetweenInstances() {
+        new Recognito<String>(DEFAULT_SAMPLE_RATE).setIdentificationCache(cache);
+    }
+
+    @Test
+    public void changeLogKeepsTheLatestChangesOnly() {
+        GalleryChangeLog<String> changeLog = new GalleryChangeLog<String>(2);
+        changeLog.record("1");
+        long epoch = changeLog.getEpoch();
+        changeLog.record(null);
+        changeLog.record("2");
+
+        assertThat(changeLog.getChangesSince(epoch).size(), is(equalTo(1)));
+        assertThat(changeLog.getChangesSince(epoch).contains("2"), is(true));
+        assertThat(changeLog.getChangesSince(0L), is(equalTo(null)));
+        assertThat(changeLog.getChangesSince(changeLog.getEpoch()).isEmpty(), is(true));
+    }
+
+    private List<MatchResult<String>> uncachedIdentify(int topK) {
+        recognito.setIdentificationCache(null);
+        try {
+            return recognito.identify(query.clone(), topK);
+        } finally {
+            recognito.setIdentificationCache(cache);
+        }
+    }
+
+    private void assertSameMatches(List<MatchResult<String>> actual, List<MatchResult<String>> expected) {
+        assertThat(actual.size(), is(equalTo(expected.size())));
+        for(int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getKey(), is(equalTo(expected.get(i).getKey())));
+            assertThat(actual.get(i).getDistance(), is(equalTo(expected.get(i).getDistance())));
+            assertThat(actual.get(i).getLikelihoodRatio(), is(equalTo(expected.get(i).getLikelihoodRatio())));
+        }
+    }
+
+    private double[] noise() {
+        double[] voiceSample = new double[4096];
+        for(int i = 0; i < voiceSample.length; i++) {
+            voiceSample[i] = random.nextDouble() * 2 - 1;
+        }
+        return voiceSample;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the IdentificationCoalescer class
+ * @author Amaury Crickx
+ */
+public class IdentificationCoalescerTest {
+
+    private static final float DEFAULT_SAMPLE_RATE = 22050f;
+    private static final int BATCH_SIZE = 8;
+
+    private final Random random = new Random();
+
+    private Recognito<String> recognito;
+    private IdentificationCoalescer<String> coalescer;
+
+    @Before
+    public void setUp() {
+        recognito = new Recognito<String>(DEFAULT_SAMPLE_RATE);
+    }
+
+    @After
+    public void tearDown() {
+        coalescer.shutdown();
+    }
+
+    @Test
+    public void batchedResultsAreIdenticalToSingleIdentifications() throws InterruptedException, ExecutionException {
+        coalescer = new IdentificationCoalescer<String>(recognito, BATCH_SIZE, 1, TimeUnit.MILLISECONDS);
+        for(int i = 0; i < 5; i++) {
+            recognito.createVoicePrint("" + i, noise());
+        }
+        double[][] samples = new double[BATCH_SIZE][];
+        List<Future<List<MatchResult<String>>>> futures = new ArrayList<Future<List<MatchResult<String>>>>();
+        for(int i = 0; i < samples.length; i++) {
+            samples[i] = noise();
+            futures.add(coalescer.identify(samples[i].clone()));
+        }
+
+        for(int i = 0; i < samples.length; i++) {
+            List<MatchResult<String>> expected = recognito.identify(samples[i]);
+            List<MatchResult<String>> actual = futures.get(i).get();
+            assertThat(actual.size(), is(equalTo(expected.size())));
+            for(int j = 0; j < expected.size(); j++) {
+                assertThat(actual.get(j).getKey(), is(equalTo(expected.get(j).getKey())));
+                assertThat(actual.get(j).getLikelihoodRatio(), is(equalTo(expected.get(j).getLikelihoodRatio())));
+            }
+        }
+    }
+
+    @Test
+    public void requestsArrivingWithinTheDelayShareASingleBatch() throws InterruptedException, ExecutionException {
+        coalescer = new IdentificationCoalescer<String>(recognito, BATCH_SIZE, 10, TimeUnit.SECONDS);
+        recognito.createVoicePrint("1", noise());
+
+        List<Future<List<MatchResult<String>>>> futures = new ArrayList<Future<List<MatchResult<String>>>>();
+        for(int i = 0; i < BATCH_SIZE; i++) {
+            futures.add(coalescer.identify(noise()));
+        }
+        for(Future<List<MatchResult<String>>> future : futures) {
+            future.get();
+        }
+
+        // a full batch is evaluated right away, without waiting for the 10 seconds delay
+        assertThat(coalescer.getRequestCount(), is(equalTo((long) BATCH_SIZE)));
+        assertThat(coalescer.getBatchCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void failuresAreReportedToEachRequestOfTheBatch() throws InterruptedException {
+        coalescer = new IdentificationCoalescer<String>(recognito, BATCH_SIZE, 1, TimeUnit.MILLISECONDS);
+        try {
+            coalescer.identify(noise()).get();
+            fail("The Future should report the failure");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+        }
+    }
+
+    @Test
+    public void errorsFailTheirBatchWithoutStoppingTheDispatcher() throws Exception {
+        final AssertionError error = new AssertionError("batch error");
+        recognito = new Recognito<String>(DEFAULT_SAMPLE_RATE) {
+            private boolean failed;
+            @Override
+            List<List<MatchResult<String>>> identify(VoicePrint[] voicePrints) {
+                if(!failed) {
+                    failed = true;
+                    throw error;
+                }
+                return super.identify(voicePrints);
+            }
+        };
+        recognito.createVoicePrint("1", noise());
+        coalescer = new IdentificationCoalescer<String>(recognito, BATCH_SIZE, 1, TimeUnit.MILLISECONDS);
+
+        try {
+            coalescer.identify(noise()).get(10, TimeUnit.SECONDS);
+            fail("The error should have been reported");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(AssertionError.class)));
+        }
+        List<MatchResult<String>> matches = coalescer.identify(noise()).get(10, TimeUnit.SECONDS);
+        assertThat(matches.get(0).getKey(), is(equalTo("1")));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void requestsAreRejectedAfterShutdown() {
+        coalescer = new IdentificationCoalescer<String>(recognito, BATCH_SIZE, 1, TimeUnit.MILLISECONDS);
+        coalescer.shutdown();
+        coalescer.identify(noise());
+    }
+
+    @Test
+    public void requestsRacingWithShutdownAreEitherRejectedOrCompleted() throws Exception {
+        recognito.createVoicePrint("1", noise());
+        for(int round = 0; round < 20; round++) {
+            coalescer = new IdentificationCoalescer<String>(recognito, 1, 0, TimeUnit.MILLISECONDS);
+            final double[] voiceSample = noise();
+            final List<Future<List<MatchResult<String>>>> futures = 
+                    Collections.synchronizedList(new ArrayList<Future<List<MatchResult<String>>>>());
+            List<Thread> threads = new ArrayList<Thread>();
+            for(int t = 0; t < 4; t++) {
+                threads.add(new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            while(true) {
+                                futures.add(coalescer.identify(voiceSample.clone()));
+                            }
+                        } catch (RejectedExecutionException e) {
+                            // shut down, or too many pending requests
+                        }
+                    }
+                });
+            }
+            for(Thread thread : threads) {
+                thread.start();
+            }
+            Thread.sleep(5);
+            coalescer.shutdown();
+            for(Thread thread : threads) {
+                thread.join();
+            }
+
+            for(Future<List<MatchResult<String>>> future : futures) {
+                try {
+                    // times out if a request was left in the queue
+                    future.get(10, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause(), is(instanceOf(RejectedExecutionException.class)));
+                }
+            }
+        }
+    }
+
+    private double[] noise() {
+        double[] voiceSample = new double[1024];
+        for(int i = 0; i < voiceSample.length; i++) {
+            voiceSample[i] = random.nextDouble() * 2 - 1;
+        }
+        return voiceSample;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.bitsinharmony.recognito.features.FeaturesExtractor;
+import com.bitsinharmony.recognito.features.FeaturesExtractorFactory;
+
+/**
+ * Tests for the IdentificationSession class
+ * @author Amaury Crickx
+ */
+public class IdentificationSessionTest {
+
+    private static final float DEFAULT_SAMPLE_RATE = 22050f;
+    // 200 ms, the minimum voice activity length
+    private static final int CHUNK_LENGTH = 4410;
+
+    private Recognito<String> recognito;
+
+    @Before
+    public void setUp() {
+        recognito = new Recognito<String>(DEFAULT_SAMPLE_RATE);
+    }
+
+    @Test
+    public void chunkedFeaturesYieldTheDistancesOfTheWholeSample() {
+        for(int i = 0; i < 4; i++) {
+            recognito.createVoicePrint("" + i, speaker(i, 1000 + i, 22050));
+        }
+        double[] voiceSample = speaker(2, 42L, CHUNK_LENGTH * 5);
+        IdentificationSession<String> session = new IdentificationSession<String>(recognito);
+        session.setRescoringInterval(Integer.MAX_VALUE);
+        session.setDecisionMargin(1.0d);
+
+        for(double[] chunk : split(voiceSample, CHUNK_LENGTH)) {
+            session.addAudio(chunk);
+        }
+        List<MatchResult<String>> matches = session.getMatches();
+        List<MatchResult<String>> expected = recognito.identify(voiceSample);
+
+        assertThat(matches.size(), is(equalTo(expected.size())));
+        for(int i = 0; i < expected.size(); i++) {
+            assertThat(matches.get(i).getKey(), is(equalTo(expected.get(i).getKey())));
+            assertThat(matches.get(i).getDistance(), is(closeTo(expected.get(i).getDistance(), 1E-6d)));
+        }
+    }
+
+    @Test
+    public void sessionIsDecidedBeforeAllTheAudioIsReceived() {
+        for(int i = 0; i < 4; i++) {
+            recognito.createVoicePrint("" + i, speaker(i, 1000 + i, 22050));
+        }
+        List<double[]> chunks = split(speaker(3, 42L, CHUNK_LENGTH * 20), CHUNK_LENGTH);
+        IdentificationSession<String> session = new IdentificationSession<String>(recognito);
+        session.setRescoringInterval(16);
+
+        int received = 0;
+        while(received < chunks.size() && !session.addAudio(chunks.get(received))) {
+            received++;
+        }
+
+        assertThat(session.isDecided(), is(true));
+        assertThat(received, is(lessThan(chunks.size() - 1)));
+        assertThat(session.getMatches().get(0).getKey(), is(equalTo("3")));
+    }
+
+    @Test
+    public void candidateSetShrinksAfterTheFirstScoring() {
+        for(int i = 0; i < 10; i++) {
+            recognito.createVoicePrint("" + i, speaker(i, 1000 + i, 22050));
+        }
+        IdentificationSession<String> session = new IdentificationSession<String>(recognito);
+        session.setMaxCandidates(8);
+        session.setDecisionMargin(1.0d);
+        // one scoring per chunk
+        session.setRescoringInterval(1);
+        double[] voiceSample = speaker(5, 42L, CHUNK_LENGTH * 4);
+        List<double[]> chunks = split(voiceSample, CHUNK_LENGTH);
+
+        assertThat(session.getCandidateCount(), is(equalTo(10)));
+        int[] expectedCounts = new int[] { 8, 4, 2, 2 };
+        for(int i = 0; i < chunks.size(); i++) {
+            session.addAudio(chunks.get(i));
+            assertThat(session.getCandidateCount(), is(equalTo(expectedCounts[i])));
+        }
+        assertThat(session.getMatches().get(0).getKey(), is(equalTo("5")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void matchesAreUnavailableBeforeTheFirstWindow() {
+        recognito.createVoicePrint("1", speaker(1, 1000, 22050));
+        IdentificationSession<String> session = new IdentificationSession<String>(recognito);
+        session.addAudio(new double[100]);
+
+        session.getMatches();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void extractorsNotWorkingWindowByWindowAreRejected() {
+        recognito.setFeaturesExtractorFactory(new FeaturesExtractorFactory() {
+            @Override
+            public FeaturesExtractor<double[]> newFeaturesExtractor(float sampleRate) {
+                return new FeaturesExtractor<double[]>() {
+                    @Override
+                    public double[] extractFeatures(double[] voiceSample) {
+                        return new double[20];
+                    }
+                };
+            }
+
+            @Override
+            public String getFeaturesKind() {
+                return "lpc-20";
+            }
+        });
+        new IdentificationSession<String>(recognito);
+    }
+
+    /**
+     * Noise through a speaker specific pair of resonances, a crude vocal tract
+     */
+    private double[] speaker(int speaker, long seed, int length) {
+        Random random = new Random(seed);
+        double[] voiceSample = new double[length];
+        double[] y1 = new double[2];
+        double[] y2 = new double[2];
+        for(int i = 0; i < length; i++) {
+            double x = random.nextDouble() * 2 - 1;
+            double out = 0.0d;
+            for(int r = 0; r < 2; r++) {
+                double frequency = 300 + 250 * speaker + 1400 * r;
+                double w = 2 * Math.PI * frequency / DEFAULT_SAMPLE_RATE;
+                double y = x + 2 * 0.97 * Math.cos(w) * y1[r] - 0.97 * 0.97 * y2[r];
+                y2[r] = y1[r];
+                y1[r] = y;
+                out += y;
+            }
+            voiceSample[i] = out;
+        }
+        double max = 0.0d;
+        for(double value : voiceSample) {
+            max = Math.max(max, Math.abs(value));
+        }
+        for(int i = 0; i < length; i++) {
+            voiceSample[i] /= max;
+        }
+        return voiceSample;
+    }
+
+    private List<double[]> split(double[] voiceSample, int chunkLength) {
+        List<double[]> chunks = new ArrayList<double[]>();
+        for(int i = 0; i < voiceSample.length; i += chunkLength) {
+            chunks.add(Arrays.copyOfRange(voiceSample, i, Math.min(voiceSample.length, i + chunkLength)));
+        }
+        return chunks;
+    }
+}
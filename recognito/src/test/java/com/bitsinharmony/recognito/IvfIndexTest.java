@@ -0,0 +1,218 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.bitsinharmony.recognito.metrics.CumulativeMetricsCollector;
+
+/**
+ * Tests for the IvfIndex class
+ * @author Amaury Crickx
+ */
+public class IvfIndexTest {
+
+    private static final float DEFAULT_SAMPLE_RATE = 22050f;
+    private static final int CLUSTERS = 8;
+    private static final int PER_CLUSTER = 50;
+    private static final int DIMENSIONS = 20;
+
+    private final Random random = new Random(42L);
+
+    private Recognito<String> recognito;
+    private double[][] clusterCenters;
+
+    @Before
+    public void setUp() {
+        recognito = new Recognito<String>(DEFAULT_SAMPLE_RATE);
+        clusterCenters = new double[CLUSTERS][DIMENSIONS];
+        for(int c = 0; c < CLUSTERS; c++) {
+            for(int d = 0; d < DIMENSIONS; d++) {
+                clusterCenters[c][d] = random.nextDouble() * 100;
+            }
+        }
+    }
+
+    @Test
+    public void partitionsFollowTheClustersOfTheGallery() {
+        enroll(0, PER_CLUSTER);
+        IvfIndex<String> index = new IvfIndex<String>(CLUSTERS);
+        recognito.setIndex(index);
+
+        for(int c = 0; c < CLUSTERS; c++) {
+            List<String> candidates = index.getCandidates(new VoicePrint(around(c)));
+            assertThat(candidates.size(), is(equalTo(PER_CLUSTER)));
+            for(String candidate : candidates) {
+                assertThat(candidate.startsWith(c + "-"), is(true));
+            }
+        }
+    }
+
+    @Test
+    public void newVoicePrintsJoinTheirClosestPartition() {
+        enroll(0, PER_CLUSTER);
+        IvfIndex<String> index = new IvfIndex<String>(CLUSTERS);
+        recognito.setIndex(index);
+        
+        enroll(PER_CLUSTER, PER_CLUSTER + 5);
+
+        int total = 0;
+        for(int size : index.getPartitionSizes()) {
+            assertThat(size, is(equalTo(PER_CLUSTER + 5)));
+            total += size;
+        }
+        assertThat(total, is(equalTo(CLUSTERS * (PER_CLUSTER + 5))));
+        assertThat(new HashSet<String>(index.getCandidates(new VoicePrint(around(3)))).contains("3-" + PER_CLUSTER), 
+                is(true));
+    }
+
+    @Test
+    public void mergedVoicePrintsMoveToTheirNewPartition() {
+        enroll(0, PER_CLUSTER);
+        IvfIndex<String> index = new IvfIndex<String>(CLUSTERS);
+        recognito.setIndex(index);
+        
+        // far enough to drag the average into the other cluster
+        for(int i = 0; i < 10; i++) {
+            recognito.createOrMergeVoicePrint("0-0", around(5));
+        }
+
+        assertThat(index.getCandidates(new VoicePrint(around(5))).contains("0-0"), is(true));
+        assertThat(index.getCandidates(new VoicePrint(around(0))).contains("0-0"), is(false));
+    }
+
+    @Test
+    public void removedVoicePrintsLeaveTheirPartition() {
+        enroll(0, PER_CLUSTER);
+        IvfIndex<String> index = new IvfIndex<String>(CLUSTERS);
+        recognito.setIndex(index);
+        
+        recognito.removeVoicePrint("2-0");
+        VoicePrint replaced = recognito.replaceVoicePrint("4-0", noise());
+
+        assertThat(index.getCandidates(new VoicePrint(around(2))).contains("2-0"), is(false));
+        assertThat(index.getCandidates(replaced).contains("4-0"), is(true));
+        int total = 0;
+        for(int size : index.getPartitionSizes()) {
+            total += size;
+        }
+        assertThat(total, is(equalTo(CLUSTERS * PER_CLUSTER - 1)));
+    }
+
+    @Test
+    public void parallelTrainingYieldsTheSequentialPartitions() {
+        enroll(0, PER_CLUSTER * 4);
+        IvfIndex<String> sequential = new IvfIndex<String>(CLUSTERS * 2);
+        IvfIndex<String> parallel = new IvfIndex<String>(CLUSTERS * 2);
+        for(Entry<String, VoicePrint> entry : recognito.getVoicePrintEntries()) {
+            sequential.add(entry.getKey(), entry.getValue());
+            parallel.add(entry.getKey(), entry.getValue());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            sequential.train(null);
+            parallel.train(executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(parallel.getPartitionSizes(), is(equalTo(sequential.getPartitionSizes())));
+        VoicePrint query = new VoicePrint(around(2));
+        assertThat(new HashSet<String>(parallel.getCandidates(query)), 
+                is(equalTo((Set<String>) new HashSet<String>(sequential.getCandidates(query)))));
+    }
+
+    @Test
+    public void probingAllPartitionsIsAnExactScan() {
+        for(int i = 0; i < 30; i++) {
+            recognito.createVoicePrint("" + i, noise());
+        }
+        double[] query = noise();
+        List<MatchResult<String>> expected = recognito.identify(query.clone());
+        IvfIndex<String> index = new IvfIndex<String>(4);
+        recognito.setIndex(index);
+        index.setProbeCount(4);
+
+        List<MatchResult<String>> matches = recognito.identify(query.clone());
+
+        assertThat(matches.size(), is(equalTo(expected.size())));
+        for(int i = 0; i < expected.size(); i++) {
+            assertThat(matches.get(i).getKey(), is(equalTo(expected.get(i).getKey())));
+            assertThat(matches.get(i).getLikelihoodRatio(), is(equalTo(expected.get(i).getLikelihoodRatio())));
+        }
+    }
+
+    @Test
+    public void probingFewerPartitionsScoresFewerVoicePrints() {
+        for(int i = 0; i < 30; i++) {
+            recognito.createVoicePrint("" + i, noise());
+        }
+        recognito.setIndex(new IvfIndex<String>(4));
+        CumulativeMetricsCollector metrics = new CumulativeMetricsCollector();
+        recognito.setMetricsCollector(metrics);
+
+        List<MatchResult<String>> matches = recognito.identify(noise());
+
+        assertThat(matches.size(), is(greaterThan(0)));
+        assertThat(matches.size(), is(lessThan(30)));
+        assertThat(metrics.getCandidatesScored(), is(equalTo((long) matches.size())));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void probeCountMayNotExceedThePartitionCount() {
+        new IvfIndex<String>(4).setProbeCount(5);
+    }
+
+    private void enroll(int from, int to) {
+        for(int c = 0; c < CLUSTERS; c++) {
+            for(int i = from; i < to; i++) {
+                recognito.createOrMergeVoicePrint(c + "-" + i, around(c));
+            }
+        }
+    }
+
+    private double[] around(int cluster) {
+        double[] features = new double[DIMENSIONS];
+        for(int d = 0; d < DIMENSIONS; d++) {
+            features[d] = clusterCenters[cluster][d] + random.nextGaussian();
+        }
+        return features;
+    }
+
+    private double[] noise() {
+        double[] voiceSample = new double[4096];
+        for(int i = 0; i < voiceSample.length; i++) {
+            voiceSample[i] = random.nextDouble() * 2 - 1;
+        }
+        return voiceSample;
+    }
+}
@@ -16,13 +16,37 @@
  */
 package com.bitsinharmony.recognito;
 
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
 
 import mockit.Expectations;
 import mockit.Mocked;
@@ -31,7 +55,15 @@ import mockit.Verifications;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.bitsinharmony.recognito.cache.FeaturesCache;
 import com.bitsinharmony.recognito.distances.DistanceCalculator;
+import com.bitsinharmony.recognito.distances.EuclideanDistanceCalculator;
+import com.bitsinharmony.recognito.features.LpcFeaturesExtractor;
+import com.bitsinharmony.recognito.features.MfccFeaturesExtractor;
+import com.bitsinharmony.recognito.metrics.CumulativeMetricsCollector;
+import com.bitsinharmony.recognito.metrics.Stage;
+import com.bitsinharmony.recognito.samples.SampleSource;
+import com.bitsinharmony.recognito.utils.ExecutorHelper;
 
 public class RecognitoTest {
     
@@ -210,11 +242,548 @@ public class RecognitoTest {
         assertThat(distance, is(equalTo(Double.MAX_VALUE)));
     }
 
-    @Test(expected = IllegalArgumentException.class) 
+    @Test(expected = NullPointerException.class)
+    public void verifyThrowsNullPointerExceptionWhenTheClaimedKeyIsNull() {
+        recognito.verify(null, voiceSample);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyThrowsIllegalArgumentExceptionWhenTheClaimedKeyIsUnknown() {
+        recognito.createVoicePrint("1", voiceSample);
+        recognito.verify("duh", voiceSample);
+    }
+
+    @Test
+    public void verifyOnlyScoresTheClaimedVoicePrint() {
+        final VoicePrint vp1 = recognito.createVoicePrint("1", voiceSample);
+        final VoicePrint vp2 = recognito.createVoicePrint("2", voiceSample);
+
+        new Expectations(vp1, vp2) {{
+            vp1.getDistance((DistanceCalculator) any, (VoicePrint) any); result = 1.0D; times = 1;
+            vp2.getDistance((DistanceCalculator) any, (VoicePrint) any); times = 0;
+        }};
+
+        MatchResult<String> match = recognito.verify("1", voiceSample);
+
+        assertThat(match.getKey(), is(equalTo("1")));
+        assertThat(match.getDistance(), is(equalTo(1.0D)));
+    }
+
+    @Test
+    public void verifyYieldsTheSameLikelihoodRatioAsIdentify() {
+        final double[] voiceSample2 = new double[1024];
+        fillWithNoise(voiceSample2);
+        final double[] voiceSample3 = new double[1024];
+        fillWithNoise(voiceSample3);
+        recognito.createVoicePrint("1", voiceSample);
+        recognito.createVoicePrint("2", voiceSample2);
+
+        List<MatchResult<String>> matches = recognito.identify(voiceSample3.clone());
+        MatchResult<String> match = recognito.verify(matches.get(0).getKey(), voiceSample3.clone());
+
+        assertThat(match.getLikelihoodRatio(), is(equalTo(matches.get(0).getLikelihoodRatio())));
+    }
+
+    @Test
+    public void asyncMethodsYieldTheSameResultsAsTheirBlockingCounterparts() 
+            throws InterruptedException, ExecutionException {
+        recognito.createVoicePrintAsync("1", voiceSample.clone()).get();
+        recognito.mergeVoiceSampleAsync("1", voiceSample.clone()).get();
+        
+        List<MatchResult<String>> matches = recognito.identifyAsync(voiceSample.clone()).get();
+        MatchResult<String> match = recognito.verifyAsync("1", voiceSample.clone()).get();
+
+        assertThat(matches.get(0).getKey(), is(equalTo("1")));
+        assertThat(match.getLikelihoodRatio(), is(equalTo(matches.get(0).getLikelihoodRatio())));
+    }
+    
+    @Test(expected = ExecutionException.class)
+    public void asyncMethodsReportFailuresThroughTheFuture() 
+            throws InterruptedException, ExecutionException {
+        recognito.mergeVoiceSampleAsync("duh", voiceSample).get();
+    }
+    
+    @Test(expected = RejectedExecutionException.class)
+    public void asyncMethodsShedLoadWhenTheExecutorIsSaturated() throws InterruptedException {
+        ExecutorService executor = ExecutorHelper.newBoundedExecutorService(1, 1);
+        recognito.setExecutorService(executor);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Runnable blocker = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        try {
+            executor.submit(blocker);
+            executor.submit(blocker);
+            recognito.identifyAsync(voiceSample);
+        } finally {
+            latch.countDown();
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    public void fileBasedAsyncMethodsShedLoadWhenTooManyFilesArePending() 
+            throws InterruptedException, ExecutionException, IOException {
+        ExecutorService executor = ExecutorHelper.newBoundedExecutorService(1, 1);
+        recognito.setExecutorService(executor);
+        recognito.setMaxPendingFiles(1);
+        recognito.createVoicePrint("1", voiceSample.clone());
+        final CountDownLatch latch = new CountDownLatch(1);
+        File file = writeWaveFile(voiceSample);
+        try {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            Future<List<MatchResult<String>>> pending = recognito.identifyAsync(file);
+            try {
+                recognito.identifyAsync(file);
+                fail("The second file should be rejected before being read");
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+            latch.countDown();
+            
+            assertThat(pending.get().get(0).getKey(), is(equalTo("1")));
+            // the permit is released once processed
+            recognito.identifyAsync(file).get();
+        } finally {
+            latch.countDown();
+            executor.shutdown();
+            file.delete();
+        }
+    }
+    
+    @Test
+    public void cancellingFilesDroppedByAProcessingExecutorShutdownReleasesTheirPendingSlot() 
+            throws Exception {
+        ExecutorService executor = ExecutorHelper.newBoundedExecutorService(1, 1);
+        recognito.setExecutorService(executor);
+        recognito.setMaxPendingFiles(1);
+        recognito.createVoicePrint("1", voiceSample.clone());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        File file = writeWaveFile(voiceSample);
+        try {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            started.await();
+            Future<List<MatchResult<String>>> dropped = recognito.identifyAsync(file);
+            // decoded then queued behind the blocking task
+            while(((ThreadPoolExecutor) executor).getQueue().isEmpty()) {
+                Thread.sleep(1);
+            }
+            executor.shutdownNow();
+            
+            assertThat(dropped.cancel(false), is(true));
+            ExecutorService other = ExecutorHelper.newBoundedExecutorService(1, 1);
+            recognito.setExecutorService(other);
+            try {
+                assertThat(recognito.identifyAsync(file).get(10, TimeUnit.SECONDS).get(0).getKey(), is(equalTo("1")));
+            } finally {
+                other.shutdown();
+            }
+        } finally {
+            latch.countDown();
+            file.delete();
+        }
+    }
+    
+    @Test
+    public void fileBasedAsyncMethodsReportASaturatedExecutorThroughTheFuture() 
+            throws InterruptedException, IOException {
+        ExecutorService executor = ExecutorHelper.newBoundedExecutorService(1, 1);
+        recognito.setExecutorService(executor);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Runnable blocker = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        File file = writeWaveFile(voiceSample);
+        try {
+            executor.submit(blocker);
+            executor.submit(blocker);
+            recognito.identifyAsync(file).get();
+            fail("The Future should report the rejection");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(RejectedExecutionException.class)));
+        } finally {
+            latch.countDown();
+            executor.shutdown();
+            file.delete();
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void setMaxPendingFilesToZeroThrowsIllegalArgumentException() {
+        recognito.setMaxPendingFiles(0);
+    }
+    
+    @Test
+    public void fileBasedAsyncMethodsDecodeOnTheIoExecutor() 
+            throws InterruptedException, ExecutionException, IOException {
+        File file = writeWaveFile(voiceSample);
+        try {
+            recognito.setIoExecutorService(ExecutorHelper.newIoExecutorService());
+            recognito.createVoicePrintAsync("1", file).get();
+            recognito.mergeVoiceSampleAsync("1", file).get();
+            
+            List<MatchResult<String>> matches = recognito.identifyAsync(file).get();
+            MatchResult<String> match = recognito.verifyAsync("1", file).get();
+            
+            assertThat(matches.get(0).getKey(), is(equalTo("1")));
+            assertThat(match.getLikelihoodRatio(), is(equalTo(matches.get(0).getLikelihoodRatio())));
+        } finally {
+            file.delete();
+        }
+    }
+    
+    @Test
+    public void fileBasedAsyncMethodsReportTheOriginalCauseOfFailures() 
+            throws InterruptedException, IOException {
+        File file = writeWaveFile(voiceSample);
+        try {
+            recognito.mergeVoiceSampleAsync("duh", file).get();
+            fail("The Future should report the failure");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalArgumentException.class)));
+        } finally {
+            file.delete();
+        }
+    }
+    
+    @Test
+    public void removedVoicePrintsAreNoLongerIdentified() {
+        VoicePrint vp = recognito.createVoicePrint("1", voiceSample.clone());
+        recognito.createVoicePrint("2", noise());
+        
+        VoicePrint removed = recognito.removeVoicePrint("1");
+        List<MatchResult<String>> matches = recognito.identify(voiceSample.clone());
+        
+        assertThat(removed, is(sameInstance(vp)));
+        assertThat(matches.size(), is(equalTo(1)));
+        assertThat(matches.get(0).getKey(), is(equalTo("2")));
+    }
+    
+    @Test
+    public void removeVoicePrintReturnsNullWhenTheUserKeyIsUnknown() {
+        assertThat(recognito.removeVoicePrint("duh"), is(nullValue()));
+    }
+    
+    @Test(expected = NullPointerException.class)
+    public void removeVoicePrintThrowsNullPointerExceptionWhenTheUserKeyIsNull() {
+        recognito.removeVoicePrint(null);
+    }
+    
+    @Test
+    public void removalTakesTheSamplesOfTheVoicePrintOutOfTheUniversalModel() {
+        double[] sample1 = noise();
+        double[] sample3 = noise();
+        recognito.createVoicePrint("1", sample1.clone());
+        recognito.createVoicePrint("2", noise());
+        recognito.mergeVoiceSample("2", noise());
+        recognito.createVoicePrint("3", sample3.clone());
+        Recognito<String> reference = new Recognito<String>(DEFAULT_SAMPLE_RATE);
+        reference.createVoicePrint("1", sample1.clone());
+        reference.createVoicePrint("3", sample3.clone());
+        
+        recognito.removeVoicePrint("2");
+        
+        assertThat(getDistance(recognito.getUniversalModel(), reference.getUniversalModel()), is(closeTo(0.0d, 1E-9d)));
+    }
+    
+    @Test
+    public void universalModelStartsAfreshOnceEveryVoicePrintIsRemoved() {
+        recognito.createVoicePrint("1", noise());
+        recognito.removeVoicePrint("1");
+        
+        VoicePrint vp = recognito.createVoicePrint("2", voiceSample);
+        
+        assertThat(vp.getDistance(new EqualityDistanceCalculator(), recognito.getUniversalModel()), is(equalTo(0d)));
+    }
+    
+    @Test
+    public void universalModelIsNotModifiedByRemovalOnceSetByUser() {
+        recognito.createVoicePrint("1", voiceSample);
+        VoicePrint universalModel = new VoicePrint(new double[20]);
+        recognito.setUniversalModel(universalModel);
+        
+        recognito.removeVoicePrint("1");
+        
+        assertThat(universalModel.getDistance(new EqualityDistanceCalculator(), recognito.getUniversalModel()), 
+                is(equalTo(0d)));
+    }
+    
+    @Test
+    public void replaceVoicePrintYieldsTheSameStateAsCreatingTheNewVoicePrintInTheFirstPlace() {
+        double[] sample1 = noise();
+        double[] sample2 = noise();
+        VoicePrint original = recognito.createVoicePrint("1", noise());
+        recognito.mergeVoiceSample("1", noise());
+        recognito.createVoicePrint("2", sample2.clone());
+        Recognito<String> reference = new Recognito<String>(DEFAULT_SAMPLE_RATE);
+        VoicePrint expected = reference.createVoicePrint("1", sample1.clone());
+        reference.createVoicePrint("2", sample2.clone());
+        
+        VoicePrint replaced = recognito.replaceVoicePrint("1", sample1.clone());
+        
+        assertThat(replaced, is(not(sameInstance(original))));
+        assertThat(replaced.getDistance(new EqualityDistanceCalculator(), expected), is(equalTo(0d)));
+        assertThat(getDistance(recognito.getUniversalModel(), reference.getUniversalModel()), is(closeTo(0.0d, 1E-9d)));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void replaceVoicePrintThrowsIllegalArgumentExceptionWhenTheUserKeyIsUnknown() {
+        recognito.replaceVoicePrint("duh", voiceSample);
+    }
+    
+    @Test
+    public void universalModelOfLoadedVoicePrintsIsTheOneTheyWereCreatedWith() {
+        recognito.createVoicePrint("1", noise());
+        recognito.mergeVoiceSample("1", noise());
+        recognito.createVoicePrint("2", noise());
+        Map<String, VoicePrint> voicePrints = new HashMap<String, VoicePrint>();
+        for(Entry<String, VoicePrint> entry : recognito.getVoicePrintEntries()) {
+            voicePrints.put(entry.getKey(), entry.getValue());
+        }
+        
+        Recognito<String> loaded = new Recognito<String>(DEFAULT_SAMPLE_RATE, voicePrints);
+        
+        assertThat(getDistance(loaded.getUniversalModel(), recognito.getUniversalModel()), is(closeTo(0.0d, 1E-9d)));
+    }
+    
+    @Test
+    public void filesOfHigherSampleRatesAreResampledWhileDecoding() throws Exception {
+        double[] voiceSample = new double[44100];
+        for(int i = 0; i < voiceSample.length; i++) {
+            voiceSample[i] = 0.3d * Math.sin(2 * Math.PI * 440 * i / 44100.0d) + 0.1d * random.nextGaussian();
+        }
+        File file = writeWaveFile(voiceSample, 44100.0f);
+        try {
+            double[] decoded = recognito.convertFileToDoubleArray(file);
+            VoicePrint fromFile = recognito.createVoicePrint("file", file);
+            VoicePrint fromArray = recognito.createVoicePrint("array", decoded);
+            
+            assertThat(decoded.length, is(equalTo(22050)));
+            // 16 bit PCM rather than doubles
+            assertThat(getDistance(fromFile, fromArray), is(closeTo(0.0d, 1E-3d)));
+        } finally {
+            file.delete();
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void filesOfLowerSampleRatesAreRejected() throws Exception {
+        File file = writeWaveFile(noise(), 16000.0f);
+        try {
+            recognito.createVoicePrint("file", file);
+        } finally {
+            file.delete();
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void setExecutorServiceToNullValueThrowsIllegalArgumentException() {
+        recognito.setExecutorService(null);
+    }
+
+    @Test
+    public void metricsCollectorReceivesTheMeasurementsOfEachStage() throws Exception {
+        CumulativeMetricsCollector metrics = new CumulativeMetricsCollector();
+        recognito.setMetricsCollector(metrics);
+        recognito.createVoicePrint("1", voiceSample);
+        recognito.createVoicePrint("2", voiceSample.clone());
+        File file = writeWaveFile(voiceSample);
+        try {
+            recognito.identify(file);
+        } finally {
+            file.delete();
+        }
+        
+        assertThat(metrics.getCount(Stage.DECODE), is(equalTo(1L)));
+        assertThat(metrics.getCount(Stage.VAD), is(equalTo(3L)));
+        assertThat(metrics.getCount(Stage.NORMALIZE), is(equalTo(3L)));
+        assertThat(metrics.getCount(Stage.FEATURES), is(equalTo(3L)));
+        assertThat(metrics.getCount(Stage.SCORING), is(equalTo(1L)));
+        assertThat(metrics.getCount(Stage.SORTING), is(equalTo(1L)));
+        assertThat(metrics.getCandidatesScored(), is(equalTo(2L)));
+        // 1024 samples at 22050 Hz : windows of 512 samples with a step of 256
+        assertThat(metrics.getWindows(), is(equalTo(9L)));
+    }
+    
+    @Test
+    public void samplesSourcesYieldTheSameFeaturesAsArraysOfDoubles() {
+        // noise surrounded by silence, so that silence removal and fades take place
+        short[] pcm = new short[(int) DEFAULT_SAMPLE_RATE];
+        for(int i = pcm.length / 4; i < pcm.length * 3 / 4; i++) {
+            pcm[i] = (short) (random.nextInt(16384) - 8192);
+        }
+        double[] values = new double[pcm.length];
+        for(int i = 0; i < pcm.length; i++) {
+            values[i] = (double) pcm[i] / 32768;
+        }
+        
+        double[] expected = recognito.extractFeatures(values.clone(), DEFAULT_SAMPLE_RATE);
+
+        assertThat(recognito.extractFeatures(SampleSource.of(pcm), DEFAULT_SAMPLE_RATE), is(equalTo(expected)));
+        recognito.createVoicePrint("pcm", SampleSource.of(pcm));
+        recognito.createVoicePrint("double", values.clone());
+        List<MatchResult<String>> matches = recognito.identify(SampleSource.of(pcm));
+        assertThat(matches.get(0).getDistance(), is(equalTo(0.0d)));
+        assertThat(matches.get(1).getDistance(), is(equalTo(0.0d)));
+        assertThat(recognito.verify("double", SampleSource.of(pcm)).getDistance(), is(equalTo(0.0d)));
+    }
+    
+    @Test
+    public void repeatedVoiceSamplesHitTheFeaturesCache() {
+        FeaturesCache cache = new FeaturesCache(10);
+        recognito.setFeaturesCache(cache);
+        CumulativeMetricsCollector metrics = new CumulativeMetricsCollector();
+        recognito.setMetricsCollector(metrics);
+        
+        recognito.createVoicePrint("1", voiceSample.clone());
+        List<MatchResult<String>> matches = recognito.identify(voiceSample.clone());
+        recognito.identify(SampleSource.of(voiceSample));
+        
+        assertThat(matches.get(0).getDistance(), is(equalTo(0.0d)));
+        assertThat(cache.getMissCount(), is(equalTo(1L)));
+        assertThat(cache.getHitCount(), is(equalTo(2L)));
+        assertThat(metrics.getCount(Stage.FEATURES), is(equalTo(1L)));
+    }
+    
+    @Test
+    public void featuresCachedForAnotherKindOfFeaturesAreNotServed() {
+        FeaturesCache cache = new FeaturesCache(10);
+        recognito.setFeaturesCache(cache);
+        
+        assertThat(recognito.extractFeatures(voiceSample.clone(), DEFAULT_SAMPLE_RATE).length, is(equalTo(20)));
+        recognito.setFeaturesExtractorFactory(MfccFeaturesExtractor.newFactory(13));
+        
+        assertThat(recognito.extractFeatures(voiceSample.clone(), DEFAULT_SAMPLE_RATE).length, is(equalTo(13)));
+        assertThat(cache.getMissCount(), is(equalTo(2L)));
+        assertThat(cache.size(), is(equalTo(2)));
+    }
+    
+    @Test
+    public void selectedFeaturesExtractorIsUsedForAllVoicePrints() {
+        recognito.setFeaturesExtractorFactory(MfccFeaturesExtractor.newFactory(13));
+        CumulativeMetricsCollector metrics = new CumulativeMetricsCollector();
+        recognito.setMetricsCollector(metrics);
+        
+        assertThat(recognito.extractFeatures(voiceSample.clone(), DEFAULT_SAMPLE_RATE).length, is(equalTo(13)));
+        recognito.createVoicePrint("1", voiceSample.clone());
+        List<MatchResult<String>> matches = recognito.identify(voiceSample);
+        assertThat(matches.get(0).getKey(), is(equalTo("1")));
+        assertThat(matches.get(0).getDistance(), is(equalTo(0.0d)));
+        assertThat(metrics.getCount(Stage.FEATURES), is(equalTo(3L)));
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void featuresExtractorMayNotBeChangedForAnotherKindOnceVoicePrintsAreEnrolled() {
+        recognito.createVoicePrint("1", voiceSample);
+        recognito.setFeaturesExtractorFactory(MfccFeaturesExtractor.newFactory(13));
+    }
+    
+    @Test
+    public void featuresExtractorMayBeChangedForTheSameKindOnceVoicePrintsAreEnrolled() {
+        recognito.createVoicePrint("1", voiceSample.clone());
+        recognito.setFeaturesExtractorFactory(LpcFeaturesExtractor.newFactory(20, null, 1));
+        
+        assertThat(recognito.identify(voiceSample.clone()).get(0).getDistance(), is(closeTo(0.0d, 1E-12d)));
+    }
+    
+    @Test
+    public void featuresExtractorMayBeChangedOnceTheEnrolledVoicePrintsAreRemoved() {
+        recognito.createVoicePrint("1", voiceSample.clone());
+        recognito.removeVoicePrint("1");
+        
+        recognito.setFeaturesExtractorFactory(MfccFeaturesExtractor.newFactory(13));
+    }
+    
+    @Test
+    public void featuresExtractorMayBeSetForVoicePrintsPassedIntoTheConstructor() {
+        Recognito<String> mfcc = new Recognito<String>(DEFAULT_SAMPLE_RATE);
+        mfcc.setFeaturesExtractorFactory(MfccFeaturesExtractor.newFactory(13));
+        Map<String, VoicePrint> voicePrints = new HashMap<String, VoicePrint>();
+        voicePrints.put("1", mfcc.createVoicePrint("1", voiceSample.clone()));
+        
+        Recognito<String> loaded = new Recognito<String>(DEFAULT_SAMPLE_RATE, voicePrints);
+        loaded.setFeaturesExtractorFactory(MfccFeaturesExtractor.newFactory(13));
+        
+        assertThat(loaded.identify(voiceSample.clone()).get(0).getKey(), is(equalTo("1")));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void setFeaturesExtractorFactoryToNullValueThrowsIllegalArgumentException() {
+        recognito.setFeaturesExtractorFactory(null);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void setMetricsCollectorToNullValueThrowsIllegalArgumentException() {
+        recognito.setMetricsCollector(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
     public void setUniversalModelToNullValueThrowsIllegalArgumentException() {
         recognito.setUniversalModel(null);
     }
     
+    private File writeWaveFile(double[] voiceSample) throws IOException {
+        return writeWaveFile(voiceSample, DEFAULT_SAMPLE_RATE);
+    }
+    
+    private File writeWaveFile(double[] voiceSample, float sampleRate) throws IOException {
+        byte[] bytes = new byte[voiceSample.length * 2];
+        for(int i = 0; i < voiceSample.length; i++) {
+            short value = (short) (voiceSample[i] * Short.MAX_VALUE);
+            bytes[2 * i] = (byte) value;
+            bytes[2 * i + 1] = (byte) (value >> 8);
+        }
+        AudioFormat format = new AudioFormat(sampleRate, 16, 1, true, false);
+        AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(bytes), format, voiceSample.length);
+        File file = File.createTempFile("recognito", ".wav");
+        AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file);
+        return file;
+    }
+    
+    private double[] noise() {
+        double[] voiceSample = new double[1024];
+        fillWithNoise(voiceSample);
+        return voiceSample;
+    }
+    
+    private double getDistance(VoicePrint voicePrint1, VoicePrint voicePrint2) {
+        return voicePrint1.getDistance(new EuclideanDistanceCalculator(), voicePrint2);
+    }
+    
     private void fillWithNoise(final double[] voiceSample) {
         for(int i = 0; i < voiceSample.length; i++) {
             voiceSample[i] = random.nextDouble() * 2 - 1; // values between -1 and 1
@@ -0,0 +1,242 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.bitsinharmony.recognito.features.LpcFeaturesExtractor;
+import com.bitsinharmony.recognito.features.MfccFeaturesExtractor;
+
+/**
+ * Tests for the ShardedRecognito class and its shards
+ * @author Amaury Crickx
+ */
+public class ShardedRecognitoTest {
+
+    private static final float DEFAULT_SAMPLE_RATE = 22050f;
+    private static final int SPEAKERS = 12;
+
+    private final Random random = new Random(42L);
+
+    private Recognito<String> recognito;
+    private double[][] voiceSamples;
+
+    @Before
+    public void setUp() {
+        recognito = new Recognito<String>(DEFAULT_SAMPLE_RATE);
+        voiceSamples = new double[SPEAKERS][];
+        for(int i = 0; i < SPEAKERS; i++) {
+            voiceSamples[i] = noise();
+            recognito.createVoicePrint("" + i, voiceSamples[i].clone());
+        }
+    }
+
+    @Test
+    public void shardedResultsAreThoseOfASingleInstance() throws IOException {
+        List<LocalShard<String>> shards = localShards(3);
+        ShardedRecognito<String> sharded = enroll(new ShardedRecognito<String>(DEFAULT_SAMPLE_RATE, shards));
+        double[] merged = noise();
+        recognito.mergeVoiceSample("4", merged.clone());
+        sharded.mergeVoiceSample("4", merged.clone());
+        double[] query = noise();
+
+        assertSameMatches(sharded.identify(query.clone()), recognito.identify(query.clone()));
+        assertSameMatches(sharded.identify(query.clone(), 5), recognito.identify(query.clone(), 5));
+    }
+
+    @Test
+    public void userKeysArePartitionedOverTheShards() throws IOException {
+        List<LocalShard<String>> shards = localShards(3);
+        ShardedRecognito<String> sharded = enroll(new ShardedRecognito<String>(DEFAULT_SAMPLE_RATE, shards));
+
+        int total = 0;
+        for(LocalShard<String> shard : shards) {
+            assertThat(shard.size(), is(greaterThan(0)));
+            total += shard.size();
+        }
+        assertThat(total, is(equalTo(SPEAKERS)));
+        assertThat(sharded.getShard("7").identify(new double[20], 1.0d, SPEAKERS).size(), 
+                is(equalTo(sharded.getShard("7").size())));
+    }
+
+    @Test
+    public void shardsMayBeQueriedInParallel() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ShardedRecognito<String> sharded = 
+                    enroll(new ShardedRecognito<String>(DEFAULT_SAMPLE_RATE, localShards(4), executor));
+            double[] query = noise();
+            
+            assertSameMatches(sharded.identify(query.clone(), 3), recognito.identify(query.clone(), 3));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void socketShardsYieldTheSameResultsAsLocalShards() throws IOException {
+        List<ShardServer<String>> servers = new ArrayList<ShardServer<String>>();
+        List<SocketShard<String>> shards = new ArrayList<SocketShard<String>>();
+        try {
+            for(int i = 0; i < 2; i++) {
+                ShardServer<String> server = new ShardServer<String>(new LocalShard<String>(), 0);
+                servers.add(server);
+                shards.add(new SocketShard<String>("localhost", server.getPort()));
+            }
+            ShardedRecognito<String> sharded = enroll(new ShardedRecognito<String>(DEFAULT_SAMPLE_RATE, shards));
+            double[] query = noise();
+
+            assertSameMatches(sharded.identify(query.clone()), recognito.identify(query.clone()));
+            assertThat(shards.get(0).size() + shards.get(1).size(), is(equalTo(SPEAKERS)));
+            try {
+                sharded.createVoicePrint("3", noise());
+                throw new AssertionError("The remote exception should be thrown again");
+            } catch (IllegalArgumentException e) {
+                // the connection remains usable
+                assertSameMatches(sharded.identify(query.clone()), recognito.identify(query.clone()));
+            }
+        } finally {
+            for(SocketShard<String> shard : shards) {
+                shard.close();
+            }
+            for(ShardServer<String> server : servers) {
+                server.close();
+            }
+        }
+    }
+
+    @Test
+    public void shardServersCloseConnectionsSendingKeysOfOtherClasses() throws IOException {
+        LocalShard<Object> localShard = new LocalShard<Object>();
+        ShardServer<Object> server = new ShardServer<Object>(localShard, 0);
+        // the client allows it, the server doesn't
+        SocketShard<Object> shard = new SocketShard<Object>("localhost", server.getPort(), Date.class);
+        try {
+            shard.createVoicePrint(new Date(), new double[] { 1.0d, 2.0d });
+            throw new AssertionError("The connection should be closed");
+        } catch (IOException e) {
+            // expected
+        } finally {
+            shard.close();
+            server.close();
+        }
+        assertThat(localShard.size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void keyClassesAllowedOnBothEndsAreExchanged() throws IOException {
+        LocalShard<UUID> localShard = new LocalShard<UUID>();
+        ShardServer<UUID> server = new ShardServer<UUID>(localShard, 0, InetAddress.getByName(null), UUID.class);
+        SocketShard<UUID> shard = new SocketShard<UUID>("localhost", server.getPort(), UUID.class);
+        try {
+            UUID userKey = UUID.randomUUID();
+            shard.createVoicePrint(userKey, new double[] { 1.0d, 2.0d });
+            try {
+                shard.mergeFeatures(UUID.randomUUID(), new double[] { 1.0d, 2.0d });
+                throw new AssertionError("The remote exception should be thrown again");
+            } catch (IllegalArgumentException e) {
+                // the connection remains usable
+            }
+            List<MatchResult<UUID>> matches = shard.identify(new double[] { 1.0d, 3.0d }, 1.0d, 1);
+
+            assertThat(matches.get(0).getKey(), is(equalTo(userKey)));
+            assertThat(matches.get(0).getDistance(), is(equalTo(1.0d)));
+            assertThat(shard.size(), is(equalTo(1)));
+        } finally {
+            shard.close();
+            server.close();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void identifyingWithoutVoicePrintsIsRejected() throws IOException {
+        new ShardedRecognito<String>(DEFAULT_SAMPLE_RATE, localShards(2)).identify(noise());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void featuresExtractorMayNotBeChangedForAnotherKindOnceVoicePrintsAreCreated() throws IOException {
+        ShardedRecognito<String> sharded = enroll(new ShardedRecognito<String>(DEFAULT_SAMPLE_RATE, localShards(2)));
+
+        sharded.setFeaturesExtractorFactory(MfccFeaturesExtractor.newFactory(13));
+    }
+
+    @Test
+    public void featuresExtractorMayBeChangedForTheSameKindOnceVoicePrintsAreCreated() throws IOException {
+        ShardedRecognito<String> sharded = enroll(new ShardedRecognito<String>(DEFAULT_SAMPLE_RATE, localShards(2)));
+
+        sharded.setFeaturesExtractorFactory(LpcFeaturesExtractor.newFactory(20));
+        sharded.setFeaturesExtractorFactory(LpcFeaturesExtractor.newFactory(20));
+    }
+
+    @Test
+    public void featuresExtractorMayBeChangedForAnotherKindBeforeVoicePrintsAreCreated() throws IOException {
+        ShardedRecognito<String> sharded = new ShardedRecognito<String>(DEFAULT_SAMPLE_RATE, localShards(2));
+
+        sharded.setFeaturesExtractorFactory(MfccFeaturesExtractor.newFactory(13));
+        sharded.createVoicePrint("1", noise());
+
+        assertThat(sharded.getUniversalModel().getFeaturesLength(), is(equalTo(13)));
+    }
+
+    private List<LocalShard<String>> localShards(int count) {
+        List<LocalShard<String>> shards = new ArrayList<LocalShard<String>>();
+        for(int i = 0; i < count; i++) {
+            shards.add(new LocalShard<String>());
+        }
+        return shards;
+    }
+
+    private ShardedRecognito<String> enroll(ShardedRecognito<String> sharded) throws IOException {
+        for(int i = 0; i < SPEAKERS; i++) {
+            sharded.createVoicePrint("" + i, voiceSamples[i].clone());
+        }
+        return sharded;
+    }
+
+    private void assertSameMatches(List<MatchResult<String>> actual, List<MatchResult<String>> expected) {
+        assertThat(actual.size(), is(equalTo(expected.size())));
+        for(int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getKey(), is(equalTo(expected.get(i).getKey())));
+            assertThat(actual.get(i).getDistance(), is(equalTo(expected.get(i).getDistance())));
+            assertThat(actual.get(i).getLikelihoodRatio(), is(equalTo(expected.get(i).getLikelihoodRatio())));
+        }
+    }
+
+    private double[] noise() {
+        double[] voiceSample = new double[4096];
+        for(int i = 0; i < voiceSample.length; i++) {
+            voiceSample[i] = random.nextDouble() * 2 - 1;
+        }
+        return voiceSample;
+    }
+}
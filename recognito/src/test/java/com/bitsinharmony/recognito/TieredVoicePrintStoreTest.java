@@ -0,0 +1,338 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.bitsinharmony.recognito.distances.EuclideanDistanceCalculator;
+
+public class TieredVoicePrintStoreTest {
+
+    private static final float DEFAULT_SAMPLE_RATE = 22050f;
+    private static final int DIMENSIONS = 20;
+
+    private final Random random = new Random(42L);
+
+    private File coldFile;
+    private TieredVoicePrintStore<String> store;
+
+    @Before
+    public void setUp() throws IOException {
+        coldFile = File.createTempFile("recognito", ".cold");
+        store = new TieredVoicePrintStore<String>(2, coldFile);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+        coldFile.delete();
+    }
+
+    @Test
+    public void leastRecentlyUsedVoicePrintsAreMovedToTheColdFile() {
+        VoicePrint first = new VoicePrint(features());
+        first.merge(features());
+        store.put("1", first);
+        store.put("2", new VoicePrint(features()));
+        store.get("1");
+        store.put("3", new VoicePrint(features()));
+
+        assertThat(store.getHotCount(), is(equalTo(2)));
+        assertThat(store.getColdCount(), is(equalTo(1)));
+        assertThat(store.containsKey("2"), is(true));
+        assertThat(store.size(), is(equalTo(3)));
+        assertThat(store.getEvictionCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void coldVoicePrintsAreReadBackWithTheirNumberOfSamples() {
+        VoicePrint original = new VoicePrint(features());
+        original.merge(features());
+        store.put("1", original);
+        store.put("2", new VoicePrint(features()));
+        store.put("3", new VoicePrint(features()));
+
+        VoicePrint faulted = store.get("1");
+        // same mean only if the number of samples was kept
+        double[] merged = features();
+        faulted.merge(merged);
+        original.merge(merged);
+
+        assertThat(store.getFaultCount(), is(equalTo(1L)));
+        assertThat(getDistance(faulted, original), is(equalTo(0.0d)));
+    }
+
+    @Test
+    public void scansReadBothTiersWithoutMakingColdVoicePrintsHot() {
+        Map<String, VoicePrint> expected = new HashMap<String, VoicePrint>();
+        for(int i = 0; i < 200; i++) {
+            VoicePrint voicePrint = new VoicePrint(features());
+            expected.put("" + i, voicePrint);
+            store.put("" + i, voicePrint);
+        }
+
+        Map<String, VoicePrint> scanned = new HashMap<String, VoicePrint>();
+        for(Entry<String, VoicePrint> entry : store.entries()) {
+            assertThat(scanned.put(entry.getKey(), entry.getValue()), is(nullValue()));
+        }
+
+        assertThat(scanned.size(), is(equalTo(200)));
+        for(Entry<String, VoicePrint> entry : expected.entrySet()) {
+            assertThat(getDistance(scanned.get(entry.getKey()), entry.getValue()), is(equalTo(0.0d)));
+        }
+        assertThat(store.getFaultCount(), is(equalTo(0L)));
+        assertThat(store.getHotCount(), is(equalTo(2)));
+    }
+
+    @Test
+    public void removedColdVoicePrintsAreReadBackOnce() {
+        List<VoicePrint> voicePrints = new ArrayList<VoicePrint>();
+        for(int i = 0; i < 10; i++) {
+            voicePrints.add(new VoicePrint(features()));
+            store.put("" + i, voicePrints.get(i));
+        }
+
+        for(int i = 0; i < 8; i++) {
+            assertThat(getDistance(store.remove("" + i), voicePrints.get(i)), is(equalTo(0.0d)));
+            assertThat(store.remove("" + i), is(nullValue()));
+        }
+        // evicted into the freed slots
+        for(int i = 10; i < 14; i++) {
+            store.put("" + i, new VoicePrint(features()));
+        }
+
+        int count = 0;
+        for(Entry<String, VoicePrint> entry : store.entries()) {
+            assertThat(Integer.parseInt(entry.getKey()) >= 8, is(true));
+            count++;
+        }
+        assertThat(count, is(equalTo(6)));
+        assertThat(store.getColdCount(), is(equalTo(4)));
+    }
+
+    @Test
+    public void scansReturnEachKeyOnceWhileVoicePrintsMoveBetweenTiers() {
+        for(int i = 0; i < 200; i++) {
+            store.put("" + i, new VoicePrint(features()));
+        }
+
+        Set<String> scanned = new HashSet<String>();
+        Iterator<Entry<String, VoicePrint>> it = store.entries().iterator();
+        for(int i = 0; it.hasNext(); i++) {
+            assertThat(scanned.add(it.next().getKey()), is(true));
+            // faults cold voice prints in, evicting the hot ones of the scan start
+            store.get("" + (199 - i));
+        }
+
+        assertThat(scanned.size(), is(equalTo(200)));
+        assertThat(store.size(), is(equalTo(200)));
+        assertThat(store.getHotCount() + store.getColdCount(), is(equalTo(200)));
+    }
+
+    @Test
+    public void scansSkipHotVoicePrintsEvictedIntoFreedSlots() {
+        for(int i = 0; i < 10; i++) {
+            store.put("" + i, new VoicePrint(features()));
+        }
+
+        Set<String> scanned = new HashSet<String>();
+        Iterator<Entry<String, VoicePrint>> it = store.entries().iterator();
+        assertThat(scanned.add(it.next().getKey()), is(true));
+        // frees the last cold slot, then evicts a hot voice print of the scan start into it
+        store.remove("7");
+        store.put("10", new VoicePrint(features()));
+        while(it.hasNext()) {
+            assertThat(scanned.add(it.next().getKey()), is(true));
+        }
+
+        assertThat(scanned.size(), is(equalTo(9)));
+        assertThat(scanned.contains("7"), is(false));
+    }
+
+    @Test
+    public void peekReadsColdVoicePrintsWithoutMakingThemHot() {
+        VoicePrint original = new VoicePrint(features());
+        store.put("1", original);
+        store.put("2", new VoicePrint(features()));
+        store.put("3", new VoicePrint(features()));
+
+        VoicePrint peeked = store.peek("1");
+
+        assertThat(getDistance(peeked, original), is(equalTo(0.0d)));
+        assertThat(store.peek("4"), is(nullValue()));
+        assertThat(store.getFaultCount(), is(equalTo(0L)));
+        assertThat(store.getColdCount(), is(equalTo(1)));
+        assertThat(store.getEvictionCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void indexedIdentificationDoesNotMakeColdVoicePrintsHot() {
+        Recognito<String> recognito = new Recognito<String>(DEFAULT_SAMPLE_RATE, store);
+        for(int i = 0; i < 20; i++) {
+            recognito.createVoicePrint("" + i, noise());
+        }
+        IvfIndex<String> index = new IvfIndex<String>(2);
+        index.setProbeCount(2);
+        recognito.setIndex(index);
+        long evictions = store.getEvictionCount();
+
+        List<MatchResult<String>> matches = recognito.identify(noise());
+
+        assertThat(matches.size(), is(equalTo(20)));
+        assertThat(store.getFaultCount(), is(equalTo(0L)));
+        assertThat(store.getEvictionCount(), is(equalTo(evictions)));
+    }
+
+    @Test
+    public void voicePrintsMadeHotAgainAreEvictedToTheirOwnSlot() {
+        for(int i = 0; i < 10; i++) {
+            store.put("" + i, new VoicePrint(features()));
+        }
+        VoicePrint faulted = store.get("0");
+        faulted.merge(features());
+        store.put("0", faulted);
+        store.put("10", new VoicePrint(features()));
+        store.put("11", new VoicePrint(features()));
+
+        VoicePrint readBack = store.remove("0");
+
+        assertThat(getDistance(readBack, faulted), is(equalTo(0.0d)));
+        assertThat(store.remove("0"), is(nullValue()));
+        assertThat(store.size(), is(equalTo(11)));
+        assertThat(store.getColdCount(), is(equalTo(9)));
+    }
+
+    @Test
+    public void identifyReturnsEachKeyOnceWhileColdVoicePrintsAreVerified() throws Exception {
+        final Recognito<String> recognito = new Recognito<String>(DEFAULT_SAMPLE_RATE, store);
+        final int count = 40;
+        for(int i = 0; i < count; i++) {
+            recognito.createVoicePrint("" + i, noise());
+        }
+        final double[] query = noise();
+        final AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        List<Future<?>> verifications = new ArrayList<Future<?>>();
+        for(int t = 0; t < 2; t++) {
+            final int offset = t;
+            verifications.add(executorService.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for(int i = offset; !done.get(); i += 7) {
+                        recognito.verify("" + (i % count), query.clone());
+                    }
+                }
+            }));
+        }
+        try {
+            for(int i = 0; i < 50; i++) {
+                Set<String> keys = new HashSet<String>();
+                for(MatchResult<String> match : recognito.identify(query.clone())) {
+                    assertThat(keys.add(match.getKey()), is(true));
+                }
+                assertThat(keys.size(), is(equalTo(count)));
+            }
+        } finally {
+            done.set(true);
+            executorService.shutdown();
+        }
+        for(Future<?> verification : verifications) {
+            verification.get(10, TimeUnit.SECONDS);
+        }
+        assertThat(store.getFaultCount() > 0, is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void voicePrintsOfAnotherSizeAreRejected() {
+        store.put("1", new VoicePrint(features()));
+        
+        store.put("2", new VoicePrint(new double[DIMENSIONS + 1]));
+    }
+
+    @Test
+    public void recognitoYieldsTheSameResultsWithColdVoicePrints() {
+        Recognito<String> reference = new Recognito<String>(DEFAULT_SAMPLE_RATE);
+        Recognito<String> tiered = new Recognito<String>(DEFAULT_SAMPLE_RATE, store);
+        List<double[]> samples = new ArrayList<double[]>();
+        for(int i = 0; i < 6; i++) {
+            samples.add(noise());
+            reference.createVoicePrint("" + i, samples.get(i).clone());
+            tiered.createVoicePrint("" + i, samples.get(i).clone());
+        }
+        double[] merged = noise();
+        reference.mergeVoiceSample("0", merged.clone());
+        tiered.mergeVoiceSample("0", merged.clone());
+        double[] query = noise();
+
+        List<MatchResult<String>> expected = reference.identify(query.clone());
+        List<MatchResult<String>> matches = tiered.identify(query.clone());
+
+        assertThat(store.getColdCount(), is(equalTo(4)));
+        assertThat(matches.size(), is(equalTo(expected.size())));
+        for(int i = 0; i < expected.size(); i++) {
+            assertThat(matches.get(i).getKey(), is(equalTo(expected.get(i).getKey())));
+            assertThat(matches.get(i).getDistance(), is(closeTo(expected.get(i).getDistance(), 1E-12d)));
+        }
+        assertThat(tiered.verify("0", query.clone()).getDistance(), 
+                is(closeTo(reference.verify("0", query.clone()).getDistance(), 1E-12d)));
+    }
+
+    private double getDistance(VoicePrint voicePrint1, VoicePrint voicePrint2) {
+        return voicePrint1.getDistance(new EuclideanDistanceCalculator(), voicePrint2);
+    }
+
+    private double[] features() {
+        double[] features = new double[DIMENSIONS];
+        for(int i = 0; i < features.length; i++) {
+            features[i] = random.nextGaussian();
+        }
+        return features;
+    }
+
+    private double[] noise() {
+        double[] voiceSample = new double[4096];
+        for(int i = 0; i < voiceSample.length; i++) {
+            voiceSample[i] = random.nextDouble() * 2 - 1;
+        }
+        return voiceSample;
+    }
+}
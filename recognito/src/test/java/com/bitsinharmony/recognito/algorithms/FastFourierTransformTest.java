@@ -0,0 +1,110 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.algorithms;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class FastFourierTransformTest {
+    
+    private static final double TOLERANCE = 1E-9d;
+    
+    private final Random random = new Random();
+
+    @Test
+    public void forwardTransformMatchesTheDiscreteFourierTransform() {
+        for(int size = 1; size <= 256; size *= 2) {
+            double[] real = noise(size);
+            double[] imaginary = noise(size);
+            double[][] expected = discreteFourierTransform(real, imaginary);
+            
+            FastFourierTransform.getInstance(size).forward(real, imaginary);
+            
+            for(int i = 0; i < size; i++) {
+                assertThat(real[i], is(closeTo(expected[0][i], TOLERANCE)));
+                assertThat(imaginary[i], is(closeTo(expected[1][i], TOLERANCE)));
+            }
+        }
+    }
+    
+    @Test
+    public void inverseTransformRestoresTheOriginalSignal() {
+        double[] real = noise(1024);
+        double[] imaginary = noise(1024);
+        double[] originalReal = real.clone();
+        double[] originalImaginary = imaginary.clone();
+        FastFourierTransform fft = FastFourierTransform.getInstance(1024);
+        
+        fft.forward(real, imaginary);
+        fft.inverse(real, imaginary);
+        
+        for(int i = 0; i < real.length; i++) {
+            assertThat(real[i], is(closeTo(originalReal[i], TOLERANCE)));
+            assertThat(imaginary[i], is(closeTo(originalImaginary[i], TOLERANCE)));
+        }
+    }
+    
+    @Test
+    public void plansAreSharedPerSize() {
+        assertThat(FastFourierTransform.getInstance(512), is(sameInstance(FastFourierTransform.getInstance(512))));
+    }
+    
+    @Test
+    public void nextPowerOfTwoReturnsTheSmallestPowerOfTwoGreaterOrEqual() {
+        assertThat(FastFourierTransform.nextPowerOfTwo(1), is(equalTo(1)));
+        assertThat(FastFourierTransform.nextPowerOfTwo(512), is(equalTo(512)));
+        assertThat(FastFourierTransform.nextPowerOfTwo(513), is(equalTo(1024)));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void sizesOtherThanPowersOfTwoAreRejected() {
+        FastFourierTransform.getInstance(1000);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void arraysOfAnotherSizeAreRejected() {
+        FastFourierTransform.getInstance(512).forward(new double[256], new double[256]);
+    }
+    
+    private double[][] discreteFourierTransform(double[] real, double[] imaginary) {
+        int n = real.length;
+        double[][] result = new double[2][n];
+        for(int k = 0; k < n; k++) {
+            for(int t = 0; t < n; t++) {
+                double angle = -2 * Math.PI * t * k / n;
+                result[0][k] += real[t] * Math.cos(angle) - imaginary[t] * Math.sin(angle);
+                result[1][k] += real[t] * Math.sin(angle) + imaginary[t] * Math.cos(angle);
+            }
+        }
+        return result;
+    }
+    
+    private double[] noise(int length) {
+        double[] signal = new double[length];
+        for(int i = 0; i < length; i++) {
+            signal[i] = random.nextDouble() * 2 - 1;
+        }
+        return signal;
+    }
+}
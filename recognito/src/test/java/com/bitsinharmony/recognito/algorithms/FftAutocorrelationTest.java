@@ -0,0 +1,75 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.algorithms;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class FftAutocorrelationTest {
+    
+    private static final double TOLERANCE = 1E-9d;
+    
+    private final Random random = new Random();
+    private final DiscreteAutocorrelationAtLagJ reference = new DiscreteAutocorrelationAtLagJ();
+
+    @Test
+    public void resultsMatchTheDirectAutocorrelation() {
+        int[][] sizesAndLags = new int[][] { {1, 1}, {2, 2}, {7, 3}, {256, 20}, {1000, 200}, {2048, 2048} };
+        for(int[] sizeAndLags : sizesAndLags) {
+            double[] buffer = new double[sizeAndLags[0]];
+            for(int i = 0; i < buffer.length; i++) {
+                buffer[i] = random.nextDouble() * 2 - 1;
+            }
+            double[] autocorrelations = new double[sizeAndLags[1]];
+            
+            new FftAutocorrelation(buffer.length, autocorrelations.length).autocorrelate(buffer, autocorrelations);
+            
+            for(int lag = 0; lag < autocorrelations.length; lag++) {
+                assertThat(autocorrelations[lag], is(closeTo(reference.autocorrelate(buffer, lag), TOLERANCE)));
+            }
+        }
+    }
+    
+    @Test
+    public void arrayOfTwosAutocorrelationReturnsAValueEqualToLengthMinusLagTimesFour() {
+        double[] arrayOfTwos = new double[20];
+        Arrays.fill(arrayOfTwos, 2.0d);
+        double[] autocorrelations = new double[20];
+        
+        new FftAutocorrelation(20, 20).autocorrelate(arrayOfTwos, autocorrelations);
+        
+        for(int lag = 0; lag < autocorrelations.length; lag++) {
+            assertThat(autocorrelations[lag], is(closeTo((arrayOfTwos.length - lag) * 4.0d, TOLERANCE)));
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void moreLagsThanSamplesAreRejected() {
+        new FftAutocorrelation(20, 21);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void buffersOfAnotherSizeAreRejected() {
+        new FftAutocorrelation(20, 10).autocorrelate(new double[21], new double[10]);
+    }
+}
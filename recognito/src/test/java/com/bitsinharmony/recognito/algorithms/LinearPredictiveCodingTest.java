@@ -18,6 +18,7 @@ package com.bitsinharmony.recognito.algorithms;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.closeTo;
 import static org.junit.Assert.assertThat;
 
 import org.junit.Before;
@@ -61,6 +62,27 @@ public class LinearPredictiveCodingTest {
 //        System.out.println(errors.toString());
     }
     
+    @Test
+    public void fftAutocorrelationYieldsTheSameCoefficientsAsTheDirectOne() {
+        double[] window = generateSinusoidalTone(10, 100.0d, 10240.0d);
+        double[][] direct = new LinearPredictiveCoding(window.length, POLES, false).applyLinearPredictiveCoding(window);
+        double[] coeffs = direct[0].clone();
+        
+        double[][] fft = new LinearPredictiveCoding(window.length, POLES, true).applyLinearPredictiveCoding(window);
+        
+        for(int i = 0; i < POLES; i++) {
+            assertThat(fft[0][i], is(closeTo(coeffs[i], 1E-6d)));
+        }
+    }
+    
+    @Test
+    public void costModelSelectsTheFftForManyPolesOnly() {
+        assertThat(LinearPredictiveCoding.isFftAutocorrelationCheaper(512, POLES), is(false));
+        assertThat(LinearPredictiveCoding.isFftAutocorrelationCheaper(2048, POLES), is(false));
+        assertThat(LinearPredictiveCoding.isFftAutocorrelationCheaper(2048, 200), is(true));
+        assertThat(new LinearPredictiveCoding(2048, 200).usesFftAutocorrelation(), is(true));
+    }
+    
     /**
      * To generate a sinusoidal tone : 
      * f(x) = sin(2*pi*x*freq)
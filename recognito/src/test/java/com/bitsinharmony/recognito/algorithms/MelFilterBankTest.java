@@ -0,0 +1,62 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.algorithms;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class MelFilterBankTest {
+    
+    @Test
+    public void melConversionsAreInverseOfEachOther() {
+        assertThat(MelFilterBank.toMel(1000.0d), is(closeTo(1000.0d, 0.1d)));
+        assertThat(MelFilterBank.toHertz(MelFilterBank.toMel(4321.0d)), is(closeTo(4321.0d, 1E-9d)));
+    }
+    
+    @Test
+    public void eachFilterCollectsEnergyFromAFlatSpectrum() {
+        MelFilterBank bank = MelFilterBank.getInstance(16000.0f, 512, 26);
+        double[] flat = new double[257];
+        Arrays.fill(flat, 1.0d);
+        double[] energies = new double[26];
+        
+        bank.apply(flat, energies);
+        
+        assertThat(bank.getFilterCount(), is(equalTo(26)));
+        for(double energy : energies) {
+            assertThat(energy, is(greaterThan(0.0d)));
+        }
+    }
+    
+    @Test
+    public void banksAreSharedPerSampleRateFftSizeAndFilterCount() {
+        assertThat(MelFilterBank.getInstance(16000.0f, 512, 26), is(sameInstance(MelFilterBank.getInstance(16000.0f, 512, 26))));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void shortSpectraAreRejected() {
+        MelFilterBank.getInstance(16000.0f, 512, 26).apply(new double[256], new double[26]);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.algorithms;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PolyphaseResamplerTest {
+
+    @Test
+    public void toneBelowTheOutputNyquistFrequencyIsKept() {
+        double[] output = PolyphaseResampler.resample(tone(48000, 1000, 48000), 48000, 16000);
+        
+        assertThat(output.length, is(equalTo(16000)));
+        // away from the edges, where the filter sees zeros
+        assertThat(amplitude(output, 16000, 1000), is(closeTo(1.0d, 0.01d)));
+    }
+
+    @Test
+    public void toneBelowTheOutputNyquistFrequencyIsKeptForNonIntegerRatios() {
+        double[] output = PolyphaseResampler.resample(tone(44100, 2000, 44100), 44100, 16000);
+        
+        assertThat(output.length, is(equalTo(16000)));
+        assertThat(amplitude(output, 16000, 2000), is(closeTo(1.0d, 0.01d)));
+    }
+
+    @Test
+    public void toneAboveTheOutputNyquistFrequencyIsRemoved() {
+        double[] output = PolyphaseResampler.resample(tone(48000, 11000, 48000), 48000, 16000);
+        
+        // would alias at 5 kHz
+        assertThat(amplitude(output, 16000, 5000), is(lessThan(0.002d)));
+        assertThat(rms(Arrays.copyOfRange(output, 1000, output.length - 1000)), is(lessThan(0.002d)));
+    }
+
+    @Test
+    public void chunksYieldTheSameOutputAsTheWholeSample() {
+        Random random = new Random(42L);
+        double[] input = new double[10000];
+        for(int i = 0; i < input.length; i++) {
+            input[i] = random.nextDouble() * 2 - 1;
+        }
+        double[] expected = PolyphaseResampler.resample(input, 44100, 16000);
+        
+        PolyphaseResampler resampler = new PolyphaseResampler(44100, 16000);
+        double[] output = new double[expected.length];
+        int offset = 0;
+        int position = 0;
+        while(position < input.length) {
+            int length = Math.min(1 + random.nextInt(700), input.length - position);
+            int max = resampler.getMaxOutputLength(length);
+            int count = resampler.process(input, position, length, output, offset);
+            assertThat(count, is(equalTo(max)));
+            offset += count;
+            position += length;
+        }
+        
+        assertThat(offset, is(equalTo(expected.length)));
+        assertThat(output, is(equalTo(expected)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sampleRatesShouldBePositive() {
+        new PolyphaseResampler(0, 16000);
+    }
+
+    private double[] tone(float sampleRate, double frequency, int length) {
+        double[] tone = new double[length];
+        for(int i = 0; i < length; i++) {
+            tone[i] = Math.sin(2 * Math.PI * frequency * i / sampleRate);
+        }
+        return tone;
+    }
+
+    /**
+     * Amplitude of the given frequency, by correlation with a sine and a cosine, edges excluded
+     */
+    private double amplitude(double[] signal, float sampleRate, double frequency) {
+        double sin = 0.0d;
+        double cos = 0.0d;
+        int margin = signal.length / 10;
+        for(int i = margin; i < signal.length - margin; i++) {
+            double angle = 2 * Math.PI * frequency * i / sampleRate;
+            sin += signal[i] * Math.sin(angle);
+            cos += signal[i] * Math.cos(angle);
+        }
+        int length = signal.length - 2 * margin;
+        return 2 * Math.sqrt(sin * sin + cos * cos) / length;
+    }
+
+    private double rms(double[] signal) {
+        double sum = 0.0d;
+        for(double sample : signal) {
+            sum += sample * sample;
+        }
+        return Math.sqrt(sum / signal.length);
+    }
+}
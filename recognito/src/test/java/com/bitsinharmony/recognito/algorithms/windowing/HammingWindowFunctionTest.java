@@ -78,6 +78,26 @@ public class HammingWindowFunctionTest {
         hammingWindow.applyFunction(new double[WINDOW_SIZE + 1]);
     }
 
+    @Test
+    public void applyingFunctionWhileCopyingYieldsTheSameWindowAsCopyingThenApplying() {
+        double[] source = new double[WINDOW_SIZE * 2];
+        for(int i = 0; i < source.length; i++) {
+            source[i] = Math.sin(i);
+        }
+        double[] expected = Arrays.copyOfRange(source, 100, 100 + WINDOW_SIZE);
+        hammingWindow.applyFunction(expected);
+
+        double[] window = new double[WINDOW_SIZE];
+        hammingWindow.applyFunction(source, 100, window);
+
+        assertThat(window, is(equalTo(expected)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void callingApplyFunctionWithWindowExceedingTheSourceCausesIllegalArgumentException() {
+        hammingWindow.applyFunction(new double[WINDOW_SIZE * 2], WINDOW_SIZE + 1, new double[WINDOW_SIZE]);
+    }
+
     // merely for unwanted regression due to refactoring
     private static final double[] sample = new double[] {
         0.08000000000000002, 0.08003477285109217, 0.08013908614718973, 0.08031292411755042, 0.0805562604802531, 
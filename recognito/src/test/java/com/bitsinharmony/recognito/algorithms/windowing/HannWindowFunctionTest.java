@@ -78,6 +78,26 @@ public class HannWindowFunctionTest {
         hannWindow.applyFunction(new double[WINDOW_SIZE + 1]);
     }
 
+    @Test
+    public void applyingFunctionWhileCopyingYieldsTheSameWindowAsCopyingThenApplying() {
+        double[] source = new double[WINDOW_SIZE * 2];
+        for(int i = 0; i < source.length; i++) {
+            source[i] = Math.sin(i);
+        }
+        double[] expected = Arrays.copyOfRange(source, 100, 100 + WINDOW_SIZE);
+        hannWindow.applyFunction(expected);
+
+        double[] window = new double[WINDOW_SIZE];
+        hannWindow.applyFunction(source, 100, window);
+
+        assertThat(window, is(equalTo(expected)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void callingApplyFunctionWithWindowExceedingTheSourceCausesIllegalArgumentException() {
+        hannWindow.applyFunction(new double[WINDOW_SIZE * 2], WINDOW_SIZE + 1, new double[WINDOW_SIZE]);
+    }
+
     // merely for unwanted regression due to refactoring
     private static final double[] sample = new double[] {
         0.0, 3.7796577274096244E-5, 1.511805947714273E-4, 3.4013491038087373E-4, 6.046309567968589E-4, 
@@ -0,0 +1,153 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.cache;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class FeaturesCacheTest {
+
+    private static final float SAMPLE_RATE = 16000.0f;
+
+    @Test
+    public void cachedFeaturesAreCopies() {
+        FeaturesCache cache = new FeaturesCache(10);
+        double[] features = new double[] { 1.0d, 2.0d };
+        cache.put(key(1), features);
+        features[0] = 42.0d;
+
+        double[] cached = cache.get(key(1));
+        cached[1] = 42.0d;
+
+        assertThat(cache.get(key(1)), is(equalTo(new double[] { 1.0d, 2.0d })));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvictedFirst() {
+        FeaturesCache cache = new FeaturesCache(2);
+        cache.put(key(1), new double[] { 1.0d });
+        cache.put(key(2), new double[] { 2.0d });
+        cache.get(key(1));
+
+        cache.put(key(3), new double[] { 3.0d });
+
+        assertThat(cache.size(), is(equalTo(2)));
+        assertThat(cache.getEvictionCount(), is(equalTo(1L)));
+        assertThat(cache.get(key(2)), is(nullValue()));
+        assertThat(cache.get(key(1)), is(equalTo(new double[] { 1.0d })));
+        assertThat(cache.get(key(3)), is(equalTo(new double[] { 3.0d })));
+    }
+
+    @Test
+    public void entriesExpireAfterTheirTimeToLive() throws InterruptedException {
+        FeaturesCache cache = new FeaturesCache(10, 1, TimeUnit.MILLISECONDS);
+        cache.put(key(1), new double[] { 1.0d });
+        cache.put(key(2), new double[] { 2.0d });
+
+        Thread.sleep(10);
+        
+        assertThat(cache.get(key(1)), is(nullValue()));
+        cache.removeExpired();
+        assertThat(cache.size(), is(equalTo(0)));
+        assertThat(cache.getExpirationCount(), is(equalTo(2L)));
+    }
+
+    @Test
+    public void statisticsCountHitsAndMisses() {
+        FeaturesCache cache = new FeaturesCache(10);
+        cache.get(key(1));
+        cache.put(key(1), new double[] { 1.0d });
+        cache.get(key(1));
+        cache.get(key(1));
+        cache.get(key(2));
+
+        assertThat(cache.getHitCount(), is(equalTo(2L)));
+        assertThat(cache.getMissCount(), is(equalTo(2L)));
+        assertThat(cache.getHitRatio(), is(closeTo(0.5d, 1E-12d)));
+    }
+
+    @Test
+    public void persistentTierIsLookedUpOnMemoryMisses() {
+        InMemoryStore store = new InMemoryStore();
+        FeaturesCache cache = new FeaturesCache(10, 1, TimeUnit.HOURS, store);
+        cache.put(key(1), new double[] { 1.0d });
+        FeaturesCache restarted = new FeaturesCache(10, 1, TimeUnit.HOURS, store);
+
+        assertThat(restarted.get(key(1)), is(equalTo(new double[] { 1.0d })));
+        assertThat(restarted.get(key(1)), is(equalTo(new double[] { 1.0d })));
+        assertThat(restarted.getStoreHitCount(), is(equalTo(1L)));
+        assertThat(restarted.getHitCount(), is(equalTo(1L)));
+        assertThat(restarted.getMissCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void persistentTierFailuresAreCountedAsMisses() {
+        FeaturesStore failingStore = new FeaturesStore() {
+            @Override
+            public double[] load(SampleKey key) throws IOException {
+                throw new IOException("disk full");
+            }
+            @Override
+            public void save(SampleKey key, double[] features) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+        FeaturesCache cache = new FeaturesCache(10, 1, TimeUnit.HOURS, failingStore);
+        
+        cache.put(key(1), new double[] { 1.0d });
+        
+        assertThat(cache.get(key(1)), is(equalTo(new double[] { 1.0d })));
+        assertThat(cache.get(key(2)), is(nullValue()));
+        assertThat(cache.getStoreFailureCount(), is(equalTo(2L)));
+        assertThat(cache.getMissCount(), is(equalTo(1L)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cacheShouldHoldAtLeastOneEntry() {
+        new FeaturesCache(0);
+    }
+
+    private SampleKey key(int i) {
+        return new SampleKey(i, i, 1000, SAMPLE_RATE, "lpc-20");
+    }
+
+    private static class InMemoryStore 
+            implements FeaturesStore {
+
+        private final Map<SampleKey, double[]> features = new HashMap<SampleKey, double[]>();
+
+        @Override
+        public synchronized double[] load(SampleKey key) {
+            return features.get(key);
+        }
+
+        @Override
+        public synchronized void save(SampleKey key, double[] features) {
+            this.features.put(key, features);
+        }
+    }
+}
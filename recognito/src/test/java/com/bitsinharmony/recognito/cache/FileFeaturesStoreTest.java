@@ -0,0 +1,94 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.cache;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileFeaturesStoreTest {
+
+    private File directory;
+    private FileFeaturesStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("recognito", "");
+        directory.delete();
+        store = new FileFeaturesStore(directory);
+    }
+
+    @After
+    public void tearDown() {
+        for(File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void savedFeaturesAreLoadedBack() throws IOException {
+        SampleKey key = new SampleKey(1L, 2L, 1000, 16000.0f, "lpc-20");
+        double[] features = new double[] { 0.5d, -1.25d, Double.MIN_VALUE };
+
+        store.save(key, features);
+
+        assertThat(new FileFeaturesStore(directory).load(key), is(equalTo(features)));
+        assertThat(directory.listFiles().length, is(equalTo(1)));
+    }
+
+    @Test
+    public void savingAgainReplacesTheFeatures() throws IOException {
+        SampleKey key = new SampleKey(1L, 2L, 1000, 16000.0f, "lpc-20");
+        store.save(key, new double[] { 1.0d });
+
+        store.save(key, new double[] { 2.0d });
+
+        assertThat(store.load(key), is(equalTo(new double[] { 2.0d })));
+    }
+
+    @Test
+    public void featuresOfAnotherKindAreNotLoaded() throws IOException {
+        store.save(new SampleKey(1L, 2L, 1000, 16000.0f, "lpc-20"), new double[] { 1.0d });
+
+        assertThat(store.load(new SampleKey(1L, 2L, 1000, 16000.0f, "mfcc-20")), is(nullValue()));
+    }
+
+    @Test
+    public void unknownKeysYieldNull() throws IOException {
+        assertThat(store.load(new SampleKey(1L, 2L, 1000, 16000.0f, "lpc-20")), is(nullValue()));
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptedFilesAreReported() throws IOException {
+        SampleKey key = new SampleKey(1L, 2L, 1000, 16000.0f, "lpc-20");
+        FileOutputStream out = new FileOutputStream(new File(directory, key + ".features"));
+        out.write(new byte[] { 1, 2, 3 });
+        out.close();
+
+        store.load(key);
+    }
+}
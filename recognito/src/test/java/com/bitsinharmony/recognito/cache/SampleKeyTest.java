@@ -0,0 +1,100 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.cache;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.bitsinharmony.recognito.samples.SampleSource;
+
+public class SampleKeyTest {
+
+    private static final float SAMPLE_RATE = 16000.0f;
+    private static final String KIND = "lpc-20";
+
+    @Test
+    public void identicalSamplesHaveEqualKeys() {
+        double[] voiceSample = noise(10000);
+
+        SampleKey key = SampleKey.of(voiceSample, SAMPLE_RATE, KIND);
+
+        assertThat(SampleKey.of(voiceSample.clone(), SAMPLE_RATE, KIND), is(equalTo(key)));
+        assertThat(SampleKey.of(voiceSample.clone(), SAMPLE_RATE, KIND).hashCode(), is(equalTo(key.hashCode())));
+    }
+
+    @Test
+    public void sampleSourcesHaveTheKeyOfTheirValues() {
+        short[] pcm = new short[10000];
+        Random random = new Random(42L);
+        for(int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) random.nextInt();
+        }
+        SampleSource source = SampleSource.of(pcm);
+
+        assertThat(SampleKey.of(source, SAMPLE_RATE, KIND), 
+                is(equalTo(SampleKey.of(source.toArray(), SAMPLE_RATE, KIND))));
+    }
+
+    @Test
+    public void anyDifferenceChangesTheKey() {
+        double[] voiceSample = noise(10000);
+        SampleKey key = SampleKey.of(voiceSample, SAMPLE_RATE, KIND);
+
+        double[] modified = voiceSample.clone();
+        modified[5000] = Math.nextUp(modified[5000]);
+        
+        assertThat(SampleKey.of(modified, SAMPLE_RATE, KIND), is(not(equalTo(key))));
+        assertThat(SampleKey.of(voiceSample, 8000.0f, KIND), is(not(equalTo(key))));
+        assertThat(SampleKey.of(new double[10], SAMPLE_RATE, KIND), 
+                is(not(equalTo(SampleKey.of(new double[11], SAMPLE_RATE, KIND)))));
+        assertThat(SampleKey.of(voiceSample, SAMPLE_RATE, "mfcc-20"), is(not(equalTo(key))));
+    }
+
+    @Test
+    public void stringRepresentationIsMadeOfFixedLengthHashes() {
+        SampleKey key = new SampleKey(1L, -1L, 16, SAMPLE_RATE, KIND);
+
+        assertThat(key.toString(), is(equalTo("0000000000000001ffffffffffffffff-10-467a0000-lpc-20")));
+    }
+
+    @Test
+    public void featuresKindIsEscapedInTheStringRepresentation() {
+        SampleKey key = new SampleKey(1L, -1L, 16, SAMPLE_RATE, "my/lpc_20");
+
+        assertThat(key.toString(), is(equalTo("0000000000000001ffffffffffffffff-10-467a0000-my_002flpc_005f20")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullFeaturesKindThrowsIllegalArgumentException() {
+        SampleKey.of(new double[10], SAMPLE_RATE, null);
+    }
+
+    private double[] noise(int length) {
+        Random random = new Random(42L);
+        double[] voiceSample = new double[length];
+        for(int i = 0; i < length; i++) {
+            voiceSample[i] = random.nextDouble() * 2 - 1;
+        }
+        return voiceSample;
+    }
+}
@@ -26,6 +26,9 @@ import java.util.Arrays;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.bitsinharmony.recognito.samples.SampleSource;
+import com.bitsinharmony.recognito.vad.VoicedSegments;
+
 public class NormalizerTest {
 
     private Normalizer normalizer;
@@ -88,4 +91,34 @@ public class NormalizerTest {
         }
     }
     
+    @Test
+    public void normalizingVoicedSegmentsIgnoresAndPreservesSilence() {
+        Arrays.fill(values, 0.1d);
+        values[2] = 0.9d; // silent, neither taken into account nor modified
+        values[10] = 0.5d;
+        VoicedSegments segments = new VoicedSegments(values.length, new int[] { 5, 15 }, new int[] { 12, 20 });
+        
+        double gainMultiplier = normalizer.normalize(values, segments, 22050.0f);
+
+        assertThat(gainMultiplier, is(equalTo(2.0d)));
+        assertThat(values[2], is(equalTo(0.9d)));
+        assertThat(values[4], is(equalTo(0.1d)));
+        assertThat(values[10], is(equalTo(1.0d)));
+        assertThat(values[16], is(equalTo(0.2d)));
+    }
+    
+    @Test
+    public void lazyNormalizationYieldsTheSameValuesAndLeavesTheSourceUntouched() {
+        for(int i = 0; i < values.length; i++) {
+            values[i] = Math.sin(i) * 0.3d;
+        }
+        double[] expected = Arrays.copyOf(values, values.length);
+        normalizer.normalize(expected, 22050.0f);
+        
+        SampleSource normalized = normalizer.normalize(SampleSource.of(values), 22050.0f);
+
+        assertThat(normalized.toArray(), is(equalTo(expected)));
+        assertThat(values[1], is(equalTo(Math.sin(1) * 0.3d)));
+    }
+    
 }
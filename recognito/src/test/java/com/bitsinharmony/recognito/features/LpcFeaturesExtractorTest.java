@@ -16,11 +16,17 @@
  */
 package com.bitsinharmony.recognito.features;
 
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import mockit.Mock;
 import mockit.MockUp;
@@ -29,6 +35,7 @@ import org.junit.Test;
 
 import com.bitsinharmony.recognito.algorithms.LinearPredictiveCoding;
 import com.bitsinharmony.recognito.algorithms.windowing.WindowFunction;
+import com.bitsinharmony.recognito.vad.VoicedSegments;
 
 public class LpcFeaturesExtractorTest {
     
@@ -49,7 +56,7 @@ public class LpcFeaturesExtractorTest {
     public void lpcExtractorUsesWindowsOfCorrectLengthForMostUsedSampleRates() {
         final int[] i = new int[1];
         new MockUp<WindowFunction>() {
-            @Mock void applyFunction(double[] window) {
+            @Mock void applyFunction(double[] source, int sourceOffset, double[] window) {
                 assertThat(window.length, is(equalTo(WINDOW_LENGTHS[i[0]])));
             }
         };
@@ -88,4 +95,94 @@ public class LpcFeaturesExtractorTest {
         
         assertThat(features, is(equalTo(reference)));
     }
+    
+    @Test
+    public void windowCountMatchesTheNumberOfWindowsProcessed() {
+        lpc = new LpcFeaturesExtractor(DEFAULT_SAMPLE_RATE, POLES);
+        // window size 512 with step 256
+        assertThat(lpc.getWindowCount(4096), is(equalTo(15)));
+        assertThat(lpc.getWindowCount(512), is(equalTo(1)));
+        assertThat(lpc.getWindowCount(511), is(equalTo(0)));
+    }
+    
+    @Test
+    public void parallelModeYieldsTheSequentialFeaturesWithinTolerance() {
+        double[] voiceSample = noise(LpcFeaturesExtractor.MIN_WINDOWS_PER_SEGMENT * 256 * 5);
+        double[] reference = new LpcFeaturesExtractor(DEFAULT_SAMPLE_RATE, POLES).extractFeatures(voiceSample);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            lpc = new LpcFeaturesExtractor(DEFAULT_SAMPLE_RATE, POLES, executor, 4);
+            
+            double[] features = lpc.extractFeatures(voiceSample);
+            
+            for(int i = 0; i < POLES; i++) {
+                assertThat(features[i], is(closeTo(reference[i], 1E-9d)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    public void parallelModeRunsRejectedSegmentsOnTheCallingThread() {
+        double[] voiceSample = noise(LpcFeaturesExtractor.MIN_WINDOWS_PER_SEGMENT * 256 * 3);
+        double[] reference = new LpcFeaturesExtractor(DEFAULT_SAMPLE_RATE, POLES).extractFeatures(voiceSample);
+        Executor rejectingExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        };
+        lpc = new LpcFeaturesExtractor(DEFAULT_SAMPLE_RATE, POLES, rejectingExecutor, 3);
+        
+        double[] features = lpc.extractFeatures(voiceSample);
+        
+        for(int i = 0; i < POLES; i++) {
+            assertThat(features[i], is(closeTo(reference[i], 1E-9d)));
+        }
+    }
+    
+    @Test
+    public void parallelModeProcessesShortSamplesSequentially() {
+        double[] voiceSample = noise(4096);
+        Executor failingExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new AssertionError("Short samples should not be split");
+            }
+        };
+        lpc = new LpcFeaturesExtractor(DEFAULT_SAMPLE_RATE, POLES, failingExecutor, 4);
+        
+        double[] features = lpc.extractFeatures(voiceSample);
+        
+        assertThat(features, is(equalTo(new LpcFeaturesExtractor(DEFAULT_SAMPLE_RATE, POLES).extractFeatures(voiceSample))));
+    }
+    
+    @Test
+    public void voicedSegmentsYieldTheFeaturesOfTheSampleWithSilenceRemoved() {
+        lpc = new LpcFeaturesExtractor(DEFAULT_SAMPLE_RATE, POLES);
+        double[] voiceSample = noise(8192);
+        // windows of 512 samples, some of them spanning both segments
+        VoicedSegments segments = new VoicedSegments(voiceSample.length, new int[] { 100, 3500 }, new int[] { 3000, 8000 });
+        
+        double[] features = lpc.extractFeatures(voiceSample, segments);
+        
+        assertThat(features, is(equalTo(lpc.extractFeatures(segments.copyVoiced(voiceSample)))));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void voicedSegmentsOfAnotherSampleAreRejected() {
+        lpc = new LpcFeaturesExtractor(DEFAULT_SAMPLE_RATE, POLES);
+        
+        lpc.extractFeatures(new double[4096], VoicedSegments.whole(8192));
+    }
+    
+    private double[] noise(int length) {
+        Random random = new Random(42L);
+        double[] voiceSample = new double[length];
+        for(int i = 0; i < length; i++) {
+            voiceSample[i] = random.nextDouble() * 2 - 1;
+        }
+        return voiceSample;
+    }
 }
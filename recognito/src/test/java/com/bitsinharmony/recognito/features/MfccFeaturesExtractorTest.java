@@ -0,0 +1,108 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.features;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.bitsinharmony.recognito.vad.VoicedSegments;
+
+public class MfccFeaturesExtractorTest {
+    
+    private static final int COEFFICIENTS = 13;
+    private static final float DEFAULT_SAMPLE_RATE = 16000;
+    
+    private static final float[] SAMPLE_RATES = new float[] {
+        8000, 16000, 22050, 44100, 48000, 96000
+    };
+    
+    @Test
+    public void extractorReturnsTheRequestedNumberOfCoefficientsForMostUsedSampleRates() {
+        for(float sampleRate : SAMPLE_RATES) {
+            MfccFeaturesExtractor mfcc = new MfccFeaturesExtractor(sampleRate, COEFFICIENTS);
+            
+            double[] features = mfcc.extractFeatures(tone(440.0d, sampleRate, (int) sampleRate / 4));
+            
+            assertThat(features.length, is(equalTo(COEFFICIENTS)));
+        }
+    }
+    
+    @Test
+    public void extractionIsRepeatable() {
+        MfccFeaturesExtractor mfcc = new MfccFeaturesExtractor(DEFAULT_SAMPLE_RATE, COEFFICIENTS);
+        double[] sample = tone(440.0d, DEFAULT_SAMPLE_RATE, 8000);
+        
+        double[] first = mfcc.extractFeatures(sample);
+        double[] second = mfcc.extractFeatures(sample);
+        
+        assertThat(second, is(equalTo(first)));
+    }
+    
+    @Test
+    public void differentSpectraYieldDifferentFeatures() {
+        MfccFeaturesExtractor mfcc = new MfccFeaturesExtractor(DEFAULT_SAMPLE_RATE, COEFFICIENTS);
+        
+        double[] low = mfcc.extractFeatures(tone(200.0d, DEFAULT_SAMPLE_RATE, 8000));
+        double[] high = mfcc.extractFeatures(tone(3000.0d, DEFAULT_SAMPLE_RATE, 8000));
+        
+        double distance = 0.0d;
+        for(int i = 0; i < COEFFICIENTS; i++) {
+            distance += (low[i] - high[i]) * (low[i] - high[i]);
+        }
+        assertThat(distance, is(greaterThan(1.0d)));
+    }
+    
+    @Test
+    public void samplesShorterThanAWindowYieldZeroFeatures() {
+        MfccFeaturesExtractor mfcc = new MfccFeaturesExtractor(DEFAULT_SAMPLE_RATE, COEFFICIENTS);
+        
+        assertThat(mfcc.extractFeatures(new double[100]), is(equalTo(new double[COEFFICIENTS])));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void extractorRejectsAsManyCoefficientsAsFilters() {
+        new MfccFeaturesExtractor(DEFAULT_SAMPLE_RATE, 26, 26);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void extractorRejectsSampleRatesLowerThan8000() {
+        new MfccFeaturesExtractor(8000.0f - Math.ulp(8000.0f), COEFFICIENTS);
+    }
+    
+    @Test
+    public void voicedSegmentsYieldTheFeaturesOfTheSampleWithSilenceRemoved() {
+        MfccFeaturesExtractor mfcc = new MfccFeaturesExtractor(DEFAULT_SAMPLE_RATE, COEFFICIENTS);
+        double[] sample = tone(440.0d, DEFAULT_SAMPLE_RATE, 8192);
+        VoicedSegments segments = new VoicedSegments(sample.length, new int[] { 100, 3500 }, new int[] { 3000, 8000 });
+        
+        double[] features = mfcc.extractFeatures(sample, segments);
+        
+        assertThat(features, is(equalTo(mfcc.extractFeatures(segments.copyVoiced(sample)))));
+    }
+    
+    private double[] tone(double frequency, float sampleRate, int length) {
+        double[] sample = new double[length];
+        for(int i = 0; i < length; i++) {
+            sample[i] = Math.sin(2 * Math.PI * frequency * i / sampleRate);
+        }
+        return sample;
+    }
+}
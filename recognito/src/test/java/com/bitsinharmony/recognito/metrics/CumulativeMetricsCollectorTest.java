@@ -0,0 +1,67 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.metrics;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Tests for the CumulativeMetricsCollector class
+ * @author Amaury Crickx
+ */
+public class CumulativeMetricsCollectorTest {
+
+    private final CumulativeMetricsCollector metrics = new CumulativeMetricsCollector();
+
+    @Test
+    public void timesAreAccumulatedPerStage() {
+        metrics.recordTime(Stage.FEATURES, 10L);
+        metrics.recordTime(Stage.FEATURES, 20L);
+        metrics.recordTime(Stage.VAD, 5L);
+
+        assertThat(metrics.getCount(Stage.FEATURES), is(equalTo(2L)));
+        assertThat(metrics.getTotalNanos(Stage.FEATURES), is(equalTo(30L)));
+        assertThat(metrics.getCount(Stage.VAD), is(equalTo(1L)));
+        assertThat(metrics.getTotalNanos(Stage.VAD), is(equalTo(5L)));
+        assertThat(metrics.getCount(Stage.SCORING), is(equalTo(0L)));
+    }
+
+    @Test
+    public void countersAreAccumulated() {
+        metrics.recordWindows(3);
+        metrics.recordWindows(4);
+        metrics.recordCandidatesScored(100);
+        metrics.recordCandidatesScored(1);
+
+        assertThat(metrics.getWindows(), is(equalTo(7L)));
+        assertThat(metrics.getCandidatesScored(), is(equalTo(101L)));
+    }
+
+    @Test
+    public void silenceRatioIsAveraged() {
+        assertThat(metrics.getAverageSilenceRatio(), is(equalTo(0.0d)));
+
+        metrics.recordSilenceRatio(0.25d);
+        metrics.recordSilenceRatio(0.5d);
+
+        assertThat(metrics.getAverageSilenceRatio(), is(closeTo(0.375d, 1E-6d)));
+    }
+}
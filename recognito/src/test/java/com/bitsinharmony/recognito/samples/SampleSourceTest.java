@@ -0,0 +1,106 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.samples;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+import com.bitsinharmony.recognito.algorithms.windowing.HammingWindowFunction;
+
+public class SampleSourceTest {
+
+    private static final short[] PCM = new short[] { 0, 16384, -16384, Short.MAX_VALUE, Short.MIN_VALUE };
+    private static final double[] VALUES = new double[] { 0.0d, 0.5d, -0.5d, 32767.0d / 32768, -1.0d };
+
+    @Test
+    public void shortsAreDividedBy32768() {
+        assertThat(SampleSource.of(PCM).toArray(), is(equalTo(VALUES)));
+    }
+
+    @Test
+    public void floatsAreReadAsIs() {
+        float[] floats = new float[] { 0.0f, 0.5f, -0.25f };
+
+        assertThat(SampleSource.of(floats).toArray(), is(equalTo(new double[] { 0.0d, 0.5d, -0.25d })));
+    }
+
+    @Test
+    public void pcm16BuffersAreReadWithTheirByteOrder() {
+        for(ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+            ByteBuffer buffer = ByteBuffer.allocate(PCM.length * 2).order(order);
+            buffer.asShortBuffer().put(PCM);
+
+            assertThat(SampleSource.ofPcm16(buffer).toArray(), is(equalTo(VALUES)));
+        }
+    }
+
+    @Test
+    public void pcm16BuffersAreReadFromTheirPositionWithoutModifyingIt() {
+        ByteBuffer buffer = ByteBuffer.allocate(PCM.length * 2 + 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putShort((short) 1234);
+        buffer.asShortBuffer().put(PCM);
+
+        SampleSource source = SampleSource.ofPcm16(buffer);
+
+        assertThat(source.getLength(), is(equalTo(PCM.length)));
+        assertThat(source.toArray(), is(equalTo(VALUES)));
+        assertThat(buffer.position(), is(equalTo(2)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pcm16BuffersWithAnOddNumberOfBytesAreRejected() {
+        SampleSource.ofPcm16(ByteBuffer.allocate(5));
+    }
+
+    @Test
+    public void partialReadsHonourTheOffsets() {
+        double[] dest = new double[4];
+
+        SampleSource.of(PCM).read(1, dest, 2, 2);
+
+        assertThat(dest, is(equalTo(new double[] { 0.0d, 0.0d, 0.5d, -0.5d })));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readingBeyondTheLengthIsRejected() {
+        SampleSource.of(PCM).read(3, new double[3], 0, 3);
+    }
+
+    @Test
+    public void readWindowAppliesTheWindowFunctionWhateverTheSource() {
+        short[] pcm = new short[64];
+        double[] values = new double[pcm.length];
+        for(int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) (i * 500 - 16000);
+            values[i] = (double) pcm[i] / 32768;
+        }
+        HammingWindowFunction windowFunction = new HammingWindowFunction(32);
+        double[] expected = new double[32];
+        double[] actual = new double[32];
+
+        SampleSource.of(values).readWindow(16, windowFunction, expected);
+        SampleSource.of(pcm).readWindow(16, windowFunction, actual);
+
+        assertThat(actual, is(equalTo(expected)));
+    }
+}
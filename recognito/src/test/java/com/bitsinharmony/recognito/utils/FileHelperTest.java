@@ -0,0 +1,182 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.utils;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.Test;
+
+import com.bitsinharmony.recognito.samples.SampleSource;
+
+public class FileHelperTest {
+
+    @Test
+    public void monoSamplesAreDividedBy32768() throws Exception {
+        double[] decoded = FileHelper.readAudioInputStream(stream(1, 0, 16384, -16384, Short.MIN_VALUE));
+        
+        assertThat(decoded, is(equalTo(new double[] { 0.0d, 0.5d, -0.5d, -1.0d })));
+    }
+
+    @Test
+    public void stereoFramesAreAveragedWhileDecoded() throws Exception {
+        double[] decoded = FileHelper.readAudioInputStream(stream(2, 16384, -8192, 16384, 16384, 0, Short.MIN_VALUE));
+        
+        assertThat(decoded, is(equalTo(new double[] { 0.125d, 0.5d, -0.5d })));
+    }
+
+    @Test
+    public void multichannelFramesAreAveragedAsPcm16() throws Exception {
+        ByteBuffer pcm16 = FileHelper.readAudioInputStreamAsPcm16(stream(4, 100, 200, 300, 400, -4, -4, -4, -4));
+        
+        assertThat(pcm16.remaining(), is(equalTo(4)));
+        assertThat(pcm16.getShort(0), is(equalTo((short) 250)));
+        assertThat(pcm16.getShort(2), is(equalTo((short) -4)));
+    }
+
+    @Test
+    public void halfwayAveragesAreRoundedAwayFromZero() throws Exception {
+        ByteBuffer pcm16 = FileHelper.readAudioInputStreamAsPcm16(stream(2, 1, 2, -1, -2, 3, -4));
+        
+        assertThat(pcm16.getShort(0), is(equalTo((short) 2)));
+        assertThat(pcm16.getShort(2), is(equalTo((short) -2)));
+        assertThat(pcm16.getShort(4), is(equalTo((short) -1)));
+    }
+
+    @Test
+    public void doublesAndPcm16AgreeOnMultichannelFiles() throws Exception {
+        Random random = new Random(42L);
+        for(int channels = 2; channels <= 6; channels++) {
+            short[] samples = new short[channels * 5001];
+            for(int i = 0; i < samples.length; i++) {
+                samples[i] = (short) random.nextInt();
+            }
+            
+            double[] decoded = FileHelper.readAudioInputStream(stream(channels, samples));
+            ByteBuffer pcm16 = FileHelper.readAudioInputStreamAsPcm16(stream(channels, samples));
+            
+            assertThat(decoded, is(equalTo(SampleSource.ofPcm16(pcm16).toArray())));
+        }
+    }
+
+    @Test
+    public void doublesAndPcm16AgreeOnResampledFiles() throws Exception {
+        short[] samples = new short[2 * 20001];
+        for(int i = 0; i < samples.length; i++) {
+            samples[i] = (short) (20000 * Math.sin(i * 0.01d) + 3000 * Math.sin(i * 1.3d));
+        }
+        
+        for(int channels = 1; channels <= 2; channels++) {
+            double[] decoded = FileHelper.readAudioInputStream(stream(channels, samples), 8000.0f);
+            ByteBuffer pcm16 = FileHelper.readAudioInputStreamAsPcm16(stream(channels, samples), 8000.0f);
+            
+            assertThat(decoded, is(equalTo(SampleSource.ofPcm16(pcm16).toArray())));
+        }
+    }
+
+    @Test
+    public void streamsOfUnknownLengthAreDecoded() throws Exception {
+        // longer than a single read
+        short[] stereo = new short[2 * 20001];
+        for(int i = 0; i < stereo.length; i++) {
+            stereo[i] = (short) (10000 * Math.sin(i * 0.05d));
+        }
+        for(int channels = 1; channels <= 2; channels++) {
+            AudioFormat format = stream(channels, stereo).getFormat();
+            AudioInputStream unknownLength = new AudioInputStream(stream(channels, stereo), format, 
+                    AudioSystem.NOT_SPECIFIED);
+            AudioInputStream unknownLengthToo = new AudioInputStream(stream(channels, stereo), format, 
+                    AudioSystem.NOT_SPECIFIED);
+
+            assertThat(FileHelper.readAudioInputStream(unknownLength), 
+                    is(equalTo(FileHelper.readAudioInputStream(stream(channels, stereo)))));
+            assertThat(FileHelper.readAudioInputStreamAsPcm16(unknownLengthToo), 
+                    is(equalTo(FileHelper.readAudioInputStreamAsPcm16(stream(channels, stereo)))));
+        }
+    }
+
+    @Test
+    public void streamsOfUnknownLengthAreResampled() throws Exception {
+        short[] samples = new short[20001];
+        for(int i = 0; i < samples.length; i++) {
+            samples[i] = (short) (10000 * Math.sin(i * 0.05d));
+        }
+        AudioInputStream unknownLength = new AudioInputStream(stream(1, samples), 
+                stream(1, samples).getFormat(), AudioSystem.NOT_SPECIFIED);
+        AudioInputStream unknownLengthToo = new AudioInputStream(stream(1, samples), 
+                stream(1, samples).getFormat(), AudioSystem.NOT_SPECIFIED);
+        
+        assertThat(FileHelper.readAudioInputStream(unknownLength, 8000.0f), 
+                is(equalTo(FileHelper.readAudioInputStream(stream(1, samples), 8000.0f))));
+        assertThat(FileHelper.readAudioInputStreamAsPcm16(unknownLengthToo, 8000.0f), 
+                is(equalTo(FileHelper.readAudioInputStreamAsPcm16(stream(1, samples), 8000.0f))));
+    }
+
+    @Test
+    public void stereoWithIdenticalChannelsDecodesAsMono() throws Exception {
+        // longer than a single read, with an odd number of frames
+        short[] mono = new short[20001];
+        short[] stereo = new short[2 * mono.length];
+        for(int i = 0; i < mono.length; i++) {
+            mono[i] = (short) (10000 * Math.sin(i * 0.05d));
+            stereo[2 * i] = mono[i];
+            stereo[2 * i + 1] = mono[i];
+        }
+        
+        assertThat(FileHelper.readAudioInputStream(stream(2, stereo)), 
+                is(equalTo(FileHelper.readAudioInputStream(stream(1, mono)))));
+        assertThat(FileHelper.readAudioInputStreamAsPcm16(stream(2, stereo)), 
+                is(equalTo(FileHelper.readAudioInputStreamAsPcm16(stream(1, mono)))));
+        assertThat(FileHelper.readAudioInputStream(stream(2, stereo), 8000.0f), 
+                is(equalTo(FileHelper.readAudioInputStream(stream(1, mono), 8000.0f))));
+        assertThat(FileHelper.readAudioInputStreamAsPcm16(stream(2, stereo), 8000.0f), 
+                is(equalTo(FileHelper.readAudioInputStreamAsPcm16(stream(1, mono), 8000.0f))));
+    }
+
+    /**
+     * Get a 16 kHz little endian 16 bit PCM stream, as found in wave files
+     * @param channels the number of channels
+     * @param samples the interleaved samples
+     * @return the stream
+     */
+    private AudioInputStream stream(int channels, int... samples) {
+        short[] pcm = new short[samples.length];
+        for(int i = 0; i < samples.length; i++) {
+            pcm[i] = (short) samples[i];
+        }
+        return stream(channels, pcm);
+    }
+
+    private AudioInputStream stream(int channels, short[] samples) {
+        byte[] bytes = new byte[samples.length * 2];
+        for(int i = 0; i < samples.length; i++) {
+            bytes[2 * i] = (byte) samples[i];
+            bytes[2 * i + 1] = (byte) (samples[i] >> 8);
+        }
+        AudioFormat format = new AudioFormat(16000.0f, 16, channels, true, false);
+        return new AudioInputStream(new ByteArrayInputStream(bytes), format, samples.length / channels);
+    }
+}
@@ -27,6 +27,8 @@ import java.util.Random;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.bitsinharmony.recognito.samples.SampleSource;
+
 public class AutocorrellatedVoiceActivityDetectorTest {
     
     private static final int DEFAULT_SAMPLE_RATE = 22050;
@@ -82,6 +84,47 @@ public class AutocorrellatedVoiceActivityDetectorTest {
         assertThat(output.length, is(equalTo(vaLength)));
     }
 
+    @Test
+    public void voicedSegmentsLocateTheVoicedPartsWithoutCopyingThem() {
+        int sampleRate = 40000; 
+        int vaLength = vad.getMinimumVoiceActivityLength(sampleRate);
+        double[] noisy = new double[8160];
+        Arrays.fill(noisy, 0, vaLength, 1.0);
+        makeSomeNoise(noisy, sampleRate, vaLength, noisy.length);
+        double[] copy = noisy.clone();
+        
+        VoicedSegments segments = vad.detectVoicedSegments(noisy, sampleRate);
+
+        assertThat(segments.getSegmentCount(), is(equalTo(1)));
+        assertThat(segments.getStart(0), is(equalTo(0)));
+        assertThat(segments.getEnd(0), is(equalTo(vaLength)));
+        // same fades, same voiced samples as removeSilence
+        assertThat(segments.copyVoiced(noisy), is(equalTo(vad.removeSilence(copy, sampleRate))));
+    }
+
+    @Test
+    public void lazySilenceRemovalYieldsTheSameSamplesAndLeavesTheSourceUntouched() {
+        int sampleRate = 40000; 
+        int vaLength = vad.getMinimumVoiceActivityLength(sampleRate);
+        double[] noisy = new double[8160];
+        Arrays.fill(noisy, 0, vaLength, 0.5);
+        makeSomeNoise(noisy, sampleRate, vaLength, noisy.length);
+        double[] copy = noisy.clone();
+        
+        SampleSource voiced = vad.removeSilence(SampleSource.of(noisy), sampleRate);
+
+        assertThat(voiced.toArray(), is(equalTo(vad.removeSilence(copy, sampleRate))));
+        assertThat(noisy[0], is(equalTo(0.5d)));
+    }
+
+    @Test
+    public void pureSilenceHasNoVoicedSegments() {
+        VoicedSegments segments = vad.detectVoicedSegments(new double[8192], DEFAULT_SAMPLE_RATE);
+        
+        assertThat(segments.getSegmentCount(), is(equalTo(0)));
+        assertThat(segments.getVoicedLength(), is(equalTo(0)));
+    }
+
     /**
      * Create white noise
      * @param noisy the buffer to fill with noise
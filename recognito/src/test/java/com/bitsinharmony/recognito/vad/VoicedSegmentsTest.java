@@ -0,0 +1,97 @@
+/*
+ * (C) Copyright 2014 Amaury Crickx
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.bitsinharmony.recognito.vad;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class VoicedSegmentsTest {
+
+    private double[] voiceSample;
+    private VoicedSegments segments;
+
+    @Before
+    public void setUp() {
+        voiceSample = new double[20];
+        for(int i = 0; i < voiceSample.length; i++) {
+            voiceSample[i] = i;
+        }
+        // voiced : 2, 3, 4, 10, 11, 15, 16, 17, 18
+        segments = new VoicedSegments(voiceSample.length, new int[] { 2, 10, 15 }, new int[] { 5, 12, 19 }, 3);
+    }
+
+    @Test
+    public void voicedLengthIsTheSumOfTheSegmentLengths() {
+        assertThat(segments.getVoicedLength(), is(equalTo(9)));
+        assertThat(segments.getSegmentCount(), is(equalTo(3)));
+        assertThat(segments.isWhole(), is(equalTo(false)));
+    }
+
+    @Test
+    public void copyVoicedSkipsSilence() {
+        double[] voiced = segments.copyVoiced(voiceSample);
+
+        assertThat(voiced, is(equalTo(new double[] { 2, 3, 4, 10, 11, 15, 16, 17, 18 })));
+    }
+
+    @Test
+    public void partialCopyMaySpanSeveralSegments() {
+        double[] window = new double[5];
+
+        segments.copyVoiced(voiceSample, 2, window, 0, 5);
+
+        assertThat(window, is(equalTo(new double[] { 4, 10, 11, 15, 16 })));
+    }
+
+    @Test
+    public void voicedIndicesAreMappedToTheVoiceSample() {
+        assertThat(segments.getSourceIndex(0), is(equalTo(2)));
+        assertThat(segments.getSourceIndex(3), is(equalTo(10)));
+        assertThat(segments.getSourceIndex(8), is(equalTo(18)));
+        assertThat(segments.getContiguousLength(0), is(equalTo(3)));
+        assertThat(segments.getContiguousLength(4), is(equalTo(1)));
+        assertThat(segments.getContiguousLength(6), is(equalTo(3)));
+    }
+
+    @Test
+    public void wholeSegmentsCoverTheVoiceSample() {
+        VoicedSegments whole = VoicedSegments.whole(voiceSample.length);
+
+        assertThat(whole.isWhole(), is(equalTo(true)));
+        assertThat(whole.getSegmentCount(), is(equalTo(1)));
+        assertThat(whole.copyVoiced(voiceSample), is(equalTo(voiceSample)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void overlappingSegmentsAreRejected() {
+        new VoicedSegments(voiceSample.length, new int[] { 2, 4 }, new int[] { 5, 8 }, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void voicedIndexBeyondTheVoicedLengthIsRejected() {
+        segments.getSourceIndex(9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void copyFromAVoiceSampleOfAnotherLengthIsRejected() {
+        segments.copyVoiced(new double[10]);
+    }
+}